@@ -34,6 +34,14 @@ public class WebViewProvider {
         GeckoView.preload(context);
     }
 
+    public static void prewarm(final Context context) {
+        // Nothing: GeckoView.preload() already does the expensive work ahead of time.
+    }
+
+    public static String getPoolSummary() {
+        return "No pool: GeckoView is preloaded instead";
+    }
+
     public static View create(Context context, AttributeSet attrs) {
         final GeckoViewSettings settings = new GeckoViewSettings();
         settings.setBoolean(GeckoViewSettings.USE_MULTIPROCESS, false);
@@ -44,8 +52,11 @@ public class WebViewProvider {
         return geckoView;
     }
 
-    public static void performCleanup(final Context context) {
+    public static EraseOperation performCleanup(final Context context) {
         // Nothing: does Gecko need extra private mode cleanup?
+        final EraseOperation operation = EraseOperation.start();
+        operation.seal();
+        return operation;
     }
 
     public static class GeckoWebView extends NestedGeckoView implements IWebView {
@@ -98,7 +109,7 @@ public class WebViewProvider {
         }
 
         @Override
-        public void cleanup() {
+        public void cleanup(EraseOperation operation) {
             // We're running in a private browsing window, so nothing to do
         }
 
@@ -7,27 +7,151 @@ package org.mozilla.focus;
 
 import android.os.StrictMode;
 import android.preference.PreferenceManager;
+import android.util.Log;
 
 import org.mozilla.focus.locale.LocaleAwareApplication;
 import org.mozilla.focus.search.SearchEngineManager;
+import org.mozilla.focus.startup.StartupScheduler;
+import org.mozilla.focus.startup.StartupTask;
+import org.mozilla.focus.startup.StartupTimeline;
 import org.mozilla.focus.telemetry.TelemetryWrapper;
 import org.mozilla.focus.utils.AdjustHelper;
 import org.mozilla.focus.utils.AppConstants;
+import org.mozilla.focus.utils.BrowserIdentity;
+import org.mozilla.focus.utils.BrowsersCache;
+import org.mozilla.focus.utils.ThreadUtils;
+import org.mozilla.focus.utils.TrimMemoryCoordinator;
+import org.mozilla.focus.web.WebViewProvider;
+
+import java.io.File;
+import java.io.IOException;
 
 public class FocusApplication extends LocaleAwareApplication {
 
+    private static final String LOG_TAG = "FocusApplication";
+
+    private static final String STARTUP_TRACE_FILE = "startup-trace.json";
+
     @Override
     public void onCreate() {
         super.onCreate();
 
-        PreferenceManager.setDefaultValues(this, R.xml.settings, false);
+        createStartupScheduler().start();
+    }
+
+    @Override
+    public void onTrimMemory(int level) {
+        super.onTrimMemory(level);
+
+        TrimMemoryCoordinator.getInstance().onTrimMemory(level);
+    }
+
+    @Override
+    public void onLowMemory() {
+        super.onLowMemory();
+
+        TrimMemoryCoordinator.getInstance().onLowMemory();
+    }
+
+    /**
+     * Only put tasks into the BEFORE_FIRST_FRAME phase if the first frame (or code running before
+     * it, like MainActivity.onResume()) can't do without them.
+     */
+    private StartupScheduler createStartupScheduler() {
+        final FocusApplication application = this;
+
+        return new StartupScheduler(this)
+                .add(new StartupTask("default-preferences", StartupTask.Phase.BEFORE_FIRST_FRAME) {
+                    @Override
+                    public void run() {
+                        PreferenceManager.setDefaultValues(application, R.xml.settings, false);
+                    }
+                })
+                // Setting the default values reads from and writes to disk: Only enable StrictMode afterwards.
+                .add(new StartupTask("strict-mode", StartupTask.Phase.BEFORE_FIRST_FRAME, "default-preferences") {
+                    @Override
+                    public void run() {
+                        enableStrictMode();
+                    }
+                })
+                // Only starts loading on a background thread. Search URLs can be built from the
+                // previous run until loading has finished.
+                .add(new StartupTask("search-engines", StartupTask.Phase.BEFORE_FIRST_FRAME) {
+                    @Override
+                    public void run() {
+                        SearchEngineManager.getInstance().init(application);
+                    }
+                })
+                // MainActivity records the session start in onResume(), before the first frame.
+                .add(new StartupTask("telemetry", StartupTask.Phase.BEFORE_FIRST_FRAME, "default-preferences") {
+                    @Override
+                    public void run() {
+                        TelemetryWrapper.init(application);
+                    }
+                })
+                // Adjust needs to see the first onResume() of our activity.
+                .add(new StartupTask("adjust", StartupTask.Phase.BEFORE_FIRST_FRAME, "telemetry") {
+                    @Override
+                    public void run() {
+                        AdjustHelper.setupAdjustIfNeeded(application);
+                    }
+                })
+                // Only posts to a background thread. The user agent, the about page and the SUMO
+                // links need the app version and we do not want to query it on the main thread.
+                .add(new StartupTask("browser-identity", StartupTask.Phase.BEFORE_FIRST_FRAME) {
+                    @Override
+                    public void run() {
+                        BrowserIdentity.preload(application);
+                    }
+                })
+                // Creating a WebView will trigger this again if needed, so there's no reason to
+                // delay the first frame for this.
+                .add(new StartupTask("webview-preload", StartupTask.Phase.AFTER_FIRST_FRAME, "browser-identity") {
+                    @Override
+                    public void run() {
+                        WebViewProvider.preload(application);
+                    }
+                })
+                .add(new StartupTask("webview-prewarm", StartupTask.Phase.IDLE, "webview-preload") {
+                    @Override
+                    public void run() {
+                        WebViewProvider.prewarm(application);
+                    }
+                })
+                // Only needed once the user opens the menu (or settings): Looking up browsers takes
+                // multiple IPC calls, which happen on a background thread.
+                .add(new StartupTask("browsers", StartupTask.Phase.AFTER_FIRST_FRAME) {
+                    @Override
+                    public void run() {
+                        BrowsersCache.getInstance().init(application);
+                    }
+                })
+                .add(new StartupTask("startup-trace", StartupTask.Phase.IDLE) {
+                    @Override
+                    public void run() {
+                        if (AppConstants.isDevBuild()) {
+                            exportStartupTrace();
+                        }
+                    }
+                });
+    }
 
-        enableStrictMode();
+    private void exportStartupTrace() {
+        final StartupTimeline timeline = StartupTimeline.getInstance();
+        timeline.logSummary();
 
-        SearchEngineManager.getInstance().init(this);
+        final File file = new File(getFilesDir(), STARTUP_TRACE_FILE);
 
-        TelemetryWrapper.init(this);
-        AdjustHelper.setupAdjustIfNeeded(this);
+        ThreadUtils.postToBackgroundThread(new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    timeline.writeTrace(file);
+                } catch (IOException e) {
+                    Log.w(LOG_TAG, "Could not write startup trace", e);
+                }
+            }
+        });
     }
 
     private void enableStrictMode() {
@@ -90,8 +90,6 @@ public class MainActivity extends LocaleAwareAppCompatActivity {
                 }
             }
         }
-
-        WebViewProvider.preload(this);
     }
 
     @Override
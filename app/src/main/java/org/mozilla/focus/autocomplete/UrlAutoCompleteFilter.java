@@ -13,6 +13,7 @@ import android.support.annotation.VisibleForTesting;
 import android.util.Log;
 
 import org.mozilla.focus.locale.Locales;
+import org.mozilla.focus.utils.TrimMemoryCoordinator;
 import org.mozilla.focus.widget.InlineAutocompleteEditText;
 
 import java.io.BufferedReader;
@@ -25,11 +26,27 @@ import java.util.LinkedHashSet;
 import java.util.Locale;
 import java.util.Set;
 
-public class UrlAutoCompleteFilter implements InlineAutocompleteEditText.OnFilterListener {
+public class UrlAutoCompleteFilter implements InlineAutocompleteEditText.OnFilterListener, TrimMemoryCoordinator.Trimmable {
     private static final String LOG_TAG = "UrlAutoCompleteFilter";
 
+    /**
+     * Rough size of a domain in memory: The string and the linked hash map node holding it.
+     */
+    private static final int ESTIMATED_BYTES_PER_DOMAIN = 80;
+
     private Set<String> domains;
 
+    /**
+     * The context the domains have been loaded with (null while loading). If the domains have been
+     * released to free memory then they'll be loaded again the next time we need them.
+     */
+    private Context reloadContext;
+
+    public UrlAutoCompleteFilter() {
+        // Loading the domains again means reading them from disk.
+        TrimMemoryCoordinator.getInstance().register("autocomplete-domains", TrimMemoryCoordinator.Priority.EXPENSIVE, this);
+    }
+
     /**
      * Our autocomplete list is all lower case, however the search text might be mixed case.
      * Our autocomplete EditText code does more string comparison, which fails if the suggestion
@@ -42,6 +59,10 @@ public class UrlAutoCompleteFilter implements InlineAutocompleteEditText.OnFilte
 
     @Override
     public void onFilter(final String rawSearchText, InlineAutocompleteEditText view) {
+        if (domains == null && reloadContext != null) {
+            loadDomainsInBackground(reloadContext);
+        }
+
         if (domains == null || view == null) {
             return;
         }
@@ -67,7 +88,24 @@ public class UrlAutoCompleteFilter implements InlineAutocompleteEditText.OnFilte
         this.domains = domains;
     }
 
+    @Override
+    public long trimMemory(int level) {
+        if (domains == null) {
+            return 0;
+        }
+
+        long bytes = 0;
+        for (final String domain : domains) {
+            bytes += ESTIMATED_BYTES_PER_DOMAIN + 2 * domain.length();
+        }
+
+        domains = null;
+        return bytes;
+    }
+
     public void loadDomainsInBackground(final Context context) {
+        reloadContext = null;
+
         new AsyncTask<Resources, Void, Set<String>>() {
             @Override
             protected Set<String> doInBackground(Resources... resources) {
@@ -90,6 +128,7 @@ public class UrlAutoCompleteFilter implements InlineAutocompleteEditText.OnFilte
             @Override
             protected void onPostExecute(Set<String> domains) {
                 onDomainsLoaded(domains);
+                reloadContext = context;
             }
         }.execute(context.getResources());
     }
@@ -9,76 +9,38 @@ import android.app.DownloadManager;
 import android.content.BroadcastReceiver;
 import android.content.Context;
 import android.content.Intent;
-import android.database.Cursor;
-import android.net.Uri;
 import android.support.design.widget.Snackbar;
 import android.support.v4.content.ContextCompat;
-import android.support.v4.content.FileProvider;
 import android.view.View;
-import android.webkit.MimeTypeMap;
-import android.webkit.URLUtil;
 
-import org.mozilla.focus.BuildConfig;
 import org.mozilla.focus.R;
-import org.mozilla.focus.utils.IntentUtils;
-
-import java.io.File;
-import java.util.HashSet;
+import org.mozilla.focus.web.DownloadCoordinator;
 
 /**
- * BroadcastReceiver for finished downloads
+ * BroadcastReceiver for finished downloads. Resolving the downloads happens in the
+ * {@link DownloadCoordinator}, this receiver only shows the snackbar.
  */
-public class DownloadBroadcastReceiver extends BroadcastReceiver {
-    private static final String FILE_SCHEME = "file://";
-    private static final String FILE_PROVIDER_EXTENSION = ".fileprovider";
-
-    private final HashSet<Long> queuedDownloadReferences = new HashSet<>();
+public class DownloadBroadcastReceiver extends BroadcastReceiver implements DownloadCoordinator.Listener {
     private final View browserContainer;
-    private final DownloadManager downloadManager;
 
-    public DownloadBroadcastReceiver(View view, DownloadManager downloadManager) {
+    public DownloadBroadcastReceiver(View view) {
         this.browserContainer = view;
-        this.downloadManager = downloadManager;
     }
 
     @Override
     public void onReceive(Context context, Intent intent) {
         final long downloadReference = intent.getLongExtra(DownloadManager.EXTRA_DOWNLOAD_ID, -1);
-        displaySnackbar(context, downloadReference, downloadManager);
+        DownloadCoordinator.getInstance().onDownloadCompleted(context, downloadReference, this);
     }
 
-    private void displaySnackbar(final Context context, long completedDownloadReference, DownloadManager downloadManager) {
-        if (!isFocusDownload(completedDownloadReference)) {
-            return;
-        }
-
-        final DownloadManager.Query query = new DownloadManager.Query();
-        query.setFilterById(completedDownloadReference);
-        try (Cursor cursor = downloadManager.query(query)) {
-            if (cursor.moveToFirst()) {
-                int statusColumnIndex = cursor.getColumnIndex(DownloadManager.COLUMN_STATUS);
-                if (DownloadManager.STATUS_SUCCESSFUL == cursor.getInt(statusColumnIndex)) {
-                    String uriString = cursor.getString(cursor.getColumnIndex(DownloadManager.COLUMN_LOCAL_URI));
-
-                    final String localUri = uriString.startsWith(FILE_SCHEME) ? uriString.substring(FILE_SCHEME.length()) : uriString;
-                    final String fileExtension = MimeTypeMap.getFileExtensionFromUrl(localUri);
-                    final String mimeType = MimeTypeMap.getSingleton().getMimeTypeFromExtension(fileExtension);
-                    final String fileName = URLUtil.guessFileName(Uri.decode(localUri), null, mimeType);
-
-                    final File file = new File(Uri.decode(localUri));
-                    final Uri uriForFile = FileProvider.getUriForFile(context, BuildConfig.APPLICATION_ID + FILE_PROVIDER_EXTENSION, file);
-                    final Intent openFileIntent = IntentUtils.createOpenFileIntent(uriForFile, mimeType);
-                    showSnackbarForFilename(openFileIntent, context, fileName);
-                }
-            }
-        }
-        removeFromHashSet(completedDownloadReference);
-    }
+    @Override
+    public void onDownloadCompleted(DownloadCoordinator.Completion completion) {
+        final Context context = browserContainer.getContext();
+        final Intent openFileIntent = completion.openFileIntent;
 
-    private void showSnackbarForFilename(final Intent openFileIntent, final Context context, String fileName) {
         final Snackbar snackbar = Snackbar
-                .make(browserContainer, String.format(context.getString(R.string.download_snackbar_finished), fileName), Snackbar.LENGTH_LONG);
-        if (IntentUtils.activitiesFoundForIntent(context, openFileIntent)) {
+                .make(browserContainer, String.format(context.getString(R.string.download_snackbar_finished), completion.fileName), Snackbar.LENGTH_LONG);
+        if (openFileIntent != null) {
             snackbar.setAction(context.getString(R.string.download_snackbar_open), new View.OnClickListener() {
                 @Override
                 public void onClick(View view) {
@@ -89,16 +51,4 @@ public class DownloadBroadcastReceiver extends BroadcastReceiver {
         }
         snackbar.show();
     }
-
-    private boolean isFocusDownload(long completedDownloadReference) {
-        return (queuedDownloadReferences.contains(completedDownloadReference));
-    }
-
-    private void removeFromHashSet(long completedDownloadReference) {
-        queuedDownloadReferences.remove(completedDownloadReference);
-    }
-
-    public void addQueuedDownload(long referenceId) {
-        queuedDownloadReferences.add(referenceId);
-    }
 }
@@ -9,7 +9,6 @@ import android.app.Dialog;
 import android.content.DialogInterface;
 import android.graphics.Bitmap;
 import android.graphics.drawable.BitmapDrawable;
-import android.graphics.drawable.Drawable;
 import android.os.Bundle;
 import android.support.annotation.NonNull;
 import android.support.v4.app.DialogFragment;
@@ -35,6 +34,8 @@ public class AddToHomescreenDialogFragment extends DialogFragment {
     private static final String URL = "url";
     private static final String TITLE = "title";
 
+    private Bitmap icon;
+
     public static AddToHomescreenDialogFragment newInstance(final String url, final String title) {
         AddToHomescreenDialogFragment frag = new AddToHomescreenDialogFragment();
         final Bundle args = new Bundle();
@@ -58,10 +59,19 @@ public class AddToHomescreenDialogFragment extends DialogFragment {
         final View dialogView = inflater.inflate(R.layout.add_to_homescreen, null);
         builder.setView(dialogView);
 
-        final Bitmap icon = IconGenerator.generateLauncherIcon(getActivity(), url);
-        final Drawable d = new BitmapDrawable(getResources(), icon);
+        // Generating the icon takes a while: Show the dialog right away and fill in the preview
+        // once the icon is ready.
         final ImageView iconView = (ImageView) dialogView.findViewById(R.id.homescreen_icon);
-        iconView.setImageDrawable(d);
+        IconGenerator.generateLauncherIcon(getActivity(), url, new IconGenerator.Callback() {
+            @Override
+            public void onLauncherIconGenerated(Bitmap icon) {
+                AddToHomescreenDialogFragment.this.icon = icon;
+
+                if (isAdded()) {
+                    iconView.setImageDrawable(new BitmapDrawable(getResources(), icon));
+                }
+            }
+        });
 
         final EditText editableTitle = (EditText) dialogView.findViewById(R.id.edit_title);
 
@@ -72,6 +82,11 @@ public class AddToHomescreenDialogFragment extends DialogFragment {
 
         builder.setPositiveButton(getContext().getString(R.string.dialog_addtohomescreen_action_add), new DialogInterface.OnClickListener() {
             public void onClick(DialogInterface dialog, int id) {
+                if (icon == null) {
+                    // The user has been faster than us.
+                    icon = IconGenerator.generateLauncherIcon(getActivity(), url);
+                }
+
                 HomeScreen.installShortCut(getActivity(), icon, url, editableTitle.getText().toString().trim());
                 TelemetryWrapper.addToHomescreenShortcutEvent();
                 dialog.dismiss();
@@ -20,6 +20,7 @@ import android.graphics.drawable.TransitionDrawable;
 import android.net.Uri;
 import android.os.Bundle;
 import android.os.Environment;
+import android.os.SystemClock;
 import android.support.annotation.NonNull;
 import android.support.annotation.Nullable;
 import android.support.design.widget.AppBarLayout;
@@ -33,8 +34,6 @@ import android.view.View;
 import android.view.ViewGroup;
 import android.view.Window;
 import android.view.WindowManager;
-import android.webkit.CookieManager;
-import android.webkit.URLUtil;
 import android.widget.FrameLayout;
 import android.widget.ImageButton;
 import android.widget.ImageView;
@@ -53,14 +52,18 @@ import org.mozilla.focus.notification.BrowsingNotificationService;
 import org.mozilla.focus.open.OpenWithFragment;
 import org.mozilla.focus.telemetry.TelemetryWrapper;
 import org.mozilla.focus.utils.Browsers;
+import org.mozilla.focus.utils.BrowsersCache;
 import org.mozilla.focus.utils.ColorUtils;
 import org.mozilla.focus.utils.DrawableUtils;
 import org.mozilla.focus.utils.IntentUtils;
+import org.mozilla.focus.utils.ThreadUtils;
 import org.mozilla.focus.utils.UrlUtils;
 import org.mozilla.focus.utils.ViewUtils;
 import org.mozilla.focus.web.BrowsingSession;
 import org.mozilla.focus.web.CustomTabConfig;
 import org.mozilla.focus.web.Download;
+import org.mozilla.focus.web.DownloadCoordinator;
+import org.mozilla.focus.web.EraseOperation;
 import org.mozilla.focus.web.IWebView;
 import org.mozilla.focus.widget.AnimatedProgressBar;
 
@@ -117,8 +120,6 @@ public class BrowserFragment extends WebFragment implements View.OnClickListener
 
     private boolean isLoading = false;
 
-    private DownloadManager manager;
-
     private DownloadBroadcastReceiver downloadBroadcastReceiver;
 
     // Set an initial WeakReference so we never have to handle loadStateListenerWeakReference being null
@@ -413,6 +414,9 @@ public class BrowserFragment extends WebFragment implements View.OnClickListener
             @Override
             public void onURLChanged(final String url) {
                 updateURL(url);
+
+                // The menu offers the apps that can open this URL.
+                BrowsersCache.getInstance().prefetchForUrl(getContext(), url);
             }
 
             @Override
@@ -613,8 +617,7 @@ public class BrowserFragment extends WebFragment implements View.OnClickListener
 
     @Override
     public void onCreateViewCalled() {
-        manager = (DownloadManager) getContext().getSystemService(Context.DOWNLOAD_SERVICE);
-        downloadBroadcastReceiver = new DownloadBroadcastReceiver(browserContainer, manager);
+        downloadBroadcastReceiver = new DownloadBroadcastReceiver(browserContainer);
     }
 
     @Override
@@ -647,22 +650,7 @@ public class BrowserFragment extends WebFragment implements View.OnClickListener
             return;
         }
 
-        final String cookie = CookieManager.getInstance().getCookie(download.getUrl());
-        final String fileName = URLUtil.guessFileName(
-                download.getUrl(), download.getContentDisposition(), download.getMimeType());
-
-        final DownloadManager.Request request = new DownloadManager.Request(Uri.parse(download.getUrl()))
-                .addRequestHeader("User-Agent", download.getUserAgent())
-                .addRequestHeader("Cookie", cookie)
-                .addRequestHeader("Referer", getUrl())
-                .setDestinationInExternalPublicDir(download.getDestinationDirectory(), fileName)
-                .setNotificationVisibility(DownloadManager.Request.VISIBILITY_VISIBLE_NOTIFY_COMPLETED)
-                .setMimeType(download.getMimeType());
-
-        request.allowScanningByMediaScanner();
-
-        long downloadReference = manager.enqueue(request);
-        downloadBroadcastReceiver.addQueuedDownload(downloadReference);
+        DownloadCoordinator.getInstance().enqueue(context, download, getUrl());
     }
 
     private boolean isStartedFromExternalApp() {
@@ -706,17 +694,23 @@ public class BrowserFragment extends WebFragment implements View.OnClickListener
         return true;
     }
 
-    public void erase() {
+    public EraseOperation erase() {
+        final EraseOperation operation = EraseOperation.start();
+
         final IWebView webView = getWebView();
         if (webView != null) {
-            webView.cleanup();
+            webView.cleanup(operation);
         }
 
+        operation.seal();
+
         BrowsingNotificationService.stop(getContext());
+
+        return operation;
     }
 
     public void eraseAndShowHomeScreen(final boolean animateErase) {
-        erase();
+        final EraseOperation operation = erase();
 
         final FragmentTransaction transaction = getActivity().getSupportFragmentManager()
                 .beginTransaction();
@@ -729,9 +723,40 @@ public class BrowserFragment extends WebFragment implements View.OnClickListener
                 .replace(R.id.container, UrlInputFragment.createWithBackground(), UrlInputFragment.FRAGMENT_TAG)
                 .commit();
 
-        ViewUtils.showBrandedSnackbar(getActivity().findViewById(android.R.id.content),
-                R.string.feedback_erase,
-                getResources().getInteger(R.integer.erase_snackbar_delay));
+        // Only confirm the erase once it has actually completed - or once we've stopped waiting
+        // for it. The delay is there for the erase animation, so it still counts from now.
+        final Activity activity = getActivity();
+        final View contentView = activity.findViewById(android.R.id.content);
+        final int snackbarDelay = getResources().getInteger(R.integer.erase_snackbar_delay);
+        final long erasedAt = SystemClock.elapsedRealtime();
+
+        // Both the listener and the timeout run on the UI thread.
+        final Runnable showConfirmation = new Runnable() {
+            private boolean shown;
+
+            @Override
+            public void run() {
+                if (shown || activity.isFinishing() || activity.isDestroyed()) {
+                    return;
+                }
+                shown = true;
+
+                final long elapsed = SystemClock.elapsedRealtime() - erasedAt;
+
+                ViewUtils.showBrandedSnackbar(contentView,
+                        R.string.feedback_erase,
+                        (int) Math.max(0, snackbarDelay - elapsed));
+            }
+        };
+
+        operation.addCompletionListener(new EraseOperation.CompletionListener() {
+            @Override
+            public void onEraseComplete(EraseOperation operation) {
+                showConfirmation.run();
+            }
+        });
+
+        ThreadUtils.postToMainThreadDelayed(showConfirmation, EraseOperation.COMPLETION_TIMEOUT_MILLIS);
     }
 
     @Override
@@ -809,7 +834,7 @@ public class BrowserFragment extends WebFragment implements View.OnClickListener
                 break;
 
             case R.id.open_default: {
-                final Browsers browsers = new Browsers(getContext(), getUrl());
+                final Browsers browsers = BrowsersCache.getInstance().getForUrl(getContext(), getUrl());
 
                 final ActivityInfo defaultBrowser = browsers.getDefaultBrowser();
 
@@ -828,7 +853,7 @@ public class BrowserFragment extends WebFragment implements View.OnClickListener
             }
 
             case R.id.open_firefox: {
-                final Browsers browsers = new Browsers(getContext(), getUrl());
+                final Browsers browsers = BrowsersCache.getInstance().getForUrl(getContext(), getUrl());
 
                 if (browsers.hasFirefoxBrandedBrowserInstalled()) {
                     final Intent intent = new Intent(Intent.ACTION_VIEW, Uri.parse(getUrl()));
@@ -843,7 +868,7 @@ public class BrowserFragment extends WebFragment implements View.OnClickListener
             }
 
             case R.id.open_select_browser: {
-                final Browsers browsers = new Browsers(getContext(), getUrl());
+                final Browsers browsers = BrowsersCache.getInstance().getForUrl(getContext(), getUrl());
 
                 final OpenWithFragment fragment = OpenWithFragment.newInstance(
                         browsers.getInstalledBrowsers(), getUrl());
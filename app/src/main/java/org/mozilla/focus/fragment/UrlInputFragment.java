@@ -31,9 +31,11 @@ import org.mozilla.focus.autocomplete.UrlAutoCompleteFilter;
 import org.mozilla.focus.locale.LocaleAwareAppCompatActivity;
 import org.mozilla.focus.locale.LocaleAwareFragment;
 import org.mozilla.focus.telemetry.TelemetryWrapper;
+import org.mozilla.focus.utils.Settings;
 import org.mozilla.focus.utils.ThreadUtils;
 import org.mozilla.focus.utils.UrlUtils;
 import org.mozilla.focus.utils.ViewUtils;
+import org.mozilla.focus.web.ConnectionPrewarmer;
 import org.mozilla.focus.widget.InlineAutocompleteEditText;
 
 /**
@@ -442,6 +444,11 @@ public class UrlInputFragment extends LocaleAwareFragment implements View.OnClic
                     ? UrlUtils.normalize(input)
                     : UrlUtils.createSearchUrl(getContext(), input);
 
+            if (Settings.getInstance(getContext()).shouldPrewarmConnections()) {
+                // Resolving the host overlaps with creating the browser and loading the URL.
+                ConnectionPrewarmer.getInstance().onCommit(UrlUtils.getHost(url));
+            }
+
             openUrl(url);
 
             TelemetryWrapper.urlBarEvent(isUrl);
@@ -495,6 +502,13 @@ public class UrlInputFragment extends LocaleAwareFragment implements View.OnClic
 
         urlAutoCompleteFilter.onFilter(searchText, view);
 
+        if (Settings.getInstance(getContext()).shouldPrewarmConnections()) {
+            // The text includes the autocompleted domain (if any).
+            final String text = urlView.getText().toString().trim();
+            ConnectionPrewarmer.getInstance().onCandidate(
+                    UrlUtils.isUrl(text) ? UrlUtils.getHost(UrlUtils.normalize(text)) : null);
+        }
+
         if (searchText.trim().isEmpty()) {
             clearView.setVisibility(View.GONE);
             searchViewContainer.setVisibility(View.GONE);
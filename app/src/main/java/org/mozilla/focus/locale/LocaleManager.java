@@ -93,6 +93,8 @@ public class LocaleManager {
                 systemLocale = context.getResources().getConfiguration().locale;
                 systemLocaleDidChange = true;
 
+                Locales.invalidateLocalizedResources();
+
                 Log.d(LOG_TAG, "System locale changed from " + current + " to " + systemLocale);
             }
         };
@@ -221,6 +223,10 @@ public class LocaleManager {
         final SharedPreferences settings = getSharedPreferences(context);
         settings.edit().remove(PREF_LOCALE).apply();
 
+        // Forget the selected locale, even if applying the system locale turns out to be a no-op.
+        currentLocale = null;
+        Locales.invalidateLocalizedResources();
+
         // Apply the system locale.
         updateLocale(context, systemLocale);
     }
@@ -317,6 +323,8 @@ public class LocaleManager {
         Locale.setDefault(locale);
         currentLocale = locale;
 
+        Locales.invalidateLocalizedResources();
+
         // Update resources.
         updateConfiguration(context, locale);
 
@@ -10,9 +10,12 @@ import android.content.res.Resources;
 import android.os.LocaleList;
 import android.os.StrictMode;
 import android.text.TextUtils;
+import android.util.Log;
 
+import java.util.HashMap;
 import java.util.LinkedHashSet;
 import java.util.Locale;
+import java.util.Map;
 import java.util.Set;
 
 /**
@@ -27,6 +30,9 @@ import java.util.Set;
 public class Locales {
     private static final String LOGTAG = "Locales";
 
+    private static final Map<String, LocalizedResources> localizedResources = new HashMap<>();
+    private static int localizedResourcesCreated;
+
     /**
      * Is only required by locale aware activities, AND  Application. In most cases you should be
      * using LocaleAwareAppCompatActivity or friends.
@@ -131,6 +137,9 @@ public class Locales {
 
     /**
      * Get a Resources instance with the currently selected locale applied.
+     *
+     * Creating Resources is expensive, so they are cached per locale until the selected or the
+     * system locale changes (or the configuration of the calling context differs).
      */
     public static Resources getLocalizedResources(Context context) {
         final Resources currentResources = context.getResources();
@@ -142,13 +151,71 @@ public class Locales {
             return currentResources;
         }
 
-        if (currentLocale.toLanguageTag().equals(viewLocale.toLanguageTag())) {
+        final String languageTag = currentLocale.toLanguageTag();
+        if (languageTag.equals(viewLocale.toLanguageTag())) {
             return currentResources;
         }
 
         final Configuration configuration = new Configuration(currentResources.getConfiguration());
         configuration.setLocale(currentLocale);
 
-        return context.createConfigurationContext(configuration).getResources();
+        synchronized (localizedResources) {
+            final LocalizedResources cached = localizedResources.get(languageTag);
+            if (cached != null && cached.configuration.equals(configuration)) {
+                return cached.resources;
+            }
+        }
+
+        // Use the application context: The cached resources must not keep an activity alive.
+        final Resources resources = context.getApplicationContext()
+                .createConfigurationContext(configuration)
+                .getResources();
+
+        synchronized (localizedResources) {
+            localizedResources.put(languageTag, new LocalizedResources(configuration, resources));
+            localizedResourcesCreated++;
+
+            Log.d(LOGTAG, "Created localized resources for " + languageTag + " (" + localizedResourcesCreated + " total)");
+        }
+
+        return resources;
+    }
+
+    /**
+     * Drop all cached localized Resources. Called by {@link LocaleManager} whenever the selected or
+     * the system locale changes.
+     */
+    /* package */ static void invalidateLocalizedResources() {
+        synchronized (localizedResources) {
+            localizedResources.clear();
+        }
+    }
+
+    /**
+     * How often {@link #getLocalizedResources(Context)} had to create new Resources.
+     */
+    public static int getLocalizedResourcesCreationCount() {
+        synchronized (localizedResources) {
+            return localizedResourcesCreated;
+        }
+    }
+
+    /**
+     * Human readable summary of the localized Resources created and cached so far, for the debug settings.
+     */
+    public static String getLocalizedResourcesSummary() {
+        synchronized (localizedResources) {
+            return localizedResourcesCreated + " created, " + localizedResources.size() + " cached";
+        }
+    }
+
+    private static class LocalizedResources {
+        private final Configuration configuration;
+        private final Resources resources;
+
+        private LocalizedResources(Configuration configuration, Resources resources) {
+            this.configuration = configuration;
+            this.resources = resources;
+        }
     }
 }
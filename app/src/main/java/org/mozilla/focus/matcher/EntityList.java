@@ -2,15 +2,12 @@
  * This Source Code Form is subject to the terms of the Mozilla Public
  * License, v. 2.0. If a copy of the MPL was not distributed with this
  * file, You can obtain one at http://mozilla.org/MPL/2.0/. */
-package org.mozilla.focus.webkit.matcher;
+package org.mozilla.focus.matcher;
 
 
-import android.net.Uri;
-import android.text.TextUtils;
-
+import org.mozilla.focus.matcher.Trie.WhiteListTrie;
+import org.mozilla.focus.matcher.util.FocusString;
 import org.mozilla.focus.utils.UrlUtils;
-import org.mozilla.focus.webkit.matcher.Trie.WhiteListTrie;
-import org.mozilla.focus.webkit.matcher.util.FocusString;
 
 import java.net.MalformedURLException;
 import java.net.URL;
@@ -27,17 +24,21 @@ import java.net.URL;
         rootNode.putWhiteList(revhost, whitelist);
     }
 
-    public boolean isWhiteListed(final Uri site, final Uri resource) {
-        if (TextUtils.isEmpty(site.getHost()) ||
-                TextUtils.isEmpty(resource.getHost()) ||
-                site.getScheme().equals("data")) {
+    public boolean isWhiteListed(final String siteUrl, final String resourceUrl) {
+        return isWhiteListed(ParsedUrl.parse(siteUrl), ParsedUrl.parse(resourceUrl));
+    }
+
+    /* package-private */ boolean isWhiteListed(final ParsedUrl site, final ParsedUrl resource) {
+        if (site.host == null || site.host.isEmpty() ||
+                resource.host == null || resource.host.isEmpty() ||
+                "data".equals(site.scheme)) {
             return false;
         }
 
-        if (UrlUtils.isPermittedResourceProtocol(resource.getScheme()) &&
-                UrlUtils.isSupportedProtocol(site.getScheme())) {
-            final FocusString revSitehost = FocusString.create(site.getHost()).reverse();
-            final FocusString revResourcehost = FocusString.create(resource.getHost()).reverse();
+        if (UrlUtils.isPermittedResourceProtocol(resource.scheme) &&
+                UrlUtils.isSupportedProtocol(site.scheme)) {
+            final FocusString revSitehost = FocusString.create(site.host).reverse();
+            final FocusString revResourcehost = FocusString.create(resource.host).reverse();
 
             return isWhiteListed(revSitehost, revResourcehost, rootNode);
         } else {
@@ -48,7 +49,7 @@ import java.net.URL;
     }
 
     private boolean isWhiteListed(final FocusString site, final FocusString resource, final Trie revHostTrie) {
-        final WhiteListTrie next = (WhiteListTrie) revHostTrie.children.get(site.charAt(0));
+        final WhiteListTrie next = (WhiteListTrie) revHostTrie.getChild(site.charAt(0));
 
         if (next == null) {
             // No matches
@@ -0,0 +1,102 @@
+/* -*- Mode: Java; c-basic-offset: 4; tab-width: 20; indent-tabs-mode: nil; -*-
+ * This Source Code Form is subject to the terms of the Mozilla Public
+ * License, v. 2.0. If a copy of the MPL was not distributed with this
+ * file, You can obtain one at http://mozilla.org/MPL/2.0/. */
+package org.mozilla.focus.matcher;
+
+import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
+
+/**
+ * The parts of a URL the matcher needs: scheme, host and path. This is a minimal, lenient parser
+ * that behaves like android.net.Uri for the URLs we see (it never throws for malformed URLs), but
+ * doesn't depend on Android: The matcher is shared by all engines and can run on a plain JVM.
+ */
+/* package-private */ final class ParsedUrl {
+    @NonNull final String url;
+    @Nullable final String scheme;
+    /**
+     * Null for URLs without authority (e.g. data: or mailto: URLs).
+     */
+    @Nullable final String host;
+    /**
+     * Null for URLs without authority, the empty string if there's no path.
+     */
+    @Nullable final String path;
+
+    private ParsedUrl(@NonNull String url, @Nullable String scheme, @Nullable String host, @Nullable String path) {
+        this.url = url;
+        this.scheme = scheme;
+        this.host = host;
+        this.path = path;
+    }
+
+    /* package-private */ static ParsedUrl parse(@NonNull final String url) {
+        final int schemeEnd = findSchemeEnd(url);
+        final String scheme = schemeEnd != -1 ? url.substring(0, schemeEnd) : null;
+
+        final int authorityStart = schemeEnd + 1;
+        if (!url.startsWith("//", authorityStart)) {
+            // Opaque URL (e.g. data:text/html;...), or something we can't make sense of.
+            return new ParsedUrl(url, scheme, null, null);
+        }
+
+        int authorityEnd = url.length();
+        for (int i = authorityStart + 2; i < url.length(); i++) {
+            final char c = url.charAt(i);
+            if (c == '/' || c == '?' || c == '#') {
+                authorityEnd = i;
+                break;
+            }
+        }
+
+        int pathEnd = url.length();
+        for (int i = authorityEnd; i < url.length(); i++) {
+            final char c = url.charAt(i);
+            if (c == '?' || c == '#') {
+                pathEnd = i;
+                break;
+            }
+        }
+
+        return new ParsedUrl(url, scheme,
+                parseHost(url, authorityStart + 2, authorityEnd),
+                url.substring(authorityEnd, pathEnd));
+    }
+
+    private static int findSchemeEnd(final String url) {
+        for (int i = 0; i < url.length(); i++) {
+            final char c = url.charAt(i);
+            if (c == ':') {
+                return i > 0 ? i : -1;
+            }
+            if (c == '/' || c == '?' || c == '#') {
+                return -1;
+            }
+        }
+        return -1;
+    }
+
+    @Nullable
+    private static String parseHost(final String url, final int start, final int end) {
+        // Skip user info
+        final int userInfoEnd = url.lastIndexOf('@', end - 1);
+        final int hostStart = userInfoEnd >= start ? userInfoEnd + 1 : start;
+
+        int hostEnd = end;
+        if (hostStart < end && url.charAt(hostStart) == '[') {
+            // IPv6 address: The port (if any) follows the closing bracket.
+            final int bracket = url.indexOf(']', hostStart);
+            if (bracket != -1 && bracket < end) {
+                hostEnd = bracket + 1;
+            }
+        } else {
+            final int portStart = url.indexOf(':', hostStart);
+            if (portStart != -1 && portStart < end) {
+                hostEnd = portStart;
+            }
+        }
+
+        return hostEnd > hostStart ? url.substring(hostStart, hostEnd) : null;
+    }
+}
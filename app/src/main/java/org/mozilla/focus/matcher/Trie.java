@@ -2,13 +2,16 @@
  * This Source Code Form is subject to the terms of the Mozilla Public
  * License, v. 2.0. If a copy of the MPL was not distributed with this
  * file, You can obtain one at http://mozilla.org/MPL/2.0/. */
-package org.mozilla.focus.webkit.matcher;
+package org.mozilla.focus.matcher;
 
-import android.util.Pair;
-import android.util.SparseArray;
+import org.mozilla.focus.matcher.util.FocusString;
 
-import org.mozilla.focus.webkit.matcher.util.FocusString;
+import java.util.Arrays;
 
+/**
+ * A trie of (reversed) hostnames. This is plain Java (no Android classes) so that the matcher can
+ * be used (and measured) independently of the engine and of Android.
+ */
 /* package-private */ class Trie {
 
     /**
@@ -42,9 +45,45 @@ import org.mozilla.focus.webkit.matcher.util.FocusString;
         }
     }
 
-    public final SparseArray<Trie> children = new SparseArray<>();
+    private static final char[] NO_KEYS = new char[0];
+    private static final Trie[] NO_CHILDREN = new Trie[0];
+
+    // Children sorted by their character (like a SparseArray, but without depending on Android):
+    // Most nodes only have one child, so this is much more compact than a map.
+    private char[] childKeys = NO_KEYS;
+    private Trie[] childNodes = NO_CHILDREN;
+    private int childCount = 0;
+
     public boolean terminator = false;
 
+    public Trie getChild(final char character) {
+        final int index = Arrays.binarySearch(childKeys, 0, childCount, character);
+        return index >= 0 ? childNodes[index] : null;
+    }
+
+    private void putChild(final char character, final Trie child) {
+        int index = Arrays.binarySearch(childKeys, 0, childCount, character);
+        if (index >= 0) {
+            childNodes[index] = child;
+            return;
+        }
+
+        index = -(index + 1);
+
+        if (childCount == childKeys.length) {
+            final int capacity = Math.max(1, childCount * 2);
+            childKeys = Arrays.copyOf(childKeys, capacity);
+            childNodes = Arrays.copyOf(childNodes, capacity);
+        }
+
+        System.arraycopy(childKeys, index, childKeys, index + 1, childCount - index);
+        System.arraycopy(childNodes, index, childNodes, index + 1, childCount - index);
+
+        childKeys[index] = character;
+        childNodes[index] = child;
+        childCount++;
+    }
+
     public Trie findNode(final FocusString string) {
         if (terminator) {
             // Match achieved - and we're at a domain boundary. This is important, because
@@ -58,7 +97,7 @@ import org.mozilla.focus.webkit.matcher.util.FocusString;
             return null;
         }
 
-        final Trie next = children.get(string.charAt(0));
+        final Trie next = getChild(string.charAt(0));
 
         if (next == null) {
             return null;
@@ -81,7 +120,7 @@ import org.mozilla.focus.webkit.matcher.util.FocusString;
     }
 
     public Trie put(char character) {
-        final Trie existingChild = children.get(character);
+        final Trie existingChild = getChild(character);
 
         if (existingChild != null) {
             return existingChild;
@@ -89,14 +128,14 @@ import org.mozilla.focus.webkit.matcher.util.FocusString;
 
         final Trie newChild = createNode(character, this);
 
-        children.put(character, newChild);
+        putChild(character, newChild);
 
         return newChild;
     }
 
     private Trie(char character, Trie parent) {
         if (parent != null) {
-            parent.children.put(character, this);
+            parent.putChild(character, this);
         }
     }
 
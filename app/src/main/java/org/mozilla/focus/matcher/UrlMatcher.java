@@ -2,12 +2,11 @@
  * This Source Code Form is subject to the terms of the Mozilla Public
  * License, v. 2.0. If a copy of the MPL was not distributed with this
  * file, You can obtain one at http://mozilla.org/MPL/2.0/. */
-package org.mozilla.focus.webkit.matcher;
+package org.mozilla.focus.matcher;
 
 
 import android.content.Context;
 import android.content.SharedPreferences;
-import android.net.Uri;
 import android.preference.PreferenceManager;
 import android.support.annotation.NonNull;
 import android.support.annotation.Nullable;
@@ -16,7 +15,9 @@ import android.support.v4.util.ArrayMap;
 import android.util.JsonReader;
 
 import org.mozilla.focus.R;
-import org.mozilla.focus.webkit.matcher.util.FocusString;
+import org.mozilla.focus.utils.TrimMemoryCoordinator;
+import org.mozilla.focus.web.InterceptionMetrics;
+import org.mozilla.focus.matcher.util.FocusString;
 
 import java.io.IOException;
 import java.io.InputStream;
@@ -30,7 +31,7 @@ import java.util.HashSet;
 import java.util.Map;
 import java.util.Set;
 
-public class UrlMatcher implements  SharedPreferences.OnSharedPreferenceChangeListener {
+public class UrlMatcher implements  SharedPreferences.OnSharedPreferenceChangeListener, TrimMemoryCoordinator.Trimmable {
     /**
      * Map of pref to blocking category (preference key -> Blocklist category name).
      */
@@ -65,9 +66,16 @@ public class UrlMatcher implements  SharedPreferences.OnSharedPreferenceChangeLi
 
     private final EntityList entityList;
     // A cached list of previously matched URLs. This MUST be cleared whenever items are removed from enabledCategories.
-    private final HashSet<String> previouslyMatched = new HashSet<>();
+    // Replaced with an empty set (instead of being cleared) when trimming memory.
+    private volatile HashSet<String> previouslyMatched = new HashSet<>();
     // A cahced list of previously approved URLs. This MUST be cleared whenever items are added to enabledCategories.
-    private final HashSet<String> previouslyUnmatched = new HashSet<>();
+    private volatile HashSet<String> previouslyUnmatched = new HashSet<>();
+
+    /**
+     * Rough size of a cached URL in memory: The string (URLs of tracking requests tend to be long)
+     * and the hash map node holding it.
+     */
+    private static final int ESTIMATED_BYTES_PER_CACHED_URL = 300;
 
     private boolean blockWebfonts = true;
 
@@ -213,8 +221,33 @@ public class UrlMatcher implements  SharedPreferences.OnSharedPreferenceChangeLi
         }
     }
 
-    public boolean matches(final Uri resourceURI, final Uri pageURI) {
-        final String path = resourceURI.getPath();
+    /**
+     * Drop the cached verdicts. They will be rebuilt by walking the tries again.
+     */
+    @Override
+    public long trimMemory(int level) {
+        final int cachedUrls = previouslyMatched.size() + previouslyUnmatched.size();
+
+        // Requests might be matched on other threads right now: Swap the sets instead of clearing
+        // them. A verdict added to an old set concurrently is simply lost.
+        previouslyMatched = new HashSet<>();
+        previouslyUnmatched = new HashSet<>();
+
+        return (long) cachedUrls * ESTIMATED_BYTES_PER_CACHED_URL;
+    }
+
+    /**
+     * Should the resource with the given URL be blocked on the page with the given URL? This only
+     * depends on the URL strings (and not on engine or Android specific classes): All engines can
+     * use the same matcher.
+     */
+    public boolean matches(final String resourceURL, final String pageURL) {
+        final long start = System.nanoTime();
+
+        final ParsedUrl resourceURI = ParsedUrl.parse(resourceURL);
+        final ParsedUrl pageURI = ParsedUrl.parse(pageURL);
+
+        final String path = resourceURI.path;
 
         if (path == null) {
             return false;
@@ -230,42 +263,57 @@ public class UrlMatcher implements  SharedPreferences.OnSharedPreferenceChangeLi
             }
         }
 
-        final String resourceURLString = resourceURI.toString();
+        final String resourceURLString = resourceURI.url;
 
         // Cached whitelisted items can be permitted now (but blacklisted needs to wait for the override / entity list)
         if (previouslyUnmatched.contains(resourceURLString)) {
+            InterceptionMetrics.record(InterceptionMetrics.Phase.CACHE_HIT, start);
             return false;
         }
 
-        if (entityList != null &&
-                entityList.isWhiteListed(pageURI, resourceURI)) {
-            // We must not cache entityList items (and/or if we did, we'd have to clear the cache
-            // on every single location change)
-            return false;
+        if (entityList != null) {
+            final long entityCheckStart = System.nanoTime();
+            final boolean isWhiteListed = entityList.isWhiteListed(pageURI, resourceURI);
+            InterceptionMetrics.record(InterceptionMetrics.Phase.ENTITY_CHECK, entityCheckStart);
+
+            if (isWhiteListed) {
+                // We must not cache entityList items (and/or if we did, we'd have to clear the cache
+                // on every single location change)
+                return false;
+            }
         }
 
-        final String resourceHost = resourceURI.getHost();
-        final String pageHost = pageURI.getHost();
+        final String resourceHost = resourceURI.host;
+        final String pageHost = pageURI.host;
 
         if (pageHost != null && pageHost.equals(resourceHost)) {
             return false;
         }
 
+        if (resourceHost == null) {
+            // Nothing to look up (android.net.Uri based code used to crash here).
+            return false;
+        }
+
         if (previouslyMatched.contains(resourceURLString)) {
+            InterceptionMetrics.record(InterceptionMetrics.Phase.CACHE_HIT, start);
             return true;
         }
 
+        final long trieWalkStart = System.nanoTime();
         final FocusString revhost = FocusString.create(resourceHost).reverse();
 
         for (final Map.Entry<String, Trie> category : categories.entrySet()) {
             if (enabledCategories.contains(category.getKey()) &&
                     category.getValue().findNode(revhost) != null) {
                 previouslyMatched.add(resourceURLString);
+                InterceptionMetrics.record(InterceptionMetrics.Phase.TRIE_WALK, trieWalkStart);
                 return true;
             }
         }
 
         previouslyUnmatched.add(resourceURLString);
+        InterceptionMetrics.record(InterceptionMetrics.Phase.TRIE_WALK, trieWalkStart);
         return false;
     }
 }
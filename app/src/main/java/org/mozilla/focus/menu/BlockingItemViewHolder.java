@@ -55,21 +55,11 @@ import org.mozilla.focus.web.BrowsingSession;
     }
 
     private void updateTrackingCount(final TextView view, final int count) {
-        ThreadUtils.postToMainThread(new Runnable() {
-            @Override
-            public void run() {
-                view.setText(String.valueOf(count));
-            }
-        });
+        view.setText(String.valueOf(count));
     }
 
     private void disableTrackingCount(final TextView view) {
-        ThreadUtils.postToMainThread(new Runnable() {
-            @Override
-            public void run() {
-                view.setText(R.string.content_blocking_disabled);
-            }
-        });
+        view.setText(R.string.content_blocking_disabled);
     }
 
     @Override
@@ -18,6 +18,7 @@ import android.view.ViewGroup;
 import org.mozilla.focus.R;
 import org.mozilla.focus.fragment.BrowserFragment;
 import org.mozilla.focus.utils.Browsers;
+import org.mozilla.focus.utils.BrowsersCache;
 import org.mozilla.focus.utils.HardwareUtils;
 import org.mozilla.focus.web.CustomTabConfig;
 
@@ -58,7 +59,7 @@ public class BrowserMenuAdapter extends RecyclerView.Adapter<BrowserMenuViewHold
 
     private void initializeMenu(String url, final @Nullable CustomTabConfig customTabConfig) {
         final Resources resources = context.getResources();
-        final Browsers browsers = new Browsers(context, url);
+        final Browsers browsers = BrowsersCache.getInstance().getForUrl(context, url);
 
         this.items = new ArrayList<>();
 
@@ -68,8 +69,8 @@ public class BrowserMenuAdapter extends RecyclerView.Adapter<BrowserMenuViewHold
 
         if (browsers.hasFirefoxBrandedBrowserInstalled()) {
             items.add(new MenuItem(R.id.open_firefox, resources.getString(
-                    R.string.menu_open_with_default_browser, browsers.getFirefoxBrandedBrowser()
-                            .loadLabel(context.getPackageManager()))));
+                    R.string.menu_open_with_default_browser,
+                    browsers.getLabel(browsers.getFirefoxBrandedBrowser()))));
         } else {
             items.add(new MenuItem(R.id.open_firefox, resources.getString(
                     R.string.menu_open_with_default_browser, "Firefox")));
@@ -77,8 +78,8 @@ public class BrowserMenuAdapter extends RecyclerView.Adapter<BrowserMenuViewHold
 
         if (browsers.hasThirdPartyDefaultBrowser(context)) {
             items.add(new MenuItem(R.id.open_default, resources.getString(
-                    R.string.menu_open_with_default_browser, browsers.getDefaultBrowser().loadLabel(
-                            context.getPackageManager()))));
+                    R.string.menu_open_with_default_browser,
+                    browsers.getLabel(browsers.getDefaultBrowser()))));
         }
 
         if (browsers.hasMultipleThirdPartyBrowsers(context)) {
@@ -14,11 +14,14 @@ import android.os.IBinder;
 import android.support.annotation.Nullable;
 import android.support.v4.app.NotificationCompat;
 import android.support.v4.content.ContextCompat;
+import android.util.Log;
 
 import org.mozilla.focus.R;
 import org.mozilla.focus.activity.MainActivity;
 import org.mozilla.focus.telemetry.TelemetryWrapper;
+import org.mozilla.focus.utils.ThreadUtils;
 import org.mozilla.focus.web.BrowsingSession;
+import org.mozilla.focus.web.EraseOperation;
 import org.mozilla.focus.web.WebViewProvider;
 
 /**
@@ -29,8 +32,11 @@ import org.mozilla.focus.web.WebViewProvider;
  * will erase the session.
  */
 public class BrowsingNotificationService extends Service {
+    private static final String LOG_TAG = "BrowsingNotification";
+
     private static final int NOTIFICATION_ID = 83;
 
+
     private static final String ACTION_START = "start";
     private static final String ACTION_STOP = "stop";
     private static final String ACTION_ERASE = "erase";
@@ -146,7 +152,42 @@ public class BrowsingNotificationService extends Service {
         BrowsingSession.getInstance().stop();
 
         stopForeground(true);
-        stopSelf();
+
+        // Keep this service (and therefore our process) running until all browsing data has been
+        // deleted. Some of the erase steps finish asynchronously.
+        final EraseOperation operation = EraseOperation.getCurrent();
+        if (operation == null || operation.isComplete()) {
+            stopSelf();
+            return;
+        }
+
+        operation.addCompletionListener(new EraseOperation.CompletionListener() {
+            @Override
+            public void onEraseComplete(EraseOperation operation) {
+                stopIfErased(operation);
+            }
+        });
+
+        // Don't keep the process alive forever if a step never finishes (e.g. the engine never
+        // calls back).
+        ThreadUtils.postToMainThreadDelayed(new Runnable() {
+            @Override
+            public void run() {
+                if (!operation.isComplete()) {
+                    Log.w(LOG_TAG, "Erase operation did not complete in time, stopping anyways");
+                }
+
+                stopIfErased(operation);
+            }
+        }, EraseOperation.COMPLETION_TIMEOUT_MILLIS);
+    }
+
+    private void stopIfErased(EraseOperation operation) {
+        // A new session might have been started (and erased again) in the meantime: That one
+        // will stop the service once it's done.
+        if (!BrowsingSession.getInstance().isActive() && EraseOperation.getCurrent() == operation) {
+            stopSelf();
+        }
     }
 
     private Notification buildNotification() {
@@ -7,30 +7,33 @@ package org.mozilla.focus.search;
 
 import android.graphics.Bitmap;
 import android.net.Uri;
+import android.support.annotation.Nullable;
 
 import java.util.ArrayList;
 import java.util.List;
-import java.util.Locale;
 
 import edu.umd.cs.findbugs.annotations.SuppressFBWarnings;
 
 public class SearchEngine {
-    // Parameters copied from nsSearchService.js
-    private static final String MOZ_PARAM_LOCALE = "\\{moz:locale\\}";
-    private static final String MOZ_PARAM_DIST_ID = "\\{moz:distributionID\\}";
-    private static final String MOZ_PARAM_OFFICIAL = "\\{moz:official\\}";
-
-    // Supported OpenSearch parameters
-    // See http://opensearch.a9.com/spec/1.1/querysyntax/#core
-    private static final String OS_PARAM_USER_DEFINED = "\\{searchTerms\\??\\}";
-    private static final String OS_PARAM_INPUT_ENCODING = "\\{inputEncoding\\??\\}";
-    private static final String OS_PARAM_LANGUAGE = "\\{language\\??\\}";
-    private static final String OS_PARAM_OUTPUT_ENCODING = "\\{outputEncoding\\??\\}";
-    private static final String OS_PARAM_OPTIONAL = "\\{(?:\\w+:)?\\w+\\?\\}";
+    /**
+     * The last template compiled by {@link #buildSearchUrl(String, String)}. That's always the
+     * default search engine of the previous run, so a single entry is enough.
+     */
+    private static final class CompiledBaseSearchUrl {
+        private final String baseSearchUrl;
+        private final SearchUrlTemplate template;
+
+        private CompiledBaseSearchUrl(String baseSearchUrl, SearchUrlTemplate template) {
+            this.baseSearchUrl = baseSearchUrl;
+            this.template = template;
+        }
+    }
+
+    private static volatile CompiledBaseSearchUrl lastCompiledBaseSearchUrl;
 
     private final String identifier;
     /* package */ String name;
-    /* package */ Bitmap icon;
+    /* package */ byte[] iconBytes;
     /* package */ List<Uri> resultsUris;
     // We don't currently support search suggestions, however that's something that we might
     // need to support in future, moreover this is already stored in the input files that we're merely
@@ -38,6 +41,7 @@ public class SearchEngine {
     @SuppressFBWarnings(value = "URF_UNREAD_FIELD", justification = "Needed for future versions, reflects on-disk format")
     /* package */ Uri suggestUri;
     /* package */ String searchTermsParamName;
+    /* package */ SearchUrlTemplate searchUrlTemplate;
 
     /* package */ SearchEngine(String identifier) {
         this.identifier = identifier;
@@ -52,8 +56,21 @@ public class SearchEngine {
         return identifier;
     }
 
+    /**
+     * Get the icon of this search engine in its original size. The icon is decoded lazily and
+     * this may be called on the UI thread.
+     */
+    @Nullable
     public Bitmap getIcon() {
-        return icon;
+        return getIcon(0);
+    }
+
+    /**
+     * Get the icon of this search engine scaled down to (roughly) the given size in pixels.
+     */
+    @Nullable
+    public Bitmap getIcon(int size) {
+        return SearchEngineIconCache.get(this, size);
     }
 
     public String buildSearchUrl(final String searchTerm) {
@@ -61,11 +78,39 @@ public class SearchEngine {
             return searchTerm;
         }
 
+        if (searchUrlTemplate == null) {
+            compileSearchUrlTemplate();
+        }
+
+        return searchUrlTemplate.build(Uri.encode(searchTerm));
+    }
+
+    /**
+     * Build a search URL from a template previously returned by {@link #getBaseSearchUrl()}.
+     */
+    public static String buildSearchUrl(final String baseSearchUrl, final String searchTerm) {
+        CompiledBaseSearchUrl compiled = lastCompiledBaseSearchUrl;
+        if (compiled == null || !compiled.baseSearchUrl.equals(baseSearchUrl)) {
+            compiled = new CompiledBaseSearchUrl(baseSearchUrl, SearchUrlTemplate.compile(Uri.decode(baseSearchUrl)));
+            lastCompiledBaseSearchUrl = compiled;
+        }
+
+        return compiled.template.build(Uri.encode(searchTerm));
+    }
+
+    /**
+     * Compile the search URL template once the list of result URLs is complete. Called by the code
+     * loading search engines, so that searching doesn't need to parse the template again.
+     */
+    /* package */ void compileSearchUrlTemplate() {
+        if (resultsUris.isEmpty()) {
+            return;
+        }
+
         // The parse should have put the best URL for this device at the beginning of the list.
         final Uri searchUri = resultsUris.get(0);
 
-        final String template = Uri.decode(searchUri.toString());
-        return paramSubstitution(template, Uri.encode(searchTerm));
+        searchUrlTemplate = SearchUrlTemplate.compile(Uri.decode(searchUri.toString()));
     }
 
     public String getBaseSearchUrl() {
@@ -79,31 +124,4 @@ public class SearchEngine {
     public String getSearchTermsParamName() {
         return searchTermsParamName;
     }
-
-    /**
-     * Formats template string with proper parameters. Modeled after
-     * ParamSubstitution in nsSearchService.js
-     *
-     * @param template
-     * @param query
-     * @return
-     */
-    private String paramSubstitution(String template, String query) {
-        final String locale = Locale.getDefault().toString();
-
-        template = template.replaceAll(MOZ_PARAM_LOCALE, locale);
-        template = template.replaceAll(MOZ_PARAM_DIST_ID, "");
-        template = template.replaceAll(MOZ_PARAM_OFFICIAL, "unofficial");
-
-        template = template.replaceAll(OS_PARAM_USER_DEFINED, query);
-        template = template.replaceAll(OS_PARAM_INPUT_ENCODING, "UTF-8");
-
-        template = template.replaceAll(OS_PARAM_LANGUAGE, locale);
-        template = template.replaceAll(OS_PARAM_OUTPUT_ENCODING, "UTF-8");
-
-        // Replace any optional parameters
-        template = template.replaceAll(OS_PARAM_OPTIONAL, "");
-
-        return template;
-    }
 }
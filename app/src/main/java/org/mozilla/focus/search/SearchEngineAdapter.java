@@ -25,8 +25,11 @@ import java.util.List;
 public class SearchEngineAdapter extends BaseAdapter {
     private List<SearchEngine> searchEngines;
     private SearchEngine defaultSearchEngine;
+    private final int iconSize;
 
     public SearchEngineAdapter(Context context) {
+        iconSize = context.getResources().getDimensionPixelSize(R.dimen.search_engine_icon_size);
+
         SearchEngineManager searchEngineManager = SearchEngineManager.getInstance();
 
         searchEngines = searchEngineManager.getSearchEngines();
@@ -64,7 +67,7 @@ public class SearchEngineAdapter extends BaseAdapter {
         titleView.setTextColor(isDefaultSearchEngine ? Color.WHITE : 0xFFC7C7C7);
 
         final ImageView iconView = (ImageView) convertView.findViewById(R.id.icon);
-        iconView.setImageBitmap(searchEngine.getIcon());
+        iconView.setImageBitmap(searchEngine.getIcon(iconSize));
 
         return convertView;
     }
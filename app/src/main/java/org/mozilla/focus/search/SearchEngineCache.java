@@ -0,0 +1,203 @@
+/* -*- Mode: Java; c-basic-offset: 4; tab-width: 20; indent-tabs-mode: nil; -*-
+ * This Source Code Form is subject to the terms of the Mozilla Public
+ * License, v. 2.0. If a copy of the MPL was not distributed with this
+ * file, You can obtain one at http://mozilla.org/MPL/2.0/. */
+
+package org.mozilla.focus.search;
+
+import android.content.Context;
+import android.content.pm.PackageInfo;
+import android.content.pm.PackageManager;
+import android.net.Uri;
+import android.support.annotation.Nullable;
+import android.support.annotation.VisibleForTesting;
+import android.support.annotation.WorkerThread;
+import android.util.AtomicFile;
+import android.util.Log;
+
+import org.mozilla.focus.BuildConfig;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileNotFoundException;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * A binary on-disk copy of the search engines resolved for a specific locale. Reading this file is
+ * a lot cheaper than listing the search asset folders and running the XML parser over every
+ * OpenSearch plugin again.
+ *
+ * The cache is only valid for the app version and locale it has been written for. Bundled search
+ * plugins can only change with an app update, so there's no need for any other invalidation.
+ */
+/* package */ class SearchEngineCache {
+    private static final String LOG_TAG = SearchEngineCache.class.getSimpleName();
+
+    private static final String FILE_NAME = "search_engines.cache";
+
+    /**
+     * Bump this whenever the layout written by {@link #write(OutputStream, String, String, List)}
+     * changes.
+     */
+    private static final int FORMAT_VERSION = 1;
+
+    private SearchEngineCache() {}
+
+    /**
+     * Read the cached search engines for the given locale, or null if there's no (valid) cache.
+     */
+    @WorkerThread
+    @Nullable
+    /* package */ static List<SearchEngine> read(Context context, String localeTag) {
+        final AtomicFile file = getFile(context);
+
+        try (final InputStream stream = new BufferedInputStream(file.openRead())) {
+            return read(stream, getAppVersion(context), localeTag);
+        } catch (FileNotFoundException e) {
+            // No cache yet: This is the first start after installing the app.
+            return null;
+        } catch (IOException e) {
+            Log.w(LOG_TAG, "Could not read search engine cache", e);
+            file.delete();
+            return null;
+        }
+    }
+
+    @WorkerThread
+    /* package */ static void write(Context context, String localeTag, List<SearchEngine> searchEngines) {
+        final AtomicFile file = getFile(context);
+
+        FileOutputStream stream = null;
+        try {
+            stream = file.startWrite();
+
+            final BufferedOutputStream bufferedStream = new BufferedOutputStream(stream);
+            write(bufferedStream, getAppVersion(context), localeTag, searchEngines);
+            bufferedStream.flush();
+
+            file.finishWrite(stream);
+        } catch (IOException e) {
+            Log.w(LOG_TAG, "Could not write search engine cache", e);
+
+            if (stream != null) {
+                file.failWrite(stream);
+            }
+        }
+    }
+
+    @VisibleForTesting
+    @Nullable
+    static List<SearchEngine> read(InputStream inputStream, String appVersion, String localeTag) throws IOException {
+        final DataInputStream stream = new DataInputStream(inputStream);
+
+        if (stream.readInt() != FORMAT_VERSION
+                || !appVersion.equals(stream.readUTF())
+                || !localeTag.equals(stream.readUTF())) {
+            return null;
+        }
+
+        final int count = stream.readInt();
+        final List<SearchEngine> searchEngines = new ArrayList<>(count);
+
+        for (int i = 0; i < count; i++) {
+            final SearchEngine searchEngine = new SearchEngine(stream.readUTF());
+            searchEngine.name = readNullableString(stream);
+            searchEngine.searchTermsParamName = readNullableString(stream);
+
+            final String suggestUri = readNullableString(stream);
+            if (suggestUri != null) {
+                searchEngine.suggestUri = Uri.parse(suggestUri);
+            }
+
+            final int uriCount = stream.readInt();
+            for (int j = 0; j < uriCount; j++) {
+                searchEngine.resultsUris.add(Uri.parse(stream.readUTF()));
+            }
+
+            final int iconLength = stream.readInt();
+            if (iconLength > 0) {
+                final byte[] iconBytes = new byte[iconLength];
+                stream.readFully(iconBytes);
+
+                searchEngine.iconBytes = iconBytes;
+            }
+
+            searchEngine.compileSearchUrlTemplate();
+
+            searchEngines.add(searchEngine);
+        }
+
+        return searchEngines;
+    }
+
+    @VisibleForTesting
+    static void write(OutputStream outputStream, String appVersion, String localeTag, List<SearchEngine> searchEngines) throws IOException {
+        final DataOutputStream stream = new DataOutputStream(outputStream);
+
+        stream.writeInt(FORMAT_VERSION);
+        stream.writeUTF(appVersion);
+        stream.writeUTF(localeTag);
+
+        stream.writeInt(searchEngines.size());
+
+        for (final SearchEngine searchEngine : searchEngines) {
+            stream.writeUTF(searchEngine.getIdentifier());
+            writeNullableString(stream, searchEngine.name);
+            writeNullableString(stream, searchEngine.searchTermsParamName);
+            writeNullableString(stream, searchEngine.suggestUri != null ? searchEngine.suggestUri.toString() : null);
+
+            stream.writeInt(searchEngine.resultsUris.size());
+            for (final Uri uri : searchEngine.resultsUris) {
+                stream.writeUTF(uri.toString());
+            }
+
+            if (searchEngine.iconBytes != null) {
+                stream.writeInt(searchEngine.iconBytes.length);
+                stream.write(searchEngine.iconBytes);
+            } else {
+                stream.writeInt(0);
+            }
+        }
+
+        stream.flush();
+    }
+
+    private static String readNullableString(DataInputStream stream) throws IOException {
+        return stream.readBoolean() ? stream.readUTF() : null;
+    }
+
+    private static void writeNullableString(DataOutputStream stream, String value) throws IOException {
+        stream.writeBoolean(value != null);
+        if (value != null) {
+            stream.writeUTF(value);
+        }
+    }
+
+    /**
+     * The version code alone is not enough for development builds, where the bundled plugins can
+     * change without a version bump. The time of the last install/update covers both cases.
+     */
+    private static String getAppVersion(Context context) {
+        try {
+            final PackageInfo packageInfo = context.getPackageManager().getPackageInfo(context.getPackageName(), 0);
+            return packageInfo.versionCode + "/" + packageInfo.lastUpdateTime;
+        } catch (PackageManager.NameNotFoundException e) {
+            // Our own package should always be found. Fall back to the compile-time version anyways.
+            return BuildConfig.VERSION_CODE + "/" + BuildConfig.VERSION_NAME;
+        }
+    }
+
+    private static AtomicFile getFile(Context context) {
+        // This is app data and not browsing data: Keep it out of the cache directory that we
+        // truncate when erasing the browsing session, and out of backups.
+        return new AtomicFile(new File(context.getNoBackupFilesDir(), FILE_NAME));
+    }
+}
@@ -0,0 +1,112 @@
+/* -*- Mode: Java; c-basic-offset: 4; tab-width: 20; indent-tabs-mode: nil; -*-
+ * This Source Code Form is subject to the terms of the Mozilla Public
+ * License, v. 2.0. If a copy of the MPL was not distributed with this
+ * file, You can obtain one at http://mozilla.org/MPL/2.0/. */
+
+package org.mozilla.focus.search;
+
+import android.graphics.Bitmap;
+import android.graphics.BitmapFactory;
+import android.support.annotation.Nullable;
+import android.util.LruCache;
+
+import org.mozilla.focus.utils.TrimMemoryCoordinator;
+
+/**
+ * A small, memory bounded cache for decoded search engine icons. Search engines only keep the
+ * compressed icon bytes around; bitmaps are decoded the first time someone actually wants to show
+ * an icon (Currently only the search engine list in the settings).
+ */
+/* package */ class SearchEngineIconCache {
+    /**
+     * All bundled icons together stay way below this limit at the size of the settings list. This
+     * is only meant to put an upper bound on memory if someone requests large icons.
+     */
+    private static final int MAX_SIZE_BYTES = 512 * 1024;
+
+    private static final LruCache<String, Bitmap> cache = new LruCache<String, Bitmap>(MAX_SIZE_BYTES) {
+        @Override
+        protected int sizeOf(String key, Bitmap bitmap) {
+            return bitmap.getByteCount();
+        }
+    };
+
+    /**
+     * Decoding icons again is cheap: We keep the compressed bytes around anyway.
+     */
+    private static final TrimMemoryCoordinator.Trimmable trimmable = new TrimMemoryCoordinator.Trimmable() {
+        @Override
+        public long trimMemory(int level) {
+            final long size = cache.size();
+            cache.evictAll();
+            return size;
+        }
+    };
+
+    static {
+        TrimMemoryCoordinator.getInstance().register("search-engine-icons", TrimMemoryCoordinator.Priority.CHEAP, trimmable);
+    }
+
+    private SearchEngineIconCache() {}
+
+    /**
+     * Get the decoded icon of this search engine. The icon will be downsampled to roughly match
+     * the requested size.
+     *
+     * @param size Requested size (width and height) in pixels, or 0 to decode in the original size.
+     */
+    @Nullable
+    /* package */ static Bitmap get(SearchEngine searchEngine, int size) {
+        final byte[] iconBytes = searchEngine.iconBytes;
+        if (iconBytes == null) {
+            return null;
+        }
+
+        final String key = searchEngine.getIdentifier() + "@" + size;
+
+        final Bitmap cachedIcon = cache.get(key);
+        if (cachedIcon != null) {
+            return cachedIcon;
+        }
+
+        final Bitmap icon = decode(iconBytes, size);
+        if (icon != null) {
+            cache.put(key, icon);
+        }
+        return icon;
+    }
+
+    /* package */ static void clear() {
+        cache.evictAll();
+    }
+
+    private static Bitmap decode(byte[] iconBytes, int size) {
+        if (size <= 0) {
+            return BitmapFactory.decodeByteArray(iconBytes, 0, iconBytes.length);
+        }
+
+        final BitmapFactory.Options options = new BitmapFactory.Options();
+        options.inJustDecodeBounds = true;
+        BitmapFactory.decodeByteArray(iconBytes, 0, iconBytes.length, options);
+
+        int sampleSize = 1;
+        while (options.outWidth / (sampleSize * 2) >= size && options.outHeight / (sampleSize * 2) >= size) {
+            sampleSize *= 2;
+        }
+
+        options.inJustDecodeBounds = false;
+        options.inSampleSize = sampleSize;
+
+        final Bitmap bitmap = BitmapFactory.decodeByteArray(iconBytes, 0, iconBytes.length, options);
+        if (bitmap == null || bitmap.getWidth() <= size) {
+            return bitmap;
+        }
+
+        final int height = Math.max(1, bitmap.getHeight() * size / bitmap.getWidth());
+        final Bitmap scaled = Bitmap.createScaledBitmap(bitmap, size, height, true);
+        if (scaled != bitmap) {
+            bitmap.recycle();
+        }
+        return scaled;
+    }
+}
@@ -10,6 +10,8 @@ import android.content.Context;
 import android.content.Intent;
 import android.content.IntentFilter;
 import android.content.res.AssetManager;
+import android.os.SystemClock;
+import android.support.annotation.VisibleForTesting;
 import android.support.annotation.WorkerThread;
 import android.util.Log;
 
@@ -19,33 +21,60 @@ import org.json.JSONObject;
 import org.mozilla.focus.locale.Locales;
 import org.mozilla.focus.utils.IOUtils;
 import org.mozilla.focus.utils.Settings;
+import org.mozilla.focus.utils.ThreadUtils;
 
 import java.io.IOException;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
 import java.util.Locale;
-
-import edu.umd.cs.findbugs.annotations.SuppressFBWarnings;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicLong;
 
 public class SearchEngineManager extends BroadcastReceiver {
     private static final String LOG_TAG = SearchEngineManager.class.getSimpleName();
 
     private static SearchEngineManager instance = new SearchEngineManager();
 
-    private List<SearchEngine> searchEngines;
+    /**
+     * Callback for getting the list of search engines without blocking the calling thread.
+     */
+    public interface SearchEnginesCallback {
+        /**
+         * Called on the UI thread as soon as the search engines are available.
+         */
+        void onSearchEnginesLoaded(List<SearchEngine> searchEngines);
+    }
+
+    /**
+     * The loaded search engines, or null while (re)loading.
+     */
+    private volatile List<SearchEngine> searchEngines;
+
+    /**
+     * Released once the currently running load has finished. Every (re)load gets a new latch.
+     */
+    private volatile CountDownLatch loadingLatch;
+
+    private final List<SearchEnginesCallback> pendingCallbacks = new ArrayList<>();
 
     /**
      * A flag indicating that data has been loaded, or is loading. This lets us detect if data
      * has been requested without a preceeding init().
      */
-    private boolean loadHasBeenTriggered = false;
+    private volatile boolean loadHasBeenTriggered = false;
+
+    // Instrumentation: How often and how long did callers need to block on loading search engines?
+    private final AtomicLong blockedCallCount = new AtomicLong();
+    private final AtomicLong totalWaitMillis = new AtomicLong();
+    private final AtomicLong maxWaitMillis = new AtomicLong();
+    private final AtomicLong fastPathCount = new AtomicLong();
 
     public static SearchEngineManager getInstance() {
         return instance;
     }
 
-    private SearchEngineManager() {}
+    @VisibleForTesting SearchEngineManager() {}
 
     public void init(Context context) {
         context.registerReceiver(this, new IntentFilter(Intent.ACTION_LOCALE_CHANGED));
@@ -64,54 +93,134 @@ public class SearchEngineManager extends BroadcastReceiver {
     }
 
     private void loadSearchEngines(final Context context) {
+        final CountDownLatch latch = startLoading();
+
         new Thread("SearchEngines-Load") {
             @Override
             public void run() {
-                loadFromDisk(context);
+                onSearchEnginesLoaded(context, latch, loadFromDisk(context));
             }
         }.start();
     }
 
+    /**
+     * Forget the current search engines. Callers will wait (or use the snapshot from the previous
+     * run) until {@link #onSearchEnginesLoaded(Context, CountDownLatch, List)} is called with the
+     * returned latch.
+     */
+    @VisibleForTesting CountDownLatch startLoading() {
+        final CountDownLatch latch = new CountDownLatch(1);
+
+        synchronized (this) {
+            loadHasBeenTriggered = true;
+            loadingLatch = latch;
+            searchEngines = null;
+        }
+
+        return latch;
+    }
+
+    @VisibleForTesting void onSearchEnginesLoaded(Context context, CountDownLatch latch, final List<SearchEngine> loadedSearchEngines) {
+        final List<SearchEnginesCallback> callbacks;
+
+        synchronized (this) {
+            if (latch != loadingLatch) {
+                // Another load has been started in the meantime (e.g. the locale changed again).
+                // Waiting callers will pick up the latch of the newer load.
+                latch.countDown();
+                return;
+            }
+
+            searchEngines = loadedSearchEngines;
+
+            callbacks = new ArrayList<>(pendingCallbacks);
+            pendingCallbacks.clear();
+        }
+
+        latch.countDown();
+
+        if (!loadedSearchEngines.isEmpty()) {
+            final SearchEngine defaultSearchEngine = findDefaultSearchEngine(context, loadedSearchEngines);
+            Settings.getInstance(context).setDefaultSearchEngineSnapshot(defaultSearchEngine);
+        }
+
+        for (final SearchEnginesCallback callback : callbacks) {
+            ThreadUtils.postToMainThread(new Runnable() {
+                @Override
+                public void run() {
+                    callback.onSearchEnginesLoaded(loadedSearchEngines);
+                }
+            });
+        }
+    }
+
     @WorkerThread
-    private synchronized void loadFromDisk(Context context) {
-        loadHasBeenTriggered = true;
-        final AssetManager assetManager = context.getAssets();
-        final Locale locale = Locale.getDefault();
+    private List<SearchEngine> loadFromDisk(Context context) {
+        // Loads can overlap if the locale changes while we are still loading. Make sure only one of
+        // them reads and writes the cache at a time.
+        synchronized (SearchEngineCache.class) {
+            return loadFromDiskLocked(context);
+        }
+    }
+
+    private List<SearchEngine> loadFromDiskLocked(Context context) {
+        final String localeTag = Locales.getLanguageTag(Locale.getDefault());
+
+        // The same identifier can point to a different plugin (and icon) after a locale change.
+        SearchEngineIconCache.clear();
+
+        final List<SearchEngine> cachedSearchEngines = SearchEngineCache.read(context, localeTag);
+        if (cachedSearchEngines != null && !cachedSearchEngines.isEmpty()) {
+            return cachedSearchEngines;
+        }
+
         final List<SearchEngine> searchEngines = new ArrayList<>();
 
         try {
-            final JSONArray engineNames = loadSearchEngineListForLocale(context);
-
-            final String localePath = "search/" + Locales.getLanguageTag(locale);
-            final String languagePath = "search/" + Locales.getLanguage(locale);
-            final String defaultPath = "search/default";
-
-            final List<String> localeEngines = Arrays.asList(assetManager.list(localePath));
-            final List<String> languageEngines = Arrays.asList(assetManager.list(languagePath));
-            final List<String> defaultEngines = Arrays.asList(assetManager.list(defaultPath));
-
-            for (int i = 0; i < engineNames.length(); i++) {
-                final String engineName = engineNames.getString(i);
-                final String fileName = engineName + ".xml";
-
-                if (localeEngines.contains(fileName)) {
-                    searchEngines.add(SearchEngineParser.load(assetManager, engineName, localePath + "/" + fileName));
-                } else if (languageEngines.contains(fileName)) {
-                    searchEngines.add(SearchEngineParser.load(assetManager, engineName, languagePath + "/" + fileName));
-                } else if (defaultEngines.contains(fileName)) {
-                    searchEngines.add(SearchEngineParser.load(assetManager, engineName, defaultPath + "/" + fileName));
-                } else {
-                    Log.e(LOG_TAG, "Couldn't find configuration for engine: " + engineName);
-                }
-            }
+            parseSearchEngines(context, searchEngines);
         } catch (IOException e) {
             Log.e(LOG_TAG, "IOException while loading search engines", e);
+
+            // Do not cache an incomplete list: An I/O error shouldn't stick around until the next update.
+            return searchEngines;
         } catch (JSONException e) {
             throw new AssertionError("Reading search engine failed: ", e);
-        } finally {
-            this.searchEngines = searchEngines;
+        }
 
-            notifyAll();
+        if (!searchEngines.isEmpty()) {
+            SearchEngineCache.write(context, localeTag, searchEngines);
+        }
+
+        return searchEngines;
+    }
+
+    private void parseSearchEngines(Context context, List<SearchEngine> searchEngines) throws IOException, JSONException {
+        final AssetManager assetManager = context.getAssets();
+        final Locale locale = Locale.getDefault();
+
+        final JSONArray engineNames = loadSearchEngineListForLocale(context);
+
+        final String localePath = "search/" + Locales.getLanguageTag(locale);
+        final String languagePath = "search/" + Locales.getLanguage(locale);
+        final String defaultPath = "search/default";
+
+        final List<String> localeEngines = Arrays.asList(assetManager.list(localePath));
+        final List<String> languageEngines = Arrays.asList(assetManager.list(languagePath));
+        final List<String> defaultEngines = Arrays.asList(assetManager.list(defaultPath));
+
+        for (int i = 0; i < engineNames.length(); i++) {
+            final String engineName = engineNames.getString(i);
+            final String fileName = engineName + ".xml";
+
+            if (localeEngines.contains(fileName)) {
+                searchEngines.add(SearchEngineParser.load(assetManager, engineName, localePath + "/" + fileName));
+            } else if (languageEngines.contains(fileName)) {
+                searchEngines.add(SearchEngineParser.load(assetManager, engineName, languagePath + "/" + fileName));
+            } else if (defaultEngines.contains(fileName)) {
+                searchEngines.add(SearchEngineParser.load(assetManager, engineName, defaultPath + "/" + fileName));
+            } else {
+                Log.e(LOG_TAG, "Couldn't find configuration for engine: " + engineName);
+            }
         }
     }
 
@@ -141,15 +250,114 @@ public class SearchEngineManager extends BroadcastReceiver {
         }
     }
 
-    public synchronized List<SearchEngine> getSearchEngines() {
-        awaitLoadingSearchEnginesLocked();
+    /**
+     * Get the list of search engines. This will block the calling thread if the search engines
+     * are still loading. Use {@link #getSearchEnginesAsync(SearchEnginesCallback)} if possible.
+     */
+    public List<SearchEngine> getSearchEngines() {
+        return awaitSearchEngines();
+    }
 
-        return searchEngines;
+    /**
+     * Get the default search engine. This will block the calling thread if the search engines are
+     * still loading.
+     */
+    public SearchEngine getDefaultSearchEngine(Context context) {
+        return findDefaultSearchEngine(context, awaitSearchEngines());
+    }
+
+    /**
+     * Get the list of search engines without blocking. The callback is invoked on the UI thread:
+     * Either immediately if the search engines are available already, or once loading has finished.
+     */
+    public void getSearchEnginesAsync(SearchEnginesCallback callback) {
+        ThreadUtils.assertOnUiThread();
+
+        final List<SearchEngine> searchEngines;
+
+        synchronized (this) {
+            assertLoadHasBeenTriggered();
+
+            searchEngines = this.searchEngines;
+            if (searchEngines == null) {
+                pendingCallbacks.add(callback);
+                return;
+            }
+        }
+
+        callback.onSearchEnginesLoaded(searchEngines);
+    }
+
+    /**
+     * Build a search URL using the default search engine. If the search engines haven't been loaded
+     * yet then the URL template of the default search engine from the previous run is used instead
+     * of waiting for the search plugins to be parsed.
+     */
+    public String createSearchUrl(Context context, String searchTerm) {
+        if (searchEngines == null) {
+            final String template = Settings.getInstance(context).getDefaultSearchEngineTemplate();
+            if (template != null) {
+                fastPathCount.incrementAndGet();
+                return SearchEngine.buildSearchUrl(template, searchTerm);
+            }
+        }
+
+        return getDefaultSearchEngine(context).buildSearchUrl(searchTerm);
+    }
+
+    /**
+     * Get the identifier of the default search engine. Like {@link #createSearchUrl(Context, String)}
+     * this will use the value from the previous run instead of waiting for the search engines to load.
+     */
+    public String getDefaultSearchEngineIdentifier(Context context) {
+        if (searchEngines == null) {
+            final String identifier = Settings.getInstance(context).getDefaultSearchEngineIdentifier();
+            if (identifier != null) {
+                fastPathCount.incrementAndGet();
+                return identifier;
+            }
+        }
+
+        return getDefaultSearchEngine(context).getIdentifier();
     }
 
-    public synchronized SearchEngine getDefaultSearchEngine(Context context) {
-        awaitLoadingSearchEnginesLocked();
+    /**
+     * How many calls had to block because the search engines were still loading?
+     */
+    public long getBlockedCallCount() {
+        return blockedCallCount.get();
+    }
 
+    /**
+     * Total time (in milliseconds) callers spent blocked waiting for the search engines to load.
+     */
+    public long getTotalWaitMillis() {
+        return totalWaitMillis.get();
+    }
+
+    /**
+     * Longest time (in milliseconds) a single caller was blocked waiting for the search engines.
+     */
+    public long getMaxWaitMillis() {
+        return maxWaitMillis.get();
+    }
+
+    /**
+     * How many calls were answered from the previous run instead of waiting for the search engines?
+     */
+    public long getFastPathCount() {
+        return fastPathCount.get();
+    }
+
+    /**
+     * How often callers had to wait for the search engines, for debugging.
+     */
+    public String getWaitSummary() {
+        return getBlockedCallCount() + " calls blocked (" + getTotalWaitMillis() + "ms total, "
+                + getMaxWaitMillis() + "ms max), " + getFastPathCount() + " answered from previous run";
+    }
+
+    private static SearchEngine findDefaultSearchEngine(Context context, List<SearchEngine> searchEngines) {
         final String defaultSearch = Settings.getInstance(context).getDefaultSearchEngineName();
         if (defaultSearch != null) {
             for (SearchEngine searchEngine : searchEngines) {
@@ -162,20 +370,47 @@ public class SearchEngineManager extends BroadcastReceiver {
         return searchEngines.get(0);
     }
 
-    // Our (searchEngines == null) check is deemed to be an unsynchronised access. Similarly loadHasBeenTriggered
-    // also doesn't need synchronisation:
-    @SuppressFBWarnings(value = "IS2_INCONSISTENT_SYNC", justification = "Variable is not being accessed, it is merely being tested for existence")
-    public void awaitLoadingSearchEnginesLocked() {
-        if (!loadHasBeenTriggered) {
-            throw new IllegalStateException("Attempting to retrieve search engines without a corresponding init()");
+    private List<SearchEngine> awaitSearchEngines() {
+        assertLoadHasBeenTriggered();
+
+        List<SearchEngine> searchEngines = this.searchEngines;
+        if (searchEngines != null) {
+            return searchEngines;
         }
 
-        while (searchEngines == null) {
+        final long start = SystemClock.elapsedRealtime();
+
+        while ((searchEngines = this.searchEngines) == null) {
             try {
-                wait();
+                loadingLatch.await();
             } catch (InterruptedException ignored) {
                 // Ignore
             }
         }
+
+        recordWait(SystemClock.elapsedRealtime() - start);
+
+        return searchEngines;
+    }
+
+    private void recordWait(long waitMillis) {
+        blockedCallCount.incrementAndGet();
+        totalWaitMillis.addAndGet(waitMillis);
+
+        long currentMax;
+        while (waitMillis > (currentMax = maxWaitMillis.get())) {
+            if (maxWaitMillis.compareAndSet(currentMax, waitMillis)) {
+                break;
+            }
+        }
+
+        Log.w(LOG_TAG, "Blocked " + waitMillis + "ms waiting for search engines on thread "
+                + Thread.currentThread().getName());
+    }
+
+    private void assertLoadHasBeenTriggered() {
+        if (!loadHasBeenTriggered) {
+            throw new IllegalStateException("Attempting to retrieve search engines without a corresponding init()");
+        }
     }
 }
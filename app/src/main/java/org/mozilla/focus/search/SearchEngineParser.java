@@ -6,7 +6,6 @@
 package org.mozilla.focus.search;
 
 import android.content.res.AssetManager;
-import android.graphics.BitmapFactory;
 import android.net.Uri;
 import android.support.annotation.VisibleForTesting;
 import android.util.Base64;
@@ -48,6 +47,8 @@ import java.nio.charset.StandardCharsets;
 
         readSearchPlugin(parser, searchEngine);
 
+        searchEngine.compileSearchUrlTemplate();
+
         return searchEngine;
     }
 
@@ -163,8 +164,7 @@ import java.nio.charset.StandardCharsets;
 
         final byte[] raw = Base64.decode(uri.substring(IMAGE_URI_PREFIX.length()), Base64.DEFAULT);
 
-        searchEngine.icon = BitmapFactory.decodeByteArray(raw, 0, raw.length);
-
+        searchEngine.iconBytes = raw;
         parser.nextTag();
     }
 }
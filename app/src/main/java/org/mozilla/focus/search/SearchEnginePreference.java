@@ -14,6 +14,8 @@ import android.util.AttributeSet;
 import org.mozilla.focus.R;
 import org.mozilla.focus.utils.Settings;
 
+import java.util.List;
+
 /**
  * Preference for setting the default search engine.
  */
@@ -28,8 +30,14 @@ public class SearchEnginePreference extends DialogPreference {
 
     @Override
     protected void onAttachedToActivity() {
-        setTitle(SearchEngineManager.getInstance().getDefaultSearchEngine(getContext()).getName());
         super.onAttachedToActivity();
+
+        SearchEngineManager.getInstance().getSearchEnginesAsync(new SearchEngineManager.SearchEnginesCallback() {
+            @Override
+            public void onSearchEnginesLoaded(List<SearchEngine> searchEngines) {
+                setTitle(SearchEngineManager.getInstance().getDefaultSearchEngine(getContext()).getName());
+            }
+        });
     }
 
     @Override
@@ -0,0 +1,218 @@
+/* -*- Mode: Java; c-basic-offset: 4; tab-width: 20; indent-tabs-mode: nil; -*-
+ * This Source Code Form is subject to the terms of the Mozilla Public
+ * License, v. 2.0. If a copy of the MPL was not distributed with this
+ * file, You can obtain one at http://mozilla.org/MPL/2.0/. */
+
+package org.mozilla.focus.search;
+
+import android.support.annotation.VisibleForTesting;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * A search URL template that has been split into literal segments and parameter slots once, so that
+ * building a search URL is a single pass over a list of tokens. Parameter handling is modeled after
+ * ParamSubstitution in nsSearchService.js.
+ */
+/* package */ final class SearchUrlTemplate {
+    private static final int SLOT_LITERAL = 0;
+    private static final int SLOT_SEARCH_TERMS = 1;
+    private static final int SLOT_LOCALE = 2;
+
+    // Parameters copied from nsSearchService.js
+    private static final String MOZ_PARAM_LOCALE = "moz:locale";
+    private static final String MOZ_PARAM_DIST_ID = "moz:distributionID";
+    private static final String MOZ_PARAM_OFFICIAL = "moz:official";
+
+    // Supported OpenSearch parameters
+    // See http://opensearch.a9.com/spec/1.1/querysyntax/#core
+    private static final String OS_PARAM_USER_DEFINED = "searchTerms";
+    private static final String OS_PARAM_INPUT_ENCODING = "inputEncoding";
+    private static final String OS_PARAM_LANGUAGE = "language";
+    private static final String OS_PARAM_OUTPUT_ENCODING = "outputEncoding";
+
+    private final int[] types;
+    private final String[] literals;
+    private final int literalLength;
+
+    private SearchUrlTemplate(int[] types, String[] literals) {
+        this.types = types;
+        this.literals = literals;
+
+        int length = 0;
+        for (final String literal : literals) {
+            if (literal != null) {
+                length += literal.length();
+            }
+        }
+        this.literalLength = length;
+    }
+
+    /**
+     * Compile a (decoded) template like "https://example.org/?q={searchTerms}&hl={moz:locale}".
+     */
+    /* package */ static SearchUrlTemplate compile(String template) {
+        final List<Integer> types = new ArrayList<>();
+        final List<String> literals = new ArrayList<>();
+
+        final StringBuilder literal = new StringBuilder(template.length());
+
+        int position = 0;
+        while (position < template.length()) {
+            // Look for the innermost "{...}" pair, just like the regular expressions of nsSearchService.js
+            // would only ever match a parameter without any braces inside.
+            final int end = template.indexOf('}', position);
+            if (end == -1) {
+                literal.append(template, position, template.length());
+                break;
+            }
+
+            final int start = template.lastIndexOf('{', end);
+            if (start < position) {
+                literal.append(template, position, end + 1);
+                position = end + 1;
+                continue;
+            }
+
+            literal.append(template, position, start);
+
+            final String parameter = template.substring(start + 1, end);
+            final int slot = resolveSlot(parameter);
+
+            if (slot == SLOT_LITERAL) {
+                // Either a fixed value or a parameter we don't know (which we keep as it is).
+                final String value = resolveFixedValue(parameter);
+                literal.append(value != null ? value : template.substring(start, end + 1));
+            } else {
+                if (literal.length() > 0) {
+                    types.add(SLOT_LITERAL);
+                    literals.add(literal.toString());
+                    literal.setLength(0);
+                }
+
+                types.add(slot);
+                literals.add(null);
+            }
+
+            position = end + 1;
+        }
+
+        if (literal.length() > 0) {
+            types.add(SLOT_LITERAL);
+            literals.add(literal.toString());
+        }
+
+        final int[] typeArray = new int[types.size()];
+        for (int i = 0; i < typeArray.length; i++) {
+            typeArray[i] = types.get(i);
+        }
+
+        return new SearchUrlTemplate(typeArray, literals.toArray(new String[literals.size()]));
+    }
+
+    /**
+     * Build the search URL for the given (already URL encoded) search term.
+     */
+    /* package */ String build(String encodedSearchTerm) {
+        return build(encodedSearchTerm, Locale.getDefault().toString());
+    }
+
+    @VisibleForTesting String build(String encodedSearchTerm, String locale) {
+        final StringBuilder builder = new StringBuilder(literalLength + encodedSearchTerm.length() + 16);
+
+        for (int i = 0; i < types.length; i++) {
+            switch (types[i]) {
+                case SLOT_SEARCH_TERMS:
+                    builder.append(encodedSearchTerm);
+                    break;
+                case SLOT_LOCALE:
+                    builder.append(locale);
+                    break;
+                default:
+                    builder.append(literals[i]);
+                    break;
+            }
+        }
+
+        return builder.toString();
+    }
+
+    private static int resolveSlot(String parameter) {
+        if (MOZ_PARAM_LOCALE.equals(parameter)) {
+            return SLOT_LOCALE;
+        }
+
+        final String name = stripOptionalMarker(parameter);
+
+        if (OS_PARAM_USER_DEFINED.equals(name)) {
+            return SLOT_SEARCH_TERMS;
+        } else if (OS_PARAM_LANGUAGE.equals(name)) {
+            return SLOT_LOCALE;
+        }
+
+        return SLOT_LITERAL;
+    }
+
+    /**
+     * Returns the value of a parameter that does not depend on the search or the current locale, or
+     * null if the parameter is not supported.
+     */
+    private static String resolveFixedValue(String parameter) {
+        if (MOZ_PARAM_DIST_ID.equals(parameter)) {
+            return "";
+        } else if (MOZ_PARAM_OFFICIAL.equals(parameter)) {
+            return "unofficial";
+        }
+
+        final String name = stripOptionalMarker(parameter);
+        if (OS_PARAM_INPUT_ENCODING.equals(name) || OS_PARAM_OUTPUT_ENCODING.equals(name)) {
+            return "UTF-8";
+        }
+
+        if (isOptionalParameter(parameter)) {
+            // Replace any optional parameters
+            return "";
+        }
+
+        return null;
+    }
+
+    private static String stripOptionalMarker(String parameter) {
+        return parameter.endsWith("?") ? parameter.substring(0, parameter.length() - 1) : parameter;
+    }
+
+    /**
+     * Equivalent of the regular expression {@code (?:\w+:)?\w+\?}.
+     */
+    private static boolean isOptionalParameter(String parameter) {
+        if (!parameter.endsWith("?")) {
+            return false;
+        }
+
+        final String name = parameter.substring(0, parameter.length() - 1);
+        final int colon = name.indexOf(':');
+
+        if (colon == -1) {
+            return isWord(name);
+        }
+
+        return isWord(name.substring(0, colon)) && isWord(name.substring(colon + 1));
+    }
+
+    private static boolean isWord(String value) {
+        if (value.isEmpty()) {
+            return false;
+        }
+
+        for (int i = 0; i < value.length(); i++) {
+            final char c = value.charAt(i);
+            if (!(c == '_' || (c >= 'a' && c <= 'z') || (c >= 'A' && c <= 'Z') || (c >= '0' && c <= '9'))) {
+                return false;
+            }
+        }
+
+        return true;
+    }
+}
@@ -15,12 +15,20 @@ import android.preference.PreferenceScreen;
 import android.support.annotation.Nullable;
 import android.text.TextUtils;
 
+import org.json.JSONException;
 import org.mozilla.focus.R;
 import org.mozilla.focus.activity.InfoActivity;
 import org.mozilla.focus.activity.SettingsActivity;
 import org.mozilla.focus.locale.LocaleManager;
 import org.mozilla.focus.locale.Locales;
+import org.mozilla.focus.search.SearchEngineManager;
 import org.mozilla.focus.telemetry.TelemetryWrapper;
+import org.mozilla.focus.utils.AppConstants;
+import org.mozilla.focus.utils.IntentUtils;
+import org.mozilla.focus.web.BrowsingSession;
+import org.mozilla.focus.web.InterceptionMetrics;
+import org.mozilla.focus.web.PageLoadTimeline;
+import org.mozilla.focus.web.WebViewProvider;
 import org.mozilla.focus.widget.DefaultBrowserPreference;
 
 import java.util.Locale;
@@ -33,6 +41,92 @@ public class SettingsFragment extends PreferenceFragment implements SharedPrefer
         super.onCreate(savedInstanceState);
 
         addPreferencesFromResource(R.xml.settings);
+
+        if (AppConstants.isDevBuild()) {
+            addDebugPreference(R.string.pref_key_debug_page_loads_blocking, R.string.preference_debug_page_loads_blocking);
+            addDebugPreference(R.string.pref_key_debug_page_loads_not_blocking, R.string.preference_debug_page_loads_not_blocking);
+            addDebugPreference(R.string.pref_key_debug_interception_latency, R.string.preference_debug_interception_latency);
+            addDebugPreference(R.string.pref_key_debug_webview_states, R.string.preference_debug_webview_states);
+            addDebugPreference(R.string.pref_key_debug_external_apps, R.string.preference_debug_external_apps);
+            addDebugPreference(R.string.pref_key_debug_telemetry_events, R.string.preference_debug_telemetry_events);
+            addDebugPreference(R.string.pref_key_debug_search_engine_waits, R.string.preference_debug_search_engine_waits);
+            addDebugPreference(R.string.pref_key_debug_webview_pool, R.string.preference_debug_webview_pool);
+            addDebugPreference(R.string.pref_key_debug_localized_resources, R.string.preference_debug_localized_resources);
+        }
+    }
+
+    private void addDebugPreference(int keyResId, int titleResId) {
+        final Preference preference = new Preference(getActivity());
+        preference.setLayoutResource(R.layout.focus_preference);
+        preference.setKey(getString(keyResId));
+        preference.setTitle(titleResId);
+        preference.setPersistent(false);
+
+        getPreferenceScreen().addPreference(preference);
+    }
+
+    private void updateDebugPreferences() {
+        final PageLoadTimeline timeline = PageLoadTimeline.getInstance();
+
+        final Preference blocking = findPreference(getString(R.string.pref_key_debug_page_loads_blocking));
+        if (blocking != null) {
+            blocking.setSummary(timeline.getSummary(true).toString());
+        }
+
+        final Preference notBlocking = findPreference(getString(R.string.pref_key_debug_page_loads_not_blocking));
+        if (notBlocking != null) {
+            notBlocking.setSummary(timeline.getSummary(false).toString());
+        }
+
+        final Preference interceptionLatency = findPreference(getString(R.string.pref_key_debug_interception_latency));
+        if (interceptionLatency != null) {
+            interceptionLatency.setSummary(InterceptionMetrics.getSummary());
+        }
+
+        final Preference webViewStates = findPreference(getString(R.string.pref_key_debug_webview_states));
+        if (webViewStates != null) {
+            webViewStates.setSummary(BrowsingSession.getInstance().getWebViewStateSummary());
+        }
+
+        final Preference externalApps = findPreference(getString(R.string.pref_key_debug_external_apps));
+        if (externalApps != null) {
+            externalApps.setSummary(IntentUtils.getExternalAppCacheSummary(getActivity()));
+        }
+
+        final Preference telemetryEvents = findPreference(getString(R.string.pref_key_debug_telemetry_events));
+        if (telemetryEvents != null) {
+            telemetryEvents.setSummary(TelemetryWrapper.getEventBufferSummary());
+        }
+
+        final Preference searchEngineWaits = findPreference(getString(R.string.pref_key_debug_search_engine_waits));
+        if (searchEngineWaits != null) {
+            searchEngineWaits.setSummary(SearchEngineManager.getInstance().getWaitSummary());
+        }
+
+        final Preference webViewPool = findPreference(getString(R.string.pref_key_debug_webview_pool));
+        if (webViewPool != null) {
+            webViewPool.setSummary(WebViewProvider.getPoolSummary());
+        }
+
+        final Preference localizedResources = findPreference(getString(R.string.pref_key_debug_localized_resources));
+        if (localizedResources != null) {
+            localizedResources.setSummary(Locales.getLocalizedResourcesSummary());
+        }
+    }
+
+    private void exportInterceptionMetrics() {
+        final String json;
+        try {
+            json = InterceptionMetrics.toJSON().toString(2);
+        } catch (JSONException e) {
+            throw new AssertionError("Could not serialize interception metrics", e);
+        }
+
+        final Intent intent = new Intent(Intent.ACTION_SEND);
+        intent.setType("text/plain");
+        intent.putExtra(Intent.EXTRA_TEXT, json);
+
+        startActivity(Intent.createChooser(intent, getString(R.string.preference_debug_interception_latency)));
     }
 
     @Override
@@ -46,6 +140,8 @@ public class SettingsFragment extends PreferenceFragment implements SharedPrefer
         } else if (preference.getKey().equals(getResources().getString(R.string.pref_key_rights))) {
             final Intent intent = InfoActivity.getRightsIntent(getActivity());
             startActivity(intent);
+        } else if (preference.getKey().equals(getResources().getString(R.string.pref_key_debug_interception_latency))) {
+            exportInterceptionMetrics();
         }
 
         return super.onPreferenceTreeClick(preferenceScreen, preference);
@@ -61,6 +157,8 @@ public class SettingsFragment extends PreferenceFragment implements SharedPrefer
         if (preference != null) {
             preference.update();
         }
+
+        updateDebugPreferences();
     }
 
     @Override
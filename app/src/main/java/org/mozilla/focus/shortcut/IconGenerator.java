@@ -12,64 +12,139 @@ import android.graphics.Color;
 import android.graphics.Paint;
 import android.net.Uri;
 import android.support.annotation.NonNull;
+import android.support.annotation.UiThread;
 import android.support.annotation.VisibleForTesting;
+import android.support.annotation.WorkerThread;
 import android.text.TextUtils;
+import android.util.LruCache;
 import android.util.TypedValue;
 
 import org.mozilla.focus.R;
+import org.mozilla.focus.utils.ThreadUtils;
+import org.mozilla.focus.utils.TrimMemoryCoordinator;
 import org.mozilla.focus.utils.UrlUtils;
 
 public class IconGenerator {
-    private static final int ICON_SIZE = 96;
     private static final int TEXT_SIZE_DP = 36;
 
     /**
-     * Use the given raw website icon and generate a launcher icon from it. If the given icon is null
-     * or too small then an icon will be generated based on the website's URL. The icon will be drawn
-     * on top of a generic launcher icon shape that we provide.
+     * Icons only differ by their character. A handful of them covers the sites a user adds
+     * in one session.
      */
-    public static Bitmap generateLauncherIcon(Context context, String url) {
-        final BitmapFactory.Options options = new BitmapFactory.Options();
-        options.inMutable = true;
+    private static final int MAX_CACHED_ICONS = 8;
+
+    public interface Callback {
+        /**
+         * Called on the UI thread once the icon has been generated.
+         */
+        @UiThread
+        void onLauncherIconGenerated(Bitmap icon);
+    }
 
-        final Bitmap shape = BitmapFactory.decodeResource(context.getResources(), R.drawable.ic_homescreen_shape, options);
+    private static final LruCache<String, Bitmap> cache = new LruCache<>(MAX_CACHED_ICONS);
 
-        final Bitmap icon = generateIcon(context, url);
+    // The (immutable) base shape and the paint are only used while holding the class lock.
+    private static Bitmap baseShape;
+    private static Paint textPaint;
 
-        int drawX = (shape.getWidth() / 2) - (icon.getWidth() / 2);
-        int drawY = (shape.getHeight() / 2) - (icon.getHeight() / 2);
+    /**
+     * Generating icons again is cheap, everything we cache can be recreated from resources.
+     */
+    private static final TrimMemoryCoordinator.Trimmable trimmable = new TrimMemoryCoordinator.Trimmable() {
+        @Override
+        public long trimMemory(int level) {
+            long size = 0;
+            for (Bitmap icon : cache.snapshot().values()) {
+                size += icon.getByteCount();
+            }
+            cache.evictAll();
 
-        final Canvas canvas = new Canvas(shape);
-        canvas.drawBitmap(icon, drawX, drawY, new Paint());
+            synchronized (IconGenerator.class) {
+                if (baseShape != null) {
+                    size += baseShape.getByteCount();
+                    baseShape = null;
+                }
+            }
+            return size;
+        }
+    };
 
-        return shape;
+    static {
+        TrimMemoryCoordinator.getInstance().register("launcher-icons", TrimMemoryCoordinator.Priority.CHEAP, trimmable);
     }
 
     /**
-     * Generate an icon for this website based on the URL.
+     * Generate a launcher icon for the given URL on a background thread. The callback is called
+     * on the UI thread once the icon is ready.
+     *
+     * The returned icon is shared and must not be modified.
      */
-    private static Bitmap generateIcon(Context context, String url) {
-        final Bitmap bitmap = Bitmap.createBitmap(ICON_SIZE, ICON_SIZE, Bitmap.Config.ARGB_8888);
-        final Canvas canvas = new Canvas(bitmap);
-
-        final Paint paint = new Paint();
+    public static void generateLauncherIcon(Context context, final String url, final Callback callback) {
+        final Context applicationContext = context.getApplicationContext();
+
+        ThreadUtils.postToBackgroundThread(new Runnable() {
+            @Override
+            public void run() {
+                final Bitmap icon = generateLauncherIcon(applicationContext, url);
+
+                ThreadUtils.postToMainThread(new Runnable() {
+                    @Override
+                    public void run() {
+                        callback.onLauncherIconGenerated(icon);
+                    }
+                });
+            }
+        });
+    }
 
+    /**
+     * Generate a launcher icon based on the website's URL. The icon will be drawn on top of a
+     * generic launcher icon shape that we provide.
+     *
+     * The returned icon is shared and must not be modified.
+     */
+    @WorkerThread
+    public static Bitmap generateLauncherIcon(Context context, String url) {
         final String character = getRepresentativeCharacter(url);
 
-        final float textSize = TypedValue.applyDimension(
-                TypedValue.COMPLEX_UNIT_DIP, TEXT_SIZE_DP, context.getResources().getDisplayMetrics());
+        final Bitmap cachedIcon = cache.get(character);
+        if (cachedIcon != null) {
+            return cachedIcon;
+        }
+
+        final Bitmap icon = generateIcon(context, character);
+        cache.put(character, icon);
+        return icon;
+    }
+
+    /**
+     * Draw the given character on top of (a copy of) the base shape.
+     */
+    private static synchronized Bitmap generateIcon(Context context, String character) {
+        if (baseShape == null) {
+            baseShape = BitmapFactory.decodeResource(context.getResources(), R.drawable.ic_homescreen_shape);
+        }
+
+        if (textPaint == null) {
+            final float textSize = TypedValue.applyDimension(
+                    TypedValue.COMPLEX_UNIT_DIP, TEXT_SIZE_DP, context.getResources().getDisplayMetrics());
+
+            textPaint = new Paint();
+            textPaint.setColor(Color.WHITE);
+            textPaint.setTextAlign(Paint.Align.CENTER);
+            textPaint.setTextSize(textSize);
+            textPaint.setAntiAlias(true);
+        }
 
-        paint.setColor(Color.WHITE);
-        paint.setTextAlign(Paint.Align.CENTER);
-        paint.setTextSize(textSize);
-        paint.setAntiAlias(true);
+        final Bitmap icon = baseShape.copy(Bitmap.Config.ARGB_8888, true);
 
+        final Canvas canvas = new Canvas(icon);
         canvas.drawText(character,
                 canvas.getWidth() / 2.0f,
-                ((canvas.getHeight() / 2.0f) - ((paint.descent() + paint.ascent()) / 2.0f)),
-                paint);
+                ((canvas.getHeight() / 2.0f) - ((textPaint.descent() + textPaint.ascent()) / 2.0f)),
+                textPaint);
 
-        return bitmap;
+        return icon;
     }
 
     /**
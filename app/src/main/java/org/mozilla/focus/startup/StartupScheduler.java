@@ -0,0 +1,277 @@
+/* -*- Mode: Java; c-basic-offset: 4; tab-width: 20; indent-tabs-mode: nil; -*-
+ * This Source Code Form is subject to the terms of the Mozilla Public
+ * License, v. 2.0. If a copy of the MPL was not distributed with this
+ * file, You can obtain one at http://mozilla.org/MPL/2.0/. */
+
+package org.mozilla.focus.startup;
+
+import android.app.Activity;
+import android.app.Application;
+import android.os.Bundle;
+import android.os.Handler;
+import android.os.Looper;
+import android.os.MessageQueue;
+import android.support.annotation.UiThread;
+import android.support.annotation.VisibleForTesting;
+import android.view.View;
+import android.view.ViewTreeObserver;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Runs the {@link StartupTask}s of the app in their phases and in dependency order, and records a
+ * span for every task in the {@link StartupTimeline}.
+ *
+ * Only tasks in {@link StartupTask.Phase#BEFORE_FIRST_FRAME} run as part of Application.onCreate().
+ * Everything else waits until the first activity has drawn its first frame. Processes that never
+ * create an activity (e.g. started for a service or a broadcast) never run those tasks.
+ */
+public class StartupScheduler {
+    public static final String MARK_APPLICATION_CREATED = "application-created";
+    public static final String MARK_FIRST_FRAME = "first-frame";
+    public static final String MARK_STARTUP_COMPLETE = "startup-complete";
+
+    /**
+     * If an activity has been created but doesn't draw a frame (e.g. it finishes right away) then
+     * we do not want to wait forever.
+     */
+    private static final long FIRST_FRAME_TIMEOUT_MS = 5000;
+
+    private final Application application;
+    private final Handler handler;
+    private final List<StartupTask> tasks = new ArrayList<>();
+
+    private List<StartupTask> afterFirstFrameTasks;
+    private Deque<StartupTask> idleTasks;
+    private boolean firstFrameSeen;
+    private boolean firstFrameTimeoutArmed;
+
+    public StartupScheduler(Application application) {
+        this.application = application;
+        this.handler = new Handler(Looper.getMainLooper());
+    }
+
+    public StartupScheduler add(StartupTask task) {
+        tasks.add(task);
+        return this;
+    }
+
+    /**
+     * Validate the task graph, run all tasks needed before the first frame and schedule the rest.
+     */
+    @UiThread
+    public void start() {
+        final List<StartupTask> sortedTasks = sort(tasks);
+
+        final List<StartupTask> beforeFirstFrameTasks = new ArrayList<>();
+        afterFirstFrameTasks = new ArrayList<>();
+        idleTasks = new ArrayDeque<>();
+
+        for (final StartupTask task : sortedTasks) {
+            switch (task.getPhase()) {
+                case BEFORE_FIRST_FRAME:
+                    beforeFirstFrameTasks.add(task);
+                    break;
+                case AFTER_FIRST_FRAME:
+                    afterFirstFrameTasks.add(task);
+                    break;
+                case IDLE:
+                    idleTasks.add(task);
+                    break;
+            }
+        }
+
+        for (final StartupTask task : beforeFirstFrameTasks) {
+            runTask(task);
+        }
+
+        StartupTimeline.getInstance().mark(MARK_APPLICATION_CREATED);
+
+        application.registerActivityLifecycleCallbacks(firstFrameDetector);
+    }
+
+    /**
+     * Only called once an activity has been created: The later phases (WebView preloading etc.)
+     * are only useful if there's UI.
+     */
+    private void armFirstFrameTimeout() {
+        if (firstFrameTimeoutArmed) {
+            return;
+        }
+        firstFrameTimeoutArmed = true;
+
+        handler.postDelayed(new Runnable() {
+            @Override
+            public void run() {
+                onFirstFrame();
+            }
+        }, FIRST_FRAME_TIMEOUT_MS);
+    }
+
+    private void onFirstFrame() {
+        if (firstFrameSeen) {
+            return;
+        }
+        firstFrameSeen = true;
+
+        StartupTimeline.getInstance().mark(MARK_FIRST_FRAME);
+
+        application.unregisterActivityLifecycleCallbacks(firstFrameDetector);
+
+        for (final StartupTask task : afterFirstFrameTasks) {
+            runTask(task);
+        }
+        afterFirstFrameTasks = null;
+
+        Looper.myQueue().addIdleHandler(new MessageQueue.IdleHandler() {
+            @Override
+            public boolean queueIdle() {
+                final StartupTask task = idleTasks.poll();
+                if (task != null) {
+                    runTask(task);
+                }
+
+                if (idleTasks.isEmpty()) {
+                    StartupTimeline.getInstance().mark(MARK_STARTUP_COMPLETE);
+                    return false;
+                }
+
+                // Keep this handler registered: We'll run the next task the next time we are idle.
+                return true;
+            }
+        });
+    }
+
+    private static void runTask(StartupTask task) {
+        final StartupTimeline timeline = StartupTimeline.getInstance();
+
+        final long start = timeline.now();
+        try {
+            task.run();
+        } finally {
+            timeline.addSpan(task.getName(), task.getPhase().name(), start, timeline.now());
+        }
+    }
+
+    private final Application.ActivityLifecycleCallbacks firstFrameDetector = new Application.ActivityLifecycleCallbacks() {
+        @Override
+        public void onActivityCreated(Activity activity, Bundle savedInstanceState) {
+            armFirstFrameTimeout();
+
+            final View decorView = activity.getWindow().getDecorView();
+
+            decorView.getViewTreeObserver().addOnDrawListener(new ViewTreeObserver.OnDrawListener() {
+                private boolean drawn;
+
+                @Override
+                public void onDraw() {
+                    if (drawn) {
+                        return;
+                    }
+                    drawn = true;
+
+                    final ViewTreeObserver.OnDrawListener listener = this;
+
+                    // onDraw() is called before the frame is actually drawn and listeners can't be
+                    // removed while dispatching. Continue once this frame is done.
+                    handler.post(new Runnable() {
+                        @Override
+                        public void run() {
+                            decorView.getViewTreeObserver().removeOnDrawListener(listener);
+                            onFirstFrame();
+                        }
+                    });
+                }
+            });
+        }
+
+        @Override
+        public void onActivityStarted(Activity activity) {}
+
+        @Override
+        public void onActivityResumed(Activity activity) {}
+
+        @Override
+        public void onActivityPaused(Activity activity) {}
+
+        @Override
+        public void onActivityStopped(Activity activity) {}
+
+        @Override
+        public void onActivitySaveInstanceState(Activity activity, Bundle outState) {}
+
+        @Override
+        public void onActivityDestroyed(Activity activity) {}
+    };
+
+    /**
+     * Sort the tasks by phase, so that every task comes after all of its dependencies. Tasks that
+     * do not depend on each other keep the order they have been added in.
+     *
+     * @throws IllegalStateException if a dependency is unknown, is in a later phase, or if there
+     *                               is a cycle.
+     */
+    @VisibleForTesting static List<StartupTask> sort(List<StartupTask> tasks) {
+        final Map<String, StartupTask> tasksByName = new HashMap<>();
+
+        for (final StartupTask task : tasks) {
+            if (tasksByName.put(task.getName(), task) != null) {
+                throw new IllegalStateException("Duplicate startup task: " + task.getName());
+            }
+        }
+
+        for (final StartupTask task : tasks) {
+            for (final String dependencyName : task.getDependencies()) {
+                final StartupTask dependency = tasksByName.get(dependencyName);
+
+                if (dependency == null) {
+                    throw new IllegalStateException(task + " depends on unknown task " + dependencyName);
+                }
+
+                if (dependency.getPhase().compareTo(task.getPhase()) > 0) {
+                    throw new IllegalStateException(task + " can't depend on task in later phase: " + dependency);
+                }
+            }
+        }
+
+        final List<StartupTask> sorted = new ArrayList<>(tasks.size());
+        final Set<String> visited = new HashSet<>();
+        final Set<String> visiting = new HashSet<>();
+
+        for (final StartupTask.Phase phase : StartupTask.Phase.values()) {
+            for (final StartupTask task : tasks) {
+                if (task.getPhase() == phase) {
+                    visit(task, tasksByName, visited, visiting, sorted);
+                }
+            }
+        }
+
+        return sorted;
+    }
+
+    private static void visit(StartupTask task, Map<String, StartupTask> tasksByName,
+                              Set<String> visited, Set<String> visiting, List<StartupTask> sorted) {
+        if (visited.contains(task.getName())) {
+            return;
+        }
+
+        if (!visiting.add(task.getName())) {
+            throw new IllegalStateException("Cycle in startup tasks at " + task);
+        }
+
+        for (final String dependencyName : task.getDependencies()) {
+            visit(tasksByName.get(dependencyName), tasksByName, visited, visiting, sorted);
+        }
+
+        visiting.remove(task.getName());
+        visited.add(task.getName());
+        sorted.add(task);
+    }
+}
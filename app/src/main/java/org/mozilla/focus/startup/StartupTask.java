@@ -0,0 +1,73 @@
+/* -*- Mode: Java; c-basic-offset: 4; tab-width: 20; indent-tabs-mode: nil; -*-
+ * This Source Code Form is subject to the terms of the Mozilla Public
+ * License, v. 2.0. If a copy of the MPL was not distributed with this
+ * file, You can obtain one at http://mozilla.org/MPL/2.0/. */
+
+package org.mozilla.focus.startup;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * A piece of work that needs to run once when the app process starts. Every task declares the
+ * phase it needs to be completed in and the tasks it depends on.
+ */
+public abstract class StartupTask {
+    public enum Phase {
+        /**
+         * Needs to be done before the first frame is drawn. Everything in this phase delays showing
+         * the URL bar (or the website the user wants to see).
+         */
+        BEFORE_FIRST_FRAME,
+
+        /**
+         * Runs on the UI thread right after the first frame has been drawn.
+         */
+        AFTER_FIRST_FRAME,
+
+        /**
+         * Runs on the UI thread the first time(s) the main looper is idle after the first frame.
+         * Tasks in this phase are run one at a time, so that input events can interleave.
+         */
+        IDLE
+    }
+
+    private final String name;
+    private final Phase phase;
+    private final List<String> dependencies;
+
+    public StartupTask(String name, Phase phase, String... dependencies) {
+        this.name = name;
+        this.phase = phase;
+        this.dependencies = dependencies.length == 0
+                ? Collections.<String>emptyList()
+                : Collections.unmodifiableList(Arrays.asList(dependencies));
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public Phase getPhase() {
+        return phase;
+    }
+
+    /**
+     * Names of the tasks that need to have finished before this task can run. Those tasks need to
+     * be in the same or in an earlier phase.
+     */
+    public List<String> getDependencies() {
+        return dependencies;
+    }
+
+    /**
+     * Do the actual work. Always called on the UI thread.
+     */
+    public abstract void run();
+
+    @Override
+    public String toString() {
+        return name + " (" + phase + ")";
+    }
+}
@@ -0,0 +1,190 @@
+/* -*- Mode: Java; c-basic-offset: 4; tab-width: 20; indent-tabs-mode: nil; -*-
+ * This Source Code Form is subject to the terms of the Mozilla Public
+ * License, v. 2.0. If a copy of the MPL was not distributed with this
+ * file, You can obtain one at http://mozilla.org/MPL/2.0/. */
+
+package org.mozilla.focus.startup;
+
+import android.os.Build;
+import android.os.Process;
+import android.os.SystemClock;
+import android.support.annotation.WorkerThread;
+import android.util.Log;
+
+import org.json.JSONArray;
+import org.json.JSONException;
+import org.json.JSONObject;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Records timestamped spans and marks while the app is starting. All timestamps are relative to
+ * the start of the process (or to the first use of this class on devices where the process start
+ * time isn't available).
+ *
+ * The timeline can be exported in the Trace Event Format, which can be opened in chrome://tracing.
+ */
+public final class StartupTimeline {
+    private static final String LOG_TAG = "StartupTimeline";
+
+    private static final StartupTimeline instance = new StartupTimeline();
+
+    public static StartupTimeline getInstance() {
+        return instance;
+    }
+
+    public static final class Span {
+        public final String name;
+        public final String category;
+        public final String thread;
+        public final long startMicros;
+        public final long endMicros;
+
+        /* package */ Span(String name, String category, String thread, long startMicros, long endMicros) {
+            this.name = name;
+            this.category = category;
+            this.thread = thread;
+            this.startMicros = startMicros;
+            this.endMicros = endMicros;
+        }
+
+        public long getDurationMicros() {
+            return endMicros - startMicros;
+        }
+
+        /* package */ boolean isMark() {
+            return startMicros == endMicros;
+        }
+    }
+
+    private final long originNanos;
+    private final List<Span> spans = new ArrayList<>();
+
+    private StartupTimeline() {
+        long originNanos = System.nanoTime();
+
+        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.N) {
+            final long millisSinceProcessStart = SystemClock.elapsedRealtime() - Process.getStartElapsedRealtime();
+            originNanos -= millisSinceProcessStart * 1000000L;
+        }
+
+        this.originNanos = originNanos;
+    }
+
+    /**
+     * Current time in microseconds since the start of the process.
+     */
+    public long now() {
+        return (System.nanoTime() - originNanos) / 1000L;
+    }
+
+    public void addSpan(String name, String category, long startMicros, long endMicros) {
+        final Span span = new Span(name, category, Thread.currentThread().getName(), startMicros, endMicros);
+
+        synchronized (spans) {
+            spans.add(span);
+        }
+    }
+
+    /**
+     * Record a point in time, e.g. "first frame drawn".
+     */
+    public void mark(String name) {
+        final long now = now();
+        addSpan(name, "mark", now, now);
+    }
+
+    /**
+     * Returns the time of the first mark with the given name (in microseconds since process start),
+     * or -1 if this mark hasn't been recorded.
+     */
+    public long getMark(String name) {
+        synchronized (spans) {
+            for (final Span span : spans) {
+                if (span.isMark() && span.name.equals(name)) {
+                    return span.startMicros;
+                }
+            }
+        }
+        return -1;
+    }
+
+    public List<Span> getSpans() {
+        synchronized (spans) {
+            return new ArrayList<>(spans);
+        }
+    }
+
+    public void logSummary() {
+        for (final Span span : getSpans()) {
+            if (span.isMark()) {
+                Log.i(LOG_TAG, String.format("%8.1fms  %s", span.startMicros / 1000f, span.name));
+            } else {
+                Log.i(LOG_TAG, String.format("%8.1fms  %s [%s] took %.1fms on %s",
+                        span.startMicros / 1000f, span.name, span.category, span.getDurationMicros() / 1000f, span.thread));
+            }
+        }
+    }
+
+    /**
+     * Write the timeline to the given file using the Trace Event Format.
+     */
+    @WorkerThread
+    public void writeTrace(File file) throws IOException {
+        try (final Writer writer = new OutputStreamWriter(new FileOutputStream(file), StandardCharsets.UTF_8)) {
+            writer.write(toTraceJSON().toString());
+        } catch (JSONException e) {
+            throw new AssertionError("Could not serialize startup timeline", e);
+        }
+    }
+
+    private JSONObject toTraceJSON() throws JSONException {
+        final JSONArray events = new JSONArray();
+        final List<String> threads = new ArrayList<>();
+
+        for (final Span span : getSpans()) {
+            if (!threads.contains(span.thread)) {
+                threads.add(span.thread);
+            }
+
+            final JSONObject event = new JSONObject();
+            event.put("name", span.name);
+            event.put("cat", span.category);
+            event.put("pid", Process.myPid());
+            event.put("tid", threads.indexOf(span.thread));
+            event.put("ts", span.startMicros);
+
+            if (span.isMark()) {
+                event.put("ph", "i");
+                event.put("s", "p");
+            } else {
+                event.put("ph", "X");
+                event.put("dur", span.getDurationMicros());
+            }
+
+            events.put(event);
+        }
+
+        for (int i = 0; i < threads.size(); i++) {
+            final JSONObject event = new JSONObject();
+            event.put("name", "thread_name");
+            event.put("ph", "M");
+            event.put("pid", Process.myPid());
+            event.put("tid", i);
+            event.put("args", new JSONObject().put("name", threads.get(i)));
+
+            events.put(event);
+        }
+
+        return new JSONObject()
+                .put("traceEvents", events)
+                .put("displayTimeUnit", "ms");
+    }
+}
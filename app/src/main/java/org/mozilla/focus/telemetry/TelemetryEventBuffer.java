@@ -0,0 +1,132 @@
+/* -*- Mode: Java; c-basic-offset: 4; tab-width: 20; indent-tabs-mode: nil; -*-
+ * This Source Code Form is subject to the terms of the Mozilla Public
+ * License, v. 2.0. If a copy of the MPL was not distributed with this
+ * file, You can obtain one at http://mozilla.org/MPL/2.0/. */
+
+package org.mozilla.focus.telemetry;
+
+import android.support.annotation.AnyThread;
+import android.support.annotation.WorkerThread;
+
+import org.mozilla.focus.utils.LatencyHistogram;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * An in-memory buffer for telemetry events. Adding an event never blocks and never performs any
+ * I/O. Events are handed over to the sink in batches on the given executor: Whenever the buffer
+ * contains a certain number of events or when a flush is requested explicitly.
+ *
+ * If the buffer is full (e.g. the executor is stuck) then new events are dropped and counted.
+ */
+/* package */ class TelemetryEventBuffer<T> {
+    /* package */ interface Sink<T> {
+        @WorkerThread
+        void write(List<T> events);
+    }
+
+    private final Executor executor;
+    private final Sink<T> sink;
+    private final int capacity;
+    private final int flushThreshold;
+
+    private final Queue<T> events = new ConcurrentLinkedQueue<>();
+    private final AtomicInteger size = new AtomicInteger();
+    private final AtomicBoolean flushScheduled = new AtomicBoolean();
+
+    private final AtomicLong droppedEventCount = new AtomicLong();
+    private final AtomicLong flushedEventCount = new AtomicLong();
+    private final LatencyHistogram flushLatency = new LatencyHistogram();
+
+    /* package */ TelemetryEventBuffer(Executor executor, Sink<T> sink, int capacity, int flushThreshold) {
+        this.executor = executor;
+        this.sink = sink;
+        this.capacity = capacity;
+        this.flushThreshold = flushThreshold;
+    }
+
+    /**
+     * Add an event to the buffer. Returns false if the event has been dropped because the buffer
+     * is full.
+     */
+    @AnyThread
+    public boolean add(T event) {
+        final int newSize = size.incrementAndGet();
+        if (newSize > capacity) {
+            size.decrementAndGet();
+            droppedEventCount.incrementAndGet();
+            return false;
+        }
+
+        events.offer(event);
+
+        if (newSize >= flushThreshold) {
+            flush();
+        }
+
+        return true;
+    }
+
+    /**
+     * Hand all buffered events over to the sink. This only schedules the flush and returns
+     * immediately. Tasks posted to the same (serial) executor afterwards will see the events flushed.
+     */
+    @AnyThread
+    public void flush() {
+        if (!flushScheduled.compareAndSet(false, true)) {
+            // A flush is already pending. It will pick up all events added until it runs.
+            return;
+        }
+
+        final long requestedAt = System.nanoTime();
+
+        executor.execute(new Runnable() {
+            @Override
+            public void run() {
+                flushScheduled.set(false);
+
+                final List<T> batch = drain();
+                if (!batch.isEmpty()) {
+                    sink.write(batch);
+                    flushedEventCount.addAndGet(batch.size());
+                }
+
+                flushLatency.recordSince(requestedAt);
+            }
+        });
+    }
+
+    private List<T> drain() {
+        final List<T> batch = new ArrayList<>();
+
+        T event;
+        while ((event = events.poll()) != null) {
+            batch.add(event);
+            size.decrementAndGet();
+        }
+
+        return batch;
+    }
+
+    public long getDroppedEventCount() {
+        return droppedEventCount.get();
+    }
+
+    public long getFlushedEventCount() {
+        return flushedEventCount.get();
+    }
+
+    /**
+     * Time from requesting a flush until the events have been handed over to the sink.
+     */
+    public LatencyHistogram getFlushLatency() {
+        return flushLatency;
+    }
+}
@@ -10,6 +10,7 @@ import android.content.res.Resources;
 import org.mozilla.focus.R;
 import org.mozilla.focus.search.SearchEngineManager;
 import org.mozilla.focus.utils.Browsers;
+import org.mozilla.focus.utils.BrowsersCache;
 import org.mozilla.telemetry.TelemetryHolder;
 import org.mozilla.telemetry.measurement.SettingsMeasurement;
 
@@ -50,7 +51,7 @@ import org.mozilla.telemetry.measurement.SettingsMeasurement;
             // The default browser is not actually a setting. We determine if we are the
             // default and then inject this into telemetry.
             final Context context = TelemetryHolder.get().getConfiguration().getContext();
-            final Browsers browsers = new Browsers(context, Browsers.TRADITIONAL_BROWSER_URL);
+            final Browsers browsers = BrowsersCache.getInstance().get(context);
             return Boolean.toString(browsers.isDefaultBrowser(context));
         }
 
@@ -13,10 +13,11 @@ import android.preference.PreferenceManager;
 
 import org.mozilla.focus.BuildConfig;
 import org.mozilla.focus.R;
-import org.mozilla.focus.search.SearchEngine;
 import org.mozilla.focus.search.SearchEngineManager;
 import org.mozilla.focus.utils.AppConstants;
 import org.mozilla.focus.utils.Browsers;
+import org.mozilla.focus.utils.LatencyHistogram;
+import org.mozilla.focus.utils.ThreadUtils;
 import org.mozilla.telemetry.Telemetry;
 import org.mozilla.telemetry.TelemetryHolder;
 import org.mozilla.telemetry.config.TelemetryConfiguration;
@@ -36,11 +37,42 @@ import org.mozilla.telemetry.storage.FileTelemetryStorage;
 import org.mozilla.telemetry.storage.TelemetryStorage;
 
 import java.util.List;
+import java.util.concurrent.Executor;
 
 public final class TelemetryWrapper {
     private static final String TELEMETRY_APP_NAME_FOCUS = "Focus";
     private static final String TELEMETRY_APP_NAME_KLAR = "Klar";
 
+    /**
+     * Maximum number of events we keep in memory. If the background thread doesn't keep up then
+     * we'd rather drop events than grow without bounds.
+     */
+    private static final int EVENT_BUFFER_CAPACITY = 500;
+
+    /**
+     * Number of buffered events that triggers a flush even if the session hasn't ended yet. This
+     * limits the number of events we lose if the process gets killed.
+     */
+    private static final int EVENT_BUFFER_FLUSH_THRESHOLD = 10;
+
+    private static final TelemetryEventBuffer<TelemetryEvent> eventBuffer = new TelemetryEventBuffer<>(
+            new Executor() {
+                @Override
+                public void execute(Runnable runnable) {
+                    ThreadUtils.postToBackgroundThread(runnable);
+                }
+            },
+            new TelemetryEventBuffer.Sink<TelemetryEvent>() {
+                @Override
+                public void write(List<TelemetryEvent> events) {
+                    for (final TelemetryEvent event : events) {
+                        event.queue();
+                    }
+                }
+            },
+            EVENT_BUFFER_CAPACITY,
+            EVENT_BUFFER_FLUSH_THRESHOLD);
+
     private TelemetryWrapper() {}
 
     private static class Category {
@@ -198,23 +230,70 @@ public final class TelemetryWrapper {
         };
     }
 
+    /**
+     * Session start and end are recorded on the background thread: Ending a session writes the
+     * session duration to shared preferences. Both are posted to the same thread, so they are
+     * recorded in order.
+     */
     public static void startSession() {
-        TelemetryHolder.get().recordSessionStart();
+        ThreadUtils.postToBackgroundThread(new Runnable() {
+            @Override
+            public void run() {
+                TelemetryHolder.get().recordSessionStart();
+            }
+        });
 
-        TelemetryEvent.create(Category.ACTION, Method.FOREGROUND, Object.APP).queue();
+        queue(TelemetryEvent.create(Category.ACTION, Method.FOREGROUND, Object.APP));
     }
 
     public static void stopSession() {
-        TelemetryHolder.get().recordSessionEnd();
+        ThreadUtils.postToBackgroundThread(new Runnable() {
+            @Override
+            public void run() {
+                TelemetryHolder.get().recordSessionEnd();
+            }
+        });
+
+        queue(TelemetryEvent.create(Category.ACTION, Method.BACKGROUND, Object.APP));
 
-        TelemetryEvent.create(Category.ACTION, Method.BACKGROUND, Object.APP).queue();
+        eventBuffer.flush();
     }
 
     public static void stopMainActivity() {
-        TelemetryHolder.get()
-                .queuePing(TelemetryCorePingBuilder.TYPE)
-                .queuePing(TelemetryEventPingBuilder.TYPE)
-                .scheduleUpload();
+        eventBuffer.flush();
+
+        // Posted to the same background thread as the flush above: The event ping will contain
+        // all events that have been buffered until now.
+        ThreadUtils.postToBackgroundThread(new Runnable() {
+            @Override
+            public void run() {
+                TelemetryHolder.get()
+                        .queuePing(TelemetryCorePingBuilder.TYPE)
+                        .queuePing(TelemetryEventPingBuilder.TYPE)
+                        .scheduleUpload();
+            }
+        });
+    }
+
+    /**
+     * Add the event to the buffer. Events are queued (and written to storage) in batches on a
+     * background thread. Timestamps are taken when the event is created, so this doesn't change
+     * the recorded time of an event.
+     */
+    private static void queue(TelemetryEvent event) {
+        eventBuffer.add(event);
+    }
+
+    /**
+     * How many events have been flushed and dropped by the event buffer, for debugging.
+     */
+    public static String getEventBufferSummary() {
+        final LatencyHistogram flushLatency = eventBuffer.getFlushLatency();
+
+        return eventBuffer.getFlushedEventCount() + " events flushed, "
+                + eventBuffer.getDroppedEventCount() + " dropped, "
+                + flushLatency.getCount() + " flushes, flush p95 < "
+                + flushLatency.getPercentileMicros(95) + "us";
     }
 
     public static void urlBarEvent(boolean isUrl) {
@@ -226,18 +305,18 @@ public final class TelemetryWrapper {
     }
 
     private static void browseEvent() {
-        TelemetryEvent.create(Category.ACTION, Method.TYPE_URL, Object.SEARCH_BAR).queue();
+        queue(TelemetryEvent.create(Category.ACTION, Method.TYPE_URL, Object.SEARCH_BAR));
     }
 
     public static void browseIntentEvent() {
-        TelemetryEvent.create(Category.ACTION, Method.INTENT_URL, Object.APP).queue();
+        queue(TelemetryEvent.create(Category.ACTION, Method.INTENT_URL, Object.APP));
     }
 
     public static void shareIntentEvent(boolean isURL) {
         if (isURL) {
-            TelemetryEvent.create(Category.ACTION, Method.SHARE_INTENT, Object.APP, Value.URL).queue();
+            queue(TelemetryEvent.create(Category.ACTION, Method.SHARE_INTENT, Object.APP, Value.URL));
         } else {
-            TelemetryEvent.create(Category.ACTION, Method.SHARE_INTENT, Object.APP, Value.SEARCH).queue();
+            queue(TelemetryEvent.create(Category.ACTION, Method.SHARE_INTENT, Object.APP, Value.SEARCH));
         }
     }
 
@@ -259,162 +338,169 @@ public final class TelemetryWrapper {
             event.extra(option, "true");
         }
 
-        event.queue();
+        queue(event);
     }
 
     public static void downloadDialogDownloadEvent(boolean sentToDownload) {
         if (sentToDownload) {
-            TelemetryEvent.create(Category.ACTION, Method.CLICK, Object.DOWNLOAD_DIALOG, Value.DOWNLOAD).queue();
+            queue(TelemetryEvent.create(Category.ACTION, Method.CLICK, Object.DOWNLOAD_DIALOG, Value.DOWNLOAD));
         } else {
-            TelemetryEvent.create(Category.ACTION, Method.CLICK, Object.DOWNLOAD_DIALOG, Value.CANCEL).queue();
+            queue(TelemetryEvent.create(Category.ACTION, Method.CLICK, Object.DOWNLOAD_DIALOG, Value.CANCEL));
         }
     }
 
     public static void closeCustomTabEvent() {
-        TelemetryEvent.create(Category.ACTION, Method.CLICK, Object.CUSTOM_TAB_CLOSE_BUTTON).queue();
+        queue(TelemetryEvent.create(Category.ACTION, Method.CLICK, Object.CUSTOM_TAB_CLOSE_BUTTON));
     }
 
     public static void customTabActionButtonEvent() {
-        TelemetryEvent.create(Category.ACTION, Method.CLICK, Object.CUSTOM_TAB_ACTION_BUTTON).queue();
+        queue(TelemetryEvent.create(Category.ACTION, Method.CLICK, Object.CUSTOM_TAB_ACTION_BUTTON));
     }
 
     public static void customTabMenuEvent() {
-        TelemetryEvent.create(Category.ACTION, Method.OPEN, Object.MENU, Value.CUSTOM_TAB).queue();
+        queue(TelemetryEvent.create(Category.ACTION, Method.OPEN, Object.MENU, Value.CUSTOM_TAB));
     }
 
     public static void textSelectionIntentEvent() {
-        TelemetryEvent.create(Category.ACTION, Method.TEXT_SELECTION_INTENT, Object.APP).queue();
+        queue(TelemetryEvent.create(Category.ACTION, Method.TEXT_SELECTION_INTENT, Object.APP));
     }
 
     private static void searchEnterEvent() {
-        Telemetry telemetry = TelemetryHolder.get();
+        queue(TelemetryEvent.create(Category.ACTION, Method.TYPE_QUERY, Object.SEARCH_BAR));
 
-        TelemetryEvent.create(Category.ACTION, Method.TYPE_QUERY, Object.SEARCH_BAR).queue();
-
-        SearchEngine searchEngine = SearchEngineManager.getInstance().getDefaultSearchEngine(
-            telemetry.getConfiguration().getContext());
-
-        telemetry.recordSearch(SearchesMeasurement.LOCATION_ACTIONBAR, searchEngine.getIdentifier());
+        recordSearch(SearchesMeasurement.LOCATION_ACTIONBAR);
     }
 
     public static void searchSelectEvent() {
-        Telemetry telemetry = TelemetryHolder.get();
+        queue(TelemetryEvent.create(Category.ACTION, Method.TYPE_SELECT_QUERY, Object.SEARCH_BAR));
+
+        recordSearch(SearchesMeasurement.LOCATION_SUGGESTION);
+    }
 
-        TelemetryEvent.create(Category.ACTION, Method.TYPE_SELECT_QUERY, Object.SEARCH_BAR).queue();
+    /**
+     * Looking up the default search engine may wait for the search engines to be loaded, and
+     * recording the search writes to shared preferences. Do both on the background thread.
+     */
+    private static void recordSearch(final String location) {
+        ThreadUtils.postToBackgroundThread(new Runnable() {
+            @Override
+            public void run() {
+                final Telemetry telemetry = TelemetryHolder.get();
 
-        SearchEngine searchEngine = SearchEngineManager.getInstance().getDefaultSearchEngine(
-                telemetry.getConfiguration().getContext());
+                final String searchEngineIdentifier = SearchEngineManager.getInstance().getDefaultSearchEngineIdentifier(
+                        telemetry.getConfiguration().getContext());
 
-        telemetry.recordSearch(SearchesMeasurement.LOCATION_SUGGESTION, searchEngine.getIdentifier());
+                telemetry.recordSearch(location, searchEngineIdentifier);
+            }
+        });
     }
 
     public static void eraseEvent() {
-        TelemetryEvent.create(Category.ACTION, Method.CLICK, Object.ERASE_BUTTON).queue();
+        queue(TelemetryEvent.create(Category.ACTION, Method.CLICK, Object.ERASE_BUTTON));
     }
 
     public static void eraseBackToHomeEvent() {
-        TelemetryEvent.create(Category.ACTION, Method.CLICK, Object.BACK_BUTTON, Value.ERASE_TO_HOME).queue();
+        queue(TelemetryEvent.create(Category.ACTION, Method.CLICK, Object.BACK_BUTTON, Value.ERASE_TO_HOME));
     }
 
     public static void eraseBackToAppEvent() {
-        TelemetryEvent.create(Category.ACTION, Method.CLICK, Object.BACK_BUTTON, Value.ERASE_TO_APP).queue();
+        queue(TelemetryEvent.create(Category.ACTION, Method.CLICK, Object.BACK_BUTTON, Value.ERASE_TO_APP));
     }
 
     public static void eraseNotificationEvent() {
-        TelemetryEvent.create(Category.ACTION, Method.CLICK, Object.NOTIFICATION, Value.ERASE).queue();
+        queue(TelemetryEvent.create(Category.ACTION, Method.CLICK, Object.NOTIFICATION, Value.ERASE));
     }
 
     public static void eraseNotificationActionEvent() {
-        TelemetryEvent.create(Category.ACTION, Method.CLICK, Object.NOTIFICATION_ACTION, Value.ERASE).queue();
+        queue(TelemetryEvent.create(Category.ACTION, Method.CLICK, Object.NOTIFICATION_ACTION, Value.ERASE));
     }
 
     public static void eraseAndOpenNotificationActionEvent() {
-        TelemetryEvent.create(Category.ACTION, Method.CLICK, Object.NOTIFICATION_ACTION, Value.ERASE_AND_OPEN).queue();
+        queue(TelemetryEvent.create(Category.ACTION, Method.CLICK, Object.NOTIFICATION_ACTION, Value.ERASE_AND_OPEN));
     }
 
     public static void openNotificationActionEvent() {
-        TelemetryEvent.create(Category.ACTION, Method.CLICK, Object.NOTIFICATION_ACTION, Value.OPEN).queue();
+        queue(TelemetryEvent.create(Category.ACTION, Method.CLICK, Object.NOTIFICATION_ACTION, Value.OPEN));
     }
 
     public static void openHomescreenShortcutEvent() {
-        TelemetryEvent.create(Category.ACTION, Method.CLICK, Object.HOMESCREEN_SHORTCUT, Value.OPEN).queue();
+        queue(TelemetryEvent.create(Category.ACTION, Method.CLICK, Object.HOMESCREEN_SHORTCUT, Value.OPEN));
     }
 
     public static void addToHomescreenShortcutEvent() {
-        TelemetryEvent.create(Category.ACTION, Method.CLICK, Object.ADD_TO_HOMESCREEN_DIALOG, Value.ADD_TO_HOMESCREEN).queue();
+        queue(TelemetryEvent.create(Category.ACTION, Method.CLICK, Object.ADD_TO_HOMESCREEN_DIALOG, Value.ADD_TO_HOMESCREEN));
     }
 
     public static void cancelAddToHomescreenShortcutEvent() {
-        TelemetryEvent.create(Category.ACTION, Method.CLICK, Object.ADD_TO_HOMESCREEN_DIALOG, Value.CANCEL).queue();
+        queue(TelemetryEvent.create(Category.ACTION, Method.CLICK, Object.ADD_TO_HOMESCREEN_DIALOG, Value.CANCEL));
     }
 
     public static void eraseShortcutEvent() {
-        TelemetryEvent.create(Category.ACTION, Method.CLICK, Object.SHORTCUT, Value.ERASE).queue();
+        queue(TelemetryEvent.create(Category.ACTION, Method.CLICK, Object.SHORTCUT, Value.ERASE));
     }
 
     public static void settingsEvent(String key, String value) {
-        TelemetryEvent.create(Category.ACTION, Method.CHANGE, Object.SETTING, key)
-                .extra(Extra.TO, value)
-                .queue();
+        queue(TelemetryEvent.create(Category.ACTION, Method.CHANGE, Object.SETTING, key)
+                .extra(Extra.TO, value));
     }
 
     public static void shareEvent() {
-        TelemetryEvent.create(Category.ACTION, Method.SHARE, Object.MENU).queue();
+        queue(TelemetryEvent.create(Category.ACTION, Method.SHARE, Object.MENU));
     }
 
     public static void shareLinkEvent() {
-        TelemetryEvent.create(Category.ACTION, Method.SHARE, Object.BROWSER_CONTEXTMENU, Value.LINK).queue();
+        queue(TelemetryEvent.create(Category.ACTION, Method.SHARE, Object.BROWSER_CONTEXTMENU, Value.LINK));
     }
 
     public static void shareImageEvent() {
-        TelemetryEvent.create(Category.ACTION, Method.SHARE, Object.BROWSER_CONTEXTMENU, Value.IMAGE).queue();
+        queue(TelemetryEvent.create(Category.ACTION, Method.SHARE, Object.BROWSER_CONTEXTMENU, Value.IMAGE));
     }
 
     public static void saveImageEvent() {
-        TelemetryEvent.create(Category.ACTION, Method.SAVE, Object.BROWSER_CONTEXTMENU, Value.IMAGE).queue();
+        queue(TelemetryEvent.create(Category.ACTION, Method.SAVE, Object.BROWSER_CONTEXTMENU, Value.IMAGE));
     }
 
     public static void copyLinkEvent() {
-        TelemetryEvent.create(Category.ACTION, Method.COPY, Object.BROWSER_CONTEXTMENU, Value.LINK).queue();
+        queue(TelemetryEvent.create(Category.ACTION, Method.COPY, Object.BROWSER_CONTEXTMENU, Value.LINK));
     }
 
     public static void copyImageEvent() {
-        TelemetryEvent.create(Category.ACTION, Method.COPY, Object.BROWSER_CONTEXTMENU, Value.IMAGE).queue();
+        queue(TelemetryEvent.create(Category.ACTION, Method.COPY, Object.BROWSER_CONTEXTMENU, Value.IMAGE));
     }
 
     public static void openWebContextMenuEvent() {
-        TelemetryEvent.create(Category.ACTION, Method.LONG_PRESS, Object.BROWSER).queue();
+        queue(TelemetryEvent.create(Category.ACTION, Method.LONG_PRESS, Object.BROWSER));
     }
 
     public static void cancelWebContextMenuEvent() {
-        TelemetryEvent.create(Category.ACTION, Method.CANCEL, Object.BROWSER_CONTEXTMENU).queue();
+        queue(TelemetryEvent.create(Category.ACTION, Method.CANCEL, Object.BROWSER_CONTEXTMENU));
     }
 
     public static void openDefaultAppEvent() {
-        TelemetryEvent.create(Category.ACTION, Method.OPEN, Object.MENU, Value.DEFAULT).queue();
+        queue(TelemetryEvent.create(Category.ACTION, Method.OPEN, Object.MENU, Value.DEFAULT));
     }
 
     public static void openFirefoxEvent() {
-        TelemetryEvent.create(Category.ACTION, Method.OPEN, Object.MENU, Value.FIREFOX).queue();
+        queue(TelemetryEvent.create(Category.ACTION, Method.OPEN, Object.MENU, Value.FIREFOX));
     }
 
     public static void openSelectionEvent() {
-        TelemetryEvent.create(Category.ACTION, Method.OPEN, Object.MENU, Value.SELECTION).queue();
+        queue(TelemetryEvent.create(Category.ACTION, Method.OPEN, Object.MENU, Value.SELECTION));
     }
 
     public static void blockingSwitchEvent(boolean isBlockingEnabled) {
-        TelemetryEvent.create(Category.ACTION, Method.CLICK, Object.BLOCKING_SWITCH, String.valueOf(isBlockingEnabled)).queue();
+        queue(TelemetryEvent.create(Category.ACTION, Method.CLICK, Object.BLOCKING_SWITCH, String.valueOf(isBlockingEnabled)));
     }
 
     public static void showFirstRunPageEvent(int page) {
-        TelemetryEvent.create(Category.ACTION, Method.SHOW, Object.FIRSTRUN, String.valueOf(page)).queue();
+        queue(TelemetryEvent.create(Category.ACTION, Method.SHOW, Object.FIRSTRUN, String.valueOf(page)));
     }
 
     public static void skipFirstRunEvent() {
-        TelemetryEvent.create(Category.ACTION, Method.CLICK, Object.FIRSTRUN, Value.SKIP).queue();
+        queue(TelemetryEvent.create(Category.ACTION, Method.CLICK, Object.FIRSTRUN, Value.SKIP));
     }
 
     public static void finishFirstRunEvent() {
-        TelemetryEvent.create(Category.ACTION, Method.CLICK, Object.FIRSTRUN, Value.FINISH).queue();
+        queue(TelemetryEvent.create(Category.ACTION, Method.CLICK, Object.FIRSTRUN, Value.FINISH));
     }
 }
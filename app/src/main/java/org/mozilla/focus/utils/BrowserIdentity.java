@@ -0,0 +1,95 @@
+/* -*- Mode: Java; c-basic-offset: 4; tab-width: 20; indent-tabs-mode: nil; -*-
+ * This Source Code Form is subject to the terms of the Mozilla Public
+ * License, v. 2.0. If a copy of the MPL was not distributed with this
+ * file, You can obtain one at http://mozilla.org/MPL/2.0/. */
+
+package org.mozilla.focus.utils;
+
+import android.content.Context;
+import android.content.pm.PackageManager;
+import android.content.res.Resources;
+
+import org.mozilla.focus.R;
+
+/**
+ * Immutable information about this app (name and version) that we need in a lot of places (user
+ * agent, about page, SUMO URLs). Looking up the version requires an IPC call to the package
+ * manager; this class makes sure we only do that once per process.
+ */
+public final class BrowserIdentity {
+    private static volatile BrowserIdentity instance;
+
+    private final String appName;
+    private final String versionName;
+    private final String userAgentAppName;
+
+    /**
+     * Compute the identity on a background thread, so that the first consumer on the UI thread
+     * doesn't need to.
+     */
+    public static void preload(final Context context) {
+        final Context applicationContext = context.getApplicationContext();
+
+        ThreadUtils.postToBackgroundThread(new Runnable() {
+            @Override
+            public void run() {
+                get(applicationContext);
+            }
+        });
+    }
+
+    public static BrowserIdentity get(Context context) {
+        BrowserIdentity identity = instance;
+        if (identity != null) {
+            return identity;
+        }
+
+        synchronized (BrowserIdentity.class) {
+            if (instance == null) {
+                instance = create(context);
+            }
+            return instance;
+        }
+    }
+
+    private static BrowserIdentity create(Context context) {
+        final Resources resources = context.getResources();
+
+        final String versionName;
+        try {
+            versionName = context.getPackageManager().getPackageInfo(context.getPackageName(), 0).versionName;
+        } catch (PackageManager.NameNotFoundException e) {
+            // This should be impossible - we should always be able to get information about ourselves:
+            throw new IllegalStateException("Unable find package details for Focus", e);
+        }
+
+        return new BrowserIdentity(
+                resources.getString(R.string.app_name),
+                versionName,
+                resources.getString(R.string.useragent_appname));
+    }
+
+    private BrowserIdentity(String appName, String versionName, String userAgentAppName) {
+        this.appName = appName;
+        this.versionName = versionName;
+        this.userAgentAppName = userAgentAppName;
+    }
+
+    /**
+     * The name of this app, e.g. "Firefox Focus".
+     */
+    public String getAppName() {
+        return appName;
+    }
+
+    public String getVersionName() {
+        return versionName;
+    }
+
+    /**
+     * The token identifying this app in the user agent string, e.g. "Focus/1.2".
+     */
+    public String getUserAgentToken() {
+        return userAgentAppName + "/" + versionName;
+    }
+}
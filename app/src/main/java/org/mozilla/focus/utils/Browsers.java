@@ -13,6 +13,7 @@ import android.content.pm.ResolveInfo;
 import android.net.Uri;
 import android.support.annotation.NonNull;
 import android.support.annotation.Nullable;
+import android.support.annotation.WorkerThread;
 
 import java.util.Collection;
 import java.util.HashMap;
@@ -70,7 +71,15 @@ public class Browsers {
     // Firefox_Beta, Firefox Aurora and Firefox_Nightly. If multiple firefox branded browser is
     // installed then higher priority one will be stored here
     private ActivityInfo firefoxBrandedBrowser;
+    // Labels of all browsers above (by package name). Loading a label is an IPC call: We load them
+    // together with the browsers (on a background thread, see BrowsersCache) and not when we show them.
+    private final Map<String, String> labels;
 
+    /**
+     * Query the package manager for installed browsers. This performs multiple IPC calls: Use
+     * {@link BrowsersCache} instead of calling this on the UI thread.
+     */
+    @WorkerThread
     public Browsers(Context context, @NonNull String url) {
         final PackageManager packageManager = context.getPackageManager();
 
@@ -87,6 +96,21 @@ public class Browsers {
         this.browsers = browsers;
         this.defaultBrowser = findDefault(context, packageManager, uri);
         this.firefoxBrandedBrowser = findFirefoxBrandedBrowser();
+        this.labels = loadLabels(packageManager);
+    }
+
+    private Map<String, String> loadLabels(PackageManager packageManager) {
+        final Map<String, String> labels = new HashMap<>();
+
+        for (final ActivityInfo info : browsers.values()) {
+            labels.put(info.packageName, info.loadLabel(packageManager).toString());
+        }
+
+        if (defaultBrowser != null && !labels.containsKey(defaultBrowser.packageName)) {
+            labels.put(defaultBrowser.packageName, defaultBrowser.loadLabel(packageManager).toString());
+        }
+
+        return labels;
     }
 
     private ActivityInfo findFirefoxBrandedBrowser() {
@@ -229,6 +253,14 @@ public class Browsers {
         return collection.toArray(new ActivityInfo[collection.size()]);
     }
 
+    /**
+     * The label of the given browser (as loaded together with the browsers).
+     */
+    public String getLabel(@NonNull ActivityInfo browser) {
+        final String label = labels.get(browser.packageName);
+        return label != null ? label : browser.packageName;
+    }
+
     public boolean hasFirefoxBrandedBrowserInstalled() {
         return firefoxBrandedBrowser != null;
     }
@@ -0,0 +1,171 @@
+/* -*- Mode: Java; c-basic-offset: 4; tab-width: 20; indent-tabs-mode: nil; -*-
+ * This Source Code Form is subject to the terms of the Mozilla Public
+ * License, v. 2.0. If a copy of the MPL was not distributed with this
+ * file, You can obtain one at http://mozilla.org/MPL/2.0/. */
+
+package org.mozilla.focus.utils;
+
+import android.content.BroadcastReceiver;
+import android.content.Context;
+import android.content.Intent;
+import android.content.IntentFilter;
+import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
+import android.support.annotation.UiThread;
+import android.util.Log;
+
+/**
+ * A process-wide snapshot of the installed browsers. Looking up browsers takes multiple IPC calls,
+ * so the snapshot is created on a background thread and only refreshed when packages are
+ * added, removed or changed. This snapshot is resolved for a generic URL: It's good enough to
+ * check whether we are the default browser, but not for offering apps to open a specific page.
+ *
+ * The apps that can open the current page (including non-browsers like YouTube, and the default
+ * handler of that URL) are resolved separately, see {@link #prefetchForUrl(Context, String)}.
+ *
+ * Changing the default browser doesn't send any broadcast: Code that shows the default browser
+ * state while the user might have just changed it should call {@link #refresh(Context, Callback)}.
+ */
+public class BrowsersCache extends BroadcastReceiver {
+    private static final String LOG_TAG = "BrowsersCache";
+
+    private static final BrowsersCache instance = new BrowsersCache();
+
+    public interface Callback {
+        /**
+         * Called on the UI thread once the browsers have been refreshed.
+         */
+        @UiThread
+        void onBrowsersRefreshed(Browsers browsers);
+    }
+
+    public static BrowsersCache getInstance() {
+        return instance;
+    }
+
+    private static class UrlBrowsers {
+        private final String url;
+        private final Browsers browsers;
+
+        private UrlBrowsers(String url, Browsers browsers) {
+            this.url = url;
+            this.browsers = browsers;
+        }
+    }
+
+    private volatile Browsers browsers;
+    private volatile UrlBrowsers urlBrowsers;
+    private volatile String requestedUrl;
+
+    private BrowsersCache() {}
+
+    public void init(Context context) {
+        final IntentFilter filter = new IntentFilter();
+        filter.addAction(Intent.ACTION_PACKAGE_ADDED);
+        filter.addAction(Intent.ACTION_PACKAGE_REMOVED);
+        filter.addAction(Intent.ACTION_PACKAGE_CHANGED);
+        filter.addDataScheme("package");
+
+        context.getApplicationContext().registerReceiver(this, filter);
+
+        refresh(context, null);
+    }
+
+    @Override
+    public void onReceive(Context context, Intent intent) {
+        urlBrowsers = null;
+        requestedUrl = null;
+
+        refresh(context, null);
+    }
+
+    /**
+     * Get the installed browsers. This only queries the package manager (on the calling thread) if
+     * the browsers haven't been loaded yet.
+     */
+    @NonNull
+    public Browsers get(Context context) {
+        Browsers browsers = this.browsers;
+        if (browsers == null) {
+            Log.d(LOG_TAG, "Browsers requested before they have been loaded");
+
+            browsers = load(context);
+        }
+        return browsers;
+    }
+
+    /**
+     * Resolve the apps that can open the given URL on a background thread, so that
+     * {@link #getForUrl(Context, String)} doesn't need to. Only the most recently requested URL
+     * is resolved.
+     */
+    public void prefetchForUrl(Context context, final String url) {
+        final UrlBrowsers current = urlBrowsers;
+        if (url.equals(requestedUrl) || (current != null && url.equals(current.url))) {
+            return;
+        }
+
+        requestedUrl = url;
+
+        final Context applicationContext = context.getApplicationContext();
+
+        ThreadUtils.postToBackgroundThread(new Runnable() {
+            @Override
+            public void run() {
+                if (!url.equals(requestedUrl)) {
+                    // The page has changed again in the meantime.
+                    return;
+                }
+
+                urlBrowsers = new UrlBrowsers(url, new Browsers(applicationContext, url));
+            }
+        });
+    }
+
+    /**
+     * Get the apps that can open the given URL. This only queries the package manager (on the
+     * calling thread) if they haven't been prefetched for this URL.
+     */
+    @NonNull
+    public Browsers getForUrl(Context context, @NonNull String url) {
+        final UrlBrowsers current = urlBrowsers;
+        if (current != null && url.equals(current.url)) {
+            return current.browsers;
+        }
+
+        Log.d(LOG_TAG, "Browsers for URL requested before they have been prefetched");
+
+        final Browsers browsers = new Browsers(context, url);
+        urlBrowsers = new UrlBrowsers(url, browsers);
+        return browsers;
+    }
+
+    /**
+     * Load the installed browsers again on a background thread.
+     */
+    public void refresh(Context context, @Nullable final Callback callback) {
+        final Context applicationContext = context.getApplicationContext();
+
+        ThreadUtils.postToBackgroundThread(new Runnable() {
+            @Override
+            public void run() {
+                final Browsers browsers = load(applicationContext);
+
+                if (callback != null) {
+                    ThreadUtils.postToMainThread(new Runnable() {
+                        @Override
+                        public void run() {
+                            callback.onBrowsersRefreshed(browsers);
+                        }
+                    });
+                }
+            }
+        });
+    }
+
+    private Browsers load(Context context) {
+        final Browsers browsers = new Browsers(context, Browsers.TRADITIONAL_BROWSER_URL);
+        this.browsers = browsers;
+        return browsers;
+    }
+}
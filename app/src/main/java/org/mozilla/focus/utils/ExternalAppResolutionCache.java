@@ -0,0 +1,160 @@
+/* -*- Mode: Java; c-basic-offset: 4; tab-width: 20; indent-tabs-mode: nil; -*-
+ * This Source Code Form is subject to the terms of the Mozilla Public
+ * License, v. 2.0. If a copy of the MPL was not distributed with this
+ * file, You can obtain one at http://mozilla.org/MPL/2.0/. */
+package org.mozilla.focus.utils;
+
+import android.content.BroadcastReceiver;
+import android.content.Context;
+import android.content.Intent;
+import android.content.IntentFilter;
+import android.support.annotation.Nullable;
+import android.support.annotation.VisibleForTesting;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+
+/**
+ * A short-lived cache for resolving external app links. Pages that redirect to custom schemes
+ * (app deep links, intent:// URLs, tracking pixels with custom protocols) often do so in bursts,
+ * and every resolution costs multiple IPC calls to the package manager.
+ *
+ * Results are keyed by everything intent filters match on (the same fields as
+ * {@link Intent#filterEquals(Intent)}), expire after half a minute and are dropped whenever
+ * packages change.
+ */
+/* package */ class ExternalAppResolutionCache extends BroadcastReceiver {
+    private static final long DEFAULT_MAX_AGE_MILLIS = 30 * 1000;
+    private static final int DEFAULT_MAX_ENTRIES = 32;
+
+    /* package */ static final class Resolution {
+        /**
+         * Number of activities that can handle the intent.
+         */
+        /* package */ final int matchCount;
+
+        /**
+         * Label of the (only) matching activity, or null if there's more than one or none.
+         */
+        @Nullable /* package */ final CharSequence label;
+
+        /**
+         * Number of IPC calls it took to resolve this. Every cache hit avoids that many calls.
+         */
+        /* package */ final int ipcCalls;
+
+        private long resolvedAt;
+
+        /* package */ Resolution(int matchCount, @Nullable CharSequence label, int ipcCalls) {
+            this.matchCount = matchCount;
+            this.label = label;
+            this.ipcCalls = ipcCalls;
+        }
+    }
+
+    private static ExternalAppResolutionCache instance;
+
+    /**
+     * Returns the cache. The first call registers it for package changes.
+     */
+    /* package */ static synchronized ExternalAppResolutionCache getInstance(Context context) {
+        if (instance == null) {
+            instance = new ExternalAppResolutionCache(DEFAULT_MAX_AGE_MILLIS, DEFAULT_MAX_ENTRIES);
+
+            final IntentFilter filter = new IntentFilter();
+            filter.addAction(Intent.ACTION_PACKAGE_ADDED);
+            filter.addAction(Intent.ACTION_PACKAGE_REMOVED);
+            filter.addAction(Intent.ACTION_PACKAGE_CHANGED);
+            filter.addDataScheme("package");
+
+            context.getApplicationContext().registerReceiver(instance, filter);
+        }
+        return instance;
+    }
+
+    private final long maxAgeMillis;
+    private final int maxEntries;
+
+    private final LinkedHashMap<String, Resolution> resolutions = new LinkedHashMap<>(8, 0.75f, true);
+
+    private long lookupCount;
+    private long hitCount;
+    private long avoidedIpcCalls;
+
+    @VisibleForTesting ExternalAppResolutionCache(long maxAgeMillis, int maxEntries) {
+        this.maxAgeMillis = maxAgeMillis;
+        this.maxEntries = maxEntries;
+    }
+
+    @Override
+    public void onReceive(Context context, Intent intent) {
+        // An app that can handle some of the cached links might have been installed or removed.
+        clear();
+    }
+
+    /**
+     * Two intents get the same key if they are equal according to {@link Intent#filterEquals(Intent)}:
+     * action, data (including the path), MIME type, categories, package and component. Extras
+     * don't take part in resolving activities.
+     */
+    /* package */ static String createKey(Intent intent) {
+        final Set<String> categories = intent.getCategories();
+
+        return intent.getAction() + "|" + intent.getData() + "|" + intent.getType() + "|"
+                + (categories != null ? new TreeSet<>(categories) : null) + "|"
+                + intent.getPackage() + "|"
+                + (intent.getComponent() != null ? intent.getComponent().flattenToString() : null);
+    }
+
+    /**
+     * Returns the cached resolution for the given key, or null if there's none (or it's too old).
+     */
+    @Nullable
+    /* package */ synchronized Resolution get(String key, long nowMillis) {
+        lookupCount++;
+
+        final Resolution resolution = resolutions.get(key);
+        if (resolution == null) {
+            return null;
+        }
+
+        if (nowMillis - resolution.resolvedAt > maxAgeMillis) {
+            resolutions.remove(key);
+            return null;
+        }
+
+        hitCount++;
+        avoidedIpcCalls += resolution.ipcCalls;
+        return resolution;
+    }
+
+    /* package */ synchronized void put(String key, Resolution resolution, long nowMillis) {
+        resolution.resolvedAt = nowMillis;
+        resolutions.put(key, resolution);
+
+        final Iterator<Map.Entry<String, Resolution>> iterator = resolutions.entrySet().iterator();
+        while (resolutions.size() > maxEntries && iterator.hasNext()) {
+            iterator.next();
+            iterator.remove();
+        }
+    }
+
+    /* package */ synchronized void clear() {
+        resolutions.clear();
+    }
+
+    /* package */ synchronized long getLookupCount() {
+        return lookupCount;
+    }
+
+    /* package */ synchronized long getHitCount() {
+        return hitCount;
+    }
+
+    /* package */ synchronized long getAvoidedIpcCalls() {
+        return avoidedIpcCalls;
+    }
+}
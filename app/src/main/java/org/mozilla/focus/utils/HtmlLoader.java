@@ -1,24 +1,145 @@
 package org.mozilla.focus.utils;
 
 import android.content.Context;
-import android.support.annotation.DrawableRes;
+import android.content.res.Configuration;
 import android.support.annotation.NonNull;
 import android.support.annotation.Nullable;
 import android.support.annotation.RawRes;
-import android.util.Base64;
+import android.support.annotation.VisibleForTesting;
 
 import java.io.BufferedReader;
 import java.io.IOException;
-import java.io.InputStream;
 import java.io.InputStreamReader;
 import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
 import java.util.Map;
 
 public class HtmlLoader {
+    /**
+     * A (html or css) resource file split into literal segments and slots. The file is read and
+     * split only once; rendering it is a single pass over the segments.
+     */
+    public static final class Template {
+        /**
+         * literals[i] is followed by slots[i]. There's always one literal more than slots.
+         */
+        private final String[] literals;
+        private final String[] slots;
+        private final int literalLength;
+
+        private Template(String[] literals, String[] slots) {
+            this.literals = literals;
+            this.slots = slots;
+
+            int length = 0;
+            for (final String literal : literals) {
+                length += literal.length();
+            }
+            this.literalLength = length;
+        }
+
+        /**
+         * Render this template. Slots without a value in the substitution table are left untouched.
+         *
+         * @param substitutionTable A table of substitions, e.g. %shortMessage% -> "Error loading page..."
+         *                          Can be null, in which case no substitutions will be made.
+         */
+        public String render(@Nullable final Map<String, String> substitutionTable) {
+            if (slots.length == 0) {
+                return literals[0];
+            }
+
+            int length = literalLength;
+            for (final String slot : slots) {
+                final String value = substitutionTable != null ? substitutionTable.get(slot) : null;
+                length += value != null ? value.length() : slot.length();
+            }
+
+            final StringBuilder builder = new StringBuilder(length);
+            for (int i = 0; i < slots.length; i++) {
+                builder.append(literals[i]);
+
+                final String value = substitutionTable != null ? substitutionTable.get(slots[i]) : null;
+                builder.append(value != null ? value : slots[i]);
+            }
+            builder.append(literals[slots.length]);
+
+            return builder.toString();
+        }
+    }
+
+    // Templates only depend on the resources, but resources can depend on the locale and the layout
+    // direction: Both are part of the cache key.
+    private static final Map<String, Template> templateCache = new HashMap<>();
+
+    /**
+     * Load a (html or css) resource file as a template. Templates are cached: Only the first call
+     * for a given resource (and configuration) reads the file.
+     *
+     * @param slots The tokens that will be replaced when rendering the template, e.g. %shortMessage%.
+     */
+    public static Template loadTemplate(@NonNull final Context context,
+                                        @NonNull final @RawRes int resourceID,
+                                        @NonNull final String... slots) {
+        final String key = getCacheKey(context, resourceID) + Arrays.toString(slots);
+
+        synchronized (templateCache) {
+            Template template = templateCache.get(key);
+            if (template == null) {
+                template = compile(loadResourceFile(context, resourceID, null), slots);
+                templateCache.put(key, template);
+            }
+            return template;
+        }
+    }
+
+    @VisibleForTesting static Template compile(@NonNull final String content, @NonNull final String... slots) {
+        final List<String> literals = new ArrayList<>();
+        final List<String> foundSlots = new ArrayList<>();
+
+        int position = 0;
+        while (true) {
+            // Find the next slot (if two slots start at the same position, the longer one wins)
+            int slotStart = -1;
+            String slot = null;
+            for (final String candidate : slots) {
+                final int index = content.indexOf(candidate, position);
+                if (index != -1 && (slotStart == -1 || index < slotStart ||
+                        (index == slotStart && candidate.length() > slot.length()))) {
+                    slotStart = index;
+                    slot = candidate;
+                }
+            }
+
+            if (slot == null) {
+                literals.add(content.substring(position));
+                break;
+            }
+
+            literals.add(content.substring(position, slotStart));
+            foundSlots.add(slot);
+            position = slotStart + slot.length();
+        }
+
+        return new Template(literals.toArray(new String[literals.size()]),
+                foundSlots.toArray(new String[foundSlots.size()]));
+    }
+
+    private static String getCacheKey(@NonNull final Context context, final int resourceID) {
+        final Configuration configuration = context.getResources().getConfiguration();
+        @SuppressWarnings("deprecation") final Locale locale = configuration.locale;
+
+        return resourceID + "/" + locale + "/" + configuration.getLayoutDirection();
+    }
 
     /**
      * Load a given (html or css) resource file into a String. The input can contain tokens that will
-     * be replaced with localised strings.
+     * be replaced with localised strings. This reads the file on every call, use
+     * {@link #loadTemplate(Context, int, String...)} for files that are loaded repeatedly.
      *
      * @param substitutionTable A table of substitions, e.g. %shortMessage% -> "Error loading page..."
      *                          Can be null, in which case no substitutions will be made.
@@ -49,48 +170,4 @@ public class HtmlLoader {
             throw new IllegalStateException("Unable to load error page data", e);
         }
     }
-
-    private final static byte[] pngHeader = new byte[] { -119, 80, 78, 71, 13, 10, 26, 10 };
-
-    public static String loadPngAsDataURI(@NonNull final Context context,
-                                          @NonNull final @DrawableRes int resourceID) {
-
-        final StringBuilder builder = new StringBuilder();
-        builder.append("data:image/png;base64,");
-
-        // We are copying the approach BitmapFactory.decodeResource(Resources, int, Options)
-        // uses - you are explicitly allowed to open Drawables, but the method has a @RawRes
-        // annotation (despite officially supporting Drawables).
-        //noinspection ResourceType
-        try (final InputStream pngInputStream = context.getResources().openRawResource(resourceID)) {
-            // Base64 encodes 3 bytes at a time, make sure we have a multiple of 3 here
-            // I don't know what a sensible chunk size is, let's just go with 300b.
-            final byte[] data = new byte[3 * 100];
-            int bytesRead;
-            boolean headerVerified = false;
-
-            while ((bytesRead = pngInputStream.read(data)) > 0) {
-                // Sanity check: lets make sure this is still a png (i.e. make sure the build system
-                // or Android haven't broken / change the image format).
-                if (!headerVerified) {
-                    if (bytesRead < 8) {
-                        throw new IllegalStateException("Loaded drawable is improbably small");
-                    }
-
-                    for (int i = 0; i < pngHeader.length; i++) {
-                        if (data[i] != pngHeader[i]) {
-                            throw new IllegalStateException("Invalid png detected");
-                        }
-                    }
-                    headerVerified = true;
-                }
-
-                builder.append(Base64.encodeToString(data, 0, bytesRead, 0));
-            }
-        } catch (IOException e) {
-            throw new IllegalStateException("Unable to load png data");
-        }
-
-        return  builder.toString();
-    }
 }
@@ -11,6 +11,7 @@ import org.json.JSONException;
 import org.json.JSONObject;
 
 import java.io.BufferedReader;
+import java.io.ByteArrayOutputStream;
 import java.io.Closeable;
 import java.io.IOException;
 import java.io.InputStream;
@@ -33,4 +34,19 @@ public class IOUtils {
             throw new AssertionError("Corrupt JSON asset (" + fileName + ")", e);
         }
     }
+
+    /**
+     * Read the remaining bytes of the given stream. The stream is not closed.
+     */
+    public static byte[] readFully(InputStream stream) throws IOException {
+        final ByteArrayOutputStream output = new ByteArrayOutputStream(Math.max(stream.available(), 1024));
+        final byte[] buffer = new byte[4096];
+
+        int read;
+        while ((read = stream.read(buffer)) != -1) {
+            output.write(buffer, 0, read);
+        }
+
+        return output.toByteArray();
+    }
 }
@@ -10,6 +10,7 @@ import android.content.Intent;
 import android.content.pm.PackageManager;
 import android.content.pm.ResolveInfo;
 import android.net.Uri;
+import android.os.SystemClock;
 import android.support.annotation.StringRes;
 import android.support.v7.app.AlertDialog;
 
@@ -49,28 +50,12 @@ public class IntentUtils {
         // Since we're a browser:
         intent.addCategory(Intent.CATEGORY_BROWSABLE);
 
-        final PackageManager packageManager = context.getPackageManager();
-
-        // This is where we "leak" the uri to the OS. If we're using the system webview, then the OS
-        // already knows that we're opening this uri. Even if we're using GeckoView, the OS can still
-        // see what domains we're visiting, so there's no loss of privacy here:
-        final List<ResolveInfo> matchingActivities = packageManager.queryIntentActivities(intent, 0);
+        final ExternalAppResolutionCache.Resolution resolution = resolve(context, intent);
 
-        if (matchingActivities.size() == 0) {
+        if (resolution.matchCount == 0) {
             return handleUnsupportedLink(context, webView, intent);
-        } else if (matchingActivities.size() == 1) {
-            final ResolveInfo info;
-
-            if (matchingActivities.size() == 1) {
-                info = matchingActivities.get(0);
-            } else {
-                // Ordering isn't guaranteed if there is more than one available activity - hence
-                // we fetch the default (this code isn't currently run because we handle the > 1
-                // case separately, but would be needed if we ever decide to prefer the default
-                // app for the > 1 case.
-                info = packageManager.resolveActivity(intent, 0);
-            }
-            final CharSequence externalAppTitle = info.loadLabel(packageManager);
+        } else if (resolution.matchCount == 1) {
+            final CharSequence externalAppTitle = resolution.label;
 
             showConfirmationDialog(context, intent, context.getString(R.string.external_app_prompt_title), R.string.external_app_prompt, externalAppTitle);
             return true;
@@ -88,6 +73,77 @@ public class IntentUtils {
         }
     }
 
+    /**
+     * Find the activities that can handle the given intent. Pages tend to open the same kind of
+     * link repeatedly, so results are cached for a short time.
+     */
+    private static ExternalAppResolutionCache.Resolution resolve(final Context context, final Intent intent) {
+        final ExternalAppResolutionCache cache = ExternalAppResolutionCache.getInstance(context);
+        final String key = ExternalAppResolutionCache.createKey(intent);
+
+        final ExternalAppResolutionCache.Resolution cached = cache.get(key, SystemClock.elapsedRealtime());
+        if (cached != null) {
+            return cached;
+        }
+
+        final PackageManager packageManager = context.getPackageManager();
+
+        // This is where we "leak" the uri to the OS. If we're using the system webview, then the OS
+        // already knows that we're opening this uri. Even if we're using GeckoView, the OS can still
+        // see what domains we're visiting, so there's no loss of privacy here:
+        final List<ResolveInfo> matchingActivities = packageManager.queryIntentActivities(intent, 0);
+
+        final ExternalAppResolutionCache.Resolution resolution;
+        if (matchingActivities.size() == 1) {
+            // Ordering isn't guaranteed if there is more than one available activity - if we ever
+            // decide to prefer the default app for the > 1 case we need to use resolveActivity()
+            // to fetch the default.
+            resolution = new ExternalAppResolutionCache.Resolution(1,
+                    matchingActivities.get(0).loadLabel(packageManager), 2);
+        } else {
+            resolution = new ExternalAppResolutionCache.Resolution(matchingActivities.size(), null, 1);
+        }
+
+        cache.put(key, resolution, SystemClock.elapsedRealtime());
+        return resolution;
+    }
+
+    /**
+     * Find the app store activity that can install the given package (cached like {@link #resolve(Context, Intent)}).
+     */
+    private static ExternalAppResolutionCache.Resolution resolveMarket(final Context context, final Intent marketIntent) {
+        final ExternalAppResolutionCache cache = ExternalAppResolutionCache.getInstance(context);
+
+        // The market intent could also be opened by a page directly: Keep the result of
+        // resolveActivity() apart from resolve()'s result for the same intent.
+        final String key = "market|" + ExternalAppResolutionCache.createKey(marketIntent);
+
+        final ExternalAppResolutionCache.Resolution cached = cache.get(key, SystemClock.elapsedRealtime());
+        if (cached != null) {
+            return cached;
+        }
+
+        final PackageManager packageManager = context.getPackageManager();
+        final ResolveInfo info = packageManager.resolveActivity(marketIntent, 0);
+
+        final ExternalAppResolutionCache.Resolution resolution = info != null
+                ? new ExternalAppResolutionCache.Resolution(1, info.loadLabel(packageManager), 2)
+                : new ExternalAppResolutionCache.Resolution(0, null, 1);
+
+        cache.put(key, resolution, SystemClock.elapsedRealtime());
+        return resolution;
+    }
+
+    /**
+     * How often resolving external app links could be answered from the cache, for debugging.
+     */
+    public static String getExternalAppCacheSummary(final Context context) {
+        final ExternalAppResolutionCache cache = ExternalAppResolutionCache.getInstance(context);
+
+        return cache.getHitCount() + " of " + cache.getLookupCount() + " lookups cached, "
+                + cache.getAvoidedIpcCalls() + " IPC calls avoided";
+    }
+
     private static boolean handleUnsupportedLink(final Context context, final IWebView webView, final Intent intent) {
         final String fallbackUrl = intent.getStringExtra(EXTRA_BROWSER_FALLBACK_URL);
         if (fallbackUrl != null) {
@@ -101,15 +157,15 @@ public class IntentUtils {
             final Intent marketIntent = new Intent(Intent.ACTION_VIEW, Uri.parse(marketUri));
             marketIntent.addCategory(Intent.CATEGORY_BROWSABLE);
 
-            final PackageManager packageManager = context.getPackageManager();
-            final ResolveInfo info = packageManager.resolveActivity(marketIntent, 0);
-            final CharSequence marketTitle = info.loadLabel(packageManager);
-            showConfirmationDialog(context, marketIntent,
-                    context.getString(R.string.external_app_prompt_no_app_title),
-                    R.string.external_app_prompt_no_app, marketTitle);
+            final ExternalAppResolutionCache.Resolution resolution = resolveMarket(context, marketIntent);
+            if (resolution.matchCount > 0) {
+                showConfirmationDialog(context, marketIntent,
+                        context.getString(R.string.external_app_prompt_no_app_title),
+                        R.string.external_app_prompt_no_app, resolution.label);
 
-            // Stop loading, we essentially have a result.
-            return true;
+                // Stop loading, we essentially have a result.
+                return true;
+            }
         }
 
         // If there's really no way to handle this, we just let the browser handle this URL
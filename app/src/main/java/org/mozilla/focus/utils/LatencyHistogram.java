@@ -0,0 +1,123 @@
+/* -*- Mode: Java; c-basic-offset: 4; tab-width: 20; indent-tabs-mode: nil; -*-
+ * This Source Code Form is subject to the terms of the Mozilla Public
+ * License, v. 2.0. If a copy of the MPL was not distributed with this
+ * file, You can obtain one at http://mozilla.org/MPL/2.0/. */
+
+package org.mozilla.focus.utils;
+
+import org.json.JSONArray;
+import org.json.JSONException;
+import org.json.JSONObject;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * A latency histogram with a fixed set of exponential buckets (powers of two, in microseconds).
+ *
+ * Recording is lock-free and does not allocate, so it's cheap enough to be used on hot paths
+ * (like intercepting requests) in release builds. Concurrent readers might see a snapshot that
+ * is slightly behind, which is fine for what we use this for.
+ */
+public final class LatencyHistogram {
+    /**
+     * Bucket 0 counts everything below 1us, bucket i (0 < i < BUCKET_COUNT - 1) counts values in
+     * [2^(i-1), 2^i) us and the last bucket counts everything from 2^(BUCKET_COUNT - 2) us (~4s).
+     */
+    public static final int BUCKET_COUNT = 24;
+
+    private final AtomicLongArray buckets = new AtomicLongArray(BUCKET_COUNT);
+    private final AtomicLong sumMicros = new AtomicLong();
+
+    public void record(long durationNanos) {
+        final long micros = Math.max(0, durationNanos / 1000);
+
+        buckets.incrementAndGet(getBucketIndex(micros));
+        sumMicros.addAndGet(micros);
+    }
+
+    /**
+     * Record the time that has passed since the given {@link System#nanoTime()} timestamp.
+     */
+    public void recordSince(long startNanos) {
+        record(System.nanoTime() - startNanos);
+    }
+
+    /* package */ static int getBucketIndex(long micros) {
+        return Math.min(64 - Long.numberOfLeadingZeros(micros), BUCKET_COUNT - 1);
+    }
+
+    /**
+     * Upper bound (exclusive) of the given bucket in microseconds. For the last bucket this returns
+     * the lower bound since this bucket has no upper bound.
+     */
+    public static long getBucketUpperBoundMicros(int index) {
+        return 1L << Math.min(index, BUCKET_COUNT - 2);
+    }
+
+    public long getBucketCount(int index) {
+        return buckets.get(index);
+    }
+
+    public long getCount() {
+        long count = 0;
+        for (int i = 0; i < BUCKET_COUNT; i++) {
+            count += buckets.get(i);
+        }
+        return count;
+    }
+
+    public long getSumMicros() {
+        return sumMicros.get();
+    }
+
+    /**
+     * Approximate percentile in microseconds: The upper bound of the bucket that contains the
+     * requested percentile. Returns -1 if nothing has been recorded.
+     */
+    public long getPercentileMicros(int percentile) {
+        final long[] counts = new long[BUCKET_COUNT];
+        long total = 0;
+        for (int i = 0; i < BUCKET_COUNT; i++) {
+            counts[i] = buckets.get(i);
+            total += counts[i];
+        }
+
+        if (total == 0) {
+            return -1;
+        }
+
+        final long rank = Math.max(1, (long) Math.ceil(percentile / 100.0 * total));
+
+        long seen = 0;
+        for (int i = 0; i < BUCKET_COUNT; i++) {
+            seen += counts[i];
+            if (seen >= rank) {
+                return getBucketUpperBoundMicros(i);
+            }
+        }
+
+        return getBucketUpperBoundMicros(BUCKET_COUNT - 1);
+    }
+
+    public void clear() {
+        for (int i = 0; i < BUCKET_COUNT; i++) {
+            buckets.set(i, 0);
+        }
+        sumMicros.set(0);
+    }
+
+    public JSONObject toJSON() throws JSONException {
+        final JSONArray bucketArray = new JSONArray();
+        for (int i = 0; i < BUCKET_COUNT; i++) {
+            bucketArray.put(buckets.get(i));
+        }
+
+        return new JSONObject()
+                .put("count", getCount())
+                .put("sum_us", getSumMicros())
+                .put("p50_us", getPercentileMicros(50))
+                .put("p95_us", getPercentileMicros(95))
+                .put("buckets", bucketArray);
+    }
+}
@@ -20,6 +20,12 @@ import org.mozilla.focus.search.SearchEngine;
  * A simple wrapper for SharedPreferences that makes reading preference a little bit easier.
  */
 public class Settings {
+    // The default search engine as seen during the last run. This lets us build search URLs before
+    // the search plugins have been loaded.
+    private static final String PREF_DEFAULT_SEARCH_ENGINE_SNAPSHOT_NAME = "default_search_engine_snapshot_name";
+    private static final String PREF_DEFAULT_SEARCH_ENGINE_SNAPSHOT_IDENTIFIER = "default_search_engine_snapshot_identifier";
+    private static final String PREF_DEFAULT_SEARCH_ENGINE_SNAPSHOT_TEMPLATE = "default_search_engine_snapshot_template";
+
     private static Settings instance;
 
     public synchronized static Settings getInstance(Context context) {
@@ -45,6 +51,14 @@ public class Settings {
         return false;
     }
 
+    public boolean shouldPrewarmConnections() {
+        return preferences.getBoolean(getPreferenceKey(R.string.pref_key_privacy_prewarm_connections), false);
+    }
+
+    public boolean shouldUseSessionResponseCache() {
+        return preferences.getBoolean(getPreferenceKey(R.string.pref_key_performance_session_cache), false);
+    }
+
     public boolean shouldShowFirstrun() {
         return !preferences.getBoolean(FirstrunFragment.FIRSTRUN_PREF, false);
     }
@@ -67,9 +81,67 @@ public class Settings {
     public void setDefaultSearchEngine(SearchEngine searchEngine) {
         preferences.edit()
                 .putString(getPreferenceKey(R.string.pref_key_search_engine), searchEngine.getName())
+                .putString(PREF_DEFAULT_SEARCH_ENGINE_SNAPSHOT_NAME, searchEngine.getName())
+                .putString(PREF_DEFAULT_SEARCH_ENGINE_SNAPSHOT_IDENTIFIER, searchEngine.getIdentifier())
+                .putString(PREF_DEFAULT_SEARCH_ENGINE_SNAPSHOT_TEMPLATE, searchEngine.getBaseSearchUrl())
+                .apply();
+    }
+
+    /**
+     * Remember the given search engine as the resolved default search engine, so that the next run
+     * can use it before the search engines have been loaded.
+     */
+    public void setDefaultSearchEngineSnapshot(SearchEngine searchEngine) {
+        final String template = searchEngine.getBaseSearchUrl();
+
+        if (searchEngine.getName().equals(preferences.getString(PREF_DEFAULT_SEARCH_ENGINE_SNAPSHOT_NAME, null))
+                && searchEngine.getIdentifier().equals(preferences.getString(PREF_DEFAULT_SEARCH_ENGINE_SNAPSHOT_IDENTIFIER, null))
+                && template != null && template.equals(preferences.getString(PREF_DEFAULT_SEARCH_ENGINE_SNAPSHOT_TEMPLATE, null))) {
+            // Nothing has changed. Avoid writing to disk.
+            return;
+        }
+
+        preferences.edit()
+                .putString(PREF_DEFAULT_SEARCH_ENGINE_SNAPSHOT_NAME, searchEngine.getName())
+                .putString(PREF_DEFAULT_SEARCH_ENGINE_SNAPSHOT_IDENTIFIER, searchEngine.getIdentifier())
+                .putString(PREF_DEFAULT_SEARCH_ENGINE_SNAPSHOT_TEMPLATE, template)
                 .apply();
     }
 
+    /**
+     * The URL template of the default search engine from the last run, or null if it is unknown or
+     * the user has selected a different search engine since.
+     */
+    @Nullable
+    public String getDefaultSearchEngineTemplate() {
+        return isDefaultSearchEngineSnapshotValid()
+                ? preferences.getString(PREF_DEFAULT_SEARCH_ENGINE_SNAPSHOT_TEMPLATE, null)
+                : null;
+    }
+
+    /**
+     * The identifier of the default search engine from the last run, or null if it is unknown or
+     * the user has selected a different search engine since.
+     */
+    @Nullable
+    public String getDefaultSearchEngineIdentifier() {
+        return isDefaultSearchEngineSnapshotValid()
+                ? preferences.getString(PREF_DEFAULT_SEARCH_ENGINE_SNAPSHOT_IDENTIFIER, null)
+                : null;
+    }
+
+    private boolean isDefaultSearchEngineSnapshotValid() {
+        final String snapshotName = preferences.getString(PREF_DEFAULT_SEARCH_ENGINE_SNAPSHOT_NAME, null);
+        if (snapshotName == null) {
+            return false;
+        }
+
+        // If the user never selected a search engine then the snapshot is the first engine of the
+        // list, which is what we are going to use anyways.
+        final String selectedName = getDefaultSearchEngineName();
+        return selectedName == null || selectedName.equals(snapshotName);
+    }
+
     /* package */ String getPreferenceKey(int resourceId) {
         return resources.getString(resourceId);
     }
@@ -6,7 +6,6 @@
 package org.mozilla.focus.utils;
 
 import android.content.Context;
-import android.content.pm.PackageManager;
 import android.os.Build;
 
 import org.mozilla.focus.locale.Locales;
@@ -28,13 +27,7 @@ public class SupportUtils {
             throw new IllegalStateException("utf-8 should always be available", e);
         }
 
-        final String appVersion;
-        try {
-            appVersion = context.getPackageManager().getPackageInfo(context.getPackageName(), 0).versionName;
-        } catch (PackageManager.NameNotFoundException e) {
-            // This should be impossible - we should always be able to get information about ourselves:
-            throw new IllegalStateException("Unable find package details for Focus", e);
-        }
+        final String appVersion = BrowserIdentity.get(context).getVersionName();
 
         final String osTarget = "Android";
         final String langTag = Locales.getLanguageTag(Locale.getDefault());
@@ -0,0 +1,180 @@
+/* -*- Mode: Java; c-basic-offset: 4; tab-width: 20; indent-tabs-mode: nil; -*-
+ * This Source Code Form is subject to the terms of the Mozilla Public
+ * License, v. 2.0. If a copy of the MPL was not distributed with this
+ * file, You can obtain one at http://mozilla.org/MPL/2.0/. */
+
+package org.mozilla.focus.utils;
+
+import android.content.ComponentCallbacks2;
+import android.support.annotation.NonNull;
+import android.support.annotation.UiThread;
+import android.support.annotation.VisibleForTesting;
+import android.util.Log;
+
+import java.lang.ref.WeakReference;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+
+/**
+ * Releases caches when the system asks us to trim memory (see
+ * {@link ComponentCallbacks2#onTrimMemory(int)}). Components that keep memory around that can be
+ * rebuilt later register themselves with a {@link Priority}: The cheaper it is to rebuild the
+ * memory, the earlier it is released.
+ *
+ * While we are in the foreground only cheap caches are released (and only if the system is
+ * actually running low on memory). The more likely we are to be killed in the background, the
+ * more expensive the caches we release: Being killed costs much more than rebuilding any cache.
+ */
+public final class TrimMemoryCoordinator {
+    private static final String LOG_TAG = "TrimMemoryCoordinator";
+
+    public interface Trimmable {
+        /**
+         * Release memory that can be rebuilt later.
+         *
+         * @return The (estimated) number of bytes that have been released.
+         */
+        @UiThread
+        long trimMemory(int level);
+    }
+
+    public enum Priority {
+        /**
+         * Cheap to rebuild (e.g. by decoding bytes we keep around anyway). Released as soon as
+         * the UI is hidden, or in the foreground if memory is running low.
+         */
+        CHEAP(ComponentCallbacks2.TRIM_MEMORY_RUNNING_LOW, ComponentCallbacks2.TRIM_MEMORY_UI_HIDDEN),
+
+        /**
+         * Rebuilding costs some CPU time on a hot path (e.g. cached verdicts of the matcher).
+         * Released in the background, or in the foreground if memory is critically low.
+         */
+        MODERATE(ComponentCallbacks2.TRIM_MEMORY_RUNNING_CRITICAL, ComponentCallbacks2.TRIM_MEMORY_BACKGROUND),
+
+        /**
+         * Rebuilding requires disk I/O or loses something the user might notice (e.g. the
+         * back/forward history of a WebView that has been killed). Never released in the
+         * foreground, and in the background only once we are likely to be killed next.
+         */
+        EXPENSIVE(NEVER, ComponentCallbacks2.TRIM_MEMORY_MODERATE);
+
+        private final int foregroundLevel;
+        private final int backgroundLevel;
+
+        Priority(int foregroundLevel, int backgroundLevel) {
+            this.foregroundLevel = foregroundLevel;
+            this.backgroundLevel = backgroundLevel;
+        }
+
+        /* package */ boolean shouldTrim(int level) {
+            if (level >= ComponentCallbacks2.TRIM_MEMORY_UI_HIDDEN) {
+                return level >= backgroundLevel;
+            } else {
+                return level >= foregroundLevel;
+            }
+        }
+    }
+
+    private static final int NEVER = Integer.MAX_VALUE;
+
+    private static class Registration {
+        private final String name;
+        private final Priority priority;
+        private final WeakReference<Trimmable> trimmable;
+
+        private Registration(String name, Priority priority, Trimmable trimmable) {
+            this.name = name;
+            this.priority = priority;
+            this.trimmable = new WeakReference<>(trimmable);
+        }
+    }
+
+    private static final TrimMemoryCoordinator instance = new TrimMemoryCoordinator();
+
+    public static TrimMemoryCoordinator getInstance() {
+        return instance;
+    }
+
+    private final List<Registration> registrations = new ArrayList<>();
+
+    @VisibleForTesting TrimMemoryCoordinator() {}
+
+    /**
+     * Register a component that can release memory. The coordinator only keeps a weak reference
+     * to the trimmable: It's the caller's job to keep it alive for as long as it holds memory.
+     */
+    public synchronized void register(@NonNull String name, @NonNull Priority priority, @NonNull Trimmable trimmable) {
+        registrations.add(new Registration(name, priority, trimmable));
+    }
+
+    public synchronized void unregister(@NonNull Trimmable trimmable) {
+        final Iterator<Registration> iterator = registrations.iterator();
+        while (iterator.hasNext()) {
+            final Trimmable registered = iterator.next().trimmable.get();
+            if (registered == null || registered == trimmable) {
+                iterator.remove();
+            }
+        }
+    }
+
+    /**
+     * Release all caches whose priority allows it at the given trim level: Cheap ones first,
+     * expensive ones last.
+     *
+     * @return The (estimated) number of bytes that have been released.
+     */
+    @UiThread
+    public long onTrimMemory(int level) {
+        final List<Registration> candidates = new ArrayList<>();
+        final List<Trimmable> trimmables = new ArrayList<>();
+
+        synchronized (this) {
+            for (final Priority priority : Priority.values()) {
+                if (!priority.shouldTrim(level)) {
+                    continue;
+                }
+
+                final Iterator<Registration> iterator = registrations.iterator();
+                while (iterator.hasNext()) {
+                    final Registration registration = iterator.next();
+                    final Trimmable trimmable = registration.trimmable.get();
+
+                    if (trimmable == null) {
+                        iterator.remove();
+                    } else if (registration.priority == priority) {
+                        candidates.add(registration);
+                        trimmables.add(trimmable);
+                    }
+                }
+            }
+        }
+
+        if (candidates.isEmpty()) {
+            return 0;
+        }
+
+        final StringBuilder summary = new StringBuilder();
+        long totalBytes = 0;
+
+        for (int i = 0; i < candidates.size(); i++) {
+            final long bytes = trimmables.get(i).trimMemory(level);
+            totalBytes += bytes;
+
+            summary.append(' ').append(candidates.get(i).name).append('=').append(bytes);
+        }
+
+        Log.d(LOG_TAG, "Trim level " + level + ": released ~" + totalBytes + " bytes:" + summary);
+
+        return totalBytes;
+    }
+
+    /**
+     * The system is running out of memory and background processes are being killed: Release
+     * everything we can.
+     */
+    @UiThread
+    public long onLowMemory() {
+        return onTrimMemory(ComponentCallbacks2.TRIM_MEMORY_COMPLETE);
+    }
+}
@@ -0,0 +1,223 @@
+/* -*- Mode: Java; c-basic-offset: 4; tab-width: 4; indent-tabs-mode: nil; -*-
+ * This Source Code Form is subject to the terms of the Mozilla Public
+ * License, v. 2.0. If a copy of the MPL was not distributed with this
+ * file, You can obtain one at http://mozilla.org/MPL/2.0/. */
+
+package org.mozilla.focus.utils;
+
+/**
+ * Decides whether URL bar input is a URL or a search and turns it into something we can load.
+ * These checks run for every key press and every page load, so they scan the string in place
+ * instead of building Uri objects, and they only allocate for the result.
+ *
+ * This class must not depend on Android: It's tested and benchmarked on a plain JVM. Use
+ * {@link UrlUtils} from app code.
+ */
+public class UrlClassifier {
+    /**
+     * Is the given input a URL or should we perform a search? Input (ignoring surrounding
+     * whitespace) is a URL if it doesn't contain a space and contains a "." or a ":", e.g.
+     * "mozilla.org", "localhost:8080" or "about:blank". Everything else is searched for.
+     */
+    public static boolean isUrl(String input) {
+        final int start = trimStart(input);
+        final int end = trimEnd(input, start);
+
+        boolean hasSeparator = false;
+
+        for (int i = start; i < end; i++) {
+            final char c = input.charAt(i);
+            if (c == ' ') {
+                return false;
+            }
+            if (c == '.' || c == ':') {
+                hasSeparator = true;
+            }
+        }
+
+        return hasSeparator;
+    }
+
+    public static boolean isSearchQuery(String text) {
+        return text.indexOf(' ') != -1;
+    }
+
+    /**
+     * Trim the input and add "http://" if it doesn't start with a scheme already. "host:port" is
+     * not mistaken for a scheme, e.g. "localhost:8080" becomes "http://localhost:8080".
+     */
+    public static String normalize(String input) {
+        final String trimmedInput = input.trim();
+
+        if (findSchemeEnd(trimmedInput) != -1) {
+            return trimmedInput;
+        }
+
+        return "http://" + trimmedInput;
+    }
+
+    /**
+     * Returns the index of the colon that ends the scheme of the given URL, or -1 if the URL does
+     * not start with a scheme. A scheme is a letter followed by letters, digits, "+", "-" or "."
+     * (RFC 3986) - but not if it looks like a host ("localhost" or containing a dot) and all that
+     * follows the colon is a port number. "tel:5551234" keeps its scheme.
+     */
+    public static int findSchemeEnd(String url) {
+        if (url.isEmpty() || !isAsciiLetter(url.charAt(0))) {
+            return -1;
+        }
+
+        boolean hasDot = false;
+
+        for (int i = 1; i < url.length(); i++) {
+            final char c = url.charAt(i);
+
+            if (c == ':') {
+                final boolean couldBeHost = hasDot || isLocalhost(url, i);
+                return couldBeHost && isPort(url, i + 1) ? -1 : i;
+            }
+
+            if (c == '.') {
+                hasDot = true;
+            }
+
+            if (!isAsciiLetter(c) && !isAsciiDigit(c) && c != '+' && c != '-' && c != '.') {
+                return -1;
+            }
+        }
+
+        return -1;
+    }
+
+    /**
+     * Returns the host of the given URL (without user info and port, IPv6 addresses keep their
+     * brackets), or null if the URL has no authority (e.g. "data:" or "mailto:" URLs). Unlike
+     * android.net.Uri.getHost() this does not decode percent-escapes.
+     */
+    public static String getHost(String url) {
+        final int schemeEnd = findSchemeEnd(url);
+        if (schemeEnd == -1 || !url.startsWith("//", schemeEnd + 1)) {
+            return null;
+        }
+
+        final int authorityStart = schemeEnd + 3;
+
+        int authorityEnd = url.length();
+        for (int i = authorityStart; i < url.length(); i++) {
+            final char c = url.charAt(i);
+            if (c == '/' || c == '?' || c == '#') {
+                authorityEnd = i;
+                break;
+            }
+        }
+
+        final int userInfoEnd = url.lastIndexOf('@', authorityEnd - 1);
+        final int hostStart = userInfoEnd >= authorityStart ? userInfoEnd + 1 : authorityStart;
+
+        // Like android.net.Uri: The port is the run of digits after the last colon. Everything
+        // else (including the colons of an IPv6 address in brackets) is part of the host.
+        int hostEnd = authorityEnd;
+        for (int i = authorityEnd - 1; i >= hostStart; i--) {
+            final char c = url.charAt(i);
+            if (c == ':') {
+                hostEnd = i;
+                break;
+            }
+            if (!isAsciiDigit(c)) {
+                break;
+            }
+        }
+
+        return hostEnd > hostStart ? url.substring(hostStart, hostEnd) : null;
+    }
+
+    public static boolean urlsMatchExceptForTrailingSlash(final String url1, final String url2) {
+        int lengthDifference = url1.length() - url2.length();
+
+        if (lengthDifference == 0) {
+            // The simplest case:
+            return url1.equalsIgnoreCase(url2);
+        } else if (lengthDifference == 1) {
+            // url1 is longer:
+            return url1.charAt(url1.length() - 1) == '/' &&
+                    url1.regionMatches(true, 0, url2, 0, url2.length());
+        } else if (lengthDifference == -1) {
+            return url2.charAt(url2.length() - 1) == '/' &&
+                    url2.regionMatches(true, 0, url1, 0, url1.length());
+        }
+
+        return false;
+    }
+
+    public static String stripCommonSubdomains(String host) {
+        if (host == null) {
+            return null;
+        }
+
+        // In contrast to desktop, we also strip mobile subdomains,
+        // since its unlikely users are intentionally typing them
+        int start = 0;
+
+        if (host.startsWith("www.")) {
+            start = 4;
+        } else if (host.startsWith("mobile.")) {
+            start = 7;
+        } else if (host.startsWith("m.")) {
+            start = 2;
+        }
+
+        return host.substring(start);
+    }
+
+    private static boolean isLocalhost(String url, int end) {
+        return end == "localhost".length() && url.regionMatches(true, 0, "localhost", 0, end);
+    }
+
+    /**
+     * Whether the URL is just digits from the given index up to the end of the authority.
+     */
+    private static boolean isPort(String url, int start) {
+        int i = start;
+        while (i < url.length() && isAsciiDigit(url.charAt(i))) {
+            i++;
+        }
+
+        if (i == start) {
+            return false;
+        }
+
+        if (i == url.length()) {
+            return true;
+        }
+
+        final char c = url.charAt(i);
+        return c == '/' || c == '?' || c == '#';
+    }
+
+    /**
+     * Same as String.trim(): Skip all characters up to and including the space character.
+     */
+    private static int trimStart(String input) {
+        int start = 0;
+        while (start < input.length() && input.charAt(start) <= ' ') {
+            start++;
+        }
+        return start;
+    }
+
+    private static int trimEnd(String input, int start) {
+        int end = input.length();
+        while (end > start && input.charAt(end - 1) <= ' ') {
+            end--;
+        }
+        return end;
+    }
+
+    private static boolean isAsciiLetter(char c) {
+        return (c >= 'a' && c <= 'z') || (c >= 'A' && c <= 'Z');
+    }
+
+    private static boolean isAsciiDigit(char c) {
+        return c >= '0' && c <= '9';
+    }
+}
@@ -6,12 +6,10 @@
 package org.mozilla.focus.utils;
 
 import android.content.Context;
-import android.net.Uri;
 import android.support.annotation.NonNull;
 import android.support.annotation.Nullable;
 import android.text.TextUtils;
 
-import org.mozilla.focus.search.SearchEngine;
 import org.mozilla.focus.search.SearchEngineManager;
 
 import java.io.UnsupportedEncodingException;
@@ -21,28 +19,14 @@ import java.net.URLDecoder;
 
 public class UrlUtils {
     public static String normalize(@NonNull String input) {
-        String trimmedInput = input.trim();
-        Uri uri = Uri.parse(trimmedInput);
-
-        if (TextUtils.isEmpty(uri.getScheme())) {
-            uri = Uri.parse("http://" + trimmedInput);
-        }
-
-        return uri.toString();
+        return UrlClassifier.normalize(input);
     }
 
     /**
      * Is the given string a URL or should we perform a search?
-     *
-     * TODO: This is a super simple and probably stupid implementation.
      */
     public static boolean isUrl(String url) {
-        String trimmedUrl = url.trim();
-        if (trimmedUrl.contains(" ")) {
-            return false;
-        }
-
-        return trimmedUrl.contains(".") || trimmedUrl.contains(":");
+        return UrlClassifier.isUrl(url);
     }
 
     public static boolean isHttpOrHttps(String url) {
@@ -54,14 +38,21 @@ public class UrlUtils {
     }
 
     public static boolean isSearchQuery(String text) {
-        return text.contains(" ");
+        return UrlClassifier.isSearchQuery(text);
     }
 
-    public static String createSearchUrl(Context context, String searchTerm) {
-        final SearchEngine searchEngine = SearchEngineManager.getInstance()
-                .getDefaultSearchEngine(context);
+    /**
+     * Returns the host of the given URL, or null if it doesn't have one. This is cheaper than
+     * parsing the URL with {@link android.net.Uri}, see {@link UrlClassifier#getHost(String)}.
+     */
+    @Nullable
+    public static String getHost(@NonNull String url) {
+        return UrlClassifier.getHost(url);
+    }
 
-        return searchEngine.buildSearchUrl(searchTerm);
+    public static String createSearchUrl(Context context, String searchTerm) {
+        return SearchEngineManager.getInstance()
+                .createSearchUrl(context, searchTerm);
     }
 
     public static String stripUserInfo(@Nullable String url) {
@@ -107,40 +98,10 @@ public class UrlUtils {
     }
 
     public static boolean urlsMatchExceptForTrailingSlash(final @NonNull String url1, final @NonNull String url2) {
-        int lengthDifference = url1.length() - url2.length();
-
-        if (lengthDifference == 0) {
-            // The simplest case:
-            return url1.equalsIgnoreCase(url2);
-        } else if (lengthDifference == 1) {
-            // url1 is longer:
-            return url1.charAt(url1.length() - 1) == '/' &&
-                    url1.regionMatches(true, 0, url2, 0, url2.length());
-        } else if (lengthDifference == -1) {
-            return url2.charAt(url2.length() - 1) == '/' &&
-                    url2.regionMatches(true, 0, url1, 0, url1.length());
-        }
-
-        return false;
+        return UrlClassifier.urlsMatchExceptForTrailingSlash(url1, url2);
     }
 
     public static String stripCommonSubdomains(@Nullable String host) {
-        if (host == null) {
-            return null;
-        }
-
-        // In contrast to desktop, we also strip mobile subdomains,
-        // since its unlikely users are intentionally typing them
-        int start = 0;
-
-        if (host.startsWith("www.")) {
-            start = 4;
-        } else if (host.startsWith("mobile.")) {
-            start = 7;
-        } else if (host.startsWith("m.")) {
-            start = 2;
-        }
-
-        return host.substring(start);
+        return UrlClassifier.stripCommonSubdomains(host);
     }
 }
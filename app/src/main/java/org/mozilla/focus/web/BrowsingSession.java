@@ -9,12 +9,10 @@ import android.content.Context;
 import android.os.Bundle;
 import android.support.annotation.NonNull;
 import android.support.annotation.Nullable;
+import android.support.annotation.UiThread;
 
 import org.mozilla.focus.utils.SafeIntent;
-
-import java.lang.ref.WeakReference;
-import java.util.HashMap;
-import java.util.Map;
+import org.mozilla.focus.utils.TrimMemoryCoordinator;
 
 /**
  * A global object keeping the state of the current browsing session.
@@ -25,6 +23,9 @@ public class BrowsingSession {
     private static BrowsingSession instance;
 
     public interface TrackingCountListener {
+        /**
+         * Called on the UI thread, at most once per frame.
+         */
         void onTrackingCountChanged(int trackingCount);
     }
 
@@ -36,15 +37,27 @@ public class BrowsingSession {
     }
 
     private boolean isActive;
-    private int blockedTrackers;
-    private WeakReference<TrackingCountListener> listenerWeakReference;
+    private final TrackingCountPublisher blockedTrackers;
     private @Nullable CustomTabConfig customTabConfig;
 
-    private Map<String, Bundle> webViewStates;
+    private final WebViewStateStore webViewStates;
+
+    /**
+     * A WebView without a saved state can reload its URL, but it loses its back/forward history.
+     * Keep the most recent state: That's the one the user would be returning to.
+     */
+    private final TrimMemoryCoordinator.Trimmable trimmable = new TrimMemoryCoordinator.Trimmable() {
+        @Override
+        public long trimMemory(int level) {
+            return webViewStates.trimToNewest();
+        }
+    };
 
     private BrowsingSession() {
-        listenerWeakReference = new WeakReference<>(null);
-        webViewStates = new HashMap<>();
+        blockedTrackers = new TrackingCountPublisher();
+        webViewStates = new WebViewStateStore();
+
+        TrimMemoryCoordinator.getInstance().register("webview-states", TrimMemoryCoordinator.Priority.EXPENSIVE, trimmable);
     }
 
     public void start() {
@@ -61,22 +74,20 @@ public class BrowsingSession {
         return isActive;
     }
 
+    /**
+     * Can be called from any thread. Listeners are notified on the next frame.
+     */
     public void countBlockedTracker() {
-        blockedTrackers++;
-
-        final TrackingCountListener listener = listenerWeakReference.get();
-        if (listener != null) {
-            listener.onTrackingCountChanged(blockedTrackers);
-        }
+        blockedTrackers.increment();
     }
 
+    @UiThread
     public void setTrackingCountListener(TrackingCountListener listener) {
-        listenerWeakReference = new WeakReference<>(listener);
-        listener.onTrackingCountChanged(blockedTrackers);
+        blockedTrackers.setListener(listener);
     }
 
     public void resetTrackerCount() {
-        blockedTrackers = 0;
+        blockedTrackers.reset();
     }
 
     public void loadCustomTabConfig(final @NonNull Context context, final @NonNull SafeIntent intent) {
@@ -89,27 +100,37 @@ public class BrowsingSession {
     }
 
     /**
-     * Keep a reference to this WebView state (saved in Bundle) linked to the given UUID so that
-     * we can restore it later.
+     * Keep this WebView state (saved in Bundle) linked to the given WebView id so that we can restore
+     * it later. This replaces any state previously saved for this id.
      */
-    public void putWebViewState(@NonNull String uuid, @NonNull Bundle bundle) {
-        webViewStates.put(uuid, bundle);
+    public void putWebViewState(@NonNull String id, @NonNull Bundle bundle) {
+        webViewStates.put(id, bundle);
     }
 
     /**
-     * Get the WebView state saved linked to the given UUID or null if no such state exists.
+     * Get the WebView state saved linked to the given id or null if no such state exists.
      */
     @Nullable
-    public Bundle getWebViewState(@Nullable String uuid) {
-        return uuid != null ? webViewStates.get(uuid) : null;
+    public Bundle getWebViewState(@Nullable String id) {
+        return webViewStates.get(id);
     }
 
     /**
-     * Do we have a WebView state linked to the given UUID?
+     * Do we have a WebView state linked to the given id?
      */
-    public boolean hasWebViewState(@Nullable String uuid) {
-        return uuid != null && webViewStates.containsKey(uuid);
+    public boolean hasWebViewState(@Nullable String id) {
+        return webViewStates.contains(id);
+    }
 
+    /**
+     * Number of saved WebView states, and their size in memory (compressed) and before compressing.
+     */
+    public String getWebViewStateSummary() {
+        return webViewStates.getEntryCount() + " states, "
+                + webViewStates.getCompressedBytes() + " bytes ("
+                + webViewStates.getUncompressedBytes() + " bytes uncompressed), "
+                + webViewStates.getEvictionCount() + " evicted, restore p95 < "
+                + webViewStates.getRestoreLatency().getPercentileMicros(95) + "us";
     }
 
     public boolean isCustomTab() {
@@ -0,0 +1,166 @@
+/* -*- Mode: Java; c-basic-offset: 4; tab-width: 4; indent-tabs-mode: nil; -*-
+ * This Source Code Form is subject to the terms of the Mozilla Public
+ * License, v. 2.0. If a copy of the MPL was not distributed with this
+ * file, You can obtain one at http://mozilla.org/MPL/2.0/. */
+
+package org.mozilla.focus.web;
+
+import android.os.SystemClock;
+import android.support.annotation.Nullable;
+import android.support.annotation.UiThread;
+import android.support.annotation.VisibleForTesting;
+import android.text.TextUtils;
+import android.util.Log;
+
+import org.mozilla.focus.utils.ThreadUtils;
+
+import java.io.IOException;
+import java.net.InetAddress;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
+
+/**
+ * Resolves the host the user is (probably) about to visit while they are still typing. The system
+ * caches DNS lookups, so the WebView can start connecting right away once the URL is loaded.
+ *
+ * Lookups for autocomplete candidates are debounced, so that only the candidate the user pauses at
+ * is resolved. Only a limited number of lookups run at the same time and recently resolved hosts
+ * are not resolved again. Whether this is enabled at all is up to the user (see
+ * {@link org.mozilla.focus.utils.Settings#shouldPrewarmConnections()}), because it looks up hosts
+ * the user might never visit.
+ */
+public class ConnectionPrewarmer {
+    private static final String LOG_TAG = "ConnectionPrewarmer";
+
+    private static final long DEBOUNCE_MILLIS = 250;
+    private static final int MAX_CONCURRENT_LOOKUPS = 2;
+
+    /**
+     * The system DNS cache keeps results for a while. There's no point in looking up the same host
+     * over and over again while the user is typing.
+     */
+    private static final long RECENTLY_RESOLVED_MILLIS = 60 * 1000;
+
+    public interface Resolver {
+        void resolve(String host) throws IOException;
+    }
+
+    private static final Resolver SYSTEM_RESOLVER = new Resolver() {
+        @Override
+        public void resolve(String host) throws IOException {
+            InetAddress.getAllByName(host);
+        }
+    };
+
+    private static final ConnectionPrewarmer instance = new ConnectionPrewarmer(
+            SYSTEM_RESOLVER, Executors.newFixedThreadPool(MAX_CONCURRENT_LOOKUPS));
+
+    public static ConnectionPrewarmer getInstance() {
+        return instance;
+    }
+
+    private final Resolver resolver;
+    private final Executor executor;
+
+    /**
+     * Hosts we have started looking up and when we did that.
+     */
+    private final Map<String, Long> recentLookups = new HashMap<>();
+    private int runningLookups;
+
+    /**
+     * Incremented for every candidate: A debounced lookup only runs if no other candidate has been
+     * seen since.
+     */
+    private int candidateCount;
+
+    @VisibleForTesting ConnectionPrewarmer(Resolver resolver, Executor executor) {
+        this.resolver = resolver;
+        this.executor = executor;
+    }
+
+    /**
+     * The user is typing and this host is the current candidate (e.g. the autocompleted domain).
+     * The host is resolved if the user doesn't type anything else for a moment.
+     */
+    @UiThread
+    public void onCandidate(@Nullable final String host) {
+        final int candidate = ++candidateCount;
+
+        if (TextUtils.isEmpty(host)) {
+            return;
+        }
+
+        ThreadUtils.postToMainThreadDelayed(new Runnable() {
+            @Override
+            public void run() {
+                if (candidate == candidateCount) {
+                    prewarm(host, SystemClock.elapsedRealtime());
+                }
+            }
+        }, DEBOUNCE_MILLIS);
+    }
+
+    /**
+     * The user is going to load a URL on this host: Resolve it right away.
+     */
+    @UiThread
+    public void onCommit(@Nullable String host) {
+        // Cancel any pending candidate.
+        candidateCount++;
+
+        if (!TextUtils.isEmpty(host)) {
+            prewarm(host, SystemClock.elapsedRealtime());
+        }
+    }
+
+    /**
+     * Start resolving the host unless it has been resolved recently or too many lookups are
+     * already running. Returns true if a lookup has been started.
+     */
+    @VisibleForTesting synchronized boolean prewarm(String host, long nowMillis) {
+        final String normalizedHost = host.toLowerCase(Locale.US);
+
+        removeOldLookups(nowMillis);
+
+        if (recentLookups.containsKey(normalizedHost) || runningLookups >= MAX_CONCURRENT_LOOKUPS) {
+            return false;
+        }
+
+        recentLookups.put(normalizedHost, nowMillis);
+        runningLookups++;
+
+        executor.execute(new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    resolver.resolve(normalizedHost);
+                } catch (IOException e) {
+                    // The user might just not have finished typing the host yet.
+                    Log.d(LOG_TAG, "Could not resolve host");
+                } finally {
+                    onLookupFinished();
+                }
+            }
+        });
+
+        return true;
+    }
+
+    private synchronized void onLookupFinished() {
+        runningLookups--;
+    }
+
+    private void removeOldLookups(long nowMillis) {
+        final Iterator<Long> iterator = recentLookups.values().iterator();
+        while (iterator.hasNext()) {
+            if (nowMillis - iterator.next() >= RECENTLY_RESOLVED_MILLIS) {
+                iterator.remove();
+            }
+        }
+    }
+}
@@ -0,0 +1,252 @@
+/* -*- Mode: Java; c-basic-offset: 4; tab-width: 4; indent-tabs-mode: nil; -*-
+ * This Source Code Form is subject to the terms of the Mozilla Public
+ * License, v. 2.0. If a copy of the MPL was not distributed with this
+ * file, You can obtain one at http://mozilla.org/MPL/2.0/. */
+
+package org.mozilla.focus.web;
+
+import android.app.DownloadManager;
+import android.content.Context;
+import android.content.Intent;
+import android.database.Cursor;
+import android.net.Uri;
+import android.support.annotation.Nullable;
+import android.support.annotation.UiThread;
+import android.support.annotation.VisibleForTesting;
+import android.support.annotation.WorkerThread;
+import android.support.v4.content.FileProvider;
+import android.util.Log;
+import android.webkit.CookieManager;
+import android.webkit.MimeTypeMap;
+import android.webkit.URLUtil;
+
+import org.mozilla.focus.BuildConfig;
+import org.mozilla.focus.utils.IntentUtils;
+import org.mozilla.focus.utils.ThreadUtils;
+
+import java.io.File;
+import java.lang.ref.WeakReference;
+import java.util.HashSet;
+import java.util.Set;
+
+/**
+ * Queues downloads with Android's DownloadManager and resolves finished downloads. All the work
+ * that involves the DownloadManager, cookies or files happens on the background thread.
+ *
+ * Downloads that finish at about the same time are resolved with a single query and only result
+ * in one snackbar: Every snackbar would replace the previous one anyway.
+ */
+public class DownloadCoordinator {
+    private static final String LOG_TAG = "DownloadCoordinator";
+
+    private static final String FILE_SCHEME = "file://";
+    private static final String FILE_PROVIDER_EXTENSION = ".fileprovider";
+
+    /**
+     * How long to wait for other downloads to finish before resolving completed downloads.
+     */
+    private static final long BATCH_DELAY_MS = 250;
+
+    public interface Listener {
+        /**
+         * Called on the UI thread for the last download (of a batch) that finished successfully.
+         */
+        @UiThread
+        void onDownloadCompleted(Completion completion);
+    }
+
+    /**
+     * Everything needed to tell the user about a finished download.
+     */
+    public static class Completion {
+        public final String fileName;
+
+        /**
+         * Intent to open the downloaded file, or null if no app can open it.
+         */
+        @Nullable public final Intent openFileIntent;
+
+        /* package */ Completion(String fileName, @Nullable Intent openFileIntent) {
+            this.fileName = fileName;
+            this.openFileIntent = openFileIntent;
+        }
+    }
+
+    private static final DownloadCoordinator instance = new DownloadCoordinator();
+
+    public static DownloadCoordinator getInstance() {
+        return instance;
+    }
+
+    /**
+     * Downloads we have queued and that haven't finished yet.
+     */
+    private final Set<Long> queuedDownloads = new HashSet<>();
+
+    /**
+     * Finished downloads that are waiting to be resolved in the next batch.
+     */
+    private final Set<Long> completedDownloads = new HashSet<>();
+
+    private WeakReference<Listener> listenerReference = new WeakReference<>(null);
+
+    @VisibleForTesting DownloadCoordinator() {}
+
+    /**
+     * Queue the download with Android's DownloadManager on the background thread.
+     */
+    public void enqueue(Context context, final Download download, final String referrer) {
+        final Context applicationContext = context.getApplicationContext();
+
+        ThreadUtils.postToBackgroundThread(new Runnable() {
+            @Override
+            public void run() {
+                final long downloadReference = enqueueOnBackgroundThread(applicationContext, download, referrer);
+                addQueuedDownload(downloadReference);
+            }
+        });
+    }
+
+    @WorkerThread
+    private static long enqueueOnBackgroundThread(Context context, Download download, String referrer) {
+        final String cookie = CookieManager.getInstance().getCookie(download.getUrl());
+        final String fileName = URLUtil.guessFileName(
+                download.getUrl(), download.getContentDisposition(), download.getMimeType());
+
+        final DownloadManager.Request request = new DownloadManager.Request(Uri.parse(download.getUrl()))
+                .addRequestHeader("User-Agent", download.getUserAgent())
+                .addRequestHeader("Cookie", cookie)
+                .addRequestHeader("Referer", referrer)
+                .setDestinationInExternalPublicDir(download.getDestinationDirectory(), fileName)
+                .setNotificationVisibility(DownloadManager.Request.VISIBILITY_VISIBLE_NOTIFY_COMPLETED)
+                .setMimeType(download.getMimeType());
+
+        request.allowScanningByMediaScanner();
+
+        final DownloadManager downloadManager = (DownloadManager) context.getSystemService(Context.DOWNLOAD_SERVICE);
+        return downloadManager.enqueue(request);
+    }
+
+    /**
+     * A download has finished. Downloads that we haven't queued are ignored. The listener will be
+     * notified once this (and every other download finishing at about the same time) has been
+     * resolved.
+     */
+    @UiThread
+    public void onDownloadCompleted(Context context, long downloadReference, Listener listener) {
+        listenerReference = new WeakReference<>(listener);
+
+        if (!addCompletedDownload(downloadReference)) {
+            return;
+        }
+
+        final Context applicationContext = context.getApplicationContext();
+
+        ThreadUtils.postToMainThreadDelayed(new Runnable() {
+            @Override
+            public void run() {
+                ThreadUtils.postToBackgroundThread(new Runnable() {
+                    @Override
+                    public void run() {
+                        final Completion completion = resolve(applicationContext, takeCompletedDownloads());
+                        if (completion != null) {
+                            ThreadUtils.postToMainThread(new Runnable() {
+                                @Override
+                                public void run() {
+                                    final Listener listener = listenerReference.get();
+                                    if (listener != null) {
+                                        listener.onDownloadCompleted(completion);
+                                    }
+                                }
+                            });
+                        }
+                    }
+                });
+            }
+        }, BATCH_DELAY_MS);
+    }
+
+    /* package */ synchronized void addQueuedDownload(long downloadReference) {
+        queuedDownloads.add(downloadReference);
+    }
+
+    /**
+     * Returns true if this download starts a new batch of completed downloads.
+     */
+    /* package */ synchronized boolean addCompletedDownload(long downloadReference) {
+        if (!queuedDownloads.remove(downloadReference)) {
+            return false;
+        }
+
+        completedDownloads.add(downloadReference);
+        return completedDownloads.size() == 1;
+    }
+
+    /* package */ synchronized long[] takeCompletedDownloads() {
+        final long[] downloadReferences = new long[completedDownloads.size()];
+
+        int i = 0;
+        for (long downloadReference : completedDownloads) {
+            downloadReferences[i++] = downloadReference;
+        }
+
+        completedDownloads.clear();
+        return downloadReferences;
+    }
+
+    /**
+     * Query the DownloadManager for all given downloads at once and return the completion of the
+     * most recent successful one.
+     */
+    @WorkerThread
+    @Nullable
+    private static Completion resolve(Context context, long[] downloadReferences) {
+        if (downloadReferences.length == 0) {
+            return null;
+        }
+
+        final DownloadManager downloadManager = (DownloadManager) context.getSystemService(Context.DOWNLOAD_SERVICE);
+
+        final DownloadManager.Query query = new DownloadManager.Query();
+        query.setFilterById(downloadReferences);
+        query.setFilterByStatus(DownloadManager.STATUS_SUCCESSFUL);
+
+        String uriString = null;
+        long lastModified = Long.MIN_VALUE;
+
+        try (Cursor cursor = downloadManager.query(query)) {
+            if (cursor == null) {
+                return null;
+            }
+
+            final int localUriColumnIndex = cursor.getColumnIndex(DownloadManager.COLUMN_LOCAL_URI);
+            final int lastModifiedColumnIndex = cursor.getColumnIndex(DownloadManager.COLUMN_LAST_MODIFIED_TIMESTAMP);
+
+            while (cursor.moveToNext()) {
+                final long timestamp = cursor.getLong(lastModifiedColumnIndex);
+                if (timestamp >= lastModified) {
+                    lastModified = timestamp;
+                    uriString = cursor.getString(localUriColumnIndex);
+                }
+            }
+        }
+
+        if (uriString == null) {
+            return null;
+        }
+
+        Log.d(LOG_TAG, "Resolved " + downloadReferences.length + " finished download(s) with one query");
+
+        final String localUri = uriString.startsWith(FILE_SCHEME) ? uriString.substring(FILE_SCHEME.length()) : uriString;
+        final String fileExtension = MimeTypeMap.getFileExtensionFromUrl(localUri);
+        final String mimeType = MimeTypeMap.getSingleton().getMimeTypeFromExtension(fileExtension);
+        final String fileName = URLUtil.guessFileName(Uri.decode(localUri), null, mimeType);
+
+        final File file = new File(Uri.decode(localUri));
+        final Uri uriForFile = FileProvider.getUriForFile(context, BuildConfig.APPLICATION_ID + FILE_PROVIDER_EXTENSION, file);
+        final Intent openFileIntent = IntentUtils.createOpenFileIntent(uriForFile, mimeType);
+
+        return new Completion(fileName,
+                IntentUtils.activitiesFoundForIntent(context, openFileIntent) ? openFileIntent : null);
+    }
+}
@@ -0,0 +1,271 @@
+/* -*- Mode: Java; c-basic-offset: 4; tab-width: 4; indent-tabs-mode: nil; -*-
+ * This Source Code Form is subject to the terms of the Mozilla Public
+ * License, v. 2.0. If a copy of the MPL was not distributed with this
+ * file, You can obtain one at http://mozilla.org/MPL/2.0/. */
+
+package org.mozilla.focus.web;
+
+import android.support.annotation.AnyThread;
+import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
+import android.support.annotation.UiThread;
+import android.support.annotation.VisibleForTesting;
+import android.util.Log;
+
+import org.mozilla.focus.utils.ThreadUtils;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Erasing the browsing session consists of multiple steps: Some of them run synchronously on the
+ * UI thread, some on a background thread and some are asynchronous engine calls that finish at an
+ * unknown time. An EraseOperation tracks all those steps, measures how long each of them took and
+ * notifies listeners once all of them have finished.
+ *
+ * Steps are added with {@link #beginStep(String)} (or one of the helpers) and the operation is
+ * completed once {@link #seal()} has been called and all steps have finished.
+ */
+public class EraseOperation {
+    private static final String LOG_TAG = "EraseOperation";
+
+    /**
+     * How long code waiting for an operation to complete should wait at most: A step might never
+     * finish (e.g. if the engine never calls back).
+     */
+    public static final long COMPLETION_TIMEOUT_MILLIS = 10 * 1000;
+
+    public interface CompletionListener {
+        @UiThread
+        void onEraseComplete(EraseOperation operation);
+    }
+
+    /**
+     * A step of the erase operation. Call {@link #finish()} exactly once, from any thread.
+     */
+    public class Step {
+        private final String name;
+        private final long startNanos;
+        private boolean finished;
+
+        private Step(String name) {
+            this.name = name;
+            this.startNanos = System.nanoTime();
+        }
+
+        @AnyThread
+        public void finish() {
+            onStepFinished(this, System.nanoTime() - startNanos);
+        }
+    }
+
+    /**
+     * Background steps get their own thread: Erasing shouldn't wait for unrelated work queued on
+     * the shared background thread (and the service waiting for us keeps the process alive).
+     */
+    private static final ExecutorService backgroundExecutor = Executors.newSingleThreadExecutor();
+
+    private static EraseOperation current;
+
+    /**
+     * Start a new erase operation. Until the next operation has been started it can be retrieved
+     * via {@link #getCurrent()}.
+     */
+    public static synchronized EraseOperation start() {
+        current = new EraseOperation();
+        return current;
+    }
+
+    /**
+     * Returns the most recently started erase operation or null if nothing has been erased yet.
+     */
+    @Nullable
+    public static synchronized EraseOperation getCurrent() {
+        return current;
+    }
+
+    private final long startNanos;
+    private final Map<String, Long> stepDurations = new LinkedHashMap<>();
+    private final List<CompletionListener> listeners = new ArrayList<>();
+    private final CountDownLatch completionLatch = new CountDownLatch(1);
+
+    private int pendingSteps;
+    private boolean sealed;
+    private long durationNanos = -1;
+
+    @VisibleForTesting EraseOperation() {
+        startNanos = System.nanoTime();
+    }
+
+    @AnyThread
+    public synchronized Step beginStep(String name) {
+        if (sealed) {
+            throw new IllegalStateException("Can't add step to sealed erase operation: " + name);
+        }
+
+        pendingSteps++;
+        return new Step(name);
+    }
+
+    /**
+     * Run the given step synchronously on the current thread.
+     */
+    @AnyThread
+    public void runStep(String name, Runnable runnable) {
+        final Step step = beginStep(name);
+        try {
+            runnable.run();
+        } finally {
+            step.finish();
+        }
+    }
+
+    /**
+     * Run the given step on the erase background thread. It will overlap with all other steps.
+     */
+    @AnyThread
+    public void runStepInBackground(String name, final Runnable runnable) {
+        final Step step = beginStep(name);
+
+        backgroundExecutor.execute(new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    runnable.run();
+                } finally {
+                    step.finish();
+                }
+            }
+        });
+    }
+
+    /**
+     * No more steps will be added. The operation completes as soon as all steps have finished.
+     */
+    @AnyThread
+    public void seal() {
+        synchronized (this) {
+            if (sealed) {
+                return;
+            }
+            sealed = true;
+        }
+
+        maybeComplete();
+    }
+
+    private void onStepFinished(Step step, long durationNanos) {
+        synchronized (this) {
+            if (step.finished) {
+                throw new IllegalStateException("Erase step finished twice: " + step.name);
+            }
+            step.finished = true;
+
+            pendingSteps--;
+
+            final Long previous = stepDurations.get(step.name);
+            stepDurations.put(step.name, durationNanos + (previous != null ? previous : 0));
+        }
+
+        maybeComplete();
+    }
+
+    private void maybeComplete() {
+        final List<CompletionListener> listenersToNotify;
+
+        synchronized (this) {
+            if (!sealed || pendingSteps > 0 || durationNanos != -1) {
+                return;
+            }
+
+            durationNanos = System.nanoTime() - startNanos;
+
+            listenersToNotify = new ArrayList<>(listeners);
+            listeners.clear();
+        }
+
+        completionLatch.countDown();
+
+        logSummary();
+
+        for (final CompletionListener listener : listenersToNotify) {
+            notifyListener(listener);
+        }
+    }
+
+    /**
+     * Add a listener that will be notified on the UI thread once this operation has completed.
+     * If the operation has completed already then the listener will be notified right away (but
+     * not before this method returns).
+     */
+    @AnyThread
+    public void addCompletionListener(@NonNull CompletionListener listener) {
+        synchronized (this) {
+            if (durationNanos == -1) {
+                listeners.add(listener);
+                return;
+            }
+        }
+
+        notifyListener(listener);
+    }
+
+    private void notifyListener(final CompletionListener listener) {
+        ThreadUtils.postToMainThread(new Runnable() {
+            @Override
+            public void run() {
+                listener.onEraseComplete(EraseOperation.this);
+            }
+        });
+    }
+
+    public synchronized boolean isComplete() {
+        return durationNanos != -1;
+    }
+
+    /**
+     * Block until this operation has completed. Never call this on the UI thread: UI thread steps
+     * can't finish while we are waiting.
+     *
+     * @return true if the operation has completed, false if the timeout elapsed before.
+     */
+    public boolean await(long timeout, TimeUnit unit) throws InterruptedException {
+        return completionLatch.await(timeout, unit);
+    }
+
+    /**
+     * Time from starting this operation until all steps had finished, in milliseconds. Returns -1
+     * if the operation hasn't completed yet.
+     */
+    public synchronized long getDurationMillis() {
+        return durationNanos == -1 ? -1 : durationNanos / 1000000;
+    }
+
+    /**
+     * The time each step took in milliseconds (in the order the steps have finished in).
+     */
+    public synchronized Map<String, Long> getStepDurationsMillis() {
+        final Map<String, Long> durations = new LinkedHashMap<>();
+        for (final Map.Entry<String, Long> entry : stepDurations.entrySet()) {
+            durations.put(entry.getKey(), entry.getValue() / 1000000);
+        }
+        return durations;
+    }
+
+    private void logSummary() {
+        final StringBuilder builder = new StringBuilder();
+        builder.append("Erase took ").append(getDurationMillis()).append("ms:");
+
+        for (final Map.Entry<String, Long> entry : getStepDurationsMillis().entrySet()) {
+            builder.append(' ').append(entry.getKey()).append('=').append(entry.getValue()).append("ms");
+        }
+
+        Log.d(LOG_TAG, builder.toString());
+    }
+}
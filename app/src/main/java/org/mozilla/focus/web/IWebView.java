@@ -96,7 +96,11 @@ public interface IWebView {
 
     void loadUrl(String url);
 
-    void cleanup();
+    /**
+     * Delete all browsing data of this session. Steps that do not finish synchronously are added
+     * to the given erase operation. The caller seals the operation.
+     */
+    void cleanup(EraseOperation operation);
 
     void goForward();
 
@@ -0,0 +1,106 @@
+/* -*- Mode: Java; c-basic-offset: 4; tab-width: 4; indent-tabs-mode: nil; -*-
+ * This Source Code Form is subject to the terms of the Mozilla Public
+ * License, v. 2.0. If a copy of the MPL was not distributed with this
+ * file, You can obtain one at http://mozilla.org/MPL/2.0/. */
+
+package org.mozilla.focus.web;
+
+import org.json.JSONException;
+import org.json.JSONObject;
+import org.mozilla.focus.utils.LatencyHistogram;
+
+import java.util.Locale;
+
+/**
+ * Latency histograms for the phases of intercepting a request. The engine's network threads are
+ * blocked while we decide whether to block a request, so this is the hottest code path in the app.
+ */
+public final class InterceptionMetrics {
+    public enum Phase {
+        /**
+         * The whole interception of a request, including serving our internal pages.
+         */
+        TOTAL,
+
+        /**
+         * Waiting for the matcher. This is only significant for the first requests, while the
+         * blocklists are still being loaded.
+         */
+        MATCHER_WAIT,
+
+        /**
+         * Matching requests that could be answered from the matcher's cache of previous verdicts.
+         */
+        CACHE_HIT,
+
+        /**
+         * Checking whether the page and the resource belong to the same entity.
+         */
+        ENTITY_CHECK,
+
+        /**
+         * Looking up the host of the resource in the blocklists.
+         */
+        TRIE_WALK
+    }
+
+    private static final LatencyHistogram[] histograms = new LatencyHistogram[Phase.values().length];
+
+    static {
+        for (int i = 0; i < histograms.length; i++) {
+            histograms[i] = new LatencyHistogram();
+        }
+    }
+
+    private InterceptionMetrics() {}
+
+    /**
+     * Record the time that has passed since the given {@link System#nanoTime()} timestamp.
+     */
+    public static void record(Phase phase, long startNanos) {
+        histograms[phase.ordinal()].recordSince(startNanos);
+    }
+
+    public static LatencyHistogram getHistogram(Phase phase) {
+        return histograms[phase.ordinal()];
+    }
+
+    public static void clear() {
+        for (final LatencyHistogram histogram : histograms) {
+            histogram.clear();
+        }
+    }
+
+    public static JSONObject toJSON() throws JSONException {
+        final JSONObject object = new JSONObject();
+
+        for (final Phase phase : Phase.values()) {
+            object.put(phase.name().toLowerCase(Locale.US), getHistogram(phase).toJSON());
+        }
+
+        return object;
+    }
+
+    /**
+     * A short human readable summary (p50 / p95 per phase).
+     */
+    public static String getSummary() {
+        final StringBuilder builder = new StringBuilder();
+
+        for (final Phase phase : Phase.values()) {
+            final LatencyHistogram histogram = getHistogram(phase);
+
+            if (builder.length() > 0) {
+                builder.append('\n');
+            }
+
+            builder.append(String.format(Locale.US, "%s (%d): p50 < %dus, p95 < %dus",
+                    phase.name().toLowerCase(Locale.US),
+                    histogram.getCount(),
+                    histogram.getPercentileMicros(50),
+                    histogram.getPercentileMicros(95)));
+        }
+
+        return builder.toString();
+    }
+}
@@ -0,0 +1,346 @@
+/* -*- Mode: Java; c-basic-offset: 4; tab-width: 4; indent-tabs-mode: nil; -*-
+ * This Source Code Form is subject to the terms of the Mozilla Public
+ * License, v. 2.0. If a copy of the MPL was not distributed with this
+ * file, You can obtain one at http://mozilla.org/MPL/2.0/. */
+
+package org.mozilla.focus.web;
+
+import android.os.SystemClock;
+import android.support.annotation.NonNull;
+import android.support.annotation.VisibleForTesting;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Keeps the timings of the last page loads in memory, so that we can see how the blocking
+ * configuration affects load times.
+ *
+ * Only timings and counters are recorded: No URLs or anything else that could identify the
+ * visited pages.
+ */
+public class PageLoadTimeline {
+    @VisibleForTesting static final int MAX_PAGE_LOADS = 100;
+
+    private static final PageLoadTimeline instance = new PageLoadTimeline();
+
+    public static PageLoadTimeline getInstance() {
+        return instance;
+    }
+
+    /**
+     * The timings of one navigation. Timestamps are in milliseconds ({@link SystemClock#elapsedRealtime()})
+     * and -1 if the event hasn't happened (yet).
+     *
+     * The page start, progress and finish events are recorded on the UI thread. Intercepted requests
+     * are recorded on whatever thread the engine uses for loading resources.
+     */
+    public static class PageLoad {
+        /**
+         * Progress values for which we record the time when they have been reached first.
+         */
+        public static final int[] PROGRESS_MILESTONES = { 25, 50, 75, 100 };
+
+        private final boolean blockingEnabled;
+        private final long submitTime;
+        private volatile long startTime = -1;
+        private volatile long finishTime = -1;
+        private final AtomicLong firstRequestTime = new AtomicLong(-1);
+        private final AtomicInteger interceptedRequests = new AtomicInteger();
+        private final AtomicInteger blockedRequests = new AtomicInteger();
+        private final AtomicLong interceptionNanos = new AtomicLong();
+        private final long[] milestoneTimes = new long[PROGRESS_MILESTONES.length];
+
+        /**
+         * @param submitted true if this load has been started by the app (e.g. the user submitted
+         *                  a URL or we opened a URL from an intent) instead of the page itself
+         *                  (e.g. a link click or a redirect).
+         */
+        public PageLoad(boolean submitted, boolean blockingEnabled) {
+            this(submitted ? SystemClock.elapsedRealtime() : -1, blockingEnabled);
+        }
+
+        @VisibleForTesting PageLoad(long submitTime, boolean blockingEnabled) {
+            this.submitTime = submitTime;
+            this.blockingEnabled = blockingEnabled;
+
+            Arrays.fill(milestoneTimes, -1);
+        }
+
+        public void markPageStarted() {
+            markPageStarted(SystemClock.elapsedRealtime());
+        }
+
+        @VisibleForTesting void markPageStarted(long time) {
+            if (startTime == -1) {
+                startTime = time;
+            }
+        }
+
+        public boolean hasStarted() {
+            return startTime != -1;
+        }
+
+        public void markProgress(int progress) {
+            final long now = SystemClock.elapsedRealtime();
+
+            for (int i = 0; i < PROGRESS_MILESTONES.length; i++) {
+                if (progress >= PROGRESS_MILESTONES[i] && milestoneTimes[i] == -1) {
+                    milestoneTimes[i] = now;
+                }
+            }
+        }
+
+        /**
+         * Mark this page load as finished. Returns false if it has been finished before.
+         */
+        public boolean markPageFinished() {
+            return markPageFinished(SystemClock.elapsedRealtime());
+        }
+
+        @VisibleForTesting boolean markPageFinished(long time) {
+            if (finishTime != -1) {
+                return false;
+            }
+            finishTime = time;
+            return true;
+        }
+
+        public boolean isFinished() {
+            return finishTime != -1;
+        }
+
+        /**
+         * Record a request that has been seen by the engine's interception hook.
+         *
+         * @param blocked true if we didn't allow this request to be loaded.
+         * @param durationNanos the time spent inside the interception hook for this request.
+         */
+        public void recordInterceptedRequest(boolean blocked, long durationNanos) {
+            firstRequestTime.compareAndSet(-1, SystemClock.elapsedRealtime());
+
+            interceptedRequests.incrementAndGet();
+            if (blocked) {
+                blockedRequests.incrementAndGet();
+            }
+            interceptionNanos.addAndGet(durationNanos);
+        }
+
+        @VisibleForTesting void recordFirstRequest(long time) {
+            firstRequestTime.compareAndSet(-1, time);
+        }
+
+        public boolean isBlockingEnabled() {
+            return blockingEnabled;
+        }
+
+        /**
+         * The time this load has been started at: Either when it has been submitted or, if the page
+         * started this load itself, when the engine started loading the page.
+         */
+        private long getOriginTime() {
+            return submitTime != -1 ? submitTime : startTime;
+        }
+
+        /**
+         * Milliseconds from submitting (or starting) the load until the page has been finished,
+         * or -1 if the page hasn't finished loading.
+         */
+        public long getLoadTime() {
+            return elapsed(getOriginTime(), finishTime);
+        }
+
+        /**
+         * Milliseconds from submitting the URL until the engine started loading the page, or -1
+         * if this load hasn't been submitted by the app.
+         */
+        public long getTimeToPageStart() {
+            return elapsed(submitTime, startTime);
+        }
+
+        /**
+         * Milliseconds from submitting (or starting) the load until the first request has been
+         * intercepted.
+         */
+        public long getTimeToFirstRequest() {
+            return elapsed(getOriginTime(), firstRequestTime.get());
+        }
+
+        /**
+         * Milliseconds from submitting (or starting) the load until the progress has reached the
+         * given milestone (one of {@link #PROGRESS_MILESTONES}).
+         */
+        public long getTimeToProgress(int milestone) {
+            final int index = Arrays.binarySearch(PROGRESS_MILESTONES, milestone);
+            if (index < 0) {
+                throw new IllegalArgumentException("Not a progress milestone: " + milestone);
+            }
+            return elapsed(getOriginTime(), milestoneTimes[index]);
+        }
+
+        public int getInterceptedRequests() {
+            return interceptedRequests.get();
+        }
+
+        public int getBlockedRequests() {
+            return blockedRequests.get();
+        }
+
+        /**
+         * Time spent inside the interception hook for all requests of this load, in microseconds.
+         */
+        public long getInterceptionMicros() {
+            return interceptionNanos.get() / 1000;
+        }
+
+        private static long elapsed(long from, long to) {
+            return from == -1 || to == -1 ? -1 : to - from;
+        }
+    }
+
+    /**
+     * p50/p95 summary of the recorded page loads.
+     */
+    public static class Summary {
+        public final int count;
+        public final long loadTimeP50;
+        public final long loadTimeP95;
+        public final long firstRequestP50;
+        public final long firstRequestP95;
+        public final long interceptionMicrosP50;
+        public final long interceptionMicrosP95;
+        public final long blockedRequestsP50;
+        public final long blockedRequestsP95;
+
+        /* package */ Summary(List<PageLoad> pageLoads) {
+            final int size = pageLoads.size();
+
+            final long[] loadTimes = new long[size];
+            final long[] firstRequestTimes = new long[size];
+            final long[] interceptionTimes = new long[size];
+            final long[] blockedRequests = new long[size];
+
+            for (int i = 0; i < size; i++) {
+                final PageLoad pageLoad = pageLoads.get(i);
+
+                loadTimes[i] = pageLoad.getLoadTime();
+                firstRequestTimes[i] = pageLoad.getTimeToFirstRequest();
+                interceptionTimes[i] = pageLoad.getInterceptionMicros();
+                blockedRequests[i] = pageLoad.getBlockedRequests();
+            }
+
+            count = size;
+            loadTimeP50 = percentile(loadTimes, 50);
+            loadTimeP95 = percentile(loadTimes, 95);
+            firstRequestP50 = percentile(firstRequestTimes, 50);
+            firstRequestP95 = percentile(firstRequestTimes, 95);
+            interceptionMicrosP50 = percentile(interceptionTimes, 50);
+            interceptionMicrosP95 = percentile(interceptionTimes, 95);
+            blockedRequestsP50 = percentile(blockedRequests, 50);
+            blockedRequestsP95 = percentile(blockedRequests, 95);
+        }
+
+        @Override
+        public String toString() {
+            if (count == 0) {
+                return "No page loads";
+            }
+
+            return String.format(Locale.US,
+                    "%d page loads (p50 / p95)\n" +
+                    "Load: %d / %d ms\n" +
+                    "First request: %d / %d ms\n" +
+                    "Interception: %.1f / %.1f ms\n" +
+                    "Blocked requests: %d / %d",
+                    count,
+                    loadTimeP50, loadTimeP95,
+                    firstRequestP50, firstRequestP95,
+                    interceptionMicrosP50 / 1000f, interceptionMicrosP95 / 1000f,
+                    blockedRequestsP50, blockedRequestsP95);
+        }
+    }
+
+    private final Deque<PageLoad> pageLoads = new ArrayDeque<>(MAX_PAGE_LOADS);
+
+    @VisibleForTesting PageLoadTimeline() {}
+
+    /**
+     * Record a finished page load. If the store is full then the oldest page load is dropped.
+     */
+    public void record(@NonNull PageLoad pageLoad) {
+        if (!pageLoad.isFinished()) {
+            throw new IllegalStateException("Page load hasn't finished yet");
+        }
+
+        synchronized (pageLoads) {
+            if (pageLoads.size() == MAX_PAGE_LOADS) {
+                pageLoads.removeFirst();
+            }
+            pageLoads.addLast(pageLoad);
+        }
+    }
+
+    /**
+     * Returns the recorded page loads, oldest first.
+     */
+    public List<PageLoad> getPageLoads() {
+        synchronized (pageLoads) {
+            return new ArrayList<>(pageLoads);
+        }
+    }
+
+    public Summary getSummary() {
+        return new Summary(getPageLoads());
+    }
+
+    /**
+     * Returns a summary of only the page loads that have (or have not) been loaded with content
+     * blocking enabled.
+     */
+    public Summary getSummary(boolean blockingEnabled) {
+        final List<PageLoad> filtered = new ArrayList<>();
+
+        for (final PageLoad pageLoad : getPageLoads()) {
+            if (pageLoad.isBlockingEnabled() == blockingEnabled) {
+                filtered.add(pageLoad);
+            }
+        }
+
+        return new Summary(filtered);
+    }
+
+    public void clear() {
+        synchronized (pageLoads) {
+            pageLoads.clear();
+        }
+    }
+
+    /**
+     * Nearest-rank percentile of the given values, ignoring values that haven't been recorded (-1).
+     * Returns -1 if there are no recorded values.
+     */
+    @VisibleForTesting static long percentile(long[] values, int percentile) {
+        final long[] sorted = Arrays.copyOf(values, values.length);
+        Arrays.sort(sorted);
+
+        // Unrecorded values (-1) are sorted to the front.
+        int offset = 0;
+        while (offset < sorted.length && sorted[offset] < 0) {
+            offset++;
+        }
+
+        final int count = sorted.length - offset;
+        if (count == 0) {
+            return -1;
+        }
+
+        final int rank = (int) Math.ceil(percentile / 100.0 * count);
+        return sorted[offset + Math.max(rank, 1) - 1];
+    }
+}
@@ -0,0 +1,207 @@
+/* -*- Mode: Java; c-basic-offset: 4; tab-width: 4; indent-tabs-mode: nil; -*-
+ * This Source Code Form is subject to the terms of the Mozilla Public
+ * License, v. 2.0. If a copy of the MPL was not distributed with this
+ * file, You can obtain one at http://mozilla.org/MPL/2.0/. */
+
+package org.mozilla.focus.web;
+
+import android.support.annotation.Nullable;
+import android.support.annotation.VisibleForTesting;
+
+import org.mozilla.focus.utils.TrimMemoryCoordinator;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * A RAM-only cache for images of the current browsing session. The WebView's own cache is
+ * wiped on every erase (and we don't want anything on disk), so without this cache going back or
+ * reloading fetches every image again.
+ *
+ * Only responses that explicitly allow caching (Cache-Control: max-age) are stored, and they are
+ * only served while they are fresh: There's no revalidation. Erasing the session clears the
+ * cache; responses that are still loading while the cache gets cleared are dropped.
+ */
+public class SessionResponseCache {
+    private static final int MAX_SIZE_BYTES = 8 * 1024 * 1024;
+    private static final int MAX_ENTRY_SIZE_BYTES = 1024 * 1024;
+
+    public static class Entry {
+        public final String mimeType;
+        @Nullable public final String encoding;
+        public final int statusCode;
+        public final String reasonPhrase;
+        public final Map<String, String> headers;
+        public final byte[] body;
+
+        private final long expiresAtMillis;
+
+        public Entry(String mimeType, @Nullable String encoding, int statusCode, String reasonPhrase,
+                     Map<String, String> headers, byte[] body, long expiresAtMillis) {
+            this.mimeType = mimeType;
+            this.encoding = encoding;
+            this.statusCode = statusCode;
+            this.reasonPhrase = reasonPhrase;
+            this.headers = headers;
+            this.body = body;
+            this.expiresAtMillis = expiresAtMillis;
+        }
+    }
+
+    private static final SessionResponseCache instance = new SessionResponseCache(MAX_SIZE_BYTES, MAX_ENTRY_SIZE_BYTES);
+
+    public static SessionResponseCache getInstance() {
+        return instance;
+    }
+
+    private final int maxSizeBytes;
+    private final int maxEntrySizeBytes;
+
+    private final LinkedHashMap<String, Entry> entries = new LinkedHashMap<>(16, 0.75f, true);
+    private long sizeBytes;
+
+    /**
+     * Incremented every time the cache is cleared. Responses that started loading in an earlier
+     * generation are not stored.
+     */
+    private int generation;
+
+    /**
+     * Everything in here can be fetched again.
+     */
+    private final TrimMemoryCoordinator.Trimmable trimmable = new TrimMemoryCoordinator.Trimmable() {
+        @Override
+        public long trimMemory(int level) {
+            return clear();
+        }
+    };
+
+    @VisibleForTesting SessionResponseCache(int maxSizeBytes, int maxEntrySizeBytes) {
+        this.maxSizeBytes = maxSizeBytes;
+        this.maxEntrySizeBytes = maxEntrySizeBytes;
+
+        TrimMemoryCoordinator.getInstance().register("session-response-cache", TrimMemoryCoordinator.Priority.MODERATE, trimmable);
+    }
+
+    /**
+     * Returns the cached response for the given URL if it is still fresh.
+     */
+    @Nullable
+    public synchronized Entry get(String url, long nowMillis) {
+        final Entry entry = entries.get(url);
+        if (entry == null) {
+            return null;
+        }
+
+        if (nowMillis >= entry.expiresAtMillis) {
+            remove(url);
+            return null;
+        }
+
+        return entry;
+    }
+
+    public synchronized int getGeneration() {
+        return generation;
+    }
+
+    public int getMaxEntrySizeBytes() {
+        return maxEntrySizeBytes;
+    }
+
+    /**
+     * Store a response that started loading in the given generation. Returns false if the response
+     * has not been stored (too large, or the cache has been cleared in the meantime).
+     */
+    public synchronized boolean put(String url, Entry entry, int generation) {
+        if (generation != this.generation || entry.body.length > maxEntrySizeBytes) {
+            return false;
+        }
+
+        remove(url);
+
+        entries.put(url, entry);
+        sizeBytes += entry.body.length;
+
+        final Iterator<Map.Entry<String, Entry>> iterator = entries.entrySet().iterator();
+        while (sizeBytes > maxSizeBytes && iterator.hasNext()) {
+            sizeBytes -= iterator.next().getValue().body.length;
+            iterator.remove();
+        }
+
+        return true;
+    }
+
+    /**
+     * Remove all responses. Returns the number of bytes that have been freed.
+     */
+    public synchronized long clear() {
+        final long freedBytes = sizeBytes;
+
+        entries.clear();
+        sizeBytes = 0;
+        generation++;
+
+        return freedBytes;
+    }
+
+    public synchronized long getSizeBytes() {
+        return sizeBytes;
+    }
+
+    private void remove(String url) {
+        final Entry entry = entries.remove(url);
+        if (entry != null) {
+            sizeBytes -= entry.body.length;
+        }
+    }
+
+    /**
+     * Returns for how long a response with the given Cache-Control header may be served from the
+     * cache, or 0 if it must not be cached at all.
+     */
+    public static long getMaxAgeMillis(@Nullable String cacheControl) {
+        if (cacheControl == null) {
+            return 0;
+        }
+
+        long maxAgeSeconds = 0;
+
+        for (String directive : cacheControl.toLowerCase(Locale.US).split(",")) {
+            directive = directive.trim();
+
+            if (directive.equals("no-store") || directive.equals("no-cache")) {
+                return 0;
+            }
+
+            if (directive.startsWith("max-age=")) {
+                try {
+                    maxAgeSeconds = Long.parseLong(directive.substring("max-age=".length()).replace("\"", "").trim());
+                } catch (NumberFormatException e) {
+                    return 0;
+                }
+            }
+        }
+
+        return Math.max(0, maxAgeSeconds) * 1000;
+    }
+
+    /**
+     * Whether a request with the given Cache-Control header (e.g. a reload) wants to bypass cached
+     * responses.
+     */
+    public static boolean isBypassRequested(@Nullable String cacheControl, @Nullable String pragma) {
+        if (pragma != null && pragma.toLowerCase(Locale.US).contains("no-cache")) {
+            return true;
+        }
+
+        if (cacheControl == null) {
+            return false;
+        }
+
+        final String value = cacheControl.toLowerCase(Locale.US);
+        return value.contains("no-cache") || value.contains("no-store") || value.contains("max-age=0");
+    }
+}
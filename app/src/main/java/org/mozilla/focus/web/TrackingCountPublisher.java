@@ -0,0 +1,124 @@
+/* -*- Mode: Java; c-basic-offset: 4; tab-width: 4; indent-tabs-mode: nil; -*-
+ * This Source Code Form is subject to the terms of the Mozilla Public
+ * License, v. 2.0. If a copy of the MPL was not distributed with this
+ * file, You can obtain one at http://mozilla.org/MPL/2.0/. */
+
+package org.mozilla.focus.web;
+
+import android.support.annotation.AnyThread;
+import android.support.annotation.UiThread;
+import android.support.annotation.VisibleForTesting;
+import android.view.Choreographer;
+
+import org.mozilla.focus.utils.ThreadUtils;
+
+import java.lang.ref.WeakReference;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Counts blocked trackers and tells the listener about the new count - at most once per frame.
+ *
+ * Trackers are counted on the WebView's network threads, and a page can block hundreds of them
+ * per second. Counting is a single atomic increment. Only the first change after a frame schedules
+ * the next one, and that frame delivers the latest count on the UI thread.
+ */
+/* package */ class TrackingCountPublisher {
+    /**
+     * Runs the given runnable on the UI thread when the next frame is drawn.
+     */
+    private static final Executor NEXT_FRAME_EXECUTOR = new Executor() {
+        @Override
+        public void execute(final Runnable command) {
+            ThreadUtils.postToMainThread(new Runnable() {
+                @Override
+                public void run() {
+                    Choreographer.getInstance().postFrameCallback(new Choreographer.FrameCallback() {
+                        @Override
+                        public void doFrame(long frameTimeNanos) {
+                            command.run();
+                        }
+                    });
+                }
+            });
+        }
+    };
+
+    private final Executor frameExecutor;
+
+    private final AtomicInteger count = new AtomicInteger();
+    private final AtomicBoolean frameScheduled = new AtomicBoolean();
+
+    private final Runnable publishRunnable = new Runnable() {
+        @Override
+        public void run() {
+            publish();
+        }
+    };
+
+    // Only accessed on the UI thread.
+    private WeakReference<BrowsingSession.TrackingCountListener> listenerReference = new WeakReference<>(null);
+    private int publishedCount;
+
+    /* package */ TrackingCountPublisher() {
+        this(NEXT_FRAME_EXECUTOR);
+    }
+
+    @VisibleForTesting TrackingCountPublisher(Executor frameExecutor) {
+        this.frameExecutor = frameExecutor;
+    }
+
+    @AnyThread
+    /* package */ void increment() {
+        count.incrementAndGet();
+        scheduleFrame();
+    }
+
+    @AnyThread
+    /* package */ void reset() {
+        count.set(0);
+        scheduleFrame();
+    }
+
+    @AnyThread
+    /* package */ int getCount() {
+        return count.get();
+    }
+
+    /**
+     * Set the listener and tell it about the current count right away.
+     */
+    @UiThread
+    /* package */ void setListener(BrowsingSession.TrackingCountListener listener) {
+        listenerReference = new WeakReference<>(listener);
+
+        publishedCount = count.get();
+        listener.onTrackingCountChanged(publishedCount);
+    }
+
+    private void scheduleFrame() {
+        if (frameScheduled.compareAndSet(false, true)) {
+            frameExecutor.execute(publishRunnable);
+        }
+    }
+
+    @UiThread
+    private void publish() {
+        // Clear the flag before reading the count: Anything counted from here on schedules
+        // another frame.
+        frameScheduled.set(false);
+
+        final int currentCount = count.get();
+        if (currentCount == publishedCount) {
+            return;
+        }
+
+        publishedCount = currentCount;
+
+        final BrowsingSession.TrackingCountListener listener = listenerReference.get();
+        if (listener != null) {
+            listener.onTrackingCountChanged(currentCount);
+        }
+    }
+}
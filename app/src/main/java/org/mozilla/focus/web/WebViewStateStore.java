@@ -0,0 +1,331 @@
+/* -*- Mode: Java; c-basic-offset: 4; tab-width: 4; indent-tabs-mode: nil; -*-
+ * This Source Code Form is subject to the terms of the Mozilla Public
+ * License, v. 2.0. If a copy of the MPL was not distributed with this
+ * file, You can obtain one at http://mozilla.org/MPL/2.0/. */
+
+package org.mozilla.focus.web;
+
+import android.os.Bundle;
+import android.os.Parcel;
+import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
+import android.support.annotation.VisibleForTesting;
+import android.support.annotation.WorkerThread;
+import android.util.Log;
+
+import org.mozilla.focus.utils.LatencyHistogram;
+import org.mozilla.focus.utils.ThreadUtils;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.Executor;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.DeflaterOutputStream;
+import java.util.zip.Inflater;
+
+/**
+ * Keeps the saved state of WebViews in memory while the app is in the background. The data that
+ * WebView saves is too large for Android to save and restore as part of the instance state.
+ *
+ * There's one slot per WebView: Saving the state of a WebView again replaces the previous state.
+ * Shortly after saving, the state is marshalled and compressed on a background thread. If the
+ * compressed states exceed the memory cap then the least recently used states are dropped. (A
+ * WebView without a saved state will just reload its current URL.)
+ */
+/* package */ class WebViewStateStore {
+    private static final String LOG_TAG = "WebViewStateStore";
+
+    /**
+     * Maximum size of all compressed states. The most recently saved state is always kept.
+     */
+    private static final int DEFAULT_MAX_BYTES = 2 * 1024 * 1024;
+
+    /* package */ interface Marshaller {
+        byte[] marshall(Bundle bundle);
+
+        Bundle unmarshall(byte[] data);
+    }
+
+    private static class Entry {
+        private Bundle bundle;
+        private byte[] compressed;
+        private int uncompressedSize;
+    }
+
+    private final Executor executor;
+    private final Marshaller marshaller;
+    private final int maxBytes;
+
+    /**
+     * Access-ordered: The first entry is the least recently used one.
+     */
+    private final LinkedHashMap<String, Entry> entries = new LinkedHashMap<>(4, 0.75f, true);
+
+    private long compressedBytes;
+    private long uncompressedBytes;
+    private int evictionCount;
+    private final LatencyHistogram restoreLatency = new LatencyHistogram();
+
+    /* package */ WebViewStateStore() {
+        this(new Executor() {
+            @Override
+            public void execute(Runnable runnable) {
+                ThreadUtils.postToBackgroundThread(runnable);
+            }
+        }, new ParcelMarshaller(), DEFAULT_MAX_BYTES);
+    }
+
+    @VisibleForTesting WebViewStateStore(Executor executor, Marshaller marshaller, int maxBytes) {
+        this.executor = executor;
+        this.marshaller = marshaller;
+        this.maxBytes = maxBytes;
+    }
+
+    /**
+     * Save the state for the given WebView id, replacing any previously saved state for this id.
+     */
+    public void put(@NonNull final String id, @NonNull Bundle state) {
+        final Entry entry = new Entry();
+        entry.bundle = state;
+
+        synchronized (this) {
+            removeBytes(entries.put(id, entry));
+        }
+
+        executor.execute(new Runnable() {
+            @Override
+            public void run() {
+                compress(id, entry);
+            }
+        });
+    }
+
+    @WorkerThread
+    private void compress(String id, Entry entry) {
+        final Bundle bundle;
+        synchronized (this) {
+            if (entries.get(id) != entry || entry.bundle == null) {
+                // This state has been replaced or removed already.
+                return;
+            }
+            bundle = entry.bundle;
+        }
+
+        final byte[] data = marshaller.marshall(bundle);
+        final byte[] compressed = deflate(data);
+
+        synchronized (this) {
+            if (entries.get(id) != entry) {
+                // Replaced or removed while we were compressing.
+                return;
+            }
+
+            entry.compressed = compressed;
+            entry.uncompressedSize = data.length;
+            entry.bundle = null;
+
+            compressedBytes += compressed.length;
+            uncompressedBytes += data.length;
+
+            trim();
+        }
+    }
+
+    /**
+     * Drop the least recently used states until we are below the memory cap (but always keep the
+     * most recent one).
+     */
+    private void trim() {
+        final Iterator<Map.Entry<String, Entry>> iterator = entries.entrySet().iterator();
+
+        while (compressedBytes > maxBytes && entries.size() > 1 && iterator.hasNext()) {
+            final Entry entry = iterator.next().getValue();
+            if (entry.compressed == null) {
+                // Not compressed yet (and therefore very recent).
+                continue;
+            }
+
+            iterator.remove();
+            removeBytes(entry);
+            evictionCount++;
+        }
+    }
+
+    private void removeBytes(@Nullable Entry entry) {
+        if (entry != null && entry.compressed != null) {
+            compressedBytes -= entry.compressed.length;
+            uncompressedBytes -= entry.uncompressedSize;
+        }
+    }
+
+    /**
+     * Returns the state saved for the given WebView id or null if there's none.
+     */
+    @Nullable
+    public Bundle get(@Nullable String id) {
+        if (id == null) {
+            return null;
+        }
+
+        final byte[] compressed;
+        final int uncompressedSize;
+
+        synchronized (this) {
+            final Entry entry = entries.get(id);
+            if (entry == null) {
+                return null;
+            }
+
+            if (entry.bundle != null) {
+                return entry.bundle;
+            }
+
+            compressed = entry.compressed;
+            uncompressedSize = entry.uncompressedSize;
+        }
+
+        final long start = System.nanoTime();
+
+        final Bundle state;
+        try {
+            state = marshaller.unmarshall(inflate(compressed, uncompressedSize));
+        } catch (DataFormatException e) {
+            Log.w(LOG_TAG, "Could not decompress WebView state", e);
+            return null;
+        }
+
+        restoreLatency.recordSince(start);
+
+        return state;
+    }
+
+    /**
+     * Drop all states but the most recently used one.
+     *
+     * @return The number of (compressed) bytes that have been released.
+     */
+    public synchronized long trimToNewest() {
+        final long before = compressedBytes;
+
+        final Iterator<Map.Entry<String, Entry>> iterator = entries.entrySet().iterator();
+        while (entries.size() > 1 && iterator.hasNext()) {
+            removeBytes(iterator.next().getValue());
+            iterator.remove();
+            evictionCount++;
+        }
+
+        return before - compressedBytes;
+    }
+
+    public synchronized boolean contains(@Nullable String id) {
+        return id != null && entries.containsKey(id);
+    }
+
+    public synchronized void clear() {
+        entries.clear();
+        compressedBytes = 0;
+        uncompressedBytes = 0;
+    }
+
+    public synchronized int getEntryCount() {
+        return entries.size();
+    }
+
+    /**
+     * Size of all compressed states in bytes.
+     */
+    public synchronized long getCompressedBytes() {
+        return compressedBytes;
+    }
+
+    /**
+     * Size of all compressed states before compressing them, in bytes.
+     */
+    public synchronized long getUncompressedBytes() {
+        return uncompressedBytes;
+    }
+
+    /**
+     * Number of states that have been dropped because of the memory cap.
+     */
+    public synchronized int getEvictionCount() {
+        return evictionCount;
+    }
+
+    /**
+     * Time it took to decompress and unmarshall states.
+     */
+    public LatencyHistogram getRestoreLatency() {
+        return restoreLatency;
+    }
+
+    @VisibleForTesting static byte[] deflate(byte[] data) {
+        final ByteArrayOutputStream outputStream = new ByteArrayOutputStream(data.length / 4);
+        final Deflater deflater = new Deflater(Deflater.BEST_SPEED);
+
+        try (final DeflaterOutputStream deflaterStream = new DeflaterOutputStream(outputStream, deflater)) {
+            deflaterStream.write(data);
+        } catch (IOException e) {
+            throw new AssertionError("Writing to memory should never fail", e);
+        } finally {
+            deflater.end();
+        }
+
+        return outputStream.toByteArray();
+    }
+
+    @VisibleForTesting static byte[] inflate(byte[] compressed, int uncompressedSize) throws DataFormatException {
+        final Inflater inflater = new Inflater();
+        try {
+            inflater.setInput(compressed);
+
+            final byte[] data = new byte[uncompressedSize];
+
+            int offset = 0;
+            while (offset < uncompressedSize && !inflater.finished()) {
+                final int read = inflater.inflate(data, offset, uncompressedSize - offset);
+                if (read == 0 && (inflater.needsInput() || inflater.needsDictionary())) {
+                    throw new DataFormatException("Truncated data");
+                }
+                offset += read;
+            }
+
+            if (offset != uncompressedSize) {
+                throw new DataFormatException("Unexpected size: " + offset);
+            }
+
+            return data;
+        } finally {
+            inflater.end();
+        }
+    }
+
+    private static class ParcelMarshaller implements Marshaller {
+        @Override
+        public byte[] marshall(Bundle bundle) {
+            final Parcel parcel = Parcel.obtain();
+            try {
+                parcel.writeBundle(bundle);
+                return parcel.marshall();
+            } finally {
+                parcel.recycle();
+            }
+        }
+
+        @Override
+        public Bundle unmarshall(byte[] data) {
+            final Parcel parcel = Parcel.obtain();
+            try {
+                parcel.unmarshall(data, 0, data.length);
+                parcel.setDataPosition(0);
+                return parcel.readBundle(WebViewStateStore.class.getClassLoader());
+            } finally {
+                parcel.recycle();
+            }
+        }
+    }
+}
@@ -21,6 +21,7 @@ import android.widget.Switch;
 import org.mozilla.focus.R;
 import org.mozilla.focus.activity.InfoActivity;
 import org.mozilla.focus.utils.Browsers;
+import org.mozilla.focus.utils.BrowsersCache;
 import org.mozilla.focus.utils.SupportUtils;
 
 @TargetApi(Build.VERSION_CODES.N)
@@ -49,8 +50,19 @@ public class DefaultBrowserPreference extends Preference {
 
     public void update() {
         if (switchView != null) {
-            final Browsers browsers = new Browsers(getContext(), Browsers.TRADITIONAL_BROWSER_URL);
+            final Browsers browsers = BrowsersCache.getInstance().get(getContext());
             switchView.setChecked(browsers.isDefaultBrowser(getContext()));
+
+            // We might have just returned from the system settings: Changing the default browser
+            // doesn't send a broadcast that would refresh the cached browsers.
+            BrowsersCache.getInstance().refresh(getContext(), new BrowsersCache.Callback() {
+                @Override
+                public void onBrowsersRefreshed(Browsers browsers) {
+                    if (switchView != null) {
+                        switchView.setChecked(browsers.isDefaultBrowser(getContext()));
+                    }
+                }
+            });
         }
     }
 
@@ -5,13 +5,20 @@
 
 package org.mozilla.focus.locale;
 
+import android.content.Context;
+import android.content.res.Configuration;
+import android.content.res.Resources;
+
 import org.junit.Test;
 import org.junit.runner.RunWith;
 import org.robolectric.RobolectricTestRunner;
+import org.robolectric.RuntimeEnvironment;
 
 import java.util.Locale;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
 
 @RunWith(RobolectricTestRunner.class)
 public class LocalesTest {
@@ -51,4 +58,37 @@ public class LocalesTest {
         assertEquals("en", Locales.getLanguage(locale));
         assertEquals("en", Locales.getLanguageTag(locale));
     }
-}
\ No newline at end of file
+
+    @Test
+    public void testLocalizedResourcesAreCachedUntilLocaleChanges() {
+        final Context context = RuntimeEnvironment.application;
+        final LocaleManager localeManager = LocaleManager.getInstance();
+
+        try {
+            localeManager.setSelectedLocale(context, "de");
+
+            final Context englishContext = createContext(context, Locale.US);
+            final int created = Locales.getLocalizedResourcesCreationCount();
+
+            final Resources first = Locales.getLocalizedResources(englishContext);
+            final Resources second = Locales.getLocalizedResources(englishContext);
+
+            assertSame(first, second);
+            assertEquals(created + 1, Locales.getLocalizedResourcesCreationCount());
+
+            localeManager.setSelectedLocale(context, "fr");
+
+            assertNotSame(first, Locales.getLocalizedResources(englishContext));
+            assertEquals(created + 2, Locales.getLocalizedResourcesCreationCount());
+        } finally {
+            localeManager.resetToSystemLocale(context);
+        }
+    }
+
+    private static Context createContext(Context context, Locale locale) {
+        final Configuration configuration = new Configuration(context.getResources().getConfiguration());
+        configuration.setLocale(locale);
+
+        return context.createConfigurationContext(configuration);
+    }
+}
@@ -2,10 +2,9 @@
  * This Source Code Form is subject to the terms of the Mozilla Public
  * License, v. 2.0. If a copy of the MPL was not distributed with this
  * file, You can obtain one at http://mozilla.org/MPL/2.0/. */
-package org.mozilla.focus.webkit.matcher;
+package org.mozilla.focus.matcher;
 
 import android.content.SharedPreferences;
-import android.net.Uri;
 import android.os.StrictMode;
 import android.preference.PreferenceManager;
 
@@ -66,19 +65,19 @@ public class DisconnectTest {
 
         // We check that our google_mapping was loaded correctly. We do these checks per-category, so we have:
         // ads:
-        assertTrue(matcher.matches(Uri.parse("http://admeld.com/foobar"), Uri.parse("http://mozilla.org")));
+        assertTrue(matcher.matches("http://admeld.com/foobar", "http://mozilla.org"));
         // And we check that the entitylist unblocks this on google properties:
-        assertFalse(matcher.matches(Uri.parse("http://admeld.com/foobar"), Uri.parse("http://google.com")));
+        assertFalse(matcher.matches("http://admeld.com/foobar", "http://google.com"));
         // analytics:
-        assertTrue(matcher.matches(Uri.parse("http://google-analytics.com/foobar"), Uri.parse("http://mozilla.org")));
-        assertFalse(matcher.matches(Uri.parse("http://google-analytics.com/foobar"), Uri.parse("http://google.com")));
+        assertTrue(matcher.matches("http://google-analytics.com/foobar", "http://mozilla.org"));
+        assertFalse(matcher.matches("http://google-analytics.com/foobar", "http://google.com"));
         // social:
-        assertTrue(matcher.matches(Uri.parse("http://plus.google.com/something"), Uri.parse("http://mozilla.org")));
-        assertFalse(matcher.matches(Uri.parse("http://plus.google.com/something"), Uri.parse("http://google.com")));
+        assertTrue(matcher.matches("http://plus.google.com/something", "http://mozilla.org"));
+        assertFalse(matcher.matches("http://plus.google.com/something", "http://google.com"));
 
         // Facebook is special in that we move it from "Disconnect" into social:
-        assertTrue(matcher.matches(Uri.parse("http://facebook.fr"), Uri.parse("http://mozilla.org")));
-        assertFalse(matcher.matches(Uri.parse("http://facebook.fr"), Uri.parse("http://facebook.com")));
+        assertTrue(matcher.matches("http://facebook.fr", "http://mozilla.org"));
+        assertFalse(matcher.matches("http://facebook.fr", "http://facebook.com"));
 
         // Now disable social, and check that only social sites have changed:
         prefs.edit()
@@ -89,18 +88,18 @@ public class DisconnectTest {
                 .commit();
 
         // ads:
-        assertTrue(matcher.matches(Uri.parse("http://admeld.com/foobar"), Uri.parse("http://mozilla.org")));
-        assertFalse(matcher.matches(Uri.parse("http://admeld.com/foobar"), Uri.parse("http://google.com")));
+        assertTrue(matcher.matches("http://admeld.com/foobar", "http://mozilla.org"));
+        assertFalse(matcher.matches("http://admeld.com/foobar", "http://google.com"));
         // analytics:
-        assertTrue(matcher.matches(Uri.parse("http://google-analytics.com/foobar"), Uri.parse("http://mozilla.org")));
-        assertFalse(matcher.matches(Uri.parse("http://google-analytics.com/foobar"), Uri.parse("http://google.com")));
+        assertTrue(matcher.matches("http://google-analytics.com/foobar", "http://mozilla.org"));
+        assertFalse(matcher.matches("http://google-analytics.com/foobar", "http://google.com"));
         // social:
-        assertFalse(matcher.matches(Uri.parse("http://plus.google.com/something"), Uri.parse("http://mozilla.org")));
-        assertFalse(matcher.matches(Uri.parse("http://plus.google.com/something"), Uri.parse("http://google.com")));
+        assertFalse(matcher.matches("http://plus.google.com/something", "http://mozilla.org"));
+        assertFalse(matcher.matches("http://plus.google.com/something", "http://google.com"));
 
         // And facebook which has been moved from Disconnect into social
-        assertFalse(matcher.matches(Uri.parse("http://facebook.fr"), Uri.parse("http://mozilla.org")));
-        assertFalse(matcher.matches(Uri.parse("http://facebook.fr"), Uri.parse("http://facebook.com")));
+        assertFalse(matcher.matches("http://facebook.fr", "http://mozilla.org"));
+        assertFalse(matcher.matches("http://facebook.fr", "http://facebook.com"));
 
         // Now disable everything - all sites should work:
         prefs.edit()
@@ -111,17 +110,17 @@ public class DisconnectTest {
                 .commit();
 
         // ads:
-        assertFalse(matcher.matches(Uri.parse("http://admeld.com/foobar"), Uri.parse("http://mozilla.org")));
-        assertFalse(matcher.matches(Uri.parse("http://admeld.com/foobar"), Uri.parse("http://google.com")));
+        assertFalse(matcher.matches("http://admeld.com/foobar", "http://mozilla.org"));
+        assertFalse(matcher.matches("http://admeld.com/foobar", "http://google.com"));
         // analytics:
-        assertFalse(matcher.matches(Uri.parse("http://google-analytics.com/foobar"), Uri.parse("http://mozilla.org")));
-        assertFalse(matcher.matches(Uri.parse("http://google-analytics.com/foobar"), Uri.parse("http://google.com")));
+        assertFalse(matcher.matches("http://google-analytics.com/foobar", "http://mozilla.org"));
+        assertFalse(matcher.matches("http://google-analytics.com/foobar", "http://google.com"));
         // social:
-        assertFalse(matcher.matches(Uri.parse("http://plus.google.com/something"), Uri.parse("http://mozilla.org")));
-        assertFalse(matcher.matches(Uri.parse("http://plus.google.com/something"), Uri.parse("http://google.com")));
+        assertFalse(matcher.matches("http://plus.google.com/something", "http://mozilla.org"));
+        assertFalse(matcher.matches("http://plus.google.com/something", "http://google.com"));
 
         // Facebook is special in that we move it from "Disconnect" into social:
-        assertFalse(matcher.matches(Uri.parse("http://facebook.fr"), Uri.parse("http://mozilla.org")));
-        assertFalse(matcher.matches(Uri.parse("http://facebook.fr"), Uri.parse("http://facebook.com")));
+        assertFalse(matcher.matches("http://facebook.fr", "http://mozilla.org"));
+        assertFalse(matcher.matches("http://facebook.fr", "http://facebook.com"));
     }
 }
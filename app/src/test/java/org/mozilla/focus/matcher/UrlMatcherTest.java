@@ -2,18 +2,17 @@
  * This Source Code Form is subject to the terms of the Mozilla Public
  * License, v. 2.0. If a copy of the MPL was not distributed with this
  * file, You can obtain one at http://mozilla.org/MPL/2.0/. */
-package org.mozilla.focus.webkit.matcher;
+package org.mozilla.focus.matcher;
 
 import android.app.Application;
 import android.content.SharedPreferences;
-import android.net.Uri;
 import android.preference.PreferenceManager;
 
 import junit.framework.Assert;
 
 import org.junit.Test;
 import org.junit.runner.RunWith;
-import org.mozilla.focus.webkit.matcher.util.FocusString;
+import org.mozilla.focus.matcher.util.FocusString;
 import org.robolectric.RobolectricTestRunner;
 import org.robolectric.RuntimeEnvironment;
 
@@ -31,25 +30,25 @@ public class UrlMatcherTest {
                 "bcd.random"
         });
 
-        assertTrue(matcher.matches(Uri.parse("http://bcd.random/something"), Uri.parse("http://mozilla.org")));
-        assertTrue(matcher.matches(Uri.parse("http://bcd.random"), Uri.parse("http://mozilla.org")));
-        assertTrue(matcher.matches(Uri.parse("http://www.bcd.random"), Uri.parse("http://mozilla.org")));
-        assertTrue(matcher.matches(Uri.parse("http://www.bcd.random/something"), Uri.parse("http://mozilla.org")));
-        assertTrue(matcher.matches(Uri.parse("http://foobar.bcd.random"), Uri.parse("http://mozilla.org")));
-        assertTrue(matcher.matches(Uri.parse("http://foobar.bcd.random/something"), Uri.parse("http://mozilla.org")));
-
-        assertTrue(!matcher.matches(Uri.parse("http://other.random"), Uri.parse("http://mozilla.org")));
-        assertTrue(!matcher.matches(Uri.parse("http://other.random/something"), Uri.parse("http://mozilla.org")));
-        assertTrue(!matcher.matches(Uri.parse("http://www.other.random"), Uri.parse("http://mozilla.org")));
-        assertTrue(!matcher.matches(Uri.parse("http://www.other.random/something"), Uri.parse("http://mozilla.org")));
-        assertTrue(!matcher.matches(Uri.parse("http://bcd.specific"), Uri.parse("http://mozilla.org")));
-        assertTrue(!matcher.matches(Uri.parse("http://bcd.specific/something"), Uri.parse("http://mozilla.org")));
-        assertTrue(!matcher.matches(Uri.parse("http://www.bcd.specific"), Uri.parse("http://mozilla.org")));
-        assertTrue(!matcher.matches(Uri.parse("http://www.bcd.specific/something"), Uri.parse("http://mozilla.org")));
+        assertTrue(matcher.matches("http://bcd.random/something", "http://mozilla.org"));
+        assertTrue(matcher.matches("http://bcd.random", "http://mozilla.org"));
+        assertTrue(matcher.matches("http://www.bcd.random", "http://mozilla.org"));
+        assertTrue(matcher.matches("http://www.bcd.random/something", "http://mozilla.org"));
+        assertTrue(matcher.matches("http://foobar.bcd.random", "http://mozilla.org"));
+        assertTrue(matcher.matches("http://foobar.bcd.random/something", "http://mozilla.org"));
+
+        assertTrue(!matcher.matches("http://other.random", "http://mozilla.org"));
+        assertTrue(!matcher.matches("http://other.random/something", "http://mozilla.org"));
+        assertTrue(!matcher.matches("http://www.other.random", "http://mozilla.org"));
+        assertTrue(!matcher.matches("http://www.other.random/something", "http://mozilla.org"));
+        assertTrue(!matcher.matches("http://bcd.specific", "http://mozilla.org"));
+        assertTrue(!matcher.matches("http://bcd.specific/something", "http://mozilla.org"));
+        assertTrue(!matcher.matches("http://www.bcd.specific", "http://mozilla.org"));
+        assertTrue(!matcher.matches("http://www.bcd.specific/something", "http://mozilla.org"));
 
         // Check that we still do matching for data: URIs
-        assertFalse(matcher.matches(Uri.parse("http://mozilla.org/resource"), Uri.parse("data:text/html;stuff here")));
-        assertTrue(matcher.matches(Uri.parse("http://bcd.random/resource"), Uri.parse("data:text/html;stuff here")));
+        assertFalse(matcher.matches("http://mozilla.org/resource", "data:text/html;stuff here"));
+        assertTrue(matcher.matches("http://bcd.random/resource", "data:text/html;stuff here"));
     }
 
     @Test
@@ -131,7 +130,7 @@ public class UrlMatcherTest {
                 final String url = "http://category" + currentCategory + ".com";
 
                 Assert.assertEquals("Incorrect category matched for combo=" + categoryPattern + " url=" + url,
-                        enabled, matcher.matches(Uri.parse(url), Uri.parse("http://www.mozilla.org")));
+                        enabled, matcher.matches(url, "http://www.mozilla.org"));
             }
         }
     }
@@ -0,0 +1,80 @@
+/* -*- Mode: Java; c-basic-offset: 4; tab-width: 20; indent-tabs-mode: nil; -*-
+ * This Source Code Form is subject to the terms of the Mozilla Public
+ * License, v. 2.0. If a copy of the MPL was not distributed with this
+ * file, You can obtain one at http://mozilla.org/MPL/2.0/. */
+
+package org.mozilla.focus.search;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+@RunWith(RobolectricTestRunner.class)
+public class SearchEngineCacheTest {
+    @Test
+    public void testRoundTrip() throws Exception {
+        final List<SearchEngine> searchEngines = new ArrayList<>();
+        searchEngines.add(loadEngine("google"));
+        searchEngines.add(loadEngine("duckduckgo"));
+
+        final byte[] cache = writeCache("8/1234", "de-DE", searchEngines);
+        final List<SearchEngine> cachedEngines = SearchEngineCache.read(new ByteArrayInputStream(cache), "8/1234", "de-DE");
+
+        assertNotNull(cachedEngines);
+        assertEquals(searchEngines.size(), cachedEngines.size());
+
+        for (int i = 0; i < searchEngines.size(); i++) {
+            final SearchEngine expected = searchEngines.get(i);
+            final SearchEngine actual = cachedEngines.get(i);
+
+            assertEquals(expected.getIdentifier(), actual.getIdentifier());
+            assertEquals(expected.getName(), actual.getName());
+            assertEquals(expected.getSearchTermsParamName(), actual.getSearchTermsParamName());
+            assertEquals(expected.resultsUris, actual.resultsUris);
+            assertArrayEquals(expected.iconBytes, actual.iconBytes);
+            assertEquals(expected.buildSearchUrl("mozilla focus"), actual.buildSearchUrl("mozilla focus"));
+        }
+    }
+
+    @Test
+    public void testInvalidatedByAppVersion() throws Exception {
+        final List<SearchEngine> searchEngines = new ArrayList<>();
+        searchEngines.add(loadEngine("google"));
+
+        final byte[] cache = writeCache("8/1234", "en-US", searchEngines);
+
+        assertNull(SearchEngineCache.read(new ByteArrayInputStream(cache), "9/5678", "en-US"));
+    }
+
+    @Test
+    public void testInvalidatedByLocale() throws Exception {
+        final List<SearchEngine> searchEngines = new ArrayList<>();
+        searchEngines.add(loadEngine("google"));
+
+        final byte[] cache = writeCache("8/1234", "en-US", searchEngines);
+
+        assertNull(SearchEngineCache.read(new ByteArrayInputStream(cache), "8/1234", "de-DE"));
+    }
+
+    private static byte[] writeCache(String appVersion, String localeTag, List<SearchEngine> searchEngines) throws Exception {
+        final ByteArrayOutputStream stream = new ByteArrayOutputStream();
+        SearchEngineCache.write(stream, appVersion, localeTag, searchEngines);
+        return stream.toByteArray();
+    }
+
+    private static SearchEngine loadEngine(String identifier) throws Exception {
+        final ClassLoader classLoader = SearchEngineCacheTest.class.getClassLoader();
+
+        try (final InputStream stream = classLoader.getResourceAsStream("search/default/" + identifier + ".xml")) {
+            return SearchEngineParser.load(identifier, stream);
+        }
+    }
+}
@@ -0,0 +1,189 @@
+/* -*- Mode: Java; c-basic-offset: 4; tab-width: 20; indent-tabs-mode: nil; -*-
+ * This Source Code Form is subject to the terms of the Mozilla Public
+ * License, v. 2.0. If a copy of the MPL was not distributed with this
+ * file, You can obtain one at http://mozilla.org/MPL/2.0/. */
+
+package org.mozilla.focus.search;
+
+import android.content.Context;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mozilla.focus.utils.Settings;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.RuntimeEnvironment;
+import org.robolectric.shadows.ShadowLooper;
+
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.Assert.*;
+
+@RunWith(RobolectricTestRunner.class)
+public class SearchEngineManagerTest {
+    private static class RecordingCallback implements SearchEngineManager.SearchEnginesCallback {
+        private List<SearchEngine> searchEngines;
+
+        @Override
+        public void onSearchEnginesLoaded(List<SearchEngine> searchEngines) {
+            this.searchEngines = searchEngines;
+        }
+    }
+
+    private Context context;
+    private SearchEngineManager manager;
+
+    @Before
+    public void setUp() {
+        context = RuntimeEnvironment.application;
+        manager = new SearchEngineManager();
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void testAsyncWithoutInitThrows() {
+        manager.getSearchEnginesAsync(new RecordingCallback());
+    }
+
+    @Test
+    public void testAsyncCallbackWaitsForLoading() throws Exception {
+        final List<SearchEngine> searchEngines = loadEngines("google", "duckduckgo");
+
+        final CountDownLatch latch = manager.startLoading();
+
+        final RecordingCallback callback = new RecordingCallback();
+        manager.getSearchEnginesAsync(callback);
+
+        ShadowLooper.runUiThreadTasks();
+        assertNull(callback.searchEngines);
+
+        manager.onSearchEnginesLoaded(context, latch, searchEngines);
+        ShadowLooper.runUiThreadTasks();
+
+        assertSame(searchEngines, callback.searchEngines);
+        assertEquals(0, manager.getBlockedCallCount());
+    }
+
+    @Test
+    public void testAsyncCallbackIsCalledRightAwayOnceLoaded() throws Exception {
+        final List<SearchEngine> searchEngines = loadEngines("google");
+
+        manager.onSearchEnginesLoaded(context, manager.startLoading(), searchEngines);
+
+        final RecordingCallback callback = new RecordingCallback();
+        manager.getSearchEnginesAsync(callback);
+
+        assertSame(searchEngines, callback.searchEngines);
+    }
+
+    @Test
+    public void testCallbacksOfSupersededLoadGetNewerEngines() throws Exception {
+        final CountDownLatch firstLatch = manager.startLoading();
+
+        final RecordingCallback callback = new RecordingCallback();
+        manager.getSearchEnginesAsync(callback);
+
+        // The locale changes while we are still loading.
+        final CountDownLatch secondLatch = manager.startLoading();
+        manager.onSearchEnginesLoaded(context, firstLatch, loadEngines("google"));
+        ShadowLooper.runUiThreadTasks();
+
+        assertNull(callback.searchEngines);
+
+        final List<SearchEngine> searchEngines = loadEngines("duckduckgo");
+        manager.onSearchEnginesLoaded(context, secondLatch, searchEngines);
+        ShadowLooper.runUiThreadTasks();
+
+        assertSame(searchEngines, callback.searchEngines);
+    }
+
+    @Test
+    public void testSnapshotIsUsedWhileLoading() throws Exception {
+        final SearchEngine google = loadEngines("google").get(0);
+        Settings.getInstance(context).setDefaultSearchEngineSnapshot(google);
+
+        manager.startLoading();
+
+        // Neither of these would return if they waited for the search engines.
+        assertEquals(google.buildSearchUrl("mozilla focus"), manager.createSearchUrl(context, "mozilla focus"));
+        assertEquals("google", manager.getDefaultSearchEngineIdentifier(context));
+
+        assertEquals(2, manager.getFastPathCount());
+        assertEquals(0, manager.getBlockedCallCount());
+    }
+
+    @Test
+    public void testSnapshotIsWrittenOnceLoaded() throws Exception {
+        final List<SearchEngine> searchEngines = loadEngines("duckduckgo", "google");
+
+        manager.onSearchEnginesLoaded(context, manager.startLoading(), searchEngines);
+
+        final Settings settings = Settings.getInstance(context);
+        assertEquals("duckduckgo", settings.getDefaultSearchEngineIdentifier());
+        assertEquals(searchEngines.get(0).getBaseSearchUrl(), settings.getDefaultSearchEngineTemplate());
+    }
+
+    @Test
+    public void testSnapshotIsNotUsedOnceLoaded() throws Exception {
+        Settings.getInstance(context).setDefaultSearchEngineSnapshot(loadEngines("google").get(0));
+
+        final SearchEngine duckduckgo = loadEngines("duckduckgo").get(0);
+        manager.onSearchEnginesLoaded(context, manager.startLoading(), Collections.singletonList(duckduckgo));
+
+        assertEquals(duckduckgo.buildSearchUrl("mozilla"), manager.createSearchUrl(context, "mozilla"));
+        assertEquals(0, manager.getFastPathCount());
+        assertEquals(0, manager.getBlockedCallCount());
+    }
+
+    @Test
+    public void testBlockedCallsAreRecorded() throws Exception {
+        final List<SearchEngine> searchEngines = loadEngines("google");
+        final CountDownLatch latch = manager.startLoading();
+
+        final AtomicReference<List<SearchEngine>> result = new AtomicReference<>();
+        final Thread thread = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                result.set(manager.getSearchEngines());
+            }
+        });
+        thread.start();
+
+        // Wait until the thread is blocked on the latch before finishing the load.
+        while (thread.getState() != Thread.State.WAITING) {
+            assertTrue(thread.isAlive());
+            Thread.sleep(1);
+        }
+
+        manager.onSearchEnginesLoaded(context, latch, searchEngines);
+        thread.join();
+
+        assertSame(searchEngines, result.get());
+        assertEquals(1, manager.getBlockedCallCount());
+        assertTrue(manager.getMaxWaitMillis() <= manager.getTotalWaitMillis());
+
+        // Now that the search engines are loaded, nothing blocks anymore.
+        manager.getSearchEngines();
+        manager.getDefaultSearchEngine(context);
+
+        assertEquals(1, manager.getBlockedCallCount());
+        assertEquals(0, manager.getFastPathCount());
+    }
+
+    private static List<SearchEngine> loadEngines(String... identifiers) throws Exception {
+        final ClassLoader classLoader = SearchEngineManagerTest.class.getClassLoader();
+        final List<SearchEngine> searchEngines = new ArrayList<>();
+
+        for (final String identifier : identifiers) {
+            try (final InputStream stream = classLoader.getResourceAsStream("search/default/" + identifier + ".xml")) {
+                searchEngines.add(SearchEngineParser.load(identifier, stream));
+            }
+        }
+
+        return searchEngines;
+    }
+}
@@ -0,0 +1,121 @@
+/* -*- Mode: Java; c-basic-offset: 4; tab-width: 20; indent-tabs-mode: nil; -*-
+ * This Source Code Form is subject to the terms of the Mozilla Public
+ * License, v. 2.0. If a copy of the MPL was not distributed with this
+ * file, You can obtain one at http://mozilla.org/MPL/2.0/. */
+
+package org.mozilla.focus.search;
+
+import org.junit.Ignore;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+
+public class SearchUrlTemplateTest {
+    private static final String[] TEMPLATES = {
+            "https://www.google.com/search?q={searchTerms}&ie={inputEncoding?}&oe={outputEncoding}&hl={moz:locale}",
+            "https://duckduckgo.com/?q={searchTerms}&t=fpas",
+            "https://{language}.wikipedia.org/wiki/Special:Search?search={searchTerms}&sourceid=Mozilla-search",
+            "https://search.yahoo.com/search?p={searchTerms}&ei={inputEncoding}&fr={moz:distributionID}&official={moz:official}",
+            "https://example.org/?q={searchTerms?}&page={startPage?}&count={count?}&geo={geo:locale?}",
+            "https://example.org/?q={searchTerms}&unknown={unknown}&broken={&x=}",
+            "https://example.org/?q={searchTerms}&nested={a{startIndex?}&lang={language?}",
+            "https://example.org/{searchTerms}/}{/{",
+            "no parameters at all",
+    };
+
+    private static final String[] SEARCH_TERMS = {
+            "mozilla",
+            "firefox%20focus",
+            "%7BsearchTerms%7D",
+            "",
+    };
+
+    @Test
+    public void testMatchesRegexSubstitution() {
+        for (final String template : TEMPLATES) {
+            final SearchUrlTemplate compiled = SearchUrlTemplate.compile(template);
+
+            for (final String searchTerm : SEARCH_TERMS) {
+                assertEquals(template,
+                        RegexSubstitution.substitute(template, searchTerm, "de_DE"),
+                        compiled.build(searchTerm, "de_DE"));
+            }
+        }
+    }
+
+    @Test
+    public void testParameters() {
+        assertEquals("https://example.org/?q=test&hl=en_US&ie=UTF-8&dist=&official=unofficial&opt=",
+                SearchUrlTemplate.compile("https://example.org/?q={searchTerms}&hl={moz:locale}&ie={inputEncoding}"
+                        + "&dist={moz:distributionID}&official={moz:official}&opt={startPage?}")
+                        .build("test", "en_US"));
+    }
+
+    /**
+     * Micro-benchmark comparing the compiled template with the previous implementation (one
+     * String.replaceAll() per parameter). The results are only printed; asserting timings would
+     * make this test flaky. Ignored so that it doesn't slow down every test run: Remove the
+     * annotation to run it locally.
+     */
+    @Ignore("Benchmark")
+    @Test
+    public void benchmarkAgainstRegexSubstitution() {
+        final String template = TEMPLATES[0];
+        final SearchUrlTemplate compiled = SearchUrlTemplate.compile(template);
+
+        final int warmup = 2000;
+        final int iterations = 20000;
+
+        for (int i = 0; i < warmup; i++) {
+            RegexSubstitution.substitute(template, "warmup" + i, "en_US");
+            compiled.build("warmup" + i, "en_US");
+        }
+
+        long start = System.nanoTime();
+        for (int i = 0; i < iterations; i++) {
+            RegexSubstitution.substitute(template, "query" + i, "en_US");
+        }
+        final long regexNanos = System.nanoTime() - start;
+
+        start = System.nanoTime();
+        for (int i = 0; i < iterations; i++) {
+            compiled.build("query" + i, "en_US");
+        }
+        final long compiledNanos = System.nanoTime() - start;
+
+        System.out.println(String.format("Search URL (%d iterations): replaceAll %.0f ns/op, compiled %.0f ns/op",
+                iterations, (double) regexNanos / iterations, (double) compiledNanos / iterations));
+    }
+
+    /**
+     * The implementation SearchEngine used before compiling templates. Compiled templates must
+     * build the same URLs.
+     */
+    private static class RegexSubstitution {
+        private static final String MOZ_PARAM_LOCALE = "\\{moz:locale\\}";
+        private static final String MOZ_PARAM_DIST_ID = "\\{moz:distributionID\\}";
+        private static final String MOZ_PARAM_OFFICIAL = "\\{moz:official\\}";
+
+        private static final String OS_PARAM_USER_DEFINED = "\\{searchTerms\\??\\}";
+        private static final String OS_PARAM_INPUT_ENCODING = "\\{inputEncoding\\??\\}";
+        private static final String OS_PARAM_LANGUAGE = "\\{language\\??\\}";
+        private static final String OS_PARAM_OUTPUT_ENCODING = "\\{outputEncoding\\??\\}";
+        private static final String OS_PARAM_OPTIONAL = "\\{(?:\\w+:)?\\w+\\?\\}";
+
+        private static String substitute(String template, String query, String locale) {
+            template = template.replaceAll(MOZ_PARAM_LOCALE, locale);
+            template = template.replaceAll(MOZ_PARAM_DIST_ID, "");
+            template = template.replaceAll(MOZ_PARAM_OFFICIAL, "unofficial");
+
+            template = template.replaceAll(OS_PARAM_USER_DEFINED, query);
+            template = template.replaceAll(OS_PARAM_INPUT_ENCODING, "UTF-8");
+
+            template = template.replaceAll(OS_PARAM_LANGUAGE, locale);
+            template = template.replaceAll(OS_PARAM_OUTPUT_ENCODING, "UTF-8");
+
+            template = template.replaceAll(OS_PARAM_OPTIONAL, "");
+
+            return template;
+        }
+    }
+}
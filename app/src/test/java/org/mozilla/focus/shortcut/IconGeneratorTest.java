@@ -4,9 +4,13 @@
 
 package org.mozilla.focus.shortcut;
 
+import android.content.Context;
+import android.graphics.Bitmap;
+
 import org.junit.Test;
 import org.junit.runner.RunWith;
 import org.robolectric.RobolectricTestRunner;
+import org.robolectric.RuntimeEnvironment;
 
 import static org.junit.Assert.*;
 
@@ -57,4 +61,14 @@ public class IconGeneratorTest {
         // IP
         assertEquals("1", IconGenerator.getRepresentativeCharacter("https://192.168.0.1"));
     }
+
+    @Test
+    public void testLauncherIconsAreCachedPerCharacter() {
+        final Context context = RuntimeEnvironment.application;
+
+        final Bitmap mozilla = IconGenerator.generateLauncherIcon(context, "https://www.mozilla.org");
+
+        assertSame(mozilla, IconGenerator.generateLauncherIcon(context, "https://m.mdn.mozilla.net"));
+        assertNotSame(mozilla, IconGenerator.generateLauncherIcon(context, "https://wikipedia.org"));
+    }
 }
@@ -0,0 +1,72 @@
+/* -*- Mode: Java; c-basic-offset: 4; tab-width: 20; indent-tabs-mode: nil; -*-
+ * This Source Code Form is subject to the terms of the Mozilla Public
+ * License, v. 2.0. If a copy of the MPL was not distributed with this
+ * file, You can obtain one at http://mozilla.org/MPL/2.0/. */
+
+package org.mozilla.focus.startup;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+
+public class StartupSchedulerTest {
+    @Test
+    public void testSortKeepsOrderWithoutDependencies() {
+        final List<StartupTask> sorted = StartupScheduler.sort(Arrays.asList(
+                task("a", StartupTask.Phase.BEFORE_FIRST_FRAME),
+                task("b", StartupTask.Phase.BEFORE_FIRST_FRAME),
+                task("c", StartupTask.Phase.BEFORE_FIRST_FRAME)));
+
+        assertEquals(Arrays.asList("a", "b", "c"), names(sorted));
+    }
+
+    @Test
+    public void testSortByPhaseAndDependencies() {
+        final List<StartupTask> sorted = StartupScheduler.sort(Arrays.asList(
+                task("idle", StartupTask.Phase.IDLE, "after"),
+                task("after", StartupTask.Phase.AFTER_FIRST_FRAME, "telemetry"),
+                task("telemetry", StartupTask.Phase.BEFORE_FIRST_FRAME, "preferences"),
+                task("preferences", StartupTask.Phase.BEFORE_FIRST_FRAME)));
+
+        assertEquals(Arrays.asList("preferences", "telemetry", "after", "idle"), names(sorted));
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void testUnknownDependency() {
+        StartupScheduler.sort(Arrays.asList(
+                task("a", StartupTask.Phase.BEFORE_FIRST_FRAME, "unknown")));
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void testDependencyInLaterPhase() {
+        StartupScheduler.sort(Arrays.asList(
+                task("a", StartupTask.Phase.BEFORE_FIRST_FRAME, "b"),
+                task("b", StartupTask.Phase.IDLE)));
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void testCycle() {
+        StartupScheduler.sort(Arrays.asList(
+                task("a", StartupTask.Phase.AFTER_FIRST_FRAME, "b"),
+                task("b", StartupTask.Phase.AFTER_FIRST_FRAME, "a")));
+    }
+
+    private static StartupTask task(String name, StartupTask.Phase phase, String... dependencies) {
+        return new StartupTask(name, phase, dependencies) {
+            @Override
+            public void run() {}
+        };
+    }
+
+    private static List<String> names(List<StartupTask> tasks) {
+        final List<String> names = new ArrayList<>();
+        for (final StartupTask task : tasks) {
+            names.add(task.getName());
+        }
+        return names;
+    }
+}
@@ -0,0 +1,106 @@
+/* -*- Mode: Java; c-basic-offset: 4; tab-width: 20; indent-tabs-mode: nil; -*-
+ * This Source Code Form is subject to the terms of the Mozilla Public
+ * License, v. 2.0. If a copy of the MPL was not distributed with this
+ * file, You can obtain one at http://mozilla.org/MPL/2.0/. */
+
+package org.mozilla.focus.telemetry;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.Executor;
+
+import static org.junit.Assert.*;
+
+public class TelemetryEventBufferTest {
+    @Test
+    public void testEventsAreFlushedInBatchesAtThreshold() {
+        final ManualExecutor executor = new ManualExecutor();
+        final RecordingSink sink = new RecordingSink();
+        final TelemetryEventBuffer<String> buffer = new TelemetryEventBuffer<>(executor, sink, 100, 3);
+
+        buffer.add("a");
+        buffer.add("b");
+        assertEquals(0, executor.pending.size());
+
+        buffer.add("c");
+        assertEquals(1, executor.pending.size());
+
+        // Events added before the flush runs are part of the same batch
+        buffer.add("d");
+        assertEquals(1, executor.pending.size());
+
+        executor.runAll();
+
+        assertEquals(1, sink.batches.size());
+        assertEquals(Arrays.asList("a", "b", "c", "d"), sink.batches.get(0));
+        assertEquals(4, buffer.getFlushedEventCount());
+        assertEquals(1, buffer.getFlushLatency().getCount());
+    }
+
+    @Test
+    public void testExplicitFlush() {
+        final ManualExecutor executor = new ManualExecutor();
+        final RecordingSink sink = new RecordingSink();
+        final TelemetryEventBuffer<String> buffer = new TelemetryEventBuffer<>(executor, sink, 100, 10);
+
+        buffer.add("a");
+        buffer.flush();
+        executor.runAll();
+
+        assertEquals(1, sink.batches.size());
+        assertEquals(Arrays.asList("a"), sink.batches.get(0));
+
+        // Flushing an empty buffer doesn't write anything
+        buffer.flush();
+        executor.runAll();
+
+        assertEquals(1, sink.batches.size());
+    }
+
+    @Test
+    public void testEventsAreDroppedIfBufferIsFull() {
+        final ManualExecutor executor = new ManualExecutor();
+        final RecordingSink sink = new RecordingSink();
+        final TelemetryEventBuffer<String> buffer = new TelemetryEventBuffer<>(executor, sink, 2, 10);
+
+        assertTrue(buffer.add("a"));
+        assertTrue(buffer.add("b"));
+        assertFalse(buffer.add("c"));
+        assertEquals(1, buffer.getDroppedEventCount());
+
+        buffer.flush();
+        executor.runAll();
+
+        assertEquals(Arrays.asList("a", "b"), sink.batches.get(0));
+
+        // There's space again after flushing
+        assertTrue(buffer.add("d"));
+    }
+
+    private static class ManualExecutor implements Executor {
+        private final List<Runnable> pending = new ArrayList<>();
+
+        @Override
+        public void execute(Runnable runnable) {
+            pending.add(runnable);
+        }
+
+        private void runAll() {
+            while (!pending.isEmpty()) {
+                pending.remove(0).run();
+            }
+        }
+    }
+
+    private static class RecordingSink implements TelemetryEventBuffer.Sink<String> {
+        private final List<List<String>> batches = new ArrayList<>();
+
+        @Override
+        public void write(List<String> events) {
+            batches.add(events);
+        }
+    }
+}
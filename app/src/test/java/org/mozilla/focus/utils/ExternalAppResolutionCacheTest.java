@@ -0,0 +1,124 @@
+/* -*- Mode: Java; c-basic-offset: 4; tab-width: 20; indent-tabs-mode: nil; -*-
+ * This Source Code Form is subject to the terms of the Mozilla Public
+ * License, v. 2.0. If a copy of the MPL was not distributed with this
+ * file, You can obtain one at http://mozilla.org/MPL/2.0/. */
+
+package org.mozilla.focus.utils;
+
+import android.content.Intent;
+import android.net.Uri;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+@RunWith(RobolectricTestRunner.class)
+public class ExternalAppResolutionCacheTest {
+    private static final String KEY_MAPS = createKey("geo:0,0?q=mozilla");
+    private static final String KEY_MARKET = createKey("market://details?id=com.example");
+
+    @Test
+    public void testHitAvoidsIpcCalls() {
+        final ExternalAppResolutionCache cache = new ExternalAppResolutionCache(1000, 10);
+
+        assertNull(cache.get(KEY_MAPS, 0));
+
+        final ExternalAppResolutionCache.Resolution resolution = new ExternalAppResolutionCache.Resolution(1, "Maps", 2);
+        cache.put(KEY_MAPS, resolution, 0);
+
+        assertSame(resolution, cache.get(KEY_MAPS, 500));
+        assertSame(resolution, cache.get(KEY_MAPS, 1000));
+
+        assertEquals(3, cache.getLookupCount());
+        assertEquals(2, cache.getHitCount());
+        assertEquals(4, cache.getAvoidedIpcCalls());
+    }
+
+    @Test
+    public void testResolutionsExpire() {
+        final ExternalAppResolutionCache cache = new ExternalAppResolutionCache(1000, 10);
+        cache.put(KEY_MAPS, new ExternalAppResolutionCache.Resolution(0, null, 1), 0);
+
+        assertNull(cache.get(KEY_MAPS, 1001));
+
+        // Expired resolutions are removed and not resurrected.
+        assertNull(cache.get(KEY_MAPS, 0));
+        assertEquals(0, cache.getHitCount());
+    }
+
+    @Test
+    public void testLeastRecentlyUsedResolutionIsEvicted() {
+        final ExternalAppResolutionCache cache = new ExternalAppResolutionCache(1000, 2);
+        final String keyMail = createKey("mailto:focus@example.org");
+
+        cache.put(KEY_MAPS, new ExternalAppResolutionCache.Resolution(1, "Maps", 2), 0);
+        cache.put(KEY_MARKET, new ExternalAppResolutionCache.Resolution(1, "Store", 2), 0);
+
+        assertNotNull(cache.get(KEY_MAPS, 0));
+
+        cache.put(keyMail, new ExternalAppResolutionCache.Resolution(2, null, 1), 0);
+
+        assertNotNull(cache.get(KEY_MAPS, 0));
+        assertNull(cache.get(KEY_MARKET, 0));
+        assertNotNull(cache.get(keyMail, 0));
+    }
+
+    @Test
+    public void testPackageChangesClearCache() {
+        final ExternalAppResolutionCache cache = new ExternalAppResolutionCache(1000, 10);
+        cache.put(KEY_MAPS, new ExternalAppResolutionCache.Resolution(0, null, 1), 0);
+
+        cache.onReceive(null, null);
+
+        assertNull(cache.get(KEY_MAPS, 0));
+    }
+
+    @Test
+    public void testKeyMatchesFilterEquals() throws Exception {
+        final Intent intent = Intent.parseUri("intent://example.org/path#Intent;scheme=app;package=com.example;end", 0);
+        final Intent sameFilter = Intent.parseUri("intent://example.org/path#Intent;scheme=app;package=com.example;S.browser_fallback_url=https%3A%2F%2Fexample.org;end", 0);
+
+        assertTrue(intent.filterEquals(sameFilter));
+        assertEquals(ExternalAppResolutionCache.createKey(intent), ExternalAppResolutionCache.createKey(sameFilter));
+    }
+
+    @Test
+    public void testKeyIncludesEverythingFiltersMatchOn() throws Exception {
+        final String key = ExternalAppResolutionCache.createKey(
+                Intent.parseUri("intent://example.org/path#Intent;scheme=app;end", 0));
+
+        // Intent filters can match on the path, the MIME type and the categories.
+        assertNotEquals(key, ExternalAppResolutionCache.createKey(
+                Intent.parseUri("intent://example.org/other#Intent;scheme=app;end", 0)));
+        assertNotEquals(key, ExternalAppResolutionCache.createKey(
+                Intent.parseUri("intent://example.org/path#Intent;scheme=app;type=image/png;end", 0)));
+        assertNotEquals(key, ExternalAppResolutionCache.createKey(
+                Intent.parseUri("intent://example.org/path#Intent;scheme=app;category=android.intent.category.BROWSABLE;end", 0)));
+    }
+
+    @Test
+    public void testKeyIgnoresCategoryOrder() {
+        final Intent intent = new Intent(Intent.ACTION_VIEW, Uri.parse("app://example.org"));
+        intent.addCategory(Intent.CATEGORY_BROWSABLE);
+        intent.addCategory(Intent.CATEGORY_DEFAULT);
+
+        final Intent reversed = new Intent(Intent.ACTION_VIEW, Uri.parse("app://example.org"));
+        reversed.addCategory(Intent.CATEGORY_DEFAULT);
+        reversed.addCategory(Intent.CATEGORY_BROWSABLE);
+
+        assertEquals(ExternalAppResolutionCache.createKey(intent), ExternalAppResolutionCache.createKey(reversed));
+    }
+
+    private static String createKey(String uri) {
+        final Intent intent = new Intent(Intent.ACTION_VIEW, Uri.parse(uri));
+        intent.addCategory(Intent.CATEGORY_BROWSABLE);
+        return ExternalAppResolutionCache.createKey(intent);
+    }
+}
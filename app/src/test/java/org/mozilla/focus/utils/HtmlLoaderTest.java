@@ -0,0 +1,73 @@
+/* -*- Mode: Java; c-basic-offset: 4; tab-width: 20; indent-tabs-mode: nil; -*-
+ * This Source Code Form is subject to the terms of the Mozilla Public
+ * License, v. 2.0. If a copy of the MPL was not distributed with this
+ * file, You can obtain one at http://mozilla.org/MPL/2.0/. */
+
+package org.mozilla.focus.utils;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import static org.junit.Assert.assertEquals;
+
+@RunWith(RobolectricTestRunner.class)
+public class HtmlLoaderTest {
+    @Test
+    public void testRenderSubstitutesAllSlots() {
+        final HtmlLoader.Template template = HtmlLoader.compile(
+                "<title>%title%</title><p>%message%</p><p>%message%</p>", "%title%", "%message%");
+
+        final Map<String, String> substitutionTable = new HashMap<>();
+        substitutionTable.put("%title%", "Oops");
+        substitutionTable.put("%message%", "Something went wrong");
+
+        assertEquals("<title>Oops</title><p>Something went wrong</p><p>Something went wrong</p>",
+                template.render(substitutionTable));
+    }
+
+    @Test
+    public void testSlotsWithoutValueAreLeftUntouched() {
+        final HtmlLoader.Template template = HtmlLoader.compile("%a% and %b%", "%a%", "%b%");
+
+        final Map<String, String> substitutionTable = new HashMap<>();
+        substitutionTable.put("%a%", "A");
+
+        assertEquals("A and %b%", template.render(substitutionTable));
+        assertEquals("%a% and %b%", template.render(null));
+    }
+
+    @Test
+    public void testPercentSignsThatAreNotSlotsAreKept() {
+        final String css = "body { height: 100%; } .bar { background: linear-gradient(#fff 33%, #000 66%); }";
+
+        assertEquals(css, HtmlLoader.compile(css).render(null));
+        assertEquals(css, HtmlLoader.compile(css, "%css%").render(new HashMap<String, String>()));
+    }
+
+    @Test
+    public void testValuesAreNotSubstitutedAgain() {
+        final HtmlLoader.Template template = HtmlLoader.compile("%a%%b%", "%a%", "%b%");
+
+        final Map<String, String> substitutionTable = new HashMap<>();
+        substitutionTable.put("%a%", "%b%");
+        substitutionTable.put("%b%", "B");
+
+        assertEquals("%b%B", template.render(substitutionTable));
+    }
+
+    @Test
+    public void testLongerSlotWinsAtSamePosition() {
+        final HtmlLoader.Template template = HtmlLoader.compile("<%about%><%about-content%>",
+                "%about%", "%about-content%");
+
+        final Map<String, String> substitutionTable = new HashMap<>();
+        substitutionTable.put("%about%", "1");
+        substitutionTable.put("%about-content%", "2");
+
+        assertEquals("<1><2>", template.render(substitutionTable));
+    }
+}
@@ -0,0 +1,72 @@
+/* -*- Mode: Java; c-basic-offset: 4; tab-width: 20; indent-tabs-mode: nil; -*-
+ * This Source Code Form is subject to the terms of the Mozilla Public
+ * License, v. 2.0. If a copy of the MPL was not distributed with this
+ * file, You can obtain one at http://mozilla.org/MPL/2.0/. */
+
+package org.mozilla.focus.utils;
+
+import org.junit.Test;
+
+import java.util.concurrent.CountDownLatch;
+
+import static org.junit.Assert.assertEquals;
+
+public class LatencyHistogramTest {
+    @Test
+    public void testBucketIndex() {
+        assertEquals(0, LatencyHistogram.getBucketIndex(0));
+        assertEquals(1, LatencyHistogram.getBucketIndex(1));
+        assertEquals(2, LatencyHistogram.getBucketIndex(2));
+        assertEquals(2, LatencyHistogram.getBucketIndex(3));
+        assertEquals(3, LatencyHistogram.getBucketIndex(4));
+        assertEquals(11, LatencyHistogram.getBucketIndex(1500));
+        assertEquals(LatencyHistogram.BUCKET_COUNT - 1, LatencyHistogram.getBucketIndex(Long.MAX_VALUE));
+    }
+
+    @Test
+    public void testPercentiles() {
+        final LatencyHistogram histogram = new LatencyHistogram();
+        assertEquals(-1, histogram.getPercentileMicros(50));
+
+        // 90 requests taking 3us, 10 requests taking 1.5ms
+        for (int i = 0; i < 90; i++) {
+            histogram.record(3000);
+        }
+        for (int i = 0; i < 10; i++) {
+            histogram.record(1500000);
+        }
+
+        assertEquals(100, histogram.getCount());
+        assertEquals(90 * 3 + 10 * 1500, histogram.getSumMicros());
+        assertEquals(4, histogram.getPercentileMicros(50));
+        assertEquals(4, histogram.getPercentileMicros(90));
+        assertEquals(2048, histogram.getPercentileMicros(95));
+
+        histogram.clear();
+        assertEquals(0, histogram.getCount());
+    }
+
+    @Test
+    public void testConcurrentRecording() throws Exception {
+        final LatencyHistogram histogram = new LatencyHistogram();
+        final int threads = 4;
+        final int recordsPerThread = 10000;
+        final CountDownLatch latch = new CountDownLatch(threads);
+
+        for (int i = 0; i < threads; i++) {
+            new Thread(new Runnable() {
+                @Override
+                public void run() {
+                    for (int j = 0; j < recordsPerThread; j++) {
+                        histogram.record(j * 1000L);
+                    }
+                    latch.countDown();
+                }
+            }).start();
+        }
+
+        latch.await();
+
+        assertEquals(threads * recordsPerThread, histogram.getCount());
+    }
+}
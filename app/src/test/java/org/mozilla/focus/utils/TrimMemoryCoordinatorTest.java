@@ -0,0 +1,118 @@
+/* -*- Mode: Java; c-basic-offset: 4; tab-width: 20; indent-tabs-mode: nil; -*-
+ * This Source Code Form is subject to the terms of the Mozilla Public
+ * License, v. 2.0. If a copy of the MPL was not distributed with this
+ * file, You can obtain one at http://mozilla.org/MPL/2.0/. */
+
+package org.mozilla.focus.utils;
+
+import android.content.ComponentCallbacks2;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+
+@RunWith(RobolectricTestRunner.class)
+public class TrimMemoryCoordinatorTest {
+    private static class RecordingTrimmable implements TrimMemoryCoordinator.Trimmable {
+        private final String name;
+        private final List<String> log;
+        private final long bytes;
+
+        private RecordingTrimmable(String name, List<String> log, long bytes) {
+            this.name = name;
+            this.log = log;
+            this.bytes = bytes;
+        }
+
+        @Override
+        public long trimMemory(int level) {
+            log.add(name);
+            return bytes;
+        }
+    }
+
+    private final List<TrimMemoryCoordinator.Trimmable> trimmables = new ArrayList<>();
+
+    @Test
+    public void testOnlyCheapCachesAreReleasedInForeground() {
+        final List<String> log = new ArrayList<>();
+        final TrimMemoryCoordinator coordinator = createCoordinator(log);
+
+        assertEquals(0, coordinator.onTrimMemory(ComponentCallbacks2.TRIM_MEMORY_RUNNING_MODERATE));
+        assertEquals(Collections.<String>emptyList(), log);
+
+        assertEquals(1, coordinator.onTrimMemory(ComponentCallbacks2.TRIM_MEMORY_RUNNING_LOW));
+        assertEquals(Collections.singletonList("cheap"), log);
+
+        log.clear();
+
+        assertEquals(11, coordinator.onTrimMemory(ComponentCallbacks2.TRIM_MEMORY_RUNNING_CRITICAL));
+        assertEquals(Arrays.asList("cheap", "moderate"), log);
+    }
+
+    @Test
+    public void testMoreIsReleasedTheMoreLikelyWeAreToBeKilled() {
+        final List<String> log = new ArrayList<>();
+        final TrimMemoryCoordinator coordinator = createCoordinator(log);
+
+        assertEquals(1, coordinator.onTrimMemory(ComponentCallbacks2.TRIM_MEMORY_UI_HIDDEN));
+        assertEquals(Collections.singletonList("cheap"), log);
+
+        log.clear();
+
+        assertEquals(11, coordinator.onTrimMemory(ComponentCallbacks2.TRIM_MEMORY_BACKGROUND));
+        assertEquals(Arrays.asList("cheap", "moderate"), log);
+
+        log.clear();
+
+        assertEquals(111, coordinator.onTrimMemory(ComponentCallbacks2.TRIM_MEMORY_MODERATE));
+        assertEquals(Arrays.asList("cheap", "moderate", "expensive"), log);
+
+        log.clear();
+
+        assertEquals(111, coordinator.onLowMemory());
+        assertEquals(Arrays.asList("cheap", "moderate", "expensive"), log);
+    }
+
+    @Test
+    public void testUnregister() {
+        final List<String> log = new ArrayList<>();
+        final TrimMemoryCoordinator coordinator = new TrimMemoryCoordinator();
+
+        final RecordingTrimmable first = new RecordingTrimmable("first", log, 1);
+        final RecordingTrimmable second = new RecordingTrimmable("second", log, 2);
+
+        coordinator.register("first", TrimMemoryCoordinator.Priority.CHEAP, first);
+        coordinator.register("second", TrimMemoryCoordinator.Priority.CHEAP, second);
+        coordinator.unregister(first);
+
+        assertEquals(2, coordinator.onTrimMemory(ComponentCallbacks2.TRIM_MEMORY_COMPLETE));
+        assertEquals(Collections.singletonList("second"), log);
+    }
+
+    /**
+     * Registers trimmables in reverse order of their priority. The coordinator only keeps weak
+     * references: The test keeps the trimmables alive.
+     */
+    private TrimMemoryCoordinator createCoordinator(List<String> log) {
+        final TrimMemoryCoordinator coordinator = new TrimMemoryCoordinator();
+
+        trimmables.clear();
+        trimmables.add(new RecordingTrimmable("expensive", log, 100));
+        trimmables.add(new RecordingTrimmable("moderate", log, 10));
+        trimmables.add(new RecordingTrimmable("cheap", log, 1));
+
+        coordinator.register("expensive", TrimMemoryCoordinator.Priority.EXPENSIVE, trimmables.get(0));
+        coordinator.register("moderate", TrimMemoryCoordinator.Priority.MODERATE, trimmables.get(1));
+        coordinator.register("cheap", TrimMemoryCoordinator.Priority.CHEAP, trimmables.get(2));
+
+        return coordinator;
+    }
+}
@@ -0,0 +1,116 @@
+/* -*- Mode: Java; c-basic-offset: 4; tab-width: 4; indent-tabs-mode: nil; -*-
+ * This Source Code Form is subject to the terms of the Mozilla Public
+ * License, v. 2.0. If a copy of the MPL was not distributed with this
+ * file, You can obtain one at http://mozilla.org/MPL/2.0/. */
+
+package org.mozilla.focus.utils;
+
+import org.junit.Ignore;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Runs on a plain JVM, without Robolectric. {@link UrlUtilsTest} compares the results with
+ * android.net.Uri.
+ */
+public class UrlClassifierTest {
+    @Test
+    public void testCorpus() {
+        for (final UrlCorpus.Entry entry : UrlCorpus.ENTRIES) {
+            assertEquals(entry.input, entry.isUrl, UrlClassifier.isUrl(entry.input));
+
+            if (entry.isUrl) {
+                assertEquals(entry.input, entry.url, UrlClassifier.normalize(entry.input));
+                assertEquals(entry.input, entry.host, UrlClassifier.getHost(entry.url));
+            }
+        }
+    }
+
+    @Test
+    public void testFindSchemeEnd() {
+        assertEquals(4, UrlClassifier.findSchemeEnd("http://mozilla.org"));
+        assertEquals(5, UrlClassifier.findSchemeEnd("about:"));
+        assertEquals(11, UrlClassifier.findSchemeEnd("view-source:http://mozilla.org"));
+        assertEquals(9, UrlClassifier.findSchemeEnd("localhost:8080x"));
+        assertEquals(3, UrlClassifier.findSchemeEnd("tel:5551234"));
+        assertEquals(6, UrlClassifier.findSchemeEnd("router:8080"));
+
+        assertEquals(-1, UrlClassifier.findSchemeEnd(""));
+        assertEquals(-1, UrlClassifier.findSchemeEnd(":"));
+        assertEquals(-1, UrlClassifier.findSchemeEnd("mozilla.org"));
+        assertEquals(-1, UrlClassifier.findSchemeEnd("localhost:8080"));
+        assertEquals(-1, UrlClassifier.findSchemeEnd("localhost:8080/"));
+        assertEquals(-1, UrlClassifier.findSchemeEnd("LOCALHOST:8080"));
+        assertEquals(-1, UrlClassifier.findSchemeEnd("1http://mozilla.org"));
+        assertEquals(-1, UrlClassifier.findSchemeEnd("user@mozilla.org:8080"));
+        assertEquals(-1, UrlClassifier.findSchemeEnd("mozilla.org/path:with:colons"));
+    }
+
+    @Test
+    public void testGetHost() {
+        assertEquals("mozilla.org", UrlClassifier.getHost("https://mozilla.org:"));
+        assertEquals("mozilla.org", UrlClassifier.getHost("https://user@host@mozilla.org/"));
+
+        assertNull(UrlClassifier.getHost("https://"));
+        assertNull(UrlClassifier.getHost("https:///path"));
+        assertNull(UrlClassifier.getHost("mozilla.org"));
+        assertNull(UrlClassifier.getHost("about:blank"));
+    }
+
+    @Test
+    public void testIsUrlIgnoresSurroundingWhitespace() {
+        assertTrue(UrlClassifier.isUrl(" \tmozilla.org\n"));
+        assertTrue(UrlClassifier.isUrl("  localhost:8080 "));
+
+        assertFalse(UrlClassifier.isUrl("   "));
+        assertFalse(UrlClassifier.isUrl(" mozilla org "));
+    }
+
+    /**
+     * Micro-benchmark classifying, normalizing and extracting the host of every corpus entry, the
+     * way the URL bar does on every key press. The results are only printed; asserting timings
+     * would make this test flaky. Ignored so that it doesn't slow down every test run: Remove the
+     * annotation to run it locally.
+     */
+    @Ignore("Benchmark")
+    @Test
+    public void benchmarkCorpus() {
+        final int warmup = 2000;
+        final int iterations = 20000;
+
+        int urls = 0;
+
+        for (int i = 0; i < warmup; i++) {
+            urls += classifyCorpus();
+        }
+
+        final long start = System.nanoTime();
+        for (int i = 0; i < iterations; i++) {
+            urls += classifyCorpus();
+        }
+        final long nanos = System.nanoTime() - start;
+
+        // Use the result, so that the loop can't be optimized away.
+        assertTrue(urls > 0);
+
+        System.out.println(String.format("URL classification (%d inputs, %d iterations): %.0f ns/input",
+                UrlCorpus.ENTRIES.length, iterations, (double) nanos / iterations / UrlCorpus.ENTRIES.length));
+    }
+
+    private static int classifyCorpus() {
+        int urls = 0;
+
+        for (final UrlCorpus.Entry entry : UrlCorpus.ENTRIES) {
+            if (UrlClassifier.isUrl(entry.input)
+                    && UrlClassifier.getHost(UrlClassifier.normalize(entry.input)) != null) {
+                urls++;
+            }
+        }
+
+        return urls;
+    }
+}
@@ -1,6 +1,7 @@
 package org.mozilla.focus.utils;
 
 import android.annotation.SuppressLint;
+import android.net.Uri;
 
 import org.junit.Test;
 import org.junit.runner.RunWith;
@@ -87,6 +88,18 @@ public class UrlUtilsTest {
         assertEquals("http://mozilla.org", UrlUtils.normalize(" http://mozilla.org "));
         assertEquals("http://mozilla.org", UrlUtils.normalize(" http://mozilla.org"));
         assertEquals("http://localhost", UrlUtils.normalize("localhost"));
+        assertEquals("http://localhost:8080", UrlUtils.normalize("localhost:8080"));
+        assertEquals("http://[::1]:8080/", UrlUtils.normalize("[::1]:8080/"));
+    }
+
+    @Test
+    public void testGetHostMatchesUri() {
+        for (final UrlCorpus.Entry entry : UrlCorpus.ENTRIES) {
+            // Uri before Android O splits IPv6 addresses at their first colon.
+            if (entry.host != null && !entry.host.startsWith("[")) {
+                assertEquals(entry.url, Uri.parse(entry.url).getHost(), UrlUtils.getHost(entry.url));
+            }
+        }
     }
 
     @Test
@@ -0,0 +1,113 @@
+/* -*- Mode: Java; c-basic-offset: 4; tab-width: 4; indent-tabs-mode: nil; -*-
+ * This Source Code Form is subject to the terms of the Mozilla Public
+ * License, v. 2.0. If a copy of the MPL was not distributed with this
+ * file, You can obtain one at http://mozilla.org/MPL/2.0/. */
+
+package org.mozilla.focus.web;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.Executor;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+@RunWith(RobolectricTestRunner.class)
+public class ConnectionPrewarmerTest {
+    private static class RecordingResolver implements ConnectionPrewarmer.Resolver {
+        private final List<String> hosts = new ArrayList<>();
+
+        @Override
+        public void resolve(String host) throws IOException {
+            hosts.add(host);
+        }
+    }
+
+    private static final Executor DIRECT_EXECUTOR = new Executor() {
+        @Override
+        public void execute(Runnable command) {
+            command.run();
+        }
+    };
+
+    /**
+     * Only runs the lookups when asked to, so that we can have multiple lookups running at once.
+     */
+    private static class PendingExecutor implements Executor {
+        private final List<Runnable> commands = new ArrayList<>();
+
+        @Override
+        public void execute(Runnable command) {
+            commands.add(command);
+        }
+
+        private void runAll() {
+            for (Runnable command : commands) {
+                command.run();
+            }
+            commands.clear();
+        }
+    }
+
+    @Test
+    public void testRecentlyResolvedHostIsNotResolvedAgain() {
+        final RecordingResolver resolver = new RecordingResolver();
+        final ConnectionPrewarmer prewarmer = new ConnectionPrewarmer(resolver, DIRECT_EXECUTOR);
+
+        assertTrue(prewarmer.prewarm("www.mozilla.org", 1000));
+        assertFalse(prewarmer.prewarm("www.mozilla.org", 2000));
+        assertFalse(prewarmer.prewarm("WWW.Mozilla.org", 3000));
+
+        assertEquals(Arrays.asList("www.mozilla.org"), resolver.hosts);
+    }
+
+    @Test
+    public void testHostIsResolvedAgainAfterAWhile() {
+        final RecordingResolver resolver = new RecordingResolver();
+        final ConnectionPrewarmer prewarmer = new ConnectionPrewarmer(resolver, DIRECT_EXECUTOR);
+
+        assertTrue(prewarmer.prewarm("www.mozilla.org", 1000));
+        assertTrue(prewarmer.prewarm("www.mozilla.org", 1000 + 60 * 1000));
+
+        assertEquals(Arrays.asList("www.mozilla.org", "www.mozilla.org"), resolver.hosts);
+    }
+
+    @Test
+    public void testNumberOfConcurrentLookupsIsLimited() {
+        final RecordingResolver resolver = new RecordingResolver();
+        final PendingExecutor executor = new PendingExecutor();
+        final ConnectionPrewarmer prewarmer = new ConnectionPrewarmer(resolver, executor);
+
+        assertTrue(prewarmer.prewarm("a.example.org", 1000));
+        assertTrue(prewarmer.prewarm("b.example.org", 1000));
+        assertFalse(prewarmer.prewarm("c.example.org", 1000));
+
+        executor.runAll();
+
+        assertTrue(prewarmer.prewarm("c.example.org", 2000));
+        executor.runAll();
+
+        assertEquals(Arrays.asList("a.example.org", "b.example.org", "c.example.org"), resolver.hosts);
+    }
+
+    @Test
+    public void testFailedLookupDoesNotBlockOtherLookups() {
+        final ConnectionPrewarmer prewarmer = new ConnectionPrewarmer(new ConnectionPrewarmer.Resolver() {
+            @Override
+            public void resolve(String host) throws IOException {
+                throw new IOException("Unknown host");
+            }
+        }, DIRECT_EXECUTOR);
+
+        assertTrue(prewarmer.prewarm("a.example.org", 1000));
+        assertTrue(prewarmer.prewarm("b.example.org", 1000));
+        assertTrue(prewarmer.prewarm("c.example.org", 1000));
+    }
+}
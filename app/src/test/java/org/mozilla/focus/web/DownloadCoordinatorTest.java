@@ -0,0 +1,70 @@
+/* -*- Mode: Java; c-basic-offset: 4; tab-width: 4; indent-tabs-mode: nil; -*-
+ * This Source Code Form is subject to the terms of the Mozilla Public
+ * License, v. 2.0. If a copy of the MPL was not distributed with this
+ * file, You can obtain one at http://mozilla.org/MPL/2.0/. */
+
+package org.mozilla.focus.web;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+
+import java.util.Arrays;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+@RunWith(RobolectricTestRunner.class)
+public class DownloadCoordinatorTest {
+    @Test
+    public void testDownloadsWeDidNotQueueAreIgnored() {
+        final DownloadCoordinator coordinator = new DownloadCoordinator();
+
+        assertFalse(coordinator.addCompletedDownload(42));
+        assertEquals(0, coordinator.takeCompletedDownloads().length);
+    }
+
+    @Test
+    public void testDownloadsFinishingTogetherAreResolvedInOneBatch() {
+        final DownloadCoordinator coordinator = new DownloadCoordinator();
+        coordinator.addQueuedDownload(1);
+        coordinator.addQueuedDownload(2);
+        coordinator.addQueuedDownload(3);
+
+        assertTrue(coordinator.addCompletedDownload(1));
+        assertFalse(coordinator.addCompletedDownload(2));
+        assertFalse(coordinator.addCompletedDownload(3));
+
+        final long[] batch = coordinator.takeCompletedDownloads();
+        Arrays.sort(batch);
+        assertArrayEquals(new long[] { 1, 2, 3 }, batch);
+
+        assertEquals(0, coordinator.takeCompletedDownloads().length);
+    }
+
+    @Test
+    public void testDownloadsAreOnlyCompletedOnce() {
+        final DownloadCoordinator coordinator = new DownloadCoordinator();
+        coordinator.addQueuedDownload(1);
+
+        assertTrue(coordinator.addCompletedDownload(1));
+        coordinator.takeCompletedDownloads();
+
+        assertFalse(coordinator.addCompletedDownload(1));
+    }
+
+    @Test
+    public void testDownloadFinishingAfterBatchStartsNewBatch() {
+        final DownloadCoordinator coordinator = new DownloadCoordinator();
+        coordinator.addQueuedDownload(1);
+        coordinator.addQueuedDownload(2);
+
+        assertTrue(coordinator.addCompletedDownload(1));
+        assertArrayEquals(new long[] { 1 }, coordinator.takeCompletedDownloads());
+
+        assertTrue(coordinator.addCompletedDownload(2));
+        assertArrayEquals(new long[] { 2 }, coordinator.takeCompletedDownloads());
+    }
+}
@@ -0,0 +1,108 @@
+/* -*- Mode: Java; c-basic-offset: 4; tab-width: 4; indent-tabs-mode: nil; -*-
+ * This Source Code Form is subject to the terms of the Mozilla Public
+ * License, v. 2.0. If a copy of the MPL was not distributed with this
+ * file, You can obtain one at http://mozilla.org/MPL/2.0/. */
+
+package org.mozilla.focus.web;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mozilla.focus.utils.ThreadUtils;
+import org.robolectric.RobolectricTestRunner;
+
+import java.util.Arrays;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.*;
+
+@RunWith(RobolectricTestRunner.class)
+public class EraseOperationTest {
+    @Test
+    public void testCompletesOnceSealedAndAllStepsFinished() throws Exception {
+        final EraseOperation operation = new EraseOperation();
+
+        final EraseOperation.Step asyncStep = operation.beginStep("async");
+        operation.runStep("sync", new Runnable() {
+            @Override
+            public void run() {}
+        });
+
+        assertFalse(operation.isComplete());
+
+        operation.seal();
+        assertFalse(operation.isComplete());
+        assertFalse(operation.await(0, TimeUnit.MILLISECONDS));
+        assertEquals(-1, operation.getDurationMillis());
+
+        asyncStep.finish();
+
+        assertTrue(operation.isComplete());
+        assertTrue(operation.await(0, TimeUnit.MILLISECONDS));
+        assertTrue(operation.getDurationMillis() >= 0);
+
+        // Steps are listed in the order they have finished in.
+        assertEquals(Arrays.asList("sync", "async"),
+                Arrays.asList(operation.getStepDurationsMillis().keySet().toArray()));
+    }
+
+    @Test
+    public void testBackgroundStepsDoNotWaitForSharedBackgroundThread() throws Exception {
+        final CountDownLatch unblock = new CountDownLatch(1);
+        ThreadUtils.postToBackgroundThread(new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    unblock.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+        });
+
+        try {
+            final EraseOperation operation = new EraseOperation();
+            operation.runStepInBackground("files", new Runnable() {
+                @Override
+                public void run() {}
+            });
+            operation.seal();
+
+            assertTrue(operation.await(5, TimeUnit.SECONDS));
+        } finally {
+            unblock.countDown();
+        }
+    }
+
+    @Test
+    public void testEmptyOperationCompletesWhenSealed() {
+        final EraseOperation operation = new EraseOperation();
+        assertFalse(operation.isComplete());
+
+        operation.seal();
+        assertTrue(operation.isComplete());
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void testCannotAddStepsAfterSealing() {
+        final EraseOperation operation = new EraseOperation();
+        operation.seal();
+
+        operation.beginStep("too late");
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void testStepCannotFinishTwice() {
+        final EraseOperation operation = new EraseOperation();
+
+        final EraseOperation.Step step = operation.beginStep("step");
+        step.finish();
+        step.finish();
+    }
+
+    @Test
+    public void testCurrentOperation() {
+        final EraseOperation operation = EraseOperation.start();
+        assertSame(operation, EraseOperation.getCurrent());
+    }
+}
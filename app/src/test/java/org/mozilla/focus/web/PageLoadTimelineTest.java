@@ -0,0 +1,107 @@
+/* -*- Mode: Java; c-basic-offset: 4; tab-width: 4; indent-tabs-mode: nil; -*-
+ * This Source Code Form is subject to the terms of the Mozilla Public
+ * License, v. 2.0. If a copy of the MPL was not distributed with this
+ * file, You can obtain one at http://mozilla.org/MPL/2.0/. */
+
+package org.mozilla.focus.web;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+
+import static org.junit.Assert.*;
+
+@RunWith(RobolectricTestRunner.class)
+public class PageLoadTimelineTest {
+    @Test
+    public void testPercentile() {
+        final long[] values = { 5, 1, 4, 2, 3, 10, 9, 8, 7, 6 };
+
+        assertEquals(5, PageLoadTimeline.percentile(values, 50));
+        assertEquals(10, PageLoadTimeline.percentile(values, 95));
+        assertEquals(1, PageLoadTimeline.percentile(values, 0));
+    }
+
+    @Test
+    public void testPercentileIgnoresMissingValues() {
+        assertEquals(-1, PageLoadTimeline.percentile(new long[0], 50));
+        assertEquals(-1, PageLoadTimeline.percentile(new long[] { -1, -1 }, 50));
+        assertEquals(20, PageLoadTimeline.percentile(new long[] { -1, 20, -1 }, 95));
+    }
+
+    @Test
+    public void testPageLoadTimes() {
+        final PageLoadTimeline.PageLoad pageLoad = new PageLoadTimeline.PageLoad(1000, true);
+
+        assertEquals(-1, pageLoad.getLoadTime());
+        assertFalse(pageLoad.hasStarted());
+
+        pageLoad.recordFirstRequest(1010);
+        pageLoad.markPageStarted(1050);
+        assertTrue(pageLoad.markPageFinished(1300));
+        assertFalse(pageLoad.markPageFinished(1500));
+
+        assertEquals(300, pageLoad.getLoadTime());
+        assertEquals(50, pageLoad.getTimeToPageStart());
+        assertEquals(10, pageLoad.getTimeToFirstRequest());
+    }
+
+    @Test
+    public void testNotSubmittedLoadIsMeasuredFromPageStart() {
+        final PageLoadTimeline.PageLoad pageLoad = new PageLoadTimeline.PageLoad(-1, true);
+
+        pageLoad.markPageStarted(2000);
+        pageLoad.markPageFinished(2200);
+
+        assertEquals(200, pageLoad.getLoadTime());
+        assertEquals(-1, pageLoad.getTimeToPageStart());
+    }
+
+    @Test
+    public void testStoreIsBounded() {
+        final PageLoadTimeline timeline = new PageLoadTimeline();
+
+        for (int i = 0; i < PageLoadTimeline.MAX_PAGE_LOADS + 10; i++) {
+            timeline.record(finishedPageLoad(i, true));
+        }
+
+        assertEquals(PageLoadTimeline.MAX_PAGE_LOADS, timeline.getPageLoads().size());
+
+        // The oldest page loads have been dropped
+        assertEquals(10, timeline.getPageLoads().get(0).getLoadTime());
+    }
+
+    @Test
+    public void testSummaryByBlockingConfiguration() {
+        final PageLoadTimeline timeline = new PageLoadTimeline();
+
+        for (int i = 1; i <= 20; i++) {
+            timeline.record(finishedPageLoad(i * 10, true));
+            timeline.record(finishedPageLoad(i * 100, false));
+        }
+
+        final PageLoadTimeline.Summary blocking = timeline.getSummary(true);
+        assertEquals(20, blocking.count);
+        assertEquals(100, blocking.loadTimeP50);
+        assertEquals(190, blocking.loadTimeP95);
+
+        final PageLoadTimeline.Summary notBlocking = timeline.getSummary(false);
+        assertEquals(20, notBlocking.count);
+        assertEquals(1000, notBlocking.loadTimeP50);
+        assertEquals(1900, notBlocking.loadTimeP95);
+
+        assertEquals(40, timeline.getSummary().count);
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void testUnfinishedPageLoadIsRejected() {
+        new PageLoadTimeline().record(new PageLoadTimeline.PageLoad(0, true));
+    }
+
+    private static PageLoadTimeline.PageLoad finishedPageLoad(long loadTime, boolean blockingEnabled) {
+        final PageLoadTimeline.PageLoad pageLoad = new PageLoadTimeline.PageLoad(0, blockingEnabled);
+        pageLoad.markPageStarted(0);
+        pageLoad.markPageFinished(loadTime);
+        return pageLoad;
+    }
+}
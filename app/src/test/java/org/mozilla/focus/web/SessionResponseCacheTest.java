@@ -0,0 +1,102 @@
+/* -*- Mode: Java; c-basic-offset: 4; tab-width: 4; indent-tabs-mode: nil; -*-
+ * This Source Code Form is subject to the terms of the Mozilla Public
+ * License, v. 2.0. If a copy of the MPL was not distributed with this
+ * file, You can obtain one at http://mozilla.org/MPL/2.0/. */
+
+package org.mozilla.focus.web;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+
+import java.util.Collections;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+@RunWith(RobolectricTestRunner.class)
+public class SessionResponseCacheTest {
+    @Test
+    public void testFreshResponsesAreServed() {
+        final SessionResponseCache cache = new SessionResponseCache(100, 50);
+        final SessionResponseCache.Entry entry = createEntry(10, 1000);
+
+        assertTrue(cache.put("https://www.mozilla.org/style.css", entry, cache.getGeneration()));
+
+        assertSame(entry, cache.get("https://www.mozilla.org/style.css", 999));
+        assertNull(cache.get("https://www.mozilla.org/other.css", 999));
+    }
+
+    @Test
+    public void testStaleResponsesAreRemoved() {
+        final SessionResponseCache cache = new SessionResponseCache(100, 50);
+        cache.put("https://www.mozilla.org/style.css", createEntry(10, 1000), cache.getGeneration());
+
+        assertNull(cache.get("https://www.mozilla.org/style.css", 1000));
+        assertEquals(0, cache.getSizeBytes());
+    }
+
+    @Test
+    public void testCacheIsSizeBounded() {
+        final SessionResponseCache cache = new SessionResponseCache(100, 50);
+
+        assertFalse(cache.put("https://www.mozilla.org/huge.png", createEntry(51, 1000), cache.getGeneration()));
+
+        cache.put("https://www.mozilla.org/a.png", createEntry(40, 1000), cache.getGeneration());
+        cache.put("https://www.mozilla.org/b.png", createEntry(40, 1000), cache.getGeneration());
+
+        // Accessing a.png makes b.png the least recently used response.
+        assertNotNull(cache.get("https://www.mozilla.org/a.png", 0));
+
+        cache.put("https://www.mozilla.org/c.png", createEntry(40, 1000), cache.getGeneration());
+
+        assertNotNull(cache.get("https://www.mozilla.org/a.png", 0));
+        assertNull(cache.get("https://www.mozilla.org/b.png", 0));
+        assertNotNull(cache.get("https://www.mozilla.org/c.png", 0));
+        assertEquals(80, cache.getSizeBytes());
+    }
+
+    @Test
+    public void testResponsesLoadingWhileClearingAreDropped() {
+        final SessionResponseCache cache = new SessionResponseCache(100, 50);
+        cache.put("https://www.mozilla.org/a.png", createEntry(40, 1000), cache.getGeneration());
+
+        final int generation = cache.getGeneration();
+
+        assertEquals(40, cache.clear());
+        assertNull(cache.get("https://www.mozilla.org/a.png", 0));
+
+        assertFalse(cache.put("https://www.mozilla.org/b.png", createEntry(10, 1000), generation));
+        assertNull(cache.get("https://www.mozilla.org/b.png", 0));
+    }
+
+    @Test
+    public void testMaxAge() {
+        assertEquals(0, SessionResponseCache.getMaxAgeMillis(null));
+        assertEquals(0, SessionResponseCache.getMaxAgeMillis("public"));
+        assertEquals(60000, SessionResponseCache.getMaxAgeMillis("public, max-age=60"));
+        assertEquals(60000, SessionResponseCache.getMaxAgeMillis("Max-Age=60, private"));
+        assertEquals(0, SessionResponseCache.getMaxAgeMillis("max-age=60, no-store"));
+        assertEquals(0, SessionResponseCache.getMaxAgeMillis("no-cache, max-age=60"));
+        assertEquals(0, SessionResponseCache.getMaxAgeMillis("max-age=abc"));
+        assertEquals(0, SessionResponseCache.getMaxAgeMillis("max-age=-5"));
+    }
+
+    @Test
+    public void testBypass() {
+        assertFalse(SessionResponseCache.isBypassRequested(null, null));
+        assertFalse(SessionResponseCache.isBypassRequested("max-age=3600", null));
+        assertTrue(SessionResponseCache.isBypassRequested("max-age=0", null));
+        assertTrue(SessionResponseCache.isBypassRequested("no-cache", null));
+        assertTrue(SessionResponseCache.isBypassRequested(null, "no-cache"));
+    }
+
+    private static SessionResponseCache.Entry createEntry(int size, long expiresAtMillis) {
+        return new SessionResponseCache.Entry("image/png", null, 200, "OK",
+                Collections.<String, String>emptyMap(), new byte[size], expiresAtMillis);
+    }
+}
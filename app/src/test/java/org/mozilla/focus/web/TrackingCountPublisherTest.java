@@ -0,0 +1,147 @@
+/* -*- Mode: Java; c-basic-offset: 4; tab-width: 4; indent-tabs-mode: nil; -*-
+ * This Source Code Form is subject to the terms of the Mozilla Public
+ * License, v. 2.0. If a copy of the MPL was not distributed with this
+ * file, You can obtain one at http://mozilla.org/MPL/2.0/. */
+
+package org.mozilla.focus.web;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.Executor;
+
+import static org.junit.Assert.assertEquals;
+
+@RunWith(RobolectricTestRunner.class)
+public class TrackingCountPublisherTest {
+    private static class RecordingListener implements BrowsingSession.TrackingCountListener {
+        private final List<Integer> counts = new ArrayList<>();
+
+        @Override
+        public void onTrackingCountChanged(int trackingCount) {
+            counts.add(trackingCount);
+        }
+    }
+
+    /**
+     * Collects the scheduled frames; frames are "drawn" when the test asks for it.
+     */
+    private static class FrameExecutor implements Executor {
+        private final List<Runnable> frames = new ArrayList<>();
+
+        @Override
+        public synchronized void execute(Runnable command) {
+            frames.add(command);
+        }
+
+        private synchronized int getScheduledFrames() {
+            return frames.size();
+        }
+
+        private void drawFrames() {
+            final List<Runnable> pending;
+            synchronized (this) {
+                pending = new ArrayList<>(frames);
+                frames.clear();
+            }
+
+            for (Runnable frame : pending) {
+                frame.run();
+            }
+        }
+    }
+
+    @Test
+    public void testListenerIsNotifiedWhenSet() {
+        final TrackingCountPublisher publisher = new TrackingCountPublisher(new FrameExecutor());
+        publisher.increment();
+        publisher.increment();
+
+        final RecordingListener listener = new RecordingListener();
+        publisher.setListener(listener);
+
+        assertEquals(Arrays.asList(2), listener.counts);
+    }
+
+    @Test
+    public void testChangesAreCoalescedPerFrame() {
+        final FrameExecutor executor = new FrameExecutor();
+        final TrackingCountPublisher publisher = new TrackingCountPublisher(executor);
+        final RecordingListener listener = new RecordingListener();
+        publisher.setListener(listener);
+
+        for (int i = 0; i < 100; i++) {
+            publisher.increment();
+        }
+
+        assertEquals(1, executor.getScheduledFrames());
+
+        executor.drawFrames();
+
+        publisher.increment();
+        assertEquals(1, executor.getScheduledFrames());
+
+        executor.drawFrames();
+
+        assertEquals(Arrays.asList(0, 100, 101), listener.counts);
+    }
+
+    @Test
+    public void testUnchangedCountIsNotPublished() {
+        final FrameExecutor executor = new FrameExecutor();
+        final TrackingCountPublisher publisher = new TrackingCountPublisher(executor);
+        final RecordingListener listener = new RecordingListener();
+        publisher.setListener(listener);
+
+        publisher.increment();
+        publisher.reset();
+        executor.drawFrames();
+
+        assertEquals(Arrays.asList(0), listener.counts);
+    }
+
+    @Test
+    public void testResetIsPublished() {
+        final FrameExecutor executor = new FrameExecutor();
+        final TrackingCountPublisher publisher = new TrackingCountPublisher(executor);
+        final RecordingListener listener = new RecordingListener();
+
+        publisher.increment();
+        publisher.setListener(listener);
+
+        publisher.reset();
+        executor.drawFrames();
+
+        assertEquals(Arrays.asList(1, 0), listener.counts);
+    }
+
+    @Test
+    public void testConcurrentIncrementsAreNotLost() throws InterruptedException {
+        final FrameExecutor executor = new FrameExecutor();
+        final TrackingCountPublisher publisher = new TrackingCountPublisher(executor);
+
+        final Thread[] threads = new Thread[4];
+        for (int i = 0; i < threads.length; i++) {
+            threads[i] = new Thread(new Runnable() {
+                @Override
+                public void run() {
+                    for (int j = 0; j < 10000; j++) {
+                        publisher.increment();
+                    }
+                }
+            });
+            threads[i].start();
+        }
+
+        for (Thread thread : threads) {
+            thread.join();
+        }
+
+        assertEquals(40000, publisher.getCount());
+        assertEquals(1, executor.getScheduledFrames());
+    }
+}
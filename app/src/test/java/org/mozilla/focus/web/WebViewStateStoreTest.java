@@ -0,0 +1,183 @@
+/* -*- Mode: Java; c-basic-offset: 4; tab-width: 4; indent-tabs-mode: nil; -*-
+ * This Source Code Form is subject to the terms of the Mozilla Public
+ * License, v. 2.0. If a copy of the MPL was not distributed with this
+ * file, You can obtain one at http://mozilla.org/MPL/2.0/. */
+
+package org.mozilla.focus.web;
+
+import android.os.Bundle;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.Executor;
+
+import static org.junit.Assert.*;
+
+@RunWith(RobolectricTestRunner.class)
+public class WebViewStateStoreTest {
+    @Test
+    public void testDeflateInflateRoundTrip() throws Exception {
+        final byte[] data = new byte[64 * 1024];
+        for (int i = 0; i < data.length; i++) {
+            data[i] = (byte) (i % 7);
+        }
+
+        final byte[] compressed = WebViewStateStore.deflate(data);
+        assertTrue(compressed.length < data.length);
+
+        assertArrayEquals(data, WebViewStateStore.inflate(compressed, data.length));
+    }
+
+    @Test
+    public void testSavingAgainReplacesState() {
+        final ManualExecutor executor = new ManualExecutor();
+        final WebViewStateStore store = new WebViewStateStore(executor, new FakeMarshaller(1000), 1024 * 1024);
+
+        final Bundle first = new Bundle();
+        final Bundle second = new Bundle();
+
+        store.put("webview", first);
+        store.put("webview", second);
+        assertEquals(1, store.getEntryCount());
+
+        // Not compressed yet: We get the same bundle back
+        assertSame(second, store.get("webview"));
+
+        executor.runAll();
+
+        assertEquals(1, store.getEntryCount());
+        assertEquals(1000, store.getUncompressedBytes());
+        assertTrue(store.getCompressedBytes() > 0);
+        assertTrue(store.getCompressedBytes() < store.getUncompressedBytes());
+
+        assertTrue(store.contains("webview"));
+        assertNotNull(store.get("webview"));
+        assertEquals(1, store.getRestoreLatency().getCount());
+
+        assertFalse(store.contains(null));
+        assertNull(store.get("unknown"));
+    }
+
+    @Test
+    public void testLeastRecentlyUsedStatesAreDroppedAboveCap() {
+        final ManualExecutor executor = new ManualExecutor();
+        final FakeMarshaller marshaller = new FakeMarshaller(10000);
+        final byte[] compressedSize = WebViewStateStore.deflate(marshaller.marshall(new Bundle()));
+
+        // Enough space for two states
+        final WebViewStateStore store = new WebViewStateStore(executor, marshaller, compressedSize.length * 2);
+
+        store.put("a", new Bundle());
+        store.put("b", new Bundle());
+        executor.runAll();
+
+        assertEquals(2, store.getEntryCount());
+
+        // Use "a" so that "b" is the least recently used one.
+        store.get("a");
+
+        store.put("c", new Bundle());
+        executor.runAll();
+
+        assertEquals(2, store.getEntryCount());
+        assertEquals(1, store.getEvictionCount());
+        assertTrue(store.contains("a"));
+        assertFalse(store.contains("b"));
+        assertTrue(store.contains("c"));
+    }
+
+    @Test
+    public void testMostRecentStateIsKeptEvenIfLargerThanCap() {
+        final ManualExecutor executor = new ManualExecutor();
+        final WebViewStateStore store = new WebViewStateStore(executor, new FakeMarshaller(10000), 1);
+
+        store.put("a", new Bundle());
+        executor.runAll();
+
+        assertTrue(store.contains("a"));
+    }
+
+    @Test
+    public void testTrimToNewestKeepsMostRecentlyUsedState() {
+        final ManualExecutor executor = new ManualExecutor();
+        final WebViewStateStore store = new WebViewStateStore(executor, new FakeMarshaller(1000), 1024 * 1024);
+
+        store.put("a", new Bundle());
+        store.put("b", new Bundle());
+        executor.runAll();
+
+        final long bytesPerState = store.getCompressedBytes() / 2;
+
+        // Restoring "a" makes it the most recently used state.
+        assertNotNull(store.get("a"));
+
+        assertEquals(bytesPerState, store.trimToNewest());
+
+        assertTrue(store.contains("a"));
+        assertFalse(store.contains("b"));
+        assertEquals(1, store.getEvictionCount());
+        assertEquals(bytesPerState, store.getCompressedBytes());
+    }
+
+    @Test
+    public void testClear() {
+        final ManualExecutor executor = new ManualExecutor();
+        final WebViewStateStore store = new WebViewStateStore(executor, new FakeMarshaller(1000), 1024 * 1024);
+
+        store.put("a", new Bundle());
+        executor.runAll();
+        store.clear();
+
+        assertEquals(0, store.getEntryCount());
+        assertEquals(0, store.getCompressedBytes());
+        assertEquals(0, store.getUncompressedBytes());
+    }
+
+    /**
+     * Marshalls every bundle to the same pseudo-random (but compressible) data.
+     */
+    private static class FakeMarshaller implements WebViewStateStore.Marshaller {
+        private final int size;
+
+        private FakeMarshaller(int size) {
+            this.size = size;
+        }
+
+        @Override
+        public byte[] marshall(Bundle bundle) {
+            final Random random = new Random(42);
+            final byte[] data = new byte[size];
+            for (int i = 0; i < size; i++) {
+                data[i] = (byte) random.nextInt(16);
+            }
+            return data;
+        }
+
+        @Override
+        public Bundle unmarshall(byte[] data) {
+            assertEquals(size, data.length);
+            assertArrayEquals(marshall(null), data);
+            return new Bundle();
+        }
+    }
+
+    private static class ManualExecutor implements Executor {
+        private final List<Runnable> pending = new ArrayList<>();
+
+        @Override
+        public void execute(Runnable runnable) {
+            pending.add(runnable);
+        }
+
+        private void runAll() {
+            while (!pending.isEmpty()) {
+                pending.remove(0).run();
+            }
+        }
+    }
+}
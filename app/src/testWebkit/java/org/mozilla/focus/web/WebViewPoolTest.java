@@ -0,0 +1,105 @@
+/* -*- Mode: Java; c-basic-offset: 4; tab-width: 4; indent-tabs-mode: nil; -*-
+ * This Source Code Form is subject to the terms of the Mozilla Public
+ * License, v. 2.0. If a copy of the MPL was not distributed with this
+ * file, You can obtain one at http://mozilla.org/MPL/2.0/. */
+
+package org.mozilla.focus.web;
+
+import android.content.Context;
+import android.content.MutableContextWrapper;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mozilla.focus.webkit.WebkitView;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.RuntimeEnvironment;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@RunWith(RobolectricTestRunner.class)
+public class WebViewPoolTest {
+    @Before
+    @After
+    public void resetPool() {
+        WebViewPool.reset();
+    }
+
+    private static WebkitView createPooledView(MutableContextWrapper wrapper) {
+        final WebkitView view = mock(WebkitView.class);
+        when(view.getContext()).thenReturn(wrapper);
+        return view;
+    }
+
+    @Test
+    public void testObtainAdoptsPooledView() {
+        final Context activityContext = mock(Context.class);
+        final MutableContextWrapper wrapper = new MutableContextWrapper(RuntimeEnvironment.application);
+        final WebkitView view = createPooledView(wrapper);
+        WebViewPool.put(view);
+
+        assertSame(view, WebViewPool.obtain(activityContext, null));
+        assertSame(activityContext, wrapper.getBaseContext());
+
+        assertEquals(1, WebViewPool.getHitCount());
+        assertEquals(0, WebViewPool.getMissCount());
+    }
+
+    @Test
+    public void testObtainWithoutPooledView() {
+        assertNull(WebViewPool.obtain(RuntimeEnvironment.application, null));
+
+        assertEquals(0, WebViewPool.getHitCount());
+        assertEquals(1, WebViewPool.getMissCount());
+    }
+
+    @Test
+    public void testPooledViewIsOnlyHandedOutOnce() {
+        WebViewPool.put(createPooledView(new MutableContextWrapper(RuntimeEnvironment.application)));
+
+        WebViewPool.obtain(RuntimeEnvironment.application, null);
+        assertNull(WebViewPool.obtain(RuntimeEnvironment.application, null));
+
+        assertEquals(1, WebViewPool.getHitCount());
+        assertEquals(1, WebViewPool.getMissCount());
+    }
+
+    @Test
+    public void testNoPrewarmingOnceSessionHasWebView() {
+        assertTrue(WebViewPool.shouldPrewarm());
+
+        WebViewPool.obtain(RuntimeEnvironment.application, null);
+
+        assertFalse(WebViewPool.shouldPrewarm());
+    }
+
+    @Test
+    public void testClearDestroysPooledView() {
+        final WebkitView view = createPooledView(new MutableContextWrapper(RuntimeEnvironment.application));
+        WebViewPool.put(view);
+        assertFalse(WebViewPool.shouldPrewarm());
+
+        WebViewPool.clear();
+
+        verify(view).destroy();
+        assertNull(WebViewPool.obtain(RuntimeEnvironment.application, null));
+    }
+
+    @Test
+    public void testClearAllowsPrewarmingForNextSession() {
+        WebViewPool.obtain(RuntimeEnvironment.application, null);
+        assertFalse(WebViewPool.shouldPrewarm());
+
+        WebViewPool.clear();
+
+        assertTrue(WebViewPool.shouldPrewarm());
+    }
+}
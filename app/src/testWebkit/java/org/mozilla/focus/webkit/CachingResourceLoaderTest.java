@@ -0,0 +1,37 @@
+/* -*- Mode: Java; c-basic-offset: 4; tab-width: 20; indent-tabs-mode: nil; -*-
+ * This Source Code Form is subject to the terms of the Mozilla Public
+ * License, v. 2.0. If a copy of the MPL was not distributed with this
+ * file, You can obtain one at http://mozilla.org/MPL/2.0/. */
+package org.mozilla.focus.webkit;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+
+import static org.junit.Assert.*;
+
+@RunWith(RobolectricTestRunner.class)
+public class CachingResourceLoaderTest {
+    @Test
+    public void testInvalidStatusCodes() {
+        assertFalse(CachingResourceLoader.isValidFinalStatusCode(-1));
+        assertFalse(CachingResourceLoader.isValidFinalStatusCode(0));
+        assertFalse(CachingResourceLoader.isValidFinalStatusCode(100));
+        assertFalse(CachingResourceLoader.isValidFinalStatusCode(600));
+        assertFalse(CachingResourceLoader.isValidFinalStatusCode(999));
+
+        assertTrue(CachingResourceLoader.isValidFinalStatusCode(200));
+        assertTrue(CachingResourceLoader.isValidFinalStatusCode(404));
+        assertTrue(CachingResourceLoader.isValidFinalStatusCode(599));
+    }
+
+    @Test
+    public void testReasonPhrase() {
+        assertEquals("Everything is fine", CachingResourceLoader.getReasonPhrase(200, "Everything is fine"));
+
+        assertEquals("OK", CachingResourceLoader.getReasonPhrase(200, null));
+        assertEquals("Not Found", CachingResourceLoader.getReasonPhrase(404, ""));
+        assertEquals("Service Unavailable", CachingResourceLoader.getReasonPhrase(503, "Service nicht verfügbar"));
+        assertEquals("Unknown", CachingResourceLoader.getReasonPhrase(418, null));
+    }
+}
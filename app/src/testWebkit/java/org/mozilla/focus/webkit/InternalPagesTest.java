@@ -0,0 +1,86 @@
+/* -*- Mode: Java; c-basic-offset: 4; tab-width: 20; indent-tabs-mode: nil; -*-
+ * This Source Code Form is subject to the terms of the Mozilla Public
+ * License, v. 2.0. If a copy of the MPL was not distributed with this
+ * file, You can obtain one at http://mozilla.org/MPL/2.0/. */
+package org.mozilla.focus.webkit;
+
+import android.os.StrictMode;
+import android.webkit.WebResourceResponse;
+
+import org.junit.After;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mozilla.focus.BuildConfig;
+import org.mozilla.focus.utils.IOUtils;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.RuntimeEnvironment;
+import org.robolectric.annotation.Config;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+import static org.junit.Assert.*;
+
+@RunWith(RobolectricTestRunner.class)
+@Config(constants = BuildConfig.class, packageName = "org.mozilla.focus")
+public class InternalPagesTest {
+    private static final byte[] PNG_HEADER = new byte[] { -119, 80, 78, 71, 13, 10, 26, 10 };
+
+    @After
+    public void cleanup() {
+        // Reset strict mode, see TrackingProtectionWebViewClientTest.
+        StrictMode.setThreadPolicy(new StrictMode.ThreadPolicy.Builder().build());
+    }
+
+    @Test
+    public void testOtherUrlsAreNotServed() {
+        assertNull(InternalPages.serve(RuntimeEnvironment.application, "https://www.mozilla.org/"));
+        assertNull(InternalPages.serve(RuntimeEnvironment.application, "file:///android_asset/style.css"));
+        assertNull(InternalPages.serve(RuntimeEnvironment.application, "file:///android_asset/internal/unknown.html"));
+    }
+
+    @Test
+    public void testAboutPage() throws Exception {
+        final WebResourceResponse response = InternalPages.serve(RuntimeEnvironment.application, InternalPages.ABOUT_URL);
+
+        assertNotNull(response);
+        assertEquals("text/html", response.getMimeType());
+        assertEquals("UTF-8", response.getEncoding());
+
+        final String page = new String(IOUtils.readFully(response.getData()), StandardCharsets.UTF_8);
+
+        assertTrue(page.contains("file:///android_asset/internal/wordmark.png"));
+
+        // All slots have been filled.
+        assertFalse(page.contains("%about-"));
+        assertFalse(page.contains("%wordmark%"));
+        assertFalse(page.contains("%dir%"));
+    }
+
+    @Test
+    public void testWordmark() throws Exception {
+        final WebResourceResponse response = InternalPages.serve(RuntimeEnvironment.application,
+                "file:///android_asset/internal/wordmark.png");
+
+        assertNotNull(response);
+        assertEquals("image/png", response.getMimeType());
+        assertNull(response.getEncoding());
+
+        final byte[] data = IOUtils.readFully(response.getData());
+        assertArrayEquals(PNG_HEADER, Arrays.copyOf(data, PNG_HEADER.length));
+    }
+
+    @Test
+    public void testEveryResponseHasItsOwnStream() throws Exception {
+        final WebResourceResponse first = InternalPages.serve(RuntimeEnvironment.application, InternalPages.ABOUT_URL);
+        final WebResourceResponse second = InternalPages.serve(RuntimeEnvironment.application, InternalPages.ABOUT_URL);
+
+        assertNotNull(first);
+        assertNotNull(second);
+        assertNotSame(first.getData(), second.getData());
+
+        final byte[] firstData = IOUtils.readFully(first.getData());
+        assertTrue(firstData.length > 0);
+        assertArrayEquals(firstData, IOUtils.readFully(second.getData()));
+    }
+}
@@ -0,0 +1,181 @@
+/* -*- Mode: Java; c-basic-offset: 4; tab-width: 20; indent-tabs-mode: nil; -*-
+ * This Source Code Form is subject to the terms of the Mozilla Public
+ * License, v. 2.0. If a copy of the MPL was not distributed with this
+ * file, You can obtain one at http://mozilla.org/MPL/2.0/. */
+
+package org.mozilla.focus.web;
+
+import android.content.Context;
+import android.content.MutableContextWrapper;
+import android.os.Looper;
+import android.os.MessageQueue;
+import android.os.SystemClock;
+import android.support.annotation.Nullable;
+import android.support.annotation.UiThread;
+import android.support.annotation.VisibleForTesting;
+import android.util.AttributeSet;
+import android.util.Log;
+import android.view.View;
+
+import org.mozilla.focus.utils.ThreadUtils;
+import org.mozilla.focus.webkit.WebkitView;
+
+/**
+ * Holds (at most) one WebView that has been created and configured ahead of time, so that opening
+ * a website doesn't need to pay for constructing a WebView between receiving the URL and starting
+ * the first request.
+ *
+ * The pooled WebView is created with a {@link MutableContextWrapper} around the application
+ * context and is switched over to the activity when it is adopted. It never loads anything
+ * before being adopted, and it is destroyed whenever the browsing session is erased. Erasing from
+ * the UI creates a new one the next time the app is idle, for the next session.
+ */
+/* package */ class WebViewPool {
+    private static final String LOG_TAG = "WebViewPool";
+
+    private static final String ANDROID_NAMESPACE = "http://schemas.android.com/apk/res/android";
+
+    private static WebkitView pooledView;
+
+    /**
+     * Set once a WebView has been requested, reset when the session is erased. The pool is only
+     * meant to speed up showing the first website of a session: If the session has a WebView
+     * already there's no need to keep another one around.
+     */
+    private static boolean webViewRequested;
+
+    private static int hitCount;
+    private static int missCount;
+    private static long totalConstructionNanos;
+    private static int constructionCount;
+
+    private WebViewPool() {}
+
+    /**
+     * Create and configure a WebView for the next {@link #obtain(Context, AttributeSet)} call.
+     * Should be called when the app is idle, after the first frame has been drawn.
+     */
+    @UiThread
+    /* package */ static void prewarm(Context context) {
+        ThreadUtils.assertOnUiThread();
+
+        if (!shouldPrewarm()) {
+            return;
+        }
+
+        final Context wrapper = new MutableContextWrapper(context.getApplicationContext());
+        pooledView = construct(wrapper, null);
+    }
+
+    /**
+     * Like {@link #prewarm(Context)}, but only once the UI thread is idle the next time.
+     */
+    @UiThread
+    /* package */ static void prewarmWhenIdle(final Context context) {
+        final Context applicationContext = context.getApplicationContext();
+
+        Looper.myQueue().addIdleHandler(new MessageQueue.IdleHandler() {
+            @Override
+            public boolean queueIdle() {
+                prewarm(applicationContext);
+                return false;
+            }
+        });
+    }
+
+    @VisibleForTesting static boolean shouldPrewarm() {
+        return pooledView == null && !webViewRequested;
+    }
+
+    /**
+     * Put a WebView into the pool (instead of constructing it in {@link #prewarm(Context)}).
+     */
+    @VisibleForTesting static void put(WebkitView view) {
+        pooledView = view;
+    }
+
+    @VisibleForTesting static void reset() {
+        pooledView = null;
+        webViewRequested = false;
+        hitCount = 0;
+        missCount = 0;
+    }
+
+    /**
+     * Returns the pooled WebView, adopted by the given context, or null if there's none.
+     */
+    @UiThread
+    @Nullable
+    /* package */ static WebkitView obtain(Context context, AttributeSet attrs) {
+        ThreadUtils.assertOnUiThread();
+
+        webViewRequested = true;
+
+        final WebkitView view = pooledView;
+        pooledView = null;
+
+        if (view == null) {
+            missCount++;
+            return null;
+        }
+
+        hitCount++;
+
+        ((MutableContextWrapper) view.getContext()).setBaseContext(context);
+
+        // The view has been constructed without the attributes from the layout. The layout params
+        // are generated by the parent. But the ID is something the view reads itself.
+        view.setId(attrs != null
+                ? attrs.getAttributeResourceValue(ANDROID_NAMESPACE, "id", View.NO_ID)
+                : View.NO_ID);
+
+        return view;
+    }
+
+    /**
+     * Destroy the pooled WebView (if any). Called when the browsing session is erased: The next
+     * session may use a pooled WebView again.
+     */
+    @UiThread
+    /* package */ static void clear() {
+        if (pooledView != null) {
+            pooledView.destroy();
+            pooledView = null;
+        }
+
+        webViewRequested = false;
+    }
+
+    /**
+     * Create and configure a new WebView and measure how long that took.
+     */
+    /* package */ static WebkitView construct(Context context, AttributeSet attrs) {
+        final long start = SystemClock.elapsedRealtimeNanos();
+
+        final WebkitView view = WebViewProvider.createWebkitView(context, attrs);
+
+        final long duration = SystemClock.elapsedRealtimeNanos() - start;
+        totalConstructionNanos += duration;
+        constructionCount++;
+
+        Log.d(LOG_TAG, "WebView constructed in " + (duration / 1000000) + "ms"
+                + " (hits: " + hitCount + ", misses: " + missCount + ")");
+
+        return view;
+    }
+
+    /* package */ static int getHitCount() {
+        return hitCount;
+    }
+
+    /* package */ static int getMissCount() {
+        return missCount;
+    }
+
+    /**
+     * Average time it took to construct and configure a WebView, in milliseconds.
+     */
+    /* package */ static long getAverageConstructionMillis() {
+        return constructionCount == 0 ? 0 : totalConstructionNanos / constructionCount / 1000000;
+    }
+}
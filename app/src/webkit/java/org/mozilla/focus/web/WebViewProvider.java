@@ -7,7 +7,6 @@ package org.mozilla.focus.web;
 
 import android.annotation.SuppressLint;
 import android.content.Context;
-import android.content.pm.PackageManager;
 import android.os.Build;
 import android.support.annotation.VisibleForTesting;
 import android.text.TextUtils;
@@ -16,8 +15,9 @@ import android.view.View;
 import android.webkit.WebSettings;
 import android.webkit.WebView;
 
-import org.mozilla.focus.R;
+import org.mozilla.focus.utils.BrowserIdentity;
 import org.mozilla.focus.utils.Settings;
+import org.mozilla.focus.utils.ThreadUtils;
 import org.mozilla.focus.webkit.TrackingProtectionWebViewClient;
 import org.mozilla.focus.webkit.WebkitView;
 
@@ -25,6 +25,12 @@ import org.mozilla.focus.webkit.WebkitView;
  * WebViewProvider for creating a WebKit based IWebVIew implementation.
  */
 public class WebViewProvider {
+    /**
+     * The user agent string we apply to every WebView. It only depends on the WebView implementation
+     * and on the app version, so it's only built once per process.
+     */
+    private static volatile String userAgentString;
+
     /**
      * Preload webview data. This allows the webview implementation to load resources and other data
      * it might need, in advance of intialising the view (at which time we are probably wanting to
@@ -32,13 +38,76 @@ public class WebViewProvider {
      */
     public static void preload(final Context context) {
         TrackingProtectionWebViewClient.triggerPreload(context);
+
+        final Context applicationContext = context.getApplicationContext();
+
+        ThreadUtils.postToBackgroundThread(new Runnable() {
+            @Override
+            public void run() {
+                if (userAgentString == null) {
+                    userAgentString = buildUserAgentString(
+                            WebSettings.getDefaultUserAgent(applicationContext),
+                            BrowserIdentity.get(applicationContext).getUserAgentToken());
+                }
+            }
+        });
     }
 
-    public static void performCleanup(final Context context) {
-        WebkitView.deleteContentFromKnownLocations(context);
+    /**
+     * Create a WebView ahead of time, so that the next call to {@link #create(Context, AttributeSet)}
+     * doesn't need to. Call this once the app is idle.
+     */
+    public static void prewarm(final Context context) {
+        WebViewPool.prewarm(context);
+    }
+
+    /**
+     * Destroy any WebView that has been created ahead of time, and create a new one for the next
+     * session once the app is idle.
+     */
+    public static void clearPool(final Context context) {
+        WebViewPool.clear();
+        WebViewPool.prewarmWhenIdle(context);
+    }
+
+    /**
+     * How often a WebView created ahead of time could be used, for debugging.
+     */
+    public static String getPoolSummary() {
+        return WebViewPool.getHitCount() + " hits, " + WebViewPool.getMissCount() + " misses, "
+                + "construction " + WebViewPool.getAverageConstructionMillis() + "ms on average";
+    }
+
+    /**
+     * Delete all browsing data we know of without having a WebView. Returns the (sealed) erase
+     * operation that completes once all data has been deleted.
+     */
+    public static EraseOperation performCleanup(final Context context) {
+        final EraseOperation operation = EraseOperation.start();
+
+        operation.runStep("pool", new Runnable() {
+            @Override
+            public void run() {
+                WebViewPool.clear();
+            }
+        });
+
+        WebkitView.deleteContentFromKnownLocations(context, operation);
+
+        operation.seal();
+        return operation;
     }
 
     public static View create(Context context, AttributeSet attrs) {
+        final WebkitView pooledView = WebViewPool.obtain(context, attrs);
+        if (pooledView != null) {
+            return pooledView;
+        }
+
+        return WebViewPool.construct(context, attrs);
+    }
+
+    /* package */ static WebkitView createWebkitView(Context context, AttributeSet attrs) {
         final WebkitView webkitView = new WebkitView(context, attrs);
         final WebSettings settings = webkitView.getSettings();
 
@@ -80,8 +149,7 @@ public class WebViewProvider {
         settings.setAllowFileAccessFromFileURLs(false);
         settings.setAllowUniversalAccessFromFileURLs(false);
 
-        final String appName = context.getResources().getString(R.string.useragent_appname);
-        settings.setUserAgentString(buildUserAgentString(context, settings, appName));
+        settings.setUserAgentString(getUserAgentString(context, settings));
 
         // Right now I do not know why we should allow loading content from a content provider
         settings.setAllowContentAccess(false);
@@ -142,7 +210,29 @@ public class WebViewProvider {
         return TextUtils.join(" ", tokens) + " " + focusToken;
     }
 
+    /**
+     * Returns the user agent string built by {@link #preload(Context)}, or builds it now (on the
+     * calling thread) if that hasn't happened yet.
+     */
+    private static String getUserAgentString(final Context context, final WebSettings settings) {
+        String userAgent = userAgentString;
+
+        if (userAgent == null) {
+            userAgent = buildUserAgentString(settings.getUserAgentString(),
+                    BrowserIdentity.get(context).getUserAgentToken());
+            userAgentString = userAgent;
+        }
+
+        return userAgent;
+    }
+
     @VisibleForTesting static String buildUserAgentString(final Context context, final WebSettings settings, final String appName) {
+        final String focusToken = appName + "/" + BrowserIdentity.get(context).getVersionName();
+
+        return buildUserAgentString(settings.getUserAgentString(), focusToken);
+    }
+
+    private static String buildUserAgentString(final String existingWebViewUA, final String focusToken) {
         final StringBuilder uaBuilder = new StringBuilder();
 
         uaBuilder.append("Mozilla/5.0");
@@ -154,17 +244,6 @@ public class WebViewProvider {
         // so we skip that too.
         uaBuilder.append(" (Linux; Android ").append(Build.VERSION.RELEASE).append(") ");
 
-        final String existingWebViewUA = settings.getUserAgentString();
-
-        final String appVersion;
-        try {
-            appVersion = context.getPackageManager().getPackageInfo(context.getPackageName(), 0).versionName;
-        } catch (PackageManager.NameNotFoundException e) {
-            // This should be impossible - we should always be able to get information about ourselves:
-            throw new IllegalStateException("Unable find package details for Focus", e);
-        }
-
-        final String focusToken = appName + "/" + appVersion;
         uaBuilder.append(getUABrowserString(existingWebViewUA, focusToken));
 
         return uaBuilder.toString();
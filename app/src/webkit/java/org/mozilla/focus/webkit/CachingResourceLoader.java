@@ -0,0 +1,393 @@
+/* -*- Mode: Java; c-basic-offset: 4; tab-width: 20; indent-tabs-mode: nil; -*-
+ * This Source Code Form is subject to the terms of the Mozilla Public
+ * License, v. 2.0. If a copy of the MPL was not distributed with this
+ * file, You can obtain one at http://mozilla.org/MPL/2.0/. */
+package org.mozilla.focus.webkit;
+
+import android.os.SystemClock;
+import android.support.annotation.Nullable;
+import android.support.annotation.VisibleForTesting;
+import android.support.annotation.WorkerThread;
+import android.text.TextUtils;
+import android.util.Log;
+import android.webkit.CookieManager;
+import android.webkit.WebResourceRequest;
+import android.webkit.WebResourceResponse;
+
+import org.mozilla.focus.web.SessionResponseCache;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Loads images through the {@link SessionResponseCache}: Fresh responses are served from memory,
+ * everything else is loaded from the network and stored while the WebView reads it.
+ *
+ * Whether we take over a request is decided before anything is sent: Once a request has gone out
+ * we always answer it ourselves, otherwise the WebView would send it a second time. That's why we
+ * only take over requests that the WebView would make without cookies, and only images: We follow
+ * redirects ourselves (WebResourceResponse can't represent them) and serve the final response
+ * under the original URL, which doesn't matter for images but would for scripts, stylesheets or
+ * XHRs. Cookies set by responses we loaded are not stored: We can't apply the WebView's
+ * third-party cookie policy here. Redirected responses and responses setting cookies are served
+ * but never cached.
+ */
+/* package */ class CachingResourceLoader {
+    private static final String LOG_TAG = "CachingResourceLoader";
+
+    private static final int TIMEOUT_MILLIS = 30 * 1000;
+    private static final int MAX_REDIRECTS = 5;
+
+    @WorkerThread
+    @Nullable
+    /* package */ static WebResourceResponse load(WebResourceRequest request) {
+        if (!shouldTakeOver(request)) {
+            return null;
+        }
+
+        final String url = request.getUrl().toString();
+        final SessionResponseCache cache = SessionResponseCache.getInstance();
+        final Map<String, String> requestHeaders = request.getRequestHeaders();
+
+        if (!SessionResponseCache.isBypassRequested(getHeader(requestHeaders, "Cache-Control"), getHeader(requestHeaders, "Pragma"))) {
+            final SessionResponseCache.Entry entry = cache.get(url, SystemClock.elapsedRealtime());
+            if (entry != null) {
+                return new WebResourceResponse(entry.mimeType, entry.encoding, entry.statusCode,
+                        entry.reasonPhrase, entry.headers, new ByteArrayInputStream(entry.body));
+            }
+        }
+
+        if (!TextUtils.isEmpty(CookieManager.getInstance().getCookie(url))) {
+            // Don't send cookies on behalf of the WebView: Its cookie policy is more involved
+            // than what we could reproduce here (e.g. third-party cookies).
+            return null;
+        }
+
+        final int generation = cache.getGeneration();
+
+        final HttpURLConnection connection;
+        try {
+            connection = openConnection(url, requestHeaders);
+            connection.connect();
+        } catch (IOException e) {
+            // Nothing has been sent yet: The WebView can still load the resource itself.
+            Log.d(LOG_TAG, "Connecting failed, falling back to WebView", e);
+            return null;
+        }
+
+        try {
+            return fetch(cache, generation, url, connection, requestHeaders);
+        } catch (IOException e) {
+            // The request might have reached the server: Don't let the WebView send it again.
+            Log.d(LOG_TAG, "Loading resource failed", e);
+            return createErrorResponse();
+        }
+    }
+
+    private static boolean shouldTakeOver(WebResourceRequest request) {
+        final String scheme = request.getUrl().getScheme();
+        final String accept = getHeader(request.getRequestHeaders(), "Accept");
+
+        return !request.isForMainFrame()
+                && "GET".equals(request.getMethod())
+                && isHttpOrHttps(scheme)
+                && accept != null && accept.startsWith("image/")
+                && getHeader(request.getRequestHeaders(), "Range") == null
+                && getHeader(request.getRequestHeaders(), "Authorization") == null;
+    }
+
+    private static boolean isHttpOrHttps(@Nullable String scheme) {
+        return "http".equals(scheme) || "https".equals(scheme);
+    }
+
+    private static HttpURLConnection openConnection(String url, Map<String, String> requestHeaders) throws IOException {
+        final HttpURLConnection connection = (HttpURLConnection) new URL(url).openConnection();
+        connection.setUseCaches(false);
+        connection.setInstanceFollowRedirects(false);
+        connection.setConnectTimeout(TIMEOUT_MILLIS);
+        connection.setReadTimeout(TIMEOUT_MILLIS);
+
+        for (Map.Entry<String, String> header : requestHeaders.entrySet()) {
+            final String name = header.getKey();
+
+            // Let HttpURLConnection negotiate (and undo) the content encoding. Conditional
+            // requests could be answered with 304, which we can't hand to the WebView.
+            if (!"Accept-Encoding".equalsIgnoreCase(name)
+                    && !"If-None-Match".equalsIgnoreCase(name)
+                    && !"If-Modified-Since".equalsIgnoreCase(name)) {
+                connection.setRequestProperty(name, header.getValue());
+            }
+        }
+
+        return connection;
+    }
+
+    private static WebResourceResponse fetch(final SessionResponseCache cache, final int generation, final String url,
+                                             HttpURLConnection connection, Map<String, String> requestHeaders) throws IOException {
+        String currentUrl = url;
+        int statusCode = connection.getResponseCode();
+        int redirects = 0;
+
+        while (statusCode >= 300 && statusCode < 400) {
+            final String location = connection.getHeaderField("Location");
+            connection.disconnect();
+
+            if (location == null || ++redirects > MAX_REDIRECTS) {
+                return createErrorResponse();
+            }
+
+            final URL target = new URL(new URL(currentUrl), location);
+            if (!isHttpOrHttps(target.getProtocol())) {
+                return createErrorResponse();
+            }
+
+            currentUrl = target.toString();
+            connection = openConnection(currentUrl, requestHeaders);
+            statusCode = connection.getResponseCode();
+        }
+
+        if (!isValidFinalStatusCode(statusCode)) {
+            // getResponseCode() returns -1 for responses it can't parse. WebResourceResponse would
+            // throw for anything outside of 100-599.
+            connection.disconnect();
+            return createErrorResponse();
+        }
+
+        final Map<String, String> responseHeaders = new HashMap<>();
+        for (Map.Entry<String, List<String>> header : connection.getHeaderFields().entrySet()) {
+            if (header.getKey() != null && !"Set-Cookie".equalsIgnoreCase(header.getKey())) {
+                responseHeaders.put(header.getKey(), TextUtils.join(", ", header.getValue()));
+            }
+        }
+
+        final String contentType = connection.getContentType();
+        final String mimeType = parseMimeType(contentType);
+        final String encoding = parseCharset(contentType);
+        final String reasonPhrase = getReasonPhrase(statusCode, connection.getResponseMessage());
+
+        InputStream stream = statusCode >= 400 ? connection.getErrorStream() : connection.getInputStream();
+        if (stream == null) {
+            // A response without data would look like a blocked request to the WebView.
+            stream = new ByteArrayInputStream(new byte[0]);
+        }
+
+        final long maxAgeMillis = SessionResponseCache.getMaxAgeMillis(connection.getHeaderField("Cache-Control"));
+        final String vary = connection.getHeaderField("Vary");
+
+        if (statusCode != HttpURLConnection.HTTP_OK
+                || redirects > 0
+                || connection.getHeaderField("Set-Cookie") != null
+                || maxAgeMillis == 0
+                || (vary != null && !"Accept-Encoding".equalsIgnoreCase(vary.trim()))) {
+            return new WebResourceResponse(mimeType, encoding, statusCode, reasonPhrase, responseHeaders, stream);
+        }
+
+        final long expiresAtMillis = SystemClock.elapsedRealtime() + maxAgeMillis - parseAgeMillis(connection.getHeaderField("Age"));
+
+        final InputStream cachingStream = new RecordingInputStream(stream, cache.getMaxEntrySizeBytes()) {
+            @Override
+            protected void onCompleted(byte[] body) {
+                cache.put(url, new SessionResponseCache.Entry(mimeType, encoding, HttpURLConnection.HTTP_OK, reasonPhrase,
+                        responseHeaders, body, expiresAtMillis), generation);
+            }
+        };
+
+        return new WebResourceResponse(mimeType, encoding, statusCode, reasonPhrase, responseHeaders, cachingStream);
+    }
+
+    /**
+     * What we serve if we can't get a usable response after the request has been sent.
+     */
+    private static WebResourceResponse createErrorResponse() {
+        return new WebResourceResponse("text/plain", null, HttpURLConnection.HTTP_BAD_GATEWAY, "Bad Gateway",
+                new HashMap<String, String>(), new ByteArrayInputStream(new byte[0]));
+    }
+
+    /**
+     * Whether we can hand a response with this status code to the WebView. Redirects have been
+     * followed at this point and informational responses are handled by HttpURLConnection.
+     */
+    @VisibleForTesting static boolean isValidFinalStatusCode(int statusCode) {
+        return statusCode >= 200 && statusCode < 600;
+    }
+
+    /**
+     * The reason phrase sent by the server, or the standard one for the status code if the server
+     * didn't send one WebResourceResponse accepts (it must not be empty and must be ASCII).
+     */
+    @VisibleForTesting static String getReasonPhrase(int statusCode, @Nullable String responseMessage) {
+        if (!TextUtils.isEmpty(responseMessage) && isAscii(responseMessage)) {
+            return responseMessage;
+        }
+
+        switch (statusCode) {
+            case HttpURLConnection.HTTP_OK:
+                return "OK";
+            case HttpURLConnection.HTTP_CREATED:
+                return "Created";
+            case HttpURLConnection.HTTP_ACCEPTED:
+                return "Accepted";
+            case HttpURLConnection.HTTP_NO_CONTENT:
+                return "No Content";
+            case HttpURLConnection.HTTP_PARTIAL:
+                return "Partial Content";
+            case HttpURLConnection.HTTP_BAD_REQUEST:
+                return "Bad Request";
+            case HttpURLConnection.HTTP_UNAUTHORIZED:
+                return "Unauthorized";
+            case HttpURLConnection.HTTP_FORBIDDEN:
+                return "Forbidden";
+            case HttpURLConnection.HTTP_NOT_FOUND:
+                return "Not Found";
+            case HttpURLConnection.HTTP_GONE:
+                return "Gone";
+            case 429:
+                return "Too Many Requests";
+            case HttpURLConnection.HTTP_INTERNAL_ERROR:
+                return "Internal Server Error";
+            case HttpURLConnection.HTTP_BAD_GATEWAY:
+                return "Bad Gateway";
+            case HttpURLConnection.HTTP_UNAVAILABLE:
+                return "Service Unavailable";
+            case HttpURLConnection.HTTP_GATEWAY_TIMEOUT:
+                return "Gateway Timeout";
+            default:
+                return "Unknown";
+        }
+    }
+
+    private static boolean isAscii(String value) {
+        for (int i = 0; i < value.length(); i++) {
+            if (value.charAt(i) > 0x7F) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static String parseMimeType(@Nullable String contentType) {
+        if (contentType == null) {
+            return "application/octet-stream";
+        }
+
+        final int separator = contentType.indexOf(';');
+        return (separator == -1 ? contentType : contentType.substring(0, separator)).trim();
+    }
+
+    @Nullable
+    private static String parseCharset(@Nullable String contentType) {
+        if (contentType == null) {
+            return null;
+        }
+
+        for (String parameter : contentType.split(";")) {
+            parameter = parameter.trim();
+            if (parameter.toLowerCase(Locale.US).startsWith("charset=")) {
+                return parameter.substring("charset=".length()).replace("\"", "");
+            }
+        }
+
+        return null;
+    }
+
+    private static long parseAgeMillis(@Nullable String age) {
+        if (age == null) {
+            return 0;
+        }
+
+        try {
+            return Math.max(0, Long.parseLong(age.trim())) * 1000;
+        } catch (NumberFormatException e) {
+            return 0;
+        }
+    }
+
+    @Nullable
+    private static String getHeader(Map<String, String> headers, String name) {
+        for (Map.Entry<String, String> header : headers.entrySet()) {
+            if (name.equalsIgnoreCase(header.getKey())) {
+                return header.getValue();
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Passes the stream through to the WebView and keeps a copy of everything that has been read.
+     * Once the stream has been read completely (and it wasn't larger than the limit), the copy is
+     * handed to {@link #onCompleted(byte[])}.
+     */
+    private abstract static class RecordingInputStream extends FilterInputStream {
+        private final int maxSizeBytes;
+        private ByteArrayOutputStream recording = new ByteArrayOutputStream();
+        private boolean completed;
+
+        private RecordingInputStream(InputStream stream, int maxSizeBytes) {
+            super(stream);
+            this.maxSizeBytes = maxSizeBytes;
+        }
+
+        @Override
+        public int read() throws IOException {
+            final int value = super.read();
+            if (value == -1) {
+                complete();
+            } else {
+                record(new byte[] { (byte) value }, 0, 1);
+            }
+            return value;
+        }
+
+        @Override
+        public int read(byte[] buffer, int offset, int count) throws IOException {
+            final int read = super.read(buffer, offset, count);
+            if (read == -1) {
+                complete();
+            } else {
+                record(buffer, offset, read);
+            }
+            return read;
+        }
+
+        @Override
+        public long skip(long count) throws IOException {
+            // Skipped content would be missing from the recording.
+            recording = null;
+            return super.skip(count);
+        }
+
+        private void record(byte[] buffer, int offset, int count) {
+            if (recording == null) {
+                return;
+            }
+
+            if (recording.size() + count > maxSizeBytes) {
+                recording = null;
+                return;
+            }
+
+            recording.write(buffer, offset, count);
+        }
+
+        private void complete() {
+            if (completed || recording == null) {
+                return;
+            }
+
+            completed = true;
+            onCompleted(recording.toByteArray());
+            recording = null;
+        }
+
+        protected abstract void onCompleted(byte[] body);
+    }
+}
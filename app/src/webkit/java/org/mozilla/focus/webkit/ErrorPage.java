@@ -81,6 +81,10 @@ public class ErrorPage {
                 new Pair<>(R.string.error_generic_title, R.string.error_generic_message));
     }
 
+    private static final String[] ERROR_PAGE_SLOTS = new String[] {
+            "%pageTitle%", "%button%", "%messageShort%", "%messageLong%", "%css%"
+    };
+
     public static boolean supportsErrorCode(final int errorCode) {
         return (errorDescriptionMap.get(errorCode) != null);
     }
@@ -104,13 +108,15 @@ public class ErrorPage {
         // https://code.google.com/p/android/issues/detail?id=211768 (this breaks loading css via file:///
         // references when running debug builds, and probably klar too) - which means this wouldn't
         // be possible even if we hacked around the mixed content issues.
-        final String cssString = HtmlLoader.loadResourceFile(webView.getContext(), R.raw.errorpage_style, null);
+        // The css and the page template are only read once: We show error pages exactly when the
+        // network is already bad, so this should be as fast as possible.
+        final String cssString = HtmlLoader.loadTemplate(webView.getContext(), R.raw.errorpage_style).render(null);
 
         final Map<String, String> substitutionMap = new ArrayMap<>();
 
         final Resources resources = webView.getContext().getResources();
 
-        substitutionMap.put("%page-title%", resources.getString(R.string.errorpage_title));
+        substitutionMap.put("%pageTitle%", resources.getString(R.string.errorpage_title));
         substitutionMap.put("%button%", resources.getString(R.string.errorpage_refresh));
 
         substitutionMap.put("%messageShort%", resources.getString(errorResourceIDs.first));
@@ -118,7 +124,8 @@ public class ErrorPage {
 
         substitutionMap.put("%css%", cssString);
 
-        final String errorPage = HtmlLoader.loadResourceFile(webView.getContext(), R.raw.errorpage, substitutionMap);
+        final String errorPage = HtmlLoader.loadTemplate(webView.getContext(), R.raw.errorpage, ERROR_PAGE_SLOTS)
+                .render(substitutionMap);
 
         // We could load the raw html file directly into the webview using a file:///android_res/
         // URI - however we'd then need to do some JS hacking to do our String substitutions. Moreover
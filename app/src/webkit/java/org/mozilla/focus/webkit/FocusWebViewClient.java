@@ -5,28 +5,18 @@
 package org.mozilla.focus.webkit;
 
 import android.content.Context;
-import android.content.pm.PackageManager;
-import android.content.res.Resources;
 import android.graphics.Bitmap;
 import android.net.Uri;
 import android.net.http.SslError;
-import android.support.v4.util.ArrayMap;
-import android.support.v4.view.ViewCompat;
-import android.view.View;
 import android.webkit.SslErrorHandler;
 import android.webkit.WebResourceRequest;
 import android.webkit.WebResourceResponse;
 import android.webkit.WebView;
 import android.webkit.WebViewClient;
 
-import org.mozilla.focus.R;
-import org.mozilla.focus.locale.Locales;
-import org.mozilla.focus.utils.HtmlLoader;
-import org.mozilla.focus.utils.SupportUtils;
 import org.mozilla.focus.utils.UrlUtils;
 import org.mozilla.focus.web.IWebView;
-
-import java.util.Map;
+import org.mozilla.focus.web.InterceptionMetrics;
 
 /**
  * WebViewClient layer that handles browser specific WebViewClient functionality, such as error pages
@@ -114,6 +104,14 @@ import java.util.Map;
 
     @Override
     public WebResourceResponse shouldInterceptRequest(WebView view, WebResourceRequest request) {
+        final long start = System.nanoTime();
+
+        final WebResourceResponse internalResponse = InternalPages.serve(context, request.getUrl().toString());
+        if (internalResponse != null) {
+            InterceptionMetrics.record(InterceptionMetrics.Phase.TOTAL, start);
+            return internalResponse;
+        }
+
         // Only update the user visible URL if:
         // 1. The purported site URL has actually been requested
         // 2. And it's being loaded for the main frame (and not a fake/hidden/iframe request)
@@ -140,7 +138,7 @@ import java.util.Map;
             }
         }
 
-        return super.shouldInterceptRequest(view, request);
+        return shouldInterceptRequest(view, request, start);
     }
 
     @Override
@@ -187,7 +185,8 @@ import java.util.Map;
     @Override
     public boolean shouldOverrideUrlLoading(WebView view, String url) {
         if (url.equals("focusabout:")) {
-            loadAbout(view);
+            // The about page is served from shouldInterceptRequest(), see InternalPages.
+            view.loadUrl(InternalPages.ABOUT_URL);
             return true;
         }
 
@@ -280,46 +279,4 @@ import java.util.Map;
 
         super.onReceivedError(webView, errorCode, description, failingUrl);
     }
-
-    private void loadAbout(final WebView webView) {
-        final Resources resources = Locales.getLocalizedResources(webView.getContext());
-
-        final Map<String, String> substitutionMap = new ArrayMap<>();
-        final String appName = webView.getContext().getResources().getString(R.string.app_name);
-        final String learnMoreURL = SupportUtils.getManifestoURL();
-
-        String aboutVersion = "";
-        try {
-            aboutVersion = context.getPackageManager().getPackageInfo(context.getPackageName(), 0).versionName;
-        } catch (PackageManager.NameNotFoundException e) {
-            // Nothing to do if we can't find the package name.
-        }
-        substitutionMap.put("%about-version%", aboutVersion);
-
-        final String aboutContent = resources.getString(R.string.about_content, appName, learnMoreURL);
-        substitutionMap.put("%about-content%", aboutContent);
-
-        final String wordmark = HtmlLoader.loadPngAsDataURI(webView.getContext(), R.drawable.wordmark);
-        substitutionMap.put("%wordmark%", wordmark);
-
-        ViewCompat.setLayoutDirection(webView, View.LAYOUT_DIRECTION_LOCALE);
-        final int layoutDirection = ViewCompat.getLayoutDirection(webView);
-
-        final String direction;
-
-        if (layoutDirection == View.LAYOUT_DIRECTION_LTR) {
-            direction = "ltr";
-        } else if (layoutDirection == View.LAYOUT_DIRECTION_RTL) {
-            direction = "rtl";
-        } else {
-            direction = "auto";
-        }
-        substitutionMap.put("%dir%", direction);
-
-        final String data = HtmlLoader.loadResourceFile(webView.getContext(), R.raw.about, substitutionMap);
-        // We use a file:/// base URL so that we have the right origin to load file:/// css and
-        // image resources.
-        webView.loadDataWithBaseURL("file:///android_res/raw/about.html", data, "text/html", "UTF-8", null);
-    }
-
 }
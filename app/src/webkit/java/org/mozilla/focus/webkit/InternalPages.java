@@ -0,0 +1,133 @@
+/* -*- Mode: Java; c-basic-offset: 4; tab-width: 20; indent-tabs-mode: nil; -*-
+ * This Source Code Form is subject to the terms of the Mozilla Public
+ * License, v. 2.0. If a copy of the MPL was not distributed with this
+ * file, You can obtain one at http://mozilla.org/MPL/2.0/. */
+package org.mozilla.focus.webkit;
+
+import android.content.Context;
+import android.content.res.Configuration;
+import android.content.res.Resources;
+import android.support.annotation.Nullable;
+import android.support.annotation.WorkerThread;
+import android.support.v4.util.ArrayMap;
+import android.view.View;
+import android.webkit.WebResourceResponse;
+
+import org.mozilla.focus.R;
+import org.mozilla.focus.locale.Locales;
+import org.mozilla.focus.utils.BrowserIdentity;
+import org.mozilla.focus.utils.HtmlLoader;
+import org.mozilla.focus.utils.IOUtils;
+import org.mozilla.focus.utils.SupportUtils;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Serves our internal pages (and the images they use) from shouldInterceptRequest(). Pages are
+ * rendered once per locale and then served from memory, which avoids pushing whole documents
+ * through loadDataWithBaseURL().
+ *
+ * Internal pages live below file:///android_asset/ so that they can use our asset stylesheets.
+ */
+/* package */ class InternalPages {
+    private static final String INTERNAL_PAGES_PREFIX = "file:///android_asset/internal/";
+
+    /* package */ static final String ABOUT_URL = INTERNAL_PAGES_PREFIX + "about.html";
+    private static final String WORDMARK_URL = INTERNAL_PAGES_PREFIX + "wordmark.png";
+
+    private static final String MIME_TYPE_HTML = "text/html";
+    private static final String MIME_TYPE_PNG = "image/png";
+
+    private static class Content {
+        private final String mimeType;
+        private final byte[] data;
+
+        private Content(String mimeType, byte[] data) {
+            this.mimeType = mimeType;
+            this.data = data;
+        }
+    }
+
+    private static final Map<String, Content> cache = new HashMap<>();
+
+    /**
+     * Returns the response for the given URL if it's an internal page or image, null otherwise.
+     */
+    @WorkerThread
+    @Nullable
+    /* package */ static WebResourceResponse serve(Context context, String url) {
+        if (!url.startsWith(INTERNAL_PAGES_PREFIX)) {
+            return null;
+        }
+
+        final Resources resources = Locales.getLocalizedResources(context);
+        @SuppressWarnings("deprecation") final String key = url + "/" + resources.getConfiguration().locale;
+
+        Content content;
+        synchronized (cache) {
+            content = cache.get(key);
+        }
+
+        if (content == null) {
+            content = load(context, resources, url);
+            if (content == null) {
+                return null;
+            }
+
+            synchronized (cache) {
+                cache.put(key, content);
+            }
+        }
+
+        // Every response gets its own stream, the bytes are shared.
+        return new WebResourceResponse(content.mimeType,
+                MIME_TYPE_HTML.equals(content.mimeType) ? "UTF-8" : null,
+                new ByteArrayInputStream(content.data));
+    }
+
+    @Nullable
+    private static Content load(Context context, Resources resources, String url) {
+        switch (url) {
+            case ABOUT_URL:
+                return new Content(MIME_TYPE_HTML, renderAbout(context, resources).getBytes(StandardCharsets.UTF_8));
+
+            case WORDMARK_URL:
+                // openRawResource() can open drawables too: BitmapFactory.decodeResource() does the
+                // same, even though the method is annotated with @RawRes.
+                //noinspection ResourceType
+                try (final InputStream stream = context.getResources().openRawResource(R.drawable.wordmark)) {
+                    return new Content(MIME_TYPE_PNG, IOUtils.readFully(stream));
+                } catch (IOException e) {
+                    throw new IllegalStateException("Unable to load wordmark", e);
+                }
+
+            default:
+                return null;
+        }
+    }
+
+    private static String renderAbout(Context context, Resources resources) {
+        final Map<String, String> substitutionMap = new ArrayMap<>();
+        final BrowserIdentity identity = BrowserIdentity.get(context);
+        final String appName = identity.getAppName();
+        final String learnMoreURL = SupportUtils.getManifestoURL();
+
+        substitutionMap.put("%about-version%", identity.getVersionName());
+
+        final String aboutContent = resources.getString(R.string.about_content, appName, learnMoreURL);
+        substitutionMap.put("%about-content%", aboutContent);
+
+        substitutionMap.put("%wordmark%", WORDMARK_URL);
+
+        final Configuration configuration = resources.getConfiguration();
+        substitutionMap.put("%dir%", configuration.getLayoutDirection() == View.LAYOUT_DIRECTION_RTL ? "rtl" : "ltr");
+
+        return HtmlLoader.loadTemplate(context, R.raw.about,
+                "%about-version%", "%about-content%", "%wordmark%", "%dir%").render(substitutionMap);
+    }
+}
@@ -17,15 +17,30 @@ import android.webkit.WebView;
 import android.webkit.WebViewClient;
 
 import org.mozilla.focus.R;
+import org.mozilla.focus.matcher.UrlMatcher;
+import org.mozilla.focus.utils.TrimMemoryCoordinator;
 import org.mozilla.focus.web.BrowsingSession;
-import org.mozilla.focus.webkit.matcher.UrlMatcher;
+import org.mozilla.focus.web.InterceptionMetrics;
+import org.mozilla.focus.web.PageLoadTimeline;
 
 public class TrackingProtectionWebViewClient extends WebViewClient {
     private static volatile UrlMatcher MATCHER;
 
     private boolean blockingEnabled;
+
+    /**
+     * Read for every intercepted request on the WebView's network threads: The owning view keeps
+     * this up to date instead of us reading the preference every time.
+     */
+    private volatile boolean sessionCacheEnabled;
     /* package */ String currentPageURL;
 
+    /**
+     * The timings of the navigation that is currently loading. Requests are intercepted on a
+     * background thread.
+     */
+    private volatile PageLoadTimeline.PageLoad currentPageLoad;
+
     public static void triggerPreload(final Context context) {
         // Only trigger loading if MATCHER is null. (If it's null, MATCHER could already be loading,
         // but we don't have any way of being certain - and there's no real harm since we're not
@@ -45,6 +60,9 @@ public class TrackingProtectionWebViewClient extends WebViewClient {
     @WorkerThread private static synchronized UrlMatcher getMatcher(final Context context) {
         if (MATCHER == null) {
             MATCHER = UrlMatcher.loadMatcher(context, R.raw.blocklist, new int[] { R.raw.google_mapping }, R.raw.entitylist);
+
+            // MATCHER keeps the matcher alive for as long as the process lives.
+            TrimMemoryCoordinator.getInstance().register("url-matcher-verdicts", TrimMemoryCoordinator.Priority.MODERATE, MATCHER);
         }
         return MATCHER;
     }
@@ -65,8 +83,49 @@ public class TrackingProtectionWebViewClient extends WebViewClient {
         return blockingEnabled;
     }
 
+    public void setSessionCacheEnabled(boolean enabled) {
+        this.sessionCacheEnabled = enabled;
+    }
+
     @Override
     public WebResourceResponse shouldInterceptRequest(final WebView view, final WebResourceRequest request) {
+        return shouldInterceptRequest(view, request, System.nanoTime());
+    }
+
+    /**
+     * @param start The {@link System#nanoTime()} timestamp at which the interception of this request
+     *              started. Subclasses that look at the request first pass their own start time, so
+     *              that their work is part of the recorded latency.
+     */
+    /* package */ WebResourceResponse shouldInterceptRequest(final WebView view, final WebResourceRequest request, final long start) {
+        final WebResourceResponse response = interceptRequest(view, request);
+
+        PageLoadTimeline.PageLoad pageLoad = currentPageLoad;
+        if (request.isForMainFrame() && (pageLoad == null || pageLoad.hasStarted())) {
+            // The main frame request of a navigation we didn't start ourselves (e.g. a link click).
+            // This request happens before onPageStarted().
+            pageLoad = new PageLoadTimeline.PageLoad(false, blockingEnabled);
+            currentPageLoad = pageLoad;
+        }
+
+        if (pageLoad != null) {
+            // An empty response (and only an empty response) means we've blocked the request.
+            final boolean blocked = response != null && response.getData() == null;
+            pageLoad.recordInterceptedRequest(blocked, System.nanoTime() - start);
+        }
+
+        InterceptionMetrics.record(InterceptionMetrics.Phase.TOTAL, start);
+
+        // Only requests we haven't blocked reach the (optional) session cache. Loading them from the
+        // network isn't part of the interception latency.
+        if (response == null && sessionCacheEnabled) {
+            return CachingResourceLoader.load(request);
+        }
+
+        return response;
+    }
+
+    private WebResourceResponse interceptRequest(final WebView view, final WebResourceRequest request) {
         if (!blockingEnabled) {
             return super.shouldInterceptRequest(view, request);
         }
@@ -96,13 +155,14 @@ public class TrackingProtectionWebViewClient extends WebViewClient {
             return new WebResourceResponse(null, null, null);
         }
 
+        final long matcherStart = System.nanoTime();
         final UrlMatcher matcher = getMatcher(view.getContext());
+        InterceptionMetrics.record(InterceptionMetrics.Phase.MATCHER_WAIT, matcherStart);
 
         // Don't block the main frame from being loaded. This also protects against cases where we
         // open a link that redirects to another app (e.g. to the play store).
-        final Uri pageUri = Uri.parse(currentPageURL);
         if ((!request.isForMainFrame()) &&
-                matcher.matches(resourceUri, pageUri)) {
+                matcher.matches(resourceUri.toString(), currentPageURL)) {
             BrowsingSession.getInstance().countBlockedTracker();
             return new WebResourceResponse(null, null, null);
         }
@@ -121,6 +181,21 @@ public class TrackingProtectionWebViewClient extends WebViewClient {
         currentPageURL = url;
     }
 
+    /**
+     * Notify that the app is about to load a new URL (e.g. the user has submitted a URL). This
+     * starts the page load timeline of this navigation.
+     */
+    public void notifyLoadRequested() {
+        currentPageLoad = new PageLoadTimeline.PageLoad(true, blockingEnabled);
+    }
+
+    /* package */ void notifyProgress(int progress) {
+        final PageLoadTimeline.PageLoad pageLoad = currentPageLoad;
+        if (pageLoad != null) {
+            pageLoad.markProgress(progress);
+        }
+    }
+
     @Override
     public void onPageStarted(WebView view, String url, Bitmap favicon) {
         if (blockingEnabled) {
@@ -129,6 +204,26 @@ public class TrackingProtectionWebViewClient extends WebViewClient {
 
         currentPageURL = url;
 
+        PageLoadTimeline.PageLoad pageLoad = currentPageLoad;
+        if (pageLoad == null || pageLoad.hasStarted()) {
+            pageLoad = new PageLoadTimeline.PageLoad(false, blockingEnabled);
+            currentPageLoad = pageLoad;
+        }
+        pageLoad.markPageStarted();
+
         super.onPageStarted(view, url, favicon);
     }
+
+    @Override
+    public void onPageFinished(WebView view, String url) {
+        final PageLoadTimeline.PageLoad pageLoad = currentPageLoad;
+
+        // onPageFinished() might be called multiple times for the same page (or without a matching
+        // onPageStarted() for error pages). Only record every load once.
+        if (pageLoad != null && pageLoad.hasStarted() && pageLoad.markPageFinished()) {
+            PageLoadTimeline.getInstance().record(pageLoad);
+        }
+
+        super.onPageFinished(view, url);
+    }
 }
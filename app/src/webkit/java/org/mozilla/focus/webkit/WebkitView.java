@@ -17,6 +17,7 @@ import android.util.Log;
 import android.view.View;
 import android.webkit.CookieManager;
 import android.webkit.DownloadListener;
+import android.webkit.ValueCallback;
 import android.webkit.WebBackForwardList;
 import android.webkit.WebChromeClient;
 import android.webkit.WebStorage;
@@ -26,11 +27,14 @@ import android.webkit.WebViewDatabase;
 import org.mozilla.focus.BuildConfig;
 import org.mozilla.focus.utils.AppConstants;
 import org.mozilla.focus.utils.FileUtils;
+import org.mozilla.focus.utils.Settings;
 import org.mozilla.focus.utils.ThreadUtils;
 import org.mozilla.focus.utils.UrlUtils;
 import org.mozilla.focus.web.BrowsingSession;
 import org.mozilla.focus.web.Download;
+import org.mozilla.focus.web.EraseOperation;
 import org.mozilla.focus.web.IWebView;
+import org.mozilla.focus.web.SessionResponseCache;
 import org.mozilla.focus.web.WebViewProvider;
 
 import java.util.UUID;
@@ -44,10 +48,17 @@ public class WebkitView extends NestedWebView implements IWebView, SharedPrefere
     private FocusWebViewClient client;
     private final LinkHandler linkHandler;
 
+    /**
+     * Identifies the saved state of this WebView in {@link BrowsingSession}. Every save replaces the
+     * previous state of the same WebView.
+     */
+    private String stateId = UUID.randomUUID().toString();
+
     public WebkitView(Context context, AttributeSet attrs) {
         super(context, attrs);
 
         client = new FocusWebViewClient(getContext().getApplicationContext());
+        client.setSessionCacheEnabled(Settings.getInstance(context).shouldUseSessionResponseCache());
 
         setWebViewClient(client);
         setWebChromeClient(createWebChromeClient());
@@ -67,6 +78,9 @@ public class WebkitView extends NestedWebView implements IWebView, SharedPrefere
     protected void onAttachedToWindow() {
         super.onAttachedToWindow();
 
+        // Pooled views are created before the session starts: The setting might have changed since.
+        client.setSessionCacheEnabled(Settings.getInstance(getContext()).shouldUseSessionResponseCache());
+
         PreferenceManager.getDefaultSharedPreferences(getContext()).registerOnSharedPreferenceChangeListener(this);
     }
 
@@ -80,6 +94,8 @@ public class WebkitView extends NestedWebView implements IWebView, SharedPrefere
     @Override
     public void onSharedPreferenceChanged(SharedPreferences sharedPreferences, String key) {
         WebViewProvider.applyAppSettings(getContext(), getSettings());
+
+        client.setSessionCacheEnabled(Settings.getInstance(getContext()).shouldUseSessionResponseCache());
     }
 
     @Override
@@ -88,9 +104,15 @@ public class WebkitView extends NestedWebView implements IWebView, SharedPrefere
 
         // Let's see if there's a UUID in the bundle and whether we have a state assigned to this UUID.
         final String uuid = inBundle.getString(KEY_STATE_UUID);
+        if (uuid != null) {
+            // This WebView replaces the one that saved the state: Keep using the same slot.
+            stateId = uuid;
+        }
+
+        final Bundle state = session.getWebViewState(uuid);
 
-        final WebBackForwardList backForwardList = session.hasWebViewState(uuid)
-                ? super.restoreState(session.getWebViewState(uuid))
+        final WebBackForwardList backForwardList = state != null
+                ? super.restoreState(state)
                 : null;
 
         // Pages are only added to the back/forward list when loading finishes. If a new page is
@@ -123,14 +145,12 @@ public class WebkitView extends NestedWebView implements IWebView, SharedPrefere
         final Bundle stateData = new Bundle();
         super.saveState(stateData);
 
-        // We generate a UUID that we will store in the bundle that Android saves and restores. The
+        // We store the UUID of this WebView in the bundle that Android saves and restores. The
         // actual data will be kept in memory and we are going to use the UUID to lookup the data
         // when restoring.
-        final String uuid = UUID.randomUUID().toString();
-
-        BrowsingSession.getInstance().putWebViewState(uuid, stateData);
+        BrowsingSession.getInstance().putWebViewState(stateId, stateData);
 
-        outState.putString(KEY_STATE_UUID, uuid);
+        outState.putString(KEY_STATE_UUID, stateId);
 
         // See restoreWebViewState() for an explanation of why we need to save this in _addition_
         // to WebView's state
@@ -158,6 +178,7 @@ public class WebkitView extends NestedWebView implements IWebView, SharedPrefere
         // called by webview when clicking on a link, and not when opening a new page for the
         // first time using loadUrl().
         if (!client.shouldOverrideUrlLoading(this, url)) {
+            client.notifyLoadRequested();
             super.loadUrl(url);
         }
 
@@ -174,28 +195,81 @@ public class WebkitView extends NestedWebView implements IWebView, SharedPrefere
     }
 
     @Override
-    public void cleanup() {
-        clearFormData();
-        clearHistory();
-        clearMatches();
-        clearSslPreferences();
-        clearCache(true);
+    public void cleanup(final EraseOperation operation) {
+        // Start removing cookies first: This finishes asynchronously and overlaps with everything we
+        // need to do synchronously on the UI thread.
+        final EraseOperation.Step cookieStep = operation.beginStep("cookies");
+        CookieManager.getInstance().removeAllCookies(new ValueCallback<Boolean>() {
+            @Override
+            public void onReceiveValue(Boolean value) {
+                cookieStep.finish();
+            }
+        });
 
-        // We don't care about the callback - we just want to make sure cookies are gone
-        CookieManager.getInstance().removeAllCookies(null);
+        operation.runStep("webview", new Runnable() {
+            @Override
+            public void run() {
+                clearFormData();
+                clearHistory();
+                clearMatches();
+                clearSslPreferences();
+            }
+        });
 
-        WebStorage.getInstance().deleteAllData();
+        operation.runStep("cache", new Runnable() {
+            @Override
+            public void run() {
+                clearCache(true);
+            }
+        });
 
-        final WebViewDatabase webViewDatabase = WebViewDatabase.getInstance(getContext());
-        // It isn't entirely clear how this differs from WebView.clearFormData()
-        webViewDatabase.clearFormData();
-        webViewDatabase.clearHttpAuthUsernamePassword();
+        operation.runStep("session-response-cache", new Runnable() {
+            @Override
+            public void run() {
+                SessionResponseCache.getInstance().clear();
+            }
+        });
 
-        deleteContentFromKnownLocations(getContext());
+        // There's no way to get notified once this has finished.
+        operation.runStep("web-storage", new Runnable() {
+            @Override
+            public void run() {
+                WebStorage.getInstance().deleteAllData();
+            }
+        });
+
+        operation.runStep("webview-database", new Runnable() {
+            @Override
+            public void run() {
+                final WebViewDatabase webViewDatabase = WebViewDatabase.getInstance(getContext());
+                // It isn't entirely clear how this differs from WebView.clearFormData()
+                webViewDatabase.clearFormData();
+                webViewDatabase.clearHttpAuthUsernamePassword();
+            }
+        });
+
+        // Do not keep a WebView from this session around for the next one.
+        operation.runStep("pool", new Runnable() {
+            @Override
+            public void run() {
+                WebViewProvider.clearPool(getContext());
+            }
+        });
+
+        // Runs on the background thread, in parallel to removing cookies.
+        deleteContentFromKnownLocations(getContext(), operation);
     }
 
     public static void deleteContentFromKnownLocations(final Context context) {
-        ThreadUtils.postToBackgroundThread(new Runnable() {
+        ThreadUtils.postToBackgroundThread(createDeleteContentRunnable(context));
+    }
+
+    public static void deleteContentFromKnownLocations(final Context context, final EraseOperation operation) {
+        operation.runStepInBackground("files", createDeleteContentRunnable(context));
+    }
+
+    private static Runnable createDeleteContentRunnable(final Context context) {
+        return new Runnable() {
             @Override
             public void run() {
                 // We call all methods on WebView to delete data. But some traces still remain
@@ -206,13 +280,15 @@ public class WebkitView extends NestedWebView implements IWebView, SharedPrefere
                 // so let's truncate it.
                 FileUtils.truncateCacheDirectory(context);
             }
-        });
+        };
     }
 
     private WebChromeClient createWebChromeClient() {
         return new WebChromeClient() {
             @Override
             public void onProgressChanged(WebView view, int newProgress) {
+                client.notifyProgress(newProgress);
+
                 if (callback != null) {
                     // This is the earliest point where we might be able to confirm a redirected
                     // URL: we don't necessarily get a shouldInterceptRequest() after a redirect,